@@ -121,12 +121,29 @@ function handleMultiSheetSync(batches) {
     }
     
     // Build existing map with ALL possible keys for each row
+    // Clients send only changed rows, so read just the Date column and then the block of rows
+    // holding the submitted dates, instead of the whole sheet
     let existingMap = {};
     
     if (lastRow > 1) {
-      const existingData = sheet.getRange(2, 1, lastRow - 1, 9).getValues();
-      existingData.forEach((row, idx) => {
+      const batchDates = {};
+      rows.forEach(row => { batchDates[normalizeDate(row[8])] = true; });
+
+      const dateColumn = sheet.getRange(2, 9, lastRow - 1, 1).getValues();
+      let firstIdx = -1;
+      let lastIdx = -1;
+      dateColumn.forEach((cell, idx) => {
+        if (batchDates[normalizeDate(cell[0])]) {
+          if (firstIdx < 0) firstIdx = idx;
+          lastIdx = idx;
+        }
+      });
+
+      const existingData = firstIdx < 0 ? [] : sheet.getRange(firstIdx + 2, 1, lastIdx - firstIdx + 1, 9).getValues();
+      existingData.forEach((row, blockIdx) => {
+        const idx = firstIdx + blockIdx;
         const dateStr = normalizeDate(row[8]); // Date (col 9)
+        if (!batchDates[dateStr]) return;
         const appId = String(row[2] || '').trim();
         const appNum = String(row[1] || '').trim();
         const name = String(row[0] || '').trim();
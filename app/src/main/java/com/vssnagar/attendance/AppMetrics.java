@@ -0,0 +1,321 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Debug;
+import android.util.Log;
+import androidx.core.content.FileProvider;
+import androidx.work.ListenableWorker;
+import com.vssnagar.attendance.core.MetricsRegistry;
+import org.json.JSONObject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * AppMetrics
+ * Process-wide metrics: bridge calls, page loads, worker runs, downloads, exports and backups
+ * Recorded into a lock-free MetricsRegistry; exported as a JSON file that can be shared
+ * through the FileProvider to compare devices in the field.
+ * Values live in memory, so an export covers the current process only.
+ */
+public final class AppMetrics {
+
+    private static final String TAG = "AppMetrics";
+    private static final String EXPORT_DIR = "metrics";
+
+    private static final MetricsRegistry registry = new MetricsRegistry();
+
+    private static final long[] BATCH_SIZES = {1, 2, 4, 8, 16, 32, 64};
+
+    // Page load start (System.nanoTime) of the page currently loading, 0 if none
+    private static volatile long pageStartedNanos;
+
+    private AppMetrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * One @JavascriptInterface call in progress
+     * Strings cross the bridge as UTF-16, so payload bytes are counted as 2 per char
+     */
+    public static final class BridgeCall {
+        private final String method;
+        private final long startedNanos;
+        private final long requestBytes;
+
+        BridgeCall(String method, long requestBytes) {
+            this.method = method;
+            this.requestBytes = requestBytes;
+            this.startedNanos = System.nanoTime();
+        }
+
+        /**
+         * Record a call that returns a string and pass the string through
+         */
+        public String reply(String response) {
+            record(response == null ? -1 : 2L * response.length());
+            return response;
+        }
+
+        /**
+         * Record a void / int call (use in a finally block)
+         */
+        public void end() {
+            record(-1);
+        }
+
+        private void record(long responseBytes) {
+            String prefix = "bridge." + method;
+            registry.counter(prefix + ".calls").increment();
+            registry.histogram(prefix + ".latency_us", MetricsRegistry.LATENCY_MICROS)
+                .record((System.nanoTime() - startedNanos) / 1000);
+            registry.histogram(prefix + ".request_bytes", MetricsRegistry.SIZE_BYTES).record(requestBytes);
+            if (responseBytes >= 0) {
+                registry.histogram(prefix + ".response_bytes", MetricsRegistry.SIZE_BYTES).record(responseBytes);
+            }
+        }
+    }
+
+    /**
+     * Start timing a bridge call
+     * @param stringArgs The call's string arguments (for payload size; nulls allowed)
+     */
+    public static BridgeCall bridgeCall(String method, String... stringArgs) {
+        long bytes = 0;
+        for (String arg : stringArgs) {
+            if (arg != null) bytes += 2L * arg.length();
+        }
+        return new BridgeCall(method, bytes);
+    }
+
+    /**
+     * One message received over the WebMessagePort bridge
+     * @param calls Calls carried by the message (1 for a binary payload)
+     */
+    public static void portBatch(int calls, long bytes) {
+        registry.counter("port.messages").increment();
+        registry.counter("port.calls").add(calls);
+        registry.histogram("port.calls_per_message", BATCH_SIZES).record(calls);
+        registry.histogram("port.message_bytes", MetricsRegistry.SIZE_BYTES).record(bytes);
+    }
+
+    /**
+     * One outbox upload: rows sent vs rows left out as already acknowledged
+     */
+    public static void syncDelta(int changedRows, int unchangedRows) {
+        registry.counter("sync.rows_sent").add(changedRows);
+        registry.counter("sync.rows_unchanged").add(unchangedRows);
+    }
+
+    /**
+     * One PrefetchWorker run: answers fetched ahead of time vs requests that failed
+     */
+    public static void prefetch(int fetched, int failed) {
+        registry.counter("prefetch.fetched").add(fetched);
+        registry.counter("prefetch.failed").add(failed);
+    }
+
+    /**
+     * Connectivity change seen by ConnectivityMonitor
+     * @param offlineNanos How long the device was offline (restores only)
+     */
+    public static void connectivity(boolean online, long offlineNanos) {
+        registry.counter(online ? "network.restored" : "network.lost").increment();
+        if (online && offlineNanos > 0) {
+            registry.histogram("network.offline_us", MetricsRegistry.LATENCY_MICROS).record(offlineNanos / 1000);
+        }
+    }
+
+    /**
+     * The system asked the app to trim memory (onTrimMemory level)
+     */
+    public static void trimMemory(int level) {
+        registry.counter("memory.trim_" + level).increment();
+        sampleMemory();
+    }
+
+    /**
+     * The WebView's renderer process went away
+     * @param crashed Crashed, as opposed to killed by the system to reclaim memory
+     */
+    public static void rendererGone(boolean crashed) {
+        registry.counter(crashed ? "renderer.crashed" : "renderer.killed").increment();
+    }
+
+    /**
+     * The page was rebuilt after a renderer death
+     * @param durationNanos From the death to the new page finishing its load
+     */
+    public static void rendererRecovered(long durationNanos) {
+        registry.counter("renderer.recovered").increment();
+        registry.histogram("renderer.recovery_us", MetricsRegistry.LATENCY_MICROS).record(durationNanos / 1000);
+        sampleMemory();
+    }
+
+    /**
+     * The native marking screen showed its rows
+     * @param durationNanos From opening to the list being bound
+     */
+    public static void markingOpened(int rows, long durationNanos) {
+        registry.counter("marking.opened").increment();
+        registry.counter("marking.rows").add(rows);
+        registry.histogram("marking.open_us", MetricsRegistry.LATENCY_MICROS).record(durationNanos / 1000);
+    }
+
+    /**
+     * The native marking screen wrote a section to AttendanceDatabase and AttendanceBitsets
+     */
+    public static void markingSaved(int rows, long durationNanos) {
+        registry.counter("marking.saved").increment();
+        registry.counter("marking.saved_rows").add(rows);
+        registry.histogram("marking.save_us", MetricsRegistry.LATENCY_MICROS).record(durationNanos / 1000);
+    }
+
+    /**
+     * Java and native heap in use; the histograms' max is the peak seen by this process
+     */
+    private static void sampleMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        registry.histogram("memory.java_heap_bytes", MetricsRegistry.SIZE_BYTES)
+            .record(runtime.totalMemory() - runtime.freeMemory());
+        registry.histogram("memory.native_heap_bytes", MetricsRegistry.SIZE_BYTES)
+            .record(Debug.getNativeHeapAllocatedSize());
+    }
+
+    public static void pageStarted() {
+        pageStartedNanos = System.nanoTime();
+        registry.counter("page.started").increment();
+    }
+
+    public static void pageFinished() {
+        long started = pageStartedNanos;
+        pageStartedNanos = 0;
+        registry.counter("page.finished").increment();
+        if (started != 0) {
+            registry.histogram("page.load_us", MetricsRegistry.LATENCY_MICROS)
+                .record((System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * One worker run and how it ended (success / retry / failure)
+     */
+    public static void workerRun(String worker, long startedNanos, ListenableWorker.Result result) {
+        String prefix = "worker." + worker;
+        registry.histogram(prefix + ".duration_us", MetricsRegistry.LATENCY_MICROS)
+            .record((System.nanoTime() - startedNanos) / 1000);
+        // Result.Success / Retry / Failure
+        registry.counter(prefix + "." + result.getClass().getSimpleName().toLowerCase(Locale.US)).increment();
+    }
+
+    /**
+     * One finished or failed download
+     */
+    public static void download(long bytes, long durationNanos, boolean success) {
+        registry.counter(success ? "download.completed" : "download.failed").increment();
+        if (!success) return;
+        registry.histogram("download.bytes", MetricsRegistry.SIZE_BYTES).record(bytes);
+        if (durationNanos > 0) {
+            registry.histogram("download.bytes_per_sec", MetricsRegistry.THROUGHPUT_BYTES_PER_SEC)
+                .record(bytes * 1000000000L / durationNanos);
+        }
+    }
+
+    /**
+     * One report export written by ReportExporter
+     */
+    public static void export(int rows, long bytes, long durationNanos, boolean success) {
+        registry.counter(success ? "export.completed" : "export.failed").increment();
+        registry.histogram("export.duration_us", MetricsRegistry.LATENCY_MICROS).record(durationNanos / 1000);
+        if (!success) return;
+        registry.counter("export.rows").add(rows);
+        registry.histogram("export.bytes", MetricsRegistry.SIZE_BYTES).record(bytes);
+    }
+
+    /**
+     * One backup or restore run by BackupManager
+     * @param operation "backup" or "restore"
+     * @param bytes New bytes stored (backup only)
+     */
+    public static void backup(String operation, int rows, long bytes, long durationNanos, boolean success) {
+        String prefix = "backup." + operation;
+        registry.counter(prefix + (success ? ".completed" : ".failed")).increment();
+        registry.histogram(prefix + ".duration_us", MetricsRegistry.LATENCY_MICROS).record(durationNanos / 1000);
+        if (!success) return;
+        registry.counter(prefix + ".rows").add(rows);
+        if (bytes > 0) {
+            registry.histogram(prefix + ".bytes", MetricsRegistry.SIZE_BYTES).record(bytes);
+        }
+    }
+
+    /**
+     * Metrics plus device and startup details, as one JSON document
+     */
+    public static String toJson(Context context) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("exportedAt", System.currentTimeMillis());
+        json.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        json.put("sdkInt", Build.VERSION.SDK_INT);
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            json.put("appVersion", info.versionName);
+        } catch (Exception e) {
+            // Version is informational only
+        }
+        json.put("startup", new JSONObject(StartupTimings.toJson()));
+        JSONObject metrics = new JSONObject(registry.toJson());
+        json.put("counters", metrics.getJSONObject("counters"));
+        json.put("histograms", metrics.getJSONObject("histograms"));
+        return json.toString();
+    }
+
+    /**
+     * Write the JSON export to cacheDir/metrics (reachable through the FileProvider cache path)
+     */
+    public static File export(Context context) throws Exception {
+        File dir = new File(context.getCacheDir(), EXPORT_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "metrics_" + timestamp + ".json");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(toJson(context));
+        } finally {
+            writer.close();
+        }
+        Log.d(TAG, "Metrics exported: " + file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Export and open the share sheet for the file
+     */
+    public static void share(Context context) throws Exception {
+        File file = export(context);
+        Uri contentUri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_STREAM, contentUri);
+        send.putExtra(Intent.EXTRA_SUBJECT, file.getName());
+        send.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+        Intent chooser = Intent.createChooser(send, "Share metrics");
+        chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        context.startActivity(chooser);
+    }
+}
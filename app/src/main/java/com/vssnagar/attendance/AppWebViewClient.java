@@ -0,0 +1,216 @@
+package com.vssnagar.attendance;
+
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+/**
+ * AppWebViewClient
+ * WebViewClient shared by the pre-warmed and the regular WebView
+ * Serves bundled assets, keeps the app's own pages inside the WebView (any other link opens
+ * in the browser, away from the Android bridge), injects the download helper,
+ * opens the message bridge and reports page load events to whoever currently hosts the WebView
+ */
+public class AppWebViewClient extends WebViewClient {
+
+    private static final String TAG = "AppWebViewClient";
+
+    /**
+     * Page load callbacks (main thread)
+     */
+    public interface PageListener {
+        void onPageStarted(String url);
+        void onPageFinished(String url);
+
+        /**
+         * The renderer died; the WebView can't be used again and must be replaced
+         * @param crashed Crashed, as opposed to killed by the system to reclaim memory
+         */
+        void onRenderProcessGone(boolean crashed);
+    }
+
+    private final WebAssetServer assetServer;
+    private final WebMessageBridge messageBridge;
+    private PageListener pageListener;
+    private boolean pageFinished;
+
+    public AppWebViewClient(WebAssetServer assetServer, WebMessageBridge messageBridge) {
+        this.assetServer = assetServer;
+        this.messageBridge = messageBridge;
+    }
+
+    public void setPageListener(PageListener pageListener) {
+        this.pageListener = pageListener;
+    }
+
+    /**
+     * True once the current page has finished loading
+     */
+    public boolean isPageFinished() {
+        return pageFinished;
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        return assetServer.intercept(request.getUrl());
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        if (WebAssetServer.isAppUrl(Uri.parse(url))) {
+            // Load the URL in the same WebView
+            view.loadUrl(url);
+            return true;
+        }
+        // Other pages must not get the bridge (they could e.g. switch the server)
+        try {
+            Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            view.getContext().startActivity(intent);
+        } catch (ActivityNotFoundException e) {
+            Log.e(TAG, "No app to open " + url);
+        }
+        return true;
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        super.onPageStarted(view, url, favicon);
+        pageFinished = false;
+        StartupTimings.mark("page_started");
+        AppMetrics.pageStarted();
+        if (pageListener != null) {
+            pageListener.onPageStarted(url);
+        }
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        super.onPageFinished(view, url);
+        pageFinished = true;
+        StartupTimings.mark("page_finished");
+        AppMetrics.pageFinished();
+        // New page, new channel - the previous page's port is gone
+        messageBridge.attach(view);
+        // Inject download helper script after page loads
+        injectDownloadHelper(view);
+        if (pageListener != null) {
+            pageListener.onPageFinished(url);
+        }
+    }
+
+    /**
+     * Renderer death (Android 8+)
+     * Returning true keeps the app alive; otherwise the whole process goes down with the renderer
+     */
+    @Override
+    public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+        pageFinished = false;
+        AppMetrics.rendererGone(detail.didCrash());
+        if (pageListener != null) {
+            pageListener.onRenderProcessGone(detail.didCrash());
+        }
+        return true;
+    }
+
+    /**
+     * Inject JavaScript helper to intercept downloads and route them through Android interface
+     */
+    private void injectDownloadHelper(WebView webView) {
+        String js = "javascript:(function() {" +
+            // Check if Android interface exists
+            "if (typeof Android === 'undefined') { console.log('Android interface not found'); return; }" +
+            
+            // Chunked transfer: read the blob in slices and stream Base64 chunks to native code.
+            // Slices are a multiple of 3 bytes so every chunk encodes without padding, and at
+            // most 3 chunks are in flight so neither heap holds more than a few slices.
+            "var CHUNK_BYTES = 3 * 256 * 1024, MAX_IN_FLIGHT = 3;" +
+            "var pendingAcks = {};" +
+            "window.onNativeDownloadProgress = function(id) {" +
+            "  var p = pendingAcks[id]; if (!p) return;" +
+            "  p.inFlight--; if (p.waiter) { var w = p.waiter; p.waiter = p.fail = null; w(); }" +
+            "};" +
+            // Stop sending and reject the download (first error wins)
+            "function failTransfer(p, error) {" +
+            "  if (p.error) return;" +
+            "  p.error = error;" +
+            "  if (p.fail) { var f = p.fail; p.waiter = p.fail = null; f(p.error); }" +
+            "}" +
+            // Native gave up on the transfer (write failed) and already dropped it
+            "window.onNativeDownloadError = function(id, message) {" +
+            "  var p = pendingAcks[id]; if (!p) return;" +
+            "  delete pendingAcks[id];" +
+            "  p.dropped = true;" +
+            "  failTransfer(p, new Error(message || 'Download failed'));" +
+            "};" +
+            // With the message bridge slices go across as ArrayBuffers, otherwise as Base64
+            "function readSlice(blob, start, binary) {" +
+            "  return new Promise(function(resolve, reject) {" +
+            "    var reader = new FileReader();" +
+            "    reader.onloadend = function() {" +
+            "      resolve(binary ? reader.result : (reader.result.split(',')[1] || ''));" +
+            "    };" +
+            "    reader.onerror = reject;" +
+            "    var slice = blob.slice(start, start + CHUNK_BYTES);" +
+            "    if (binary) reader.readAsArrayBuffer(slice); else reader.readAsDataURL(slice);" +
+            "  });" +
+            "}" +
+
+            // Helper function that web app can call directly; rejects if the file could not be saved
+            "window.androidDownload = async function(blob, fileName, mimeType) {" +
+            "  var type = mimeType || blob.type || 'application/octet-stream';" +
+            "  var id = Android.beginDownload(fileName, type, blob.size);" +
+            "  var state = pendingAcks[id] = { inFlight: 0, waiter: null, fail: null, error: null, dropped: false };" +
+            // Chunks and finish/cancel must use the same channel to stay in order
+            "  var bridge = window.NativeBridge && window.NativeBridge.binary ? window.NativeBridge : null;" +
+            "  try {" +
+            "    for (var offset = 0; offset < blob.size; offset += CHUNK_BYTES) {" +
+            "      var chunk = await readSlice(blob, offset, !!bridge);" +
+            "      while (state.inFlight >= MAX_IN_FLIGHT && !state.error) {" +
+            "        await new Promise(function(r, j) { state.waiter = r; state.fail = j; });" +
+            "      }" +
+            "      if (state.error) throw state.error;" +
+            "      state.inFlight++;" +
+            "      if (bridge) bridge.sendBinary('appendDownloadBytes', [id], chunk).catch(function(e) { failTransfer(state, e); });" +
+            "      else Android.appendDownloadChunk(id, chunk);" +
+            "    }" +
+            "    if (bridge) bridge.send('finishDownload', [id]); else Android.finishDownload(id);" +
+            "  } catch (err) {" +
+            "    console.log('Download error:', err);" +
+            // Native already dropped a transfer it reported as failed
+            "    if (!state.dropped) {" +
+            "      if (bridge) bridge.send('cancelDownload', [id]); else Android.cancelDownload(id);" +
+            "    }" +
+            "    throw err;" +
+            "  } finally {" +
+            "    delete pendingAcks[id];" +
+            "  }" +
+            "};" +
+
+            // Override the default download behavior for anchor tags with download attribute
+            "document.addEventListener('click', function(e) {" +
+            "  var anchor = e.target.closest('a[download]');" +
+            "  if (anchor && anchor.href && anchor.href.startsWith('blob:')) {" +
+            "    e.preventDefault();" +
+            "    e.stopPropagation();" +
+            "    var fileName = anchor.download || 'download';" +
+            "    fetch(anchor.href).then(r => r.blob()).then(blob => {" +
+            "      return window.androidDownload(blob, fileName, blob.type);" +
+            "    }).catch(function(err) { console.log('Download error:', err); });" +
+            "    return false;" +
+            "  }" +
+            "}, true);" +
+            
+            "console.log('Android download helper injected!');" +
+            "})();";
+        
+        webView.evaluateJavascript(js, null);
+    }
+}
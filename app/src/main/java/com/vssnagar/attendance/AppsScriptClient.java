@@ -0,0 +1,150 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+/**
+ * AppsScriptClient
+ * Minimal native HTTP client for the Google Apps Script action endpoint
+ * Used by background workers that run without a WebView
+ * The endpoint can be switched to a self-hosted server (the :server module); the choice is
+ * stored on the device and read through endpoint(context) by every native caller.
+ */
+public class AppsScriptClient {
+
+    // Same deployment the web app posts to (GOOGLE_SCRIPT_URL in index.html)
+    public static final String DEFAULT_ENDPOINT =
+        "https://script.google.com/macros/s/AKfycbyLrD98LEE_PQtqySBKqrZLyKvqzM3nXCAEMyYmejkLqwexp6cUTmDlIljQEazc7_8i/exec";
+
+    private static final String PREFS = "server";
+    private static final String KEY_ENDPOINT = "endpoint";
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 60000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String endpoint;
+
+    public AppsScriptClient(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * The endpoint native code should post to: the configured server, or DEFAULT_ENDPOINT
+     */
+    public static String endpoint(Context context) {
+        String endpoint = prefs(context).getString(KEY_ENDPOINT, null);
+        return endpoint == null || endpoint.isEmpty() ? DEFAULT_ENDPOINT : endpoint;
+    }
+
+    /**
+     * Whether a URL may be used as the endpoint: http or https with a host
+     * Null/empty is valid too and means the Apps Script deployment.
+     */
+    public static boolean isValidEndpoint(String endpoint) {
+        String value = endpoint == null ? "" : endpoint.trim();
+        if (value.isEmpty()) return true;
+        try {
+            URL url = new URL(value);
+            String protocol = url.getProtocol();
+            return ("http".equals(protocol) || "https".equals(protocol)) && !url.getHost().isEmpty();
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Point every native caller at another server (callers ask the user first)
+     * What the app knew about the previous server goes: cached answers and synced row counts.
+     * Acknowledged statuses are kept per server (see SyncDelta), so they need no reset.
+     * @param endpoint Server URL, or null/empty to go back to the Apps Script deployment
+     * @return Whether the endpoint changed (never for a URL isValidEndpoint rejects)
+     */
+    public static boolean setEndpoint(Context context, String endpoint) {
+        if (!isValidEndpoint(endpoint)) {
+            return false;
+        }
+        String value = endpoint == null ? "" : endpoint.trim();
+        if (DEFAULT_ENDPOINT.equals(value)) {
+            value = "";
+        }
+        if (value.equals(prefs(context).getString(KEY_ENDPOINT, ""))) {
+            return false;
+        }
+        prefs(context).edit().putString(KEY_ENDPOINT, value).apply();
+        ScriptResponseCache.getInstance(context).clear();
+        AttendanceBitsets.getInstance(context).resetSyncedCounts();
+        return true;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * POST a JSON action body and return the response body as a string
+     * Apps Script answers POSTs with a redirect to the result, which is followed automatically
+     */
+    public String post(String jsonBody) throws IOException {
+        HttpURLConnection connection = open(jsonBody);
+        try {
+            InputStream in = connection.getInputStream();
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+                return new String(buffer.toByteArray(), UTF_8);
+            } finally {
+                in.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * POST a JSON action body and return the open connection
+     * Callers read getInputStream() themselves and must call disconnect()
+     */
+    public HttpURLConnection open(String jsonBody) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setInstanceFollowRedirects(true);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        // text/plain keeps the request identical to the web app's fetch() calls
+        connection.setRequestProperty("Content-Type", "text/plain;charset=utf-8");
+
+        byte[] body = jsonBody.getBytes(UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        OutputStream out = connection.getOutputStream();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+
+        int code = connection.getResponseCode();
+        if (code < 200 || code >= 300) {
+            connection.disconnect();
+            throw new IOException("HTTP " + code + " from " + endpoint);
+        }
+        return connection;
+    }
+}
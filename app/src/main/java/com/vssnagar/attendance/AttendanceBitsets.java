@@ -0,0 +1,346 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import com.vssnagar.attendance.core.StatusBits;
+import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * AttendanceBitsets
+ * Packed attendance per date: one 2-bit status per student for each category,
+ * indexed by StudentRoster ordinal (32 students per long)
+ * Per-section counts (marked and synced rows) are kept up to date on every change and
+ * held in memory, so the sync tracker can be drawn for any range without the network.
+ */
+public final class AttendanceBitsets {
+
+    private static final String TAG = "AttendanceBitsets";
+    private static final String DIR_NAME = "attendance-bits";
+    private static final String COUNTS_FILE = "counts.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int CATEGORY_COUNT = SyncStatusSnapshot.CATEGORIES.length;
+
+    // Packed days kept in memory (the day being marked plus a few recent ones)
+    private static final int MAX_LOADED_DAYS = 8;
+
+    private static AttendanceBitsets instance;
+
+    /**
+     * Counts of one date: marked students and rows on the server, per category
+     */
+    private static final class DayCounts {
+        final int[] marked = new int[CATEGORY_COUNT];
+        final int[] synced = new int[CATEGORY_COUNT];
+    }
+
+    private final File dir;
+    private final TreeMap<String, DayCounts> counts = new TreeMap<>();
+    // Access-ordered so the least recently marked day is dropped first
+    private final LinkedHashMap<String, long[][]> days = new LinkedHashMap<String, long[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[][]> eldest) {
+            return size() > MAX_LOADED_DAYS;
+        }
+    };
+
+    public static synchronized AttendanceBitsets getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceBitsets(new File(context.getApplicationContext().getFilesDir(), DIR_NAME));
+        }
+        return instance;
+    }
+
+    private AttendanceBitsets(File dir) {
+        this.dir = dir;
+        dir.mkdirs();
+        readCounts();
+    }
+
+    /**
+     * Set the status of several students in one date + category
+     * @param ordinals StudentRoster ordinals (negative entries are skipped)
+     * @param codes StatusBits code for each ordinal
+     * @return Number of students whose status changed
+     */
+    public synchronized int setStatuses(String date, int categoryIndex, int[] ordinals, int[] codes) {
+        long[][] day = loadDay(date);
+        long[] words = day[categoryIndex];
+        DayCounts dayCounts = countsFor(date);
+        int changed = 0;
+
+        for (int i = 0; i < ordinals.length; i++) {
+            int ordinal = ordinals[i];
+            if (ordinal < 0) continue;
+
+            words = StatusBits.ensureCapacity(words, ordinal);
+            day[categoryIndex] = words;
+            int code = codes[i] & 3;
+            int old = StatusBits.set(words, ordinal, code);
+            if (old == code) continue;
+
+            if (old == StatusBits.UNMARKED) dayCounts.marked[categoryIndex]++;
+            if (code == StatusBits.UNMARKED) dayCounts.marked[categoryIndex]--;
+            changed++;
+        }
+
+        if (changed > 0) {
+            writeDay(date, day);
+            writeCounts();
+        }
+        return changed;
+    }
+
+    /**
+     * Set the statuses of saved records, resolving each student through the roster
+     * @return Number of students whose status changed
+     */
+    public int setRecords(String date, int categoryIndex, List<AttendanceDatabase.Record> records,
+                          StudentRoster roster) {
+        int[] ordinals = new int[records.size()];
+        int[] codes = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            AttendanceDatabase.Record record = records.get(i);
+            ordinals[i] = roster.ordinalOf(AttendanceDatabase.studentKey(record.appId, record.appNumber, record.name));
+            codes[i] = StatusBits.statusCode(record.status);
+        }
+        return setStatuses(date, categoryIndex, ordinals, codes);
+    }
+
+    /**
+     * StatusBits code of one student, UNMARKED if never set
+     */
+    public synchronized int getStatus(String date, int categoryIndex, int ordinal) {
+        return StatusBits.get(loadDay(date)[categoryIndex], ordinal);
+    }
+
+    /**
+     * Record that a section's rows reached the server (e.g. after an outbox upload)
+     */
+    public synchronized void markSynced(String date, int categoryIndex, int rowCount) {
+        DayCounts dayCounts = countsFor(date);
+        if (dayCounts.synced[categoryIndex] == rowCount) return;
+        dayCounts.synced[categoryIndex] = rowCount;
+        writeCounts();
+    }
+
+    /**
+     * Take over row counts reported by get_sync_status (the server also sees other devices)
+     * @param serverCounts date -> rows per category (indexed like SyncStatusSnapshot.CATEGORIES)
+     * @return Number of sections whose count changed
+     */
+    public synchronized int mergeServerCounts(Map<String, int[]> serverCounts) {
+        int changed = 0;
+        for (Map.Entry<String, int[]> entry : serverCounts.entrySet()) {
+            DayCounts dayCounts = countsFor(entry.getKey());
+            for (int i = 0; i < CATEGORY_COUNT; i++) {
+                if (dayCounts.synced[i] != entry.getValue()[i]) {
+                    dayCounts.synced[i] = entry.getValue()[i];
+                    changed++;
+                }
+            }
+        }
+        if (changed > 0) {
+            writeCounts();
+        }
+        return changed;
+    }
+
+    /**
+     * Forget every synced count (the server changed; the new one's come with its get_sync_status)
+     */
+    public synchronized void resetSyncedCounts() {
+        for (DayCounts dayCounts : counts.values()) {
+            Arrays.fill(dayCounts.synced, 0);
+        }
+        writeCounts();
+    }
+
+    /**
+     * Rows on the server per category, or null if nothing is known about the date
+     */
+    public synchronized int[] syncedCounts(String date) {
+        DayCounts dayCounts = counts.get(date);
+        return dayCounts == null ? null : dayCounts.synced.clone();
+    }
+
+    /**
+     * Marked students per category, or null if nothing is known about the date
+     */
+    public synchronized int[] markedCounts(String date) {
+        DayCounts dayCounts = counts.get(date);
+        return dayCounts == null ? null : dayCounts.marked.clone();
+    }
+
+    private DayCounts countsFor(String date) {
+        DayCounts dayCounts = counts.get(date);
+        if (dayCounts == null) {
+            dayCounts = new DayCounts();
+            counts.put(date, dayCounts);
+        }
+        return dayCounts;
+    }
+
+    /**
+     * Drop the packed days held in memory (under memory pressure)
+     * Every change is already on disk, so they are simply read again when next needed
+     */
+    public synchronized void trimMemory() {
+        days.clear();
+    }
+
+    private long[][] loadDay(String date) {
+        long[][] day = days.get(date);
+        if (day == null) {
+            day = readDay(date);
+            days.put(date, day);
+        }
+        return day;
+    }
+
+    private AtomicFile dayFile(String date) {
+        return new AtomicFile(new File(dir, date + ".bin"));
+    }
+
+    private long[][] readDay(String date) {
+        long[][] day = new long[CATEGORY_COUNT][];
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(dayFile(date).openRead()));
+            try {
+                if (in.readInt() == FORMAT_VERSION) {
+                    for (int c = 0; c < CATEGORY_COUNT; c++) {
+                        day[c] = new long[in.readInt()];
+                        for (int w = 0; w < day[c].length; w++) {
+                            day[c][w] = in.readLong();
+                        }
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing marked on this date yet
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading " + date + ": " + e.getMessage());
+        }
+        for (int c = 0; c < CATEGORY_COUNT; c++) {
+            if (day[c] == null) day[c] = new long[0];
+        }
+        return day;
+    }
+
+    private void writeDay(String date, long[][] day) {
+        AtomicFile file = dayFile(date);
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(FORMAT_VERSION);
+            for (long[] words : day) {
+                data.writeInt(words.length);
+                for (long word : words) {
+                    data.writeLong(word);
+                }
+            }
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + date + ": " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+
+    private void readCounts() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new AtomicFile(new File(dir, COUNTS_FILE)).openRead()));
+            try {
+                if (in.readInt() != FORMAT_VERSION) return;
+                int total = in.readInt();
+                for (int i = 0; i < total; i++) {
+                    DayCounts dayCounts = new DayCounts();
+                    String date = in.readUTF();
+                    for (int c = 0; c < CATEGORY_COUNT; c++) {
+                        dayCounts.marked[c] = in.readInt();
+                        dayCounts.synced[c] = in.readInt();
+                    }
+                    counts.put(date, dayCounts);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            // Fresh install
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading counts: " + e.getMessage());
+            counts.clear();
+        }
+    }
+
+    private void writeCounts() {
+        AtomicFile file = new AtomicFile(new File(dir, COUNTS_FILE));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(FORMAT_VERSION);
+            data.writeInt(counts.size());
+            for (Map.Entry<String, DayCounts> entry : counts.entrySet()) {
+                data.writeUTF(entry.getKey());
+                for (int c = 0; c < CATEGORY_COUNT; c++) {
+                    data.writeInt(entry.getValue().marked[c]);
+                    data.writeInt(entry.getValue().synced[c]);
+                }
+            }
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing counts: " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+
+    /**
+     * Parse get_sync_status data ({"2026-01-22": {"Yoga": 45, ...}}) into per-category arrays
+     */
+    static Map<String, int[]> parseServerCounts(JSONObject data) {
+        Map<String, int[]> result = new HashMap<>();
+        Iterator<String> dates = data.keys();
+        while (dates.hasNext()) {
+            String date = dates.next();
+            JSONObject perCategory = data.optJSONObject(date);
+            if (perCategory == null) continue;
+            int[] values = new int[CATEGORY_COUNT];
+            Iterator<String> categories = perCategory.keys();
+            while (categories.hasNext()) {
+                String category = categories.next();
+                int index = SyncStatusSnapshot.categoryIndex(category);
+                if (index >= 0) {
+                    values[index] = perCategory.optInt(category, 0);
+                }
+            }
+            result.put(date, values);
+        }
+        return result;
+    }
+}
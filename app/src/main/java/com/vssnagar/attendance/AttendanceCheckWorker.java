@@ -3,129 +3,145 @@ package com.vssnagar.attendance;
 import android.content.Context;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
-import org.json.JSONObject;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Date;
+import java.util.List;
 
 /**
  * AttendanceCheckWorker
- * Background task that runs daily at 11:30 PM
- * Checks if attendance is complete and sends notifications if needed
+ * Background task started by ReminderScheduler when a section's deadline passes
+ * Checks whether that section is complete and shows its reminder if it isn't,
+ * then sets the section's next alarm
  */
 public class AttendanceCheckWorker extends Worker {
 
     private static final String TAG = "AttendanceCheckWorker";
 
+    // Input: optional endpoint override (e.g. a local stub server)
+    public static final String KEY_ENDPOINT = "endpoint";
+
+    // Input: date (yyyy-MM-dd) and section to check
+    public static final String KEY_DATE = "date";
+    public static final String KEY_CATEGORY = "category";
+
+    // Stored value written by WebAppInterface.receiveSyncData
+    static final String KEY_ROSTER_SIZE = "roster_size";
+
     public AttendanceCheckWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
     }
 
+    /**
+     * Queue the check of one section (a newer check of the same section replaces a queued one)
+     */
+    public static void enqueue(Context context, String date, String category) {
+        Data input = new Data.Builder()
+            .putString(KEY_DATE, date)
+            .putString(KEY_CATEGORY, category)
+            .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttendanceCheckWorker.class)
+            .setInputData(input)
+            .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+            "SectionCheck-" + category,
+            ExistingWorkPolicy.REPLACE,
+            request
+        );
+    }
+
     @NonNull
     @Override
     public Result doWork() {
-        Log.d(TAG, "AttendanceCheckWorker started - checking attendance status");
-
-        try {
-            // Get sync status from WebAppInterface
-            String syncData = WebAppInterface.getLatestSyncStatus();
-            
-            if (syncData == null || syncData.isEmpty()) {
-                Log.d(TAG, "No sync data available yet");
-                // If no data, we'll send a generic reminder
-                sendGenericReminder();
-                return Result.success();
-            }
+        long started = System.nanoTime();
+        Result result = checkAttendance();
+        AppMetrics.workerRun("AttendanceCheckWorker", started, result);
+        return result;
+    }
 
-            // Parse JSON and find incomplete sections
-            ArrayList<String> incompleteSections = parseIncompleteSections(syncData);
+    private Result checkAttendance() {
+        String category = getInputData().getString(KEY_CATEGORY);
+        int categoryIndex = category != null ? SyncStatusSnapshot.categoryIndex(category) : -1;
+        if (categoryIndex < 0) {
+            // Left over from the old daily check - the per-section alarms replace it
+            Log.d(TAG, "No section to check");
+            return Result.success();
+        }
+        String date = getInputData().getString(KEY_DATE);
+        if (date == null) {
+            date = ReminderScheduler.formatDate(new Date());
+        }
+        Log.d(TAG, "Checking " + category + " for " + date);
 
-            if (incompleteSections.size() > 0) {
-                // Send notification for incomplete sections
-                sendNotificationForIncompleteSections(incompleteSections);
-                Log.d(TAG, "Sent notification for " + incompleteSections.size() + " incomplete sections");
+        try {
+            NotificationHelper notificationHelper = new NotificationHelper(getApplicationContext());
+            if (isIncomplete(date, categoryIndex)) {
+                notificationHelper.showSectionReminder(SyncStatusSnapshot.CATEGORIES[categoryIndex]);
+                Log.d(TAG, "Reminder shown for " + category);
             } else {
-                Log.d(TAG, "All sections complete - no notification needed");
+                notificationHelper.cancelSectionReminder(SyncStatusSnapshot.CATEGORIES[categoryIndex]);
+                Log.d(TAG, category + " complete - no notification needed");
             }
-
             return Result.success();
 
         } catch (Exception e) {
             Log.e(TAG, "Error in AttendanceCheckWorker: " + e.getMessage());
             e.printStackTrace();
             return Result.retry();
+        } finally {
+            ReminderScheduler.schedule(getApplicationContext(), categoryIndex);
         }
     }
 
     /**
-     * Parse JSON sync data and extract incomplete sections
+     * The server's row counts decide; without the server, what the app knows locally
      */
-    private ArrayList<String> parseIncompleteSections(String jsonData) {
-        ArrayList<String> incomplete = new ArrayList<>();
-
-        try {
-            JSONObject json = new JSONObject(jsonData);
-            Iterator<String> keys = json.keys();
-
-            while (keys.hasNext()) {
-                String key = keys.next();
-                boolean isComplete = json.getBoolean(key);
-                
-                if (!isComplete) {
-                    // Convert key to readable name
-                    String readableName = convertToReadableName(key);
-                    incomplete.add(readableName);
-                }
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing sync data: " + e.getMessage());
+    private boolean isIncomplete(String date, int categoryIndex) {
+        List<String> incompleteSections = checkServer(date);
+        if (incompleteSections != null) {
+            return incompleteSections.contains(SyncStatusSnapshot.CATEGORIES[categoryIndex]);
         }
-
-        return incomplete;
+        // Server unreachable - fall back to the snapshot the web app last reported and the bitsets
+        return !ReminderScheduler.isComplete(getApplicationContext(), date, categoryIndex);
     }
 
     /**
-     * Convert JSON keys to user-friendly names
+     * Ask the server directly which sections of a date are incomplete
+     * @return Incomplete section names, or null if the server could not be reached
      */
-    private String convertToReadableName(String key) {
-        switch (key.toLowerCase()) {
-            case "yoga":
-                return "Yoga";
-            case "messday":
-            case "mess_day":
-                return "Mess Day";
-            case "messnight":
-            case "mess_night":
-                return "Mess Night";
-            case "nightshift":
-            case "night_shift":
-                return "Night Shift";
-            default:
-                return key; // Return as-is if unknown
+    private List<String> checkServer(String date) {
+        int rosterSize = getRosterSize(getApplicationContext());
+        String endpoint = getInputData().getString(KEY_ENDPOINT);
+        if (endpoint == null || endpoint.isEmpty()) {
+            endpoint = AppsScriptClient.endpoint(getApplicationContext());
         }
-    }
-
-    /**
-     * Send notification for incomplete sections
-     */
-    private void sendNotificationForIncompleteSections(ArrayList<String> sections) {
-        NotificationHelper notificationHelper = new NotificationHelper(getApplicationContext());
-        
-        if (sections.size() == 1) {
-            notificationHelper.sendSingleSectionReminder(sections.get(0));
-        } else {
-            String[] sectionsArray = sections.toArray(new String[0]);
-            notificationHelper.sendMultipleSectionReminder(sectionsArray);
+        ServerStatusChecker checker = new ServerStatusChecker(
+            new AppsScriptClient(endpoint),
+            getApplicationContext().getCacheDir());
+        try {
+            ServerStatusChecker.Counts counts = checker.fetch(date, rosterSize);
+            return counts.incompleteSections(rosterSize);
+        } catch (Exception e) {
+            Log.e(TAG, "Server status check failed: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Send a generic reminder when sync data is not available
+     * Roster size last reported by the web app (0 if unknown)
      */
-    private void sendGenericReminder() {
-        NotificationHelper notificationHelper = new NotificationHelper(getApplicationContext());
-        notificationHelper.sendSingleSectionReminder("today's attendance");
+    static int getRosterSize(Context context) {
+        String value = AttendanceDatabase.getInstance(context).getValue(KEY_ROSTER_SIZE);
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 }
@@ -0,0 +1,477 @@
+package com.vssnagar.attendance;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import com.vssnagar.attendance.core.StudentKeys;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AttendanceDatabase
+ * On-device SQLite store for attendance records, verification state, small page values,
+ * the outbox of submissions waiting to be uploaded and the statuses the server has acknowledged
+ * Records are keyed by (date, category, studentKey) so each save only touches one section
+ */
+public class AttendanceDatabase extends SQLiteOpenHelper implements SyncDelta.AckStore {
+
+    private static final String DATABASE_NAME = "attendance.db";
+    private static final int DATABASE_VERSION = 5;
+
+    static final String TABLE_ATTENDANCE = "attendance";
+    static final String TABLE_DAY_META = "day_meta";
+    static final String TABLE_VALUES = "stored_values";
+    static final String TABLE_OUTBOX = "sync_outbox";
+    static final String TABLE_ACKED = "sync_acked";
+
+    private static AttendanceDatabase instance;
+
+    /**
+     * One attendance row for a student in a date + category
+     */
+    public static class Record {
+        public String date;
+        public String category;
+        public String name;
+        public String appId;
+        public String appNumber;
+        public String hostelId;
+        public String allocation;
+        public String status;
+    }
+
+    /**
+     * One pending submission: all rows of a date + category, as the 9-column sheet rows JSON
+     */
+    public static class OutboxEntry {
+        public long id;
+        public String date;
+        public String category;
+        public String rowsJson;
+    }
+
+    public static synchronized AttendanceDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AttendanceDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Primary key doubles as the (date, category, student) index
+        db.execSQL("CREATE TABLE " + TABLE_ATTENDANCE + " ("
+            + "date TEXT NOT NULL, "
+            + "category TEXT NOT NULL, "
+            + "student_key TEXT NOT NULL, "
+            + "name TEXT, "
+            + "app_id TEXT, "
+            + "app_number TEXT, "
+            + "hostel_id TEXT, "
+            + "allocation TEXT, "
+            + "status TEXT NOT NULL, "
+            + "updated_at INTEGER NOT NULL, "
+            + "PRIMARY KEY (date, category, student_key))");
+
+        db.execSQL("CREATE TABLE " + TABLE_DAY_META + " ("
+            + "date TEXT PRIMARY KEY, "
+            + "verified TEXT)");
+
+        db.execSQL("CREATE TABLE " + TABLE_VALUES + " ("
+            + "key TEXT PRIMARY KEY, "
+            + "value TEXT, "
+            + "updated_at INTEGER NOT NULL)");
+
+        createOutboxTable(db);
+        addOutboxErrorColumn(db);
+        createAckedTable(db);
+        addAckedEndpointColumn(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createOutboxTable(db);
+        }
+        if (oldVersion < 3) {
+            addOutboxErrorColumn(db);
+        }
+        if (oldVersion < 4) {
+            createAckedTable(db);
+        }
+        if (oldVersion < 5) {
+            addAckedEndpointColumn(db);
+        }
+    }
+
+    private void createOutboxTable(SQLiteDatabase db) {
+        // A newer submission for the same date + category replaces the pending one
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+            + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "date TEXT NOT NULL, "
+            + "category TEXT NOT NULL, "
+            + "rows_json TEXT NOT NULL, "
+            + "created_at INTEGER NOT NULL, "
+            + "UNIQUE (date, category) ON CONFLICT REPLACE)");
+    }
+
+    private void addOutboxErrorColumn(SQLiteDatabase db) {
+        // Set when the uploader gave up on an entry; it stays for the record until resubmitted
+        db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN error TEXT");
+    }
+
+    private void createAckedTable(SQLiteDatabase db) {
+        // Last status the server confirmed per student, so uploads can carry only changes
+        db.execSQL("CREATE TABLE " + TABLE_ACKED + " ("
+            + "date TEXT NOT NULL, "
+            + "category TEXT NOT NULL, "
+            + "student_key TEXT NOT NULL, "
+            + "status TEXT NOT NULL, "
+            + "PRIMARY KEY (date, category, student_key))");
+    }
+
+    private void addAckedEndpointColumn(SQLiteDatabase db) {
+        // Server that confirmed the statuses; rows from before belong to none, so their section goes in full once
+        db.execSQL("ALTER TABLE " + TABLE_ACKED + " ADD COLUMN endpoint TEXT NOT NULL DEFAULT ''");
+    }
+
+    /**
+     * Best identifier for a student
+     * Same priority as the Apps Script sync: Application ID → Application Number → Name
+     */
+    public static String studentKey(String appId, String appNumber, String name) {
+        return StudentKeys.of(appId, appNumber, name);
+    }
+
+    /**
+     * Insert or replace all records of one date + category in a single transaction
+     */
+    public int upsertRecords(String date, String category, List<Record> records) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_ATTENDANCE
+            + " (date, category, student_key, name, app_id, app_number, hostel_id, allocation, status, updated_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        long now = System.currentTimeMillis();
+        int written = 0;
+
+        db.beginTransaction();
+        try {
+            for (Record record : records) {
+                statement.clearBindings();
+                statement.bindString(1, date);
+                statement.bindString(2, category);
+                statement.bindString(3, studentKey(record.appId, record.appNumber, record.name));
+                bindNullable(statement, 4, record.name);
+                bindNullable(statement, 5, record.appId);
+                bindNullable(statement, 6, record.appNumber);
+                bindNullable(statement, 7, record.hostelId);
+                bindNullable(statement, 8, record.allocation);
+                statement.bindString(9, record.status == null ? "Present" : record.status);
+                statement.bindLong(10, now);
+                statement.executeInsert();
+                written++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+        return written;
+    }
+
+    /**
+     * Receives records one at a time from forEachRecord
+     */
+    public interface RecordVisitor {
+        /**
+         * @param record Reused for every row - copy what needs to outlive the call
+         */
+        void visit(Record record) throws Exception;
+    }
+
+    /**
+     * Query records between two dates (inclusive, YYYY-MM-DD)
+     * @param category Category to filter on, or null/empty for all categories
+     */
+    public List<Record> queryRange(String startDate, String endDate, String category) {
+        final List<Record> records = new ArrayList<>();
+        List<String> categories = category == null || category.isEmpty()
+            ? null : Collections.singletonList(category);
+        try {
+            forEachRecord(startDate, endDate, categories, "date, category", record -> {
+                Record copy = new Record();
+                copy.date = record.date;
+                copy.category = record.category;
+                copy.name = record.name;
+                copy.appId = record.appId;
+                copy.appNumber = record.appNumber;
+                copy.hostelId = record.hostelId;
+                copy.allocation = record.allocation;
+                copy.status = record.status;
+                records.add(copy);
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // The visitor above never throws a checked exception
+            throw new IllegalStateException(e);
+        }
+        return records;
+    }
+
+    /**
+     * Stream records between two dates (inclusive) straight from the cursor
+     * Memory stays constant however large the range is (reports, backups)
+     * @param categories Categories to include, or null/empty for all
+     * @param orderBy SQL ORDER BY over the attendance columns, e.g. "category, date, name"
+     * @return Number of records visited
+     */
+    public int forEachRecord(String startDate, String endDate, List<String> categories, String orderBy,
+                             RecordVisitor visitor) throws Exception {
+        StringBuilder selection = new StringBuilder("date >= ? AND date <= ?");
+        List<String> args = new ArrayList<>();
+        args.add(startDate);
+        args.add(endDate);
+        if (categories != null && !categories.isEmpty()) {
+            selection.append(" AND category IN (");
+            for (int i = 0; i < categories.size(); i++) {
+                selection.append(i == 0 ? "?" : ", ?");
+                args.add(categories.get(i));
+            }
+            selection.append(')');
+        }
+
+        Cursor cursor = getReadableDatabase().query(TABLE_ATTENDANCE,
+            new String[]{"date", "category", "name", "app_id", "app_number", "hostel_id", "allocation", "status"},
+            selection.toString(), args.toArray(new String[0]), null, null, orderBy);
+        Record record = new Record();
+        int count = 0;
+        try {
+            while (cursor.moveToNext()) {
+                record.date = cursor.getString(0);
+                record.category = cursor.getString(1);
+                record.name = cursor.getString(2);
+                record.appId = cursor.getString(3);
+                record.appNumber = cursor.getString(4);
+                record.hostelId = cursor.getString(5);
+                record.allocation = cursor.getString(6);
+                record.status = cursor.getString(7);
+                visitor.visit(record);
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    /**
+     * Save the verified-sections JSON for a date
+     */
+    public void saveVerified(String date, String verifiedJson) {
+        ContentValues values = new ContentValues();
+        values.put("date", date);
+        values.put("verified", verifiedJson);
+        getWritableDatabase().insertWithOnConflict(TABLE_DAY_META, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Verified-sections JSON for a date, or null if never saved
+     */
+    public String loadVerified(String date) {
+        Cursor cursor = getReadableDatabase().query(TABLE_DAY_META, new String[]{"verified"},
+            "date = ?", new String[]{date}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Store a small page value (draft, roster cache) under a key
+     */
+    public void putValue(String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        values.put("updated_at", System.currentTimeMillis());
+        getWritableDatabase().insertWithOnConflict(TABLE_VALUES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public String getValue(String key) {
+        Cursor cursor = getReadableDatabase().query(TABLE_VALUES, new String[]{"value"},
+            "key = ?", new String[]{key}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void removeValue(String key) {
+        getWritableDatabase().delete(TABLE_VALUES, "key = ?", new String[]{key});
+    }
+
+    /**
+     * Queue a date + category submission for upload
+     */
+    public void enqueueOutbox(String date, String category, String rowsJson) {
+        ContentValues values = new ContentValues();
+        values.put("date", date);
+        values.put("category", category);
+        values.put("rows_json", rowsJson);
+        values.put("created_at", System.currentTimeMillis());
+        getWritableDatabase().insert(TABLE_OUTBOX, null, values);
+    }
+
+    /**
+     * All pending submissions, oldest first (failed ones are left out)
+     */
+    public List<OutboxEntry> pendingOutbox() {
+        List<OutboxEntry> entries = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX,
+            new String[]{"id", "date", "category", "rows_json"},
+            "error IS NULL", null, null, null, "id");
+        try {
+            while (cursor.moveToNext()) {
+                OutboxEntry entry = new OutboxEntry();
+                entry.id = cursor.getLong(0);
+                entry.date = cursor.getString(1);
+                entry.category = cursor.getString(2);
+                entry.rowsJson = cursor.getString(3);
+                entries.add(entry);
+            }
+        } finally {
+            cursor.close();
+        }
+        return entries;
+    }
+
+    public int pendingOutboxCount() {
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE_OUTBOX + " WHERE error IS NULL", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Remove uploaded entries by id
+     * Entries replaced while the upload was in flight get a new id and stay queued
+     */
+    public void removeOutbox(List<OutboxEntry> entries) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (OutboxEntry entry : entries) {
+                db.delete(TABLE_OUTBOX, "id = ?", new String[]{String.valueOf(entry.id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Stop uploading entries the server keeps rejecting
+     * A new submission of the same date + category replaces the failed entry and is uploaded again
+     */
+    public void failOutbox(List<OutboxEntry> entries, String error) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("error", error);
+        db.beginTransaction();
+        try {
+            for (OutboxEntry entry : entries) {
+                db.update(TABLE_OUTBOX, values, "id = ?", new String[]{String.valueOf(entry.id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Statuses a server has acknowledged for a date + category, by student key
+     * (empty if the section was last confirmed by another server)
+     */
+    @Override
+    public Map<String, String> ackedStatuses(String endpoint, String date, String category) {
+        Map<String, String> statuses = new HashMap<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_ACKED, new String[]{"student_key", "status"},
+            "endpoint = ? AND date = ? AND category = ?", new String[]{endpoint, date, category}, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                statuses.put(cursor.getString(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return statuses;
+    }
+
+    /**
+     * Replace the acknowledged statuses of a date + category (after a confirmed upload)
+     * Acknowledgements of any other server for the section are dropped.
+     * @param endpoint Server the upload went to
+     * @param statuses Student key -> status of every row the server now holds for the section
+     */
+    @Override
+    public void replaceAcked(String endpoint, String date, String category, Map<String, String> statuses) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_ACKED
+            + " (date, category, student_key, status, endpoint) VALUES (?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_ACKED, "date = ? AND category = ?", new String[]{date, category});
+            for (Map.Entry<String, String> entry : statuses.entrySet()) {
+                statement.clearBindings();
+                statement.bindString(1, date);
+                statement.bindString(2, category);
+                statement.bindString(3, entry.getKey());
+                statement.bindString(4, entry.getValue());
+                statement.bindString(5, endpoint);
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    /**
+     * Forget what the server acknowledged for a date + category (its next upload is sent in full)
+     */
+    @Override
+    public void clearAcked(String date, String category) {
+        getWritableDatabase().delete(TABLE_ACKED, "date = ? AND category = ?", new String[]{date, category});
+    }
+
+    /**
+     * Drop acknowledgements of dates before the given one (yyyy-MM-dd)
+     */
+    public int pruneAcked(String beforeDate) {
+        return getWritableDatabase().delete(TABLE_ACKED, "date < ?", new String[]{beforeDate});
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
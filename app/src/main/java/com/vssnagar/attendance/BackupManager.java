@@ -0,0 +1,735 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import android.util.Log;
+import com.vssnagar.attendance.core.TrackingEngine;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BackupManager
+ * Compressed, incremental on-device backups of the spreadsheet, and restore into the local store
+ * The get_full_backup response is parsed as a stream (never held as one string) and split into
+ * gzip chunks, one per sheet and month. Chunks are named after a digest of their rows, so a month
+ * that hasn't changed since the previous backup maps to the file that is already there and only
+ * changed months take new space. Each backup is a small manifest listing its chunks; the newest
+ * few manifests are kept and chunks no manifest refers to are deleted.
+ * Restore streams the chunks of the attendance sheets, one at a time, into AttendanceDatabase.
+ */
+public class BackupManager {
+
+    private static final String TAG = "BackupManager";
+
+    private static final String DIR_NAME = "backups";
+    private static final String CHUNKS_DIR = "chunks";
+    private static final String MANIFEST_PREFIX = "manifest_";
+    private static final String MANIFEST_SUFFIX = ".json";
+    private static final String CHUNK_SUFFIX = ".json.gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 1;
+
+    // Snapshots kept; older manifests and the chunks only they use are deleted
+    private static final int KEEP_SNAPSHOTS = 5;
+
+    // Rows written to the database per transaction during restore
+    private static final int RESTORE_BATCH_ROWS = 2000;
+
+    // Rows with no usable date share one chunk per sheet
+    private static final String UNDATED = "undated";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Callbacks are invoked on the backup thread
+     * @param resultJson Summary of the backup or restore (see backup() / restore())
+     */
+    public interface Listener {
+        void onComplete(String resultJson);
+        void onError(String message);
+    }
+
+    /**
+     * A cell of a {"_type": "date", "value": ISO} object in the backup JSON
+     */
+    private static final class DateCell {
+        final String iso;
+
+        DateCell(String iso) {
+            this.iso = iso;
+        }
+    }
+
+    /**
+     * Gzip chunk being written for one month of a sheet
+     * Rows go through a digest before compression, so equal content gives an equal name
+     */
+    private static final class ChunkWriter {
+        final String month;
+        final File temp;
+        final MessageDigest digest;
+        final JsonWriter writer;
+        int rows;
+
+        ChunkWriter(File dir, String sheet, String month) throws Exception {
+            this.month = month;
+            this.temp = new File(dir, safeName(sheet) + "_" + month + TEMP_SUFFIX);
+            this.digest = MessageDigest.getInstance("SHA-256");
+            GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), 8192);
+            this.writer = new JsonWriter(new OutputStreamWriter(new DigestOutputStream(gzip, digest), "UTF-8"));
+            writer.beginArray();
+        }
+    }
+
+    private final Context context;
+    private final File dir;
+    private final File chunksDir;
+
+    public BackupManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.dir = new File(this.context.getFilesDir(), DIR_NAME);
+        this.chunksDir = new File(dir, CHUNKS_DIR);
+    }
+
+    /**
+     * Fetch get_full_backup and store it as a new snapshot
+     * Result: {"manifest", "sheets", "chunks", "newChunks", "rows", "bytesWritten", "totalBytes"}
+     */
+    public void backup(final String endpoint, final Listener listener) {
+        EXECUTOR.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                JSONObject result = runBackup(endpoint);
+                AppMetrics.backup("backup", result.getInt("rows"), result.getLong("bytesWritten"),
+                    System.nanoTime() - started, true);
+                listener.onComplete(result.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "Backup failed: " + e.getMessage(), e);
+                AppMetrics.backup("backup", 0, 0, System.nanoTime() - started, false);
+                listener.onError(String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Load the newest snapshot's attendance sheets into the local store
+     * Result: {"manifest", "backupDate", "rows", "dates"}
+     */
+    public void restore(final Listener listener) {
+        EXECUTOR.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                File manifest = latestManifest();
+                if (manifest == null) {
+                    throw new IOException("No backup on this device yet");
+                }
+                JSONObject result = runRestore(manifest);
+                AppMetrics.backup("restore", result.getInt("rows"), 0, System.nanoTime() - started, true);
+                listener.onComplete(result.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "Restore failed: " + e.getMessage(), e);
+                AppMetrics.backup("restore", 0, 0, System.nanoTime() - started, false);
+                listener.onError(String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Newest snapshot as {"manifest", "createdAt", "backupDate", "snapshots", "totalBytes"}, or null
+     */
+    public String latestInfo() {
+        File manifest = latestManifest();
+        if (manifest == null) return null;
+        try {
+            JSONObject json = readManifest(manifest);
+            JSONObject info = new JSONObject();
+            info.put("manifest", manifest.getName());
+            info.put("createdAt", json.optLong("createdAt"));
+            info.put("backupDate", json.optString("backupDate"));
+            info.put("snapshots", manifests().size());
+            info.put("totalBytes", directorySize(chunksDir));
+            return info.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Unreadable manifest " + manifest.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private JSONObject runBackup(String endpoint) throws Exception {
+        if (!chunksDir.exists() && !chunksDir.mkdirs()) {
+            throw new IOException("Could not create " + chunksDir);
+        }
+
+        JSONObject manifest = new JSONObject();
+        manifest.put("version", FORMAT_VERSION);
+        manifest.put("createdAt", System.currentTimeMillis());
+        JSONArray sheets = new JSONArray();
+        String result = null;
+        String error = null;
+
+        HttpURLConnection connection = new AppsScriptClient(endpoint).open("{\"action\":\"get_full_backup\"}");
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(
+                new BufferedInputStream(connection.getInputStream(), 64 * 1024), "UTF-8"));
+            try {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("result".equals(name)) {
+                        result = reader.nextString();
+                    } else if ("error".equals(name)) {
+                        error = reader.nextString();
+                    } else if ("backup".equals(name)) {
+                        readBackup(reader, manifest, sheets);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } finally {
+                reader.close();
+            }
+        } finally {
+            connection.disconnect();
+        }
+
+        if (!"success".equals(result)) {
+            throw new IOException(error != null ? error : "Backup failed on the server");
+        }
+        manifest.put("sheets", sheets);
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File manifestFile = new File(dir, MANIFEST_PREFIX + timestamp + MANIFEST_SUFFIX);
+        writeManifest(manifestFile, manifest);
+        prune();
+
+        int chunks = 0;
+        int newChunks = 0;
+        int rows = 0;
+        long bytesWritten = 0;
+        for (int i = 0; i < sheets.length(); i++) {
+            JSONArray sheetChunks = sheets.getJSONObject(i).getJSONArray("chunks");
+            for (int c = 0; c < sheetChunks.length(); c++) {
+                JSONObject chunk = sheetChunks.getJSONObject(c);
+                chunks++;
+                rows += chunk.getInt("rows");
+                if (chunk.optBoolean("new")) {
+                    newChunks++;
+                    bytesWritten += chunk.getLong("bytes");
+                }
+            }
+        }
+
+        JSONObject summary = new JSONObject();
+        summary.put("manifest", manifestFile.getName());
+        summary.put("sheets", sheets.length());
+        summary.put("chunks", chunks);
+        summary.put("newChunks", newChunks);
+        summary.put("rows", rows);
+        summary.put("bytesWritten", bytesWritten);
+        summary.put("totalBytes", directorySize(chunksDir));
+        Log.d(TAG, "Backup " + manifestFile.getName() + ": " + summary);
+        return summary;
+    }
+
+    /**
+     * {"spreadsheetName", "spreadsheetId", "backupDate", "sheets": {name: {"rows", "columns", "data"}}}
+     */
+    private void readBackup(JsonReader reader, JSONObject manifest, JSONArray sheets) throws Exception {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("sheets".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    sheets.put(readSheet(reader, reader.nextName()));
+                }
+                reader.endObject();
+            } else if (reader.peek() == JsonToken.STRING) {
+                manifest.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private JSONObject readSheet(JsonReader reader, String sheetName) throws Exception {
+        JSONObject sheet = new JSONObject();
+        sheet.put("name", sheetName);
+        sheet.put("header", new JSONArray());
+        sheet.put("chunks", new JSONArray());
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("data".equals(reader.nextName())) {
+                readRows(reader, sheet);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return sheet;
+    }
+
+    /**
+     * First row is the header (kept in the manifest); every other row goes to its month's chunk
+     */
+    private void readRows(JsonReader reader, JSONObject sheet) throws Exception {
+        String sheetName = sheet.getString("name");
+        Map<String, ChunkWriter> writers = new LinkedHashMap<>();
+        List<Object> row = new ArrayList<>();
+        int dateColumn = -1;
+        boolean first = true;
+        boolean complete = false;
+
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readRow(reader, row);
+                if (first) {
+                    first = false;
+                    JSONArray header = sheet.getJSONArray("header");
+                    for (int i = 0; i < row.size(); i++) {
+                        String title = row.get(i) == null ? "" : String.valueOf(row.get(i));
+                        header.put(title);
+                        if (dateColumn < 0 && "date".equalsIgnoreCase(title.trim())) dateColumn = i;
+                    }
+                    continue;
+                }
+
+                String month = monthOf(dateColumn >= 0 && dateColumn < row.size() ? row.get(dateColumn) : null);
+                ChunkWriter writer = writers.get(month);
+                if (writer == null) {
+                    writer = new ChunkWriter(chunksDir, sheetName, month);
+                    writers.put(month, writer);
+                }
+                writeRow(writer.writer, row);
+                writer.rows++;
+            }
+            reader.endArray();
+            complete = true;
+        } finally {
+            for (ChunkWriter writer : writers.values()) {
+                try {
+                    writer.writer.endArray();
+                } catch (Exception ignored) {
+                    // Writer already failed; the temp file is discarded below
+                }
+                if (complete) {
+                    writer.writer.close();
+                } else {
+                    discard(writer);
+                }
+            }
+        }
+
+        JSONArray chunks = sheet.getJSONArray("chunks");
+        for (ChunkWriter writer : writers.values()) {
+            chunks.put(commitChunk(sheetName, writer));
+        }
+    }
+
+    /**
+     * Close a chunk of a sheet that could not be read completely and delete its temp file
+     */
+    private static void discard(ChunkWriter writer) {
+        try {
+            writer.writer.close();
+        } catch (IOException ignored) {
+            // The file is deleted either way
+        }
+        writer.temp.delete();
+    }
+
+    /**
+     * Give a finished chunk its content name; an identical chunk from an earlier backup is reused
+     */
+    private JSONObject commitChunk(String sheetName, ChunkWriter writer) throws Exception {
+        String digest = toHex(writer.digest.digest());
+        File target = new File(chunksDir, safeName(sheetName) + "_" + writer.month + "_"
+            + digest.substring(0, 16) + CHUNK_SUFFIX);
+        boolean isNew = !target.exists();
+        if (isNew) {
+            if (!writer.temp.renameTo(target)) {
+                throw new IOException("Could not store chunk " + target.getName());
+            }
+        } else {
+            writer.temp.delete();
+        }
+
+        JSONObject chunk = new JSONObject();
+        chunk.put("month", writer.month);
+        chunk.put("file", target.getName());
+        chunk.put("sha256", digest);
+        chunk.put("rows", writer.rows);
+        chunk.put("bytes", target.length());
+        chunk.put("new", isNew);
+        return chunk;
+    }
+
+    private static void readRow(JsonReader reader, List<Object> row) throws IOException {
+        row.clear();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            row.add(readCell(reader));
+        }
+        reader.endArray();
+    }
+
+    private static Object readCell(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                String literal = reader.nextString();
+                if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+                    try {
+                        return Long.parseLong(literal);
+                    } catch (NumberFormatException e) {
+                        // Too large for a long
+                    }
+                }
+                return Double.parseDouble(literal);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BEGIN_OBJECT:
+                String type = null;
+                String value = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (("_type".equals(name) || "value".equals(name)) && reader.peek() == JsonToken.STRING) {
+                        if ("_type".equals(name)) type = reader.nextString(); else value = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return "date".equals(type) && value != null ? new DateCell(value) : null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    private static void writeRow(JsonWriter writer, List<Object> row) throws IOException {
+        writer.beginArray();
+        for (Object cell : row) {
+            if (cell == null) {
+                writer.nullValue();
+            } else if (cell instanceof DateCell) {
+                writer.beginObject().name("_type").value("date").name("value").value(((DateCell) cell).iso).endObject();
+            } else if (cell instanceof Boolean) {
+                writer.value((Boolean) cell);
+            } else if (cell instanceof Number) {
+                writer.value((Number) cell);
+            } else {
+                writer.value(cell.toString());
+            }
+        }
+        writer.endArray();
+    }
+
+    private JSONObject runRestore(File manifestFile) throws Exception {
+        JSONObject manifest = readManifest(manifestFile);
+        JSONArray sheets = manifest.getJSONArray("sheets");
+        int rows = 0;
+        Set<String> dates = new HashSet<>();
+
+        for (int i = 0; i < sheets.length(); i++) {
+            JSONObject sheet = sheets.getJSONObject(i);
+            String category = sheet.getString("name");
+            int categoryIndex = SyncStatusSnapshot.categoryIndex(category);
+            if (categoryIndex < 0) continue; // only attendance sheets have a place in the local store
+
+            int[] columns = attendanceColumns(sheet.getJSONArray("header"));
+            if (columns == null) {
+                Log.e(TAG, "Sheet " + category + " has no Date/Full Name/Status columns - skipped");
+                continue;
+            }
+            JSONArray chunks = sheet.getJSONArray("chunks");
+            for (int c = 0; c < chunks.length(); c++) {
+                rows += restoreChunk(new File(chunksDir, chunks.getJSONObject(c).getString("file")),
+                    category, categoryIndex, columns, dates);
+            }
+        }
+
+        JSONObject summary = new JSONObject();
+        summary.put("manifest", manifestFile.getName());
+        summary.put("backupDate", manifest.optString("backupDate"));
+        summary.put("rows", rows);
+        summary.put("dates", dates.size());
+        Log.d(TAG, "Restored " + manifestFile.getName() + ": " + summary);
+        return summary;
+    }
+
+    /**
+     * Column indexes of {Date, Full Name, App Number, App ID, Hostel Id, Hostel Allocation, Status},
+     * -1 for optional ones that are missing, or null if the sheet can't be restored
+     */
+    private static int[] attendanceColumns(JSONArray header) {
+        String[] titles = {"Date", "Full Name", "Application: Application Number", "Application: ID",
+            "Hostel Id", "Hostel Allocation", "Status"};
+        int[] columns = new int[titles.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.length(); i++) {
+            String title = header.optString(i).trim();
+            for (int t = 0; t < titles.length; t++) {
+                if (columns[t] < 0 && titles[t].equalsIgnoreCase(title)) columns[t] = i;
+            }
+        }
+        return columns[0] < 0 || columns[1] < 0 || columns[6] < 0 ? null : columns;
+    }
+
+    /**
+     * Stream one chunk into the database, a batch of rows per transaction
+     * Rows come from the server, so each date's section is also marked as synced
+     */
+    private int restoreChunk(File file, String category, int categoryIndex, int[] columns, Set<String> dates)
+            throws Exception {
+        AttendanceDatabase database = AttendanceDatabase.getInstance(context);
+        AttendanceBitsets bitsets = AttendanceBitsets.getInstance(context);
+        StudentRoster roster = StudentRoster.getInstance(context);
+
+        Map<String, List<AttendanceDatabase.Record>> batch = new LinkedHashMap<>();
+        // Rows per date in this chunk (a chunk is one month, so at most 31 entries)
+        Map<String, Integer> rowsPerDate = new LinkedHashMap<>();
+        List<Object> row = new ArrayList<>();
+        int pending = 0;
+        int restored = 0;
+
+        JsonReader reader = new JsonReader(new InputStreamReader(
+            new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)), 8192), "UTF-8"));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readRow(reader, row);
+                String date = dateOf(cell(row, columns[0]));
+                String name = stringOf(cell(row, columns[1]));
+                if (date == null || name.isEmpty()) continue;
+
+                AttendanceDatabase.Record record = new AttendanceDatabase.Record();
+                record.date = date;
+                record.category = category;
+                record.name = name;
+                record.appNumber = stringOf(cell(row, columns[2]));
+                record.appId = stringOf(cell(row, columns[3]));
+                record.hostelId = stringOf(cell(row, columns[4]));
+                record.allocation = stringOf(cell(row, columns[5]));
+                String status = stringOf(cell(row, columns[6]));
+                record.status = status.isEmpty() ? null : status;
+
+                List<AttendanceDatabase.Record> records = batch.get(date);
+                if (records == null) {
+                    records = new ArrayList<>();
+                    batch.put(date, records);
+                }
+                records.add(record);
+                Integer count = rowsPerDate.get(date);
+                rowsPerDate.put(date, count == null ? 1 : count + 1);
+
+                if (++pending >= RESTORE_BATCH_ROWS) {
+                    restored += flush(database, bitsets, roster, category, categoryIndex, batch);
+                    pending = 0;
+                }
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+        restored += flush(database, bitsets, roster, category, categoryIndex, batch);
+
+        for (Map.Entry<String, Integer> entry : rowsPerDate.entrySet()) {
+            bitsets.markSynced(entry.getKey(), categoryIndex, entry.getValue());
+            dates.add(entry.getKey());
+        }
+        return restored;
+    }
+
+    private static int flush(AttendanceDatabase database, AttendanceBitsets bitsets, StudentRoster roster,
+                             String category, int categoryIndex,
+                             Map<String, List<AttendanceDatabase.Record>> batch) {
+        int written = 0;
+        for (Map.Entry<String, List<AttendanceDatabase.Record>> entry : batch.entrySet()) {
+            written += database.upsertRecords(entry.getKey(), category, entry.getValue());
+            bitsets.setRecords(entry.getKey(), categoryIndex, entry.getValue(), roster);
+        }
+        batch.clear();
+        return written;
+    }
+
+    private static Object cell(List<Object> row, int column) {
+        return column >= 0 && column < row.size() ? row.get(column) : null;
+    }
+
+    private static String stringOf(Object cell) {
+        if (cell == null) return "";
+        if (cell instanceof Long || cell instanceof Double && ((Double) cell) == Math.rint((Double) cell)) {
+            // Sheets hands numbers back as doubles; ids like 12345 shouldn't become "12345.0"
+            return Long.toString(((Number) cell).longValue());
+        }
+        return cell.toString().trim();
+    }
+
+    /**
+     * yyyy-MM of a date cell, or UNDATED
+     */
+    private static String monthOf(Object cell) {
+        String date = dateOf(cell);
+        return date != null ? date.substring(0, 7) : UNDATED;
+    }
+
+    /**
+     * yyyy-MM-dd of a date cell: a date object (an instant, read in the device's time zone,
+     * which is the sheet's) or one of the text formats the sheets contain
+     */
+    private static String dateOf(Object cell) {
+        if (cell instanceof DateCell) {
+            String iso = ((DateCell) cell).iso;
+            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+            parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(parser.parse(iso));
+            } catch (ParseException e) {
+                return iso.length() >= 10 ? TrackingEngine.normalizeDate(iso.substring(0, 10)) : null;
+            }
+        }
+        if (cell instanceof String) {
+            String text = ((String) cell).trim();
+            return text.isEmpty() ? null : TrackingEngine.normalizeDate(text);
+        }
+        return null;
+    }
+
+    private List<File> manifests() {
+        List<File> manifests = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(MANIFEST_PREFIX) && file.getName().endsWith(MANIFEST_SUFFIX)) {
+                    manifests.add(file);
+                }
+            }
+        }
+        // Timestamped names sort oldest first
+        Collections.sort(manifests);
+        return manifests;
+    }
+
+    private File latestManifest() {
+        List<File> manifests = manifests();
+        return manifests.isEmpty() ? null : manifests.get(manifests.size() - 1);
+    }
+
+    private static JSONObject readManifest(File file) throws Exception {
+        return new JSONObject(new String(new AtomicFile(file).readFully(), "UTF-8"));
+    }
+
+    private static void writeManifest(File file, JSONObject manifest) throws IOException {
+        AtomicFile atomicFile = new AtomicFile(file);
+        FileOutputStream out = atomicFile.startWrite();
+        try {
+            out.write(manifest.toString().getBytes("UTF-8"));
+            atomicFile.finishWrite(out);
+        } catch (IOException e) {
+            atomicFile.failWrite(out);
+            throw e;
+        }
+    }
+
+    /**
+     * Keep the newest KEEP_SNAPSHOTS manifests and the chunks they use
+     */
+    private void prune() {
+        List<File> manifests = manifests();
+        for (int i = 0; i < manifests.size() - KEEP_SNAPSHOTS; i++) {
+            manifests.get(i).delete();
+        }
+
+        Set<String> referenced = new HashSet<>();
+        for (File manifest : manifests()) {
+            try {
+                JSONArray sheets = readManifest(manifest).getJSONArray("sheets");
+                for (int i = 0; i < sheets.length(); i++) {
+                    JSONArray chunks = sheets.getJSONObject(i).getJSONArray("chunks");
+                    for (int c = 0; c < chunks.length(); c++) {
+                        referenced.add(chunks.getJSONObject(c).getString("file"));
+                    }
+                }
+            } catch (Exception e) {
+                // An unreadable manifest protects nothing; leave chunks alone this time
+                Log.e(TAG, "Skipping prune, unreadable manifest " + manifest.getName());
+                return;
+            }
+        }
+
+        File[] files = chunksDir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!referenced.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private static long directorySize(File directory) {
+        long size = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Sheet name usable in a file name ("Mess Day" -> "Mess_Day")
+     */
+    private static String safeName(String name) {
+        return name.replaceAll("[^A-Za-z0-9-]", "_");
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
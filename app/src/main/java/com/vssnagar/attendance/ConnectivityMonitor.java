@@ -0,0 +1,138 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * ConnectivityMonitor
+ * Follows the default network with a NetworkCallback and reports every change on the main thread
+ * "online" means the network is validated (it actually reaches the internet, not just a captive
+ * portal or a dead hostel-basement Wi-Fi); "metered" means mobile data or a metered hotspot.
+ * Changes arrive as the system sees them, so recovery after a dead zone needs no relaunch.
+ */
+public class ConnectivityMonitor {
+
+    private static final String TAG = "ConnectivityMonitor";
+
+    public interface Listener {
+        void onConnectivityChanged(boolean online, boolean metered);
+    }
+
+    private final ConnectivityManager connectivity;
+    private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private ConnectivityManager.NetworkCallback callback;
+
+    private boolean online;
+    private boolean metered;
+
+    public ConnectivityMonitor(Context context, Listener listener) {
+        this.connectivity = (ConnectivityManager) context.getApplicationContext()
+            .getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.listener = listener;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    /**
+     * Start following the network; the current state is reported right away
+     */
+    public void start() {
+        if (callback != null || connectivity == null) return;
+
+        NetworkCapabilities current = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            Network network = connectivity.getActiveNetwork();
+            current = network == null ? null : connectivity.getNetworkCapabilities(network);
+            online = current != null && current.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        } else {
+            // No validation state before Android 6
+            NetworkInfo info = connectivity.getActiveNetworkInfo();
+            online = info != null && info.isConnected();
+        }
+        metered = connectivity.isActiveNetworkMetered();
+        listener.onConnectivityChanged(online, metered);
+
+        callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                // Validation is reported through onCapabilitiesChanged; before Android 6 there is none
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+                    update(true, connectivity.isActiveNetworkMetered());
+                }
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                boolean validated = Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+                    || capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+                update(validated && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET),
+                    !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED));
+            }
+
+            @Override
+            public void onLost(Network network) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    update(false, metered);
+                } else {
+                    // Not following the default network here - another one may still be up
+                    NetworkInfo info = connectivity.getActiveNetworkInfo();
+                    update(info != null && info.isConnected(), connectivity.isActiveNetworkMetered());
+                }
+            }
+        };
+
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                connectivity.registerDefaultNetworkCallback(callback);
+            } else {
+                NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+                connectivity.registerNetworkCallback(request, callback);
+            }
+        } catch (RuntimeException e) {
+            // Too many callbacks registered by the process, or no permission - keep the initial state
+            Log.e(TAG, "Could not register network callback: " + e.getMessage(), e);
+            callback = null;
+        }
+    }
+
+    public void stop() {
+        if (callback == null) return;
+        try {
+            connectivity.unregisterNetworkCallback(callback);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not unregister network callback: " + e.getMessage(), e);
+        }
+        callback = null;
+        main.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Called on the connectivity thread; only real changes reach the listener
+     */
+    private void update(final boolean nowOnline, final boolean nowMetered) {
+        main.post(() -> {
+            if (callback == null || (nowOnline == online && nowMetered == metered)) return;
+            online = nowOnline;
+            metered = nowMetered;
+            Log.d(TAG, "Network " + (online ? "online" : "offline") + (metered ? ", metered" : ""));
+            listener.onConnectivityChanged(online, metered);
+        });
+    }
+}
@@ -0,0 +1,210 @@
+package com.vssnagar.attendance;
+
+import android.util.Log;
+import com.vssnagar.attendance.core.Base64ChunkDecoder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * DownloadTransferManager
+ * Writes downloads that arrive from JavaScript as a sequence of Base64 chunks
+ * Decoding and file writes run on a single background I/O thread, never on the main Looper,
+ * and only one chunk is held in memory at a time per transfer
+ */
+public class DownloadTransferManager {
+
+    private static final String TAG = "DownloadTransfers";
+
+    /**
+     * Callbacks are invoked on the I/O thread
+     */
+    public interface Listener {
+        void onProgress(String transferId, long bytesWritten, long totalBytes);
+        void onComplete(String transferId, File file, String mimeType);
+        void onError(String transferId, String message);
+    }
+
+    private static class Transfer {
+        final File file;
+        final String mimeType;
+        final long totalBytes;
+        FileOutputStream stream;
+        FileChannel channel;
+        long bytesWritten;
+        final long startedNanos = System.nanoTime();
+        // Keeps the partial quad between chunks
+        final Base64ChunkDecoder decoder = new Base64ChunkDecoder();
+        // Reused for every chunk of this transfer
+        byte[] buffer = new byte[0];
+
+        Transfer(File file, String mimeType, long totalBytes) {
+            this.file = file;
+            this.mimeType = mimeType;
+            this.totalBytes = totalBytes;
+        }
+    }
+
+    // Single thread keeps chunks of a transfer in order without extra locking
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+    private final Listener listener;
+
+    public DownloadTransferManager(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start a transfer into the given file
+     * @param totalBytes Expected decoded size, or -1 if unknown (progress only)
+     * @return Transfer id to pass to append() and finish()
+     */
+    public String begin(final File file, String mimeType, long totalBytes) {
+        final String transferId = UUID.randomUUID().toString();
+        final Transfer transfer = new Transfer(file, mimeType, totalBytes);
+        transfers.put(transferId, transfer);
+
+        IO_EXECUTOR.execute(() -> {
+            try {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
+                }
+                transfer.stream = new FileOutputStream(file);
+                transfer.channel = transfer.stream.getChannel();
+            } catch (IOException e) {
+                fail(transferId, transfer, e);
+            }
+        });
+        return transferId;
+    }
+
+    /**
+     * Queue one Base64 chunk for decoding and writing
+     * Chunks may be split at any character; partial quads are carried to the next chunk
+     */
+    public void append(final String transferId, final String base64Chunk) {
+        final Transfer transfer = transfers.get(transferId);
+        if (transfer == null) {
+            Log.e(TAG, "Unknown transfer: " + transferId);
+            return;
+        }
+
+        IO_EXECUTOR.execute(() -> {
+            if (transfer.channel == null) return; // open failed or cancelled
+            try {
+                writeDecoded(transfer, base64Chunk);
+                listener.onProgress(transferId, transfer.bytesWritten, transfer.totalBytes);
+            } catch (Exception e) {
+                fail(transferId, transfer, e);
+            }
+        });
+    }
+
+    /**
+     * Queue raw bytes (an ArrayBuffer from the message bridge) for writing
+     * Must not be mixed with Base64 chunks in the same transfer
+     */
+    public void appendBytes(final String transferId, final byte[] data) {
+        final Transfer transfer = transfers.get(transferId);
+        if (transfer == null) {
+            Log.e(TAG, "Unknown transfer: " + transferId);
+            return;
+        }
+
+        IO_EXECUTOR.execute(() -> {
+            if (transfer.channel == null) return;
+            try {
+                writeBytes(transfer, data, data.length);
+                listener.onProgress(transferId, transfer.bytesWritten, transfer.totalBytes);
+            } catch (Exception e) {
+                fail(transferId, transfer, e);
+            }
+        });
+    }
+
+    /**
+     * Flush the last partial quad, close the file and report completion
+     */
+    public void finish(final String transferId) {
+        final Transfer transfer = transfers.remove(transferId);
+        if (transfer == null) {
+            Log.e(TAG, "Unknown transfer: " + transferId);
+            return;
+        }
+
+        IO_EXECUTOR.execute(() -> {
+            if (transfer.channel == null) return;
+            try {
+                // Final quad may be cut short or padded
+                byte[] tail = new byte[2];
+                writeBytes(transfer, tail, transfer.decoder.finish(tail));
+                transfer.channel.force(false);
+                close(transfer);
+                Log.d(TAG, "Transfer complete: " + transfer.file.getAbsolutePath()
+                    + " (" + transfer.bytesWritten + " bytes)");
+                AppMetrics.download(transfer.bytesWritten, System.nanoTime() - transfer.startedNanos, true);
+                listener.onComplete(transferId, transfer.file, transfer.mimeType);
+            } catch (Exception e) {
+                fail(transferId, transfer, e);
+            }
+        });
+    }
+
+    /**
+     * Abort a transfer and delete the partial file
+     */
+    public void cancel(final String transferId) {
+        final Transfer transfer = transfers.remove(transferId);
+        if (transfer == null) return;
+
+        IO_EXECUTOR.execute(() -> {
+            close(transfer);
+            transfer.file.delete();
+        });
+    }
+
+    private void writeDecoded(Transfer transfer, String base64) throws IOException {
+        int needed = Base64ChunkDecoder.maxDecodedLength(base64.length());
+        if (transfer.buffer.length < needed) {
+            transfer.buffer = new byte[needed];
+        }
+        writeBytes(transfer, transfer.buffer, transfer.decoder.decode(base64, transfer.buffer));
+    }
+
+    private void writeBytes(Transfer transfer, byte[] data, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        while (buffer.hasRemaining()) {
+            transfer.channel.write(buffer);
+        }
+        transfer.bytesWritten += length;
+    }
+
+    private void fail(String transferId, Transfer transfer, Exception e) {
+        Log.e(TAG, "Transfer failed: " + e.getMessage(), e);
+        AppMetrics.download(transfer.bytesWritten, 0, false);
+        transfers.remove(transferId);
+        close(transfer);
+        transfer.file.delete();
+        listener.onError(transferId, e.getMessage());
+    }
+
+    private void close(Transfer transfer) {
+        try {
+            if (transfer.channel != null) transfer.channel.close();
+            if (transfer.stream != null) transfer.stream.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing transfer: " + e.getMessage());
+        }
+        transfer.channel = null;
+        transfer.stream = null;
+    }
+}
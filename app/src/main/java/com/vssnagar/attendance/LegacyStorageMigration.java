@@ -0,0 +1,84 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+import org.json.JSONObject;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * LegacyStorageMigration
+ * Carries localStorage over from the GitHub Pages origin the app used to load the web app from
+ * Before the bundled app is first shown, the WebView opens an export page that is served locally
+ * but on the old origin, so it can read that origin's localStorage (sync locks, last state, theme,
+ * records not yet moved to the native store). It hands everything to importStorage() and goes on
+ * to the bundled app, which copies the values into its own localStorage (see index.html).
+ * No network is involved; the export runs once per install.
+ */
+public final class LegacyStorageMigration {
+
+    private static final String TAG = "LegacyStorageMigration";
+
+    // Origin of the previously loaded web app; localStorage is keyed by origin, not path
+    static final String EXPORT_URL = "https://vaibhav1305-iitm.github.io/hostel-attendance-app/storage-export.html";
+
+    // Set once the export ran (with or without anything to carry over)
+    private static final String KEY_EXPORTED = "legacy_storage_exported";
+    // Exported {key: value} JSON, read and removed by the page once copied
+    static final String KEY_LEGACY_STORAGE = "legacy_local_storage";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String EXPORT_PAGE = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"></head><body><script>"
+        + "var data = {};"
+        + "try {"
+        + "  for (var i = 0; i < localStorage.length; i++) {"
+        + "    var key = localStorage.key(i); data[key] = localStorage.getItem(key);"
+        + "  }"
+        + "} catch (e) { console.log('Legacy storage not readable:', e); }"
+        + "if (typeof Android !== 'undefined') Android.importLegacyStorage(JSON.stringify(data));"
+        + "location.replace(" + JSONObject.quote(WebAssetServer.LOCAL_APP_URL) + ");"
+        + "</script></body></html>";
+
+    private LegacyStorageMigration() {
+    }
+
+    /**
+     * The URL a new WebView should open: the export page once, then the bundled app
+     */
+    public static String startUrl(Context context) {
+        boolean exported = AttendanceDatabase.getInstance(context).getValue(KEY_EXPORTED) != null;
+        return exported ? WebAssetServer.LOCAL_APP_URL : EXPORT_URL;
+    }
+
+    /**
+     * Called from WebViewClient.shouldInterceptRequest
+     * @return The export page, or null for any other URL
+     */
+    static WebResourceResponse intercept(Uri url) {
+        if (!EXPORT_URL.equals(url.toString())) return null;
+        return new WebResourceResponse("text/html", "UTF-8", new ByteArrayInputStream(EXPORT_PAGE.getBytes(UTF_8)));
+    }
+
+    /**
+     * Keep what the export page read (first call only; later calls are ignored)
+     * @param json {key: value} of the old origin's localStorage
+     */
+    static synchronized void importStorage(Context context, String json) {
+        AttendanceDatabase database = AttendanceDatabase.getInstance(context);
+        if (database.getValue(KEY_EXPORTED) != null) return;
+
+        try {
+            int keys = new JSONObject(json).length();
+            if (keys > 0) {
+                database.putValue(KEY_LEGACY_STORAGE, json);
+            }
+            Log.d(TAG, "Exported " + keys + " localStorage value(s) from the old origin");
+        } catch (Exception e) {
+            Log.e(TAG, "Ignoring unreadable legacy storage: " + e.getMessage());
+        }
+        database.putValue(KEY_EXPORTED, String.valueOf(System.currentTimeMillis()));
+    }
+}
@@ -2,193 +2,376 @@ package com.vssnagar.attendance;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.content.Context;
+import android.content.ComponentCallbacks2;
 import android.content.DialogInterface;
 import android.content.pm.PackageManager;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Build;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.KeyEvent;
-import android.webkit.WebChromeClient;
-import android.webkit.WebSettings;
+import android.view.ViewGroup;
+import android.webkit.ValueCallback;
 import android.webkit.WebView;
-import android.webkit.WebViewClient;
-import android.widget.TextView;
+import android.widget.FrameLayout;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
-import java.util.Calendar;
-import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Main Activity
- * This activity loads your Google Apps Script web app in a WebView.
+ * This activity loads the bundled web app in a WebView.
  * Downloads are handled via JavaScript interface (WebAppInterface).
  */
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements ConnectivityMonitor.Listener {
 
     private WebView webView;
-    private TextView noInternetText;
+    private ConnectivityMonitor connectivityMonitor;
+    // System.nanoTime() when the network went away, 0 while online
+    private long offlineSince;
+    // System.nanoTime() when the renderer died, 0 unless a replacement page is loading
+    private long rendererGoneAt;
+    // Native marking screen over the WebView, null when not shown
+    private MarkingScreen markingScreen;
+    // Finished upload results the page has not taken yet (work id -> result JSON), and those being handed over
+    private final Map<String, String> pendingSyncResults = new LinkedHashMap<>();
+    private final Set<String> syncResultsInFlight = new HashSet<>();
     private static final int NOTIFICATION_PERMISSION_CODE = 100;
     private static final int STORAGE_PERMISSION_CODE = 101;
+    private static final String KEY_DELIVERED_SYNC_RESULTS = "native_sync_results_delivered";
+    private static final String KEY_RESTORE_PAGE_STATE = "restore_page_state";
+    private static final String LEGACY_DAILY_CHECK = "DailyAttendanceCheck";
 
-    // Your GitHub Pages hosted web app URL
-    private static final String WEB_APP_URL = "https://vaibhav1305-iitm.github.io/hostel-attendance-app/";
+    // Launch extra (debug builds): URL of a self-hosted server (see the :server module)
+    public static final String EXTRA_SERVER_ENDPOINT = "server_endpoint";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTimings.mark("main_created");
         setContentView(R.layout.activity_main);
 
-        // Find the WebView from the layout file
-        webView = findViewById(R.id.webView);
-        noInternetText = findViewById(R.id.noInternetText);
-
         // Request permissions
         requestNotificationPermission();
         requestStoragePermission();
 
-        // Schedule daily attendance check at 11:30 PM
-        scheduleDailyAttendanceCheck();
+        // Reminder alarms at each section's deadline
+        scheduleReminders();
+        // Past dates loaded ahead of time while charging on Wi-Fi
+        PrefetchWorker.schedule(this);
 
-        // Check if internet is available
-        if (isInternetAvailable()) {
-            // Internet is available, load the web app
-            setupWebView();
-            loadWebApp();
-        } else {
-            // No internet, show error message
-            showNoInternetMessage();
+        // Recreated by the system (e.g. after the process was killed in the background):
+        // the page picks up where it was instead of starting from today's defaults
+        if (savedInstanceState != null && savedInstanceState.getBoolean(KEY_RESTORE_PAGE_STATE)) {
+            PageStateSnapshot.armRestore();
+        }
+
+        // The web app is bundled locally, so it loads with or without internet
+        setupWebView();
+        // Debug builds: a self-hosted server can be offered at launch:
+        // adb shell am start -n <package>/.SplashActivity --es server_endpoint http://host:8080/
+        offerLaunchEndpoint();
+        observeSyncUploads();
+
+        // Follows the network from onStart to onStop; the web bundle check waits for unmetered
+        connectivityMonitor = new ConnectivityMonitor(this, this);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        connectivityMonitor.start();
+    }
+
+    @Override
+    protected void onStop() {
+        connectivityMonitor.stop();
+        if (markingScreen != null) {
+            markingScreen.flush();
+        }
+        super.onStop();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(KEY_RESTORE_PAGE_STATE, true);
+        // The page pushes its state as it changes; flush whatever is still debounced
+        webView.evaluateJavascript("window.onNativeSaveState && window.onNativeSaveState();", null);
+    }
+
+    /**
+     * Memory pressure: have the page's state saved, then release what can be rebuilt
+     * The response cache and the packed attendance days are both backed by files,
+     * so dropping their in-memory copies costs a disk read later, never a network call.
+     * UI_HIDDEN alone only means the app went to the background - caches are kept for then.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        AppMetrics.trimMemory(level);
+        webView.evaluateJavascript("window.onNativeSaveState && window.onNativeSaveState();", null);
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            ScriptResponseCache.getInstance(this).trimMemory();
+            AttendanceBitsets.getInstance(this).trimMemory();
         }
     }
 
     /**
-     * Set up WebView settings
-     * This configures how the WebView behaves
+     * Network came or went (main thread)
+     * The page hears about it right away (navigator.onLine, the online/offline events and
+     * window.onNativeConnectivity), and work that waited for a network is resumed.
+     */
+    @Override
+    public void onConnectivityChanged(boolean online, boolean metered) {
+        webView.setNetworkAvailable(online);
+        webView.evaluateJavascript("window.onNativeConnectivity && window.onNativeConnectivity({online: "
+            + online + ", metered: " + metered + "});", null);
+
+        if (!online) {
+            if (offlineSince == 0) {
+                offlineSince = System.nanoTime();
+                AppMetrics.connectivity(false, 0);
+            }
+            return;
+        }
+        if (offlineSince != 0) {
+            AppMetrics.connectivity(true, System.nanoTime() - offlineSince);
+            offlineSince = 0;
+        }
+
+        // An upload that failed offline may be waiting out its backoff - run it now
+        SyncUploadWorker.retryNow(this);
+        // Look for a newer published web app (used from the next launch); not on mobile data
+        if (!metered) {
+            WebBundleUpdater.checkForUpdate(this);
+        }
+    }
+
+    /**
+     * Offer the "server_endpoint" launch extra, if any ("" goes back to the Apps Script deployment)
+     * Release builds ignore it: any app can start the exported launcher activity with extras.
+     */
+    private void offerLaunchEndpoint() {
+        if (!BuildConfig.DEBUG) return;
+        String endpoint = getIntent().getStringExtra(EXTRA_SERVER_ENDPOINT);
+        if (endpoint == null || !AppsScriptClient.isValidEndpoint(endpoint)) return;
+        final String before = AppsScriptClient.endpoint(this);
+        confirmServerEndpoint(endpoint, inUse -> {
+            if (inUse != null && !inUse.equals(before)) {
+                // The page already picked up the old endpoint
+                webView.reload();
+            }
+        });
+    }
+
+    /**
+     * Ask the user before the app sends anything to another server (main thread)
+     * Every endpoint change goes through here: the launch extra and the page's Server card.
+     * @param endpoint Valid server URL (AppsScriptClient.isValidEndpoint), or empty for the Apps Script deployment
+     * @param onResult Gets the endpoint now in use once switched, the unchanged one if there was
+     *                 nothing to switch, or null if the user said no
+     */
+    void confirmServerEndpoint(String endpoint, final ValueCallback<String> onResult) {
+        final String value = endpoint.trim();
+        String current = AppsScriptClient.endpoint(this);
+        if ((value.isEmpty() ? AppsScriptClient.DEFAULT_ENDPOINT : value).equals(current)) {
+            onResult.onReceiveValue(current);
+            return;
+        }
+        if (isFinishing()) {
+            onResult.onReceiveValue(null);
+            return;
+        }
+        String target = value.isEmpty() ? "Google Sheets (the Apps Script deployment)" : value;
+        new AlertDialog.Builder(this)
+            .setTitle("Change Server")
+            .setMessage("Attendance will be sent to and read from:\n\n" + target
+                + "\n\nOnly continue if you set up this server.")
+            .setPositiveButton("Use Server", (dialog, which) -> {
+                AppsScriptClient.setEndpoint(this, value);
+                onResult.onReceiveValue(AppsScriptClient.endpoint(this));
+            })
+            .setNegativeButton("Cancel", (dialog, which) -> onResult.onReceiveValue(null))
+            .setOnCancelListener(dialog -> onResult.onReceiveValue(null))
+            .show();
+    }
+
+    /**
+     * Attach the WebView
+     * Adopts the one pre-warmed during the splash screen (already loading the page),
+     * or creates a fresh one, e.g. when opened from a notification
      */
     private void setupWebView() {
-        WebSettings webSettings = webView.getSettings();
-        
-        // Enable JavaScript (required for your Google Apps Script to work)
-        webSettings.setJavaScriptEnabled(true);
-        
-        // Allow DOM storage (sometimes needed for web apps)
-        webSettings.setDomStorageEnabled(true);
-        
-        // Enable zoom controls (optional - you can remove if you don't want zoom)
-        webSettings.setBuiltInZoomControls(true);
-        webSettings.setDisplayZoomControls(false); // Hide the zoom buttons
-        
-        // Make the WebView fit the screen properly
-        webSettings.setLoadWithOverviewMode(true);
-        webSettings.setUseWideViewPort(true);
-        
-        // Allow mixed content (http in https)
-        webSettings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+        webView = WebViewPrewarmer.take(this);
+        boolean prewarmed = webView != null;
+        if (!prewarmed) {
+            webView = WebViewPrewarmer.createWebView(this);
+        }
 
-        // Add JavaScript Interface for communication with web app
-        // This is how the web app can send download data to Android
-        webView.addJavascriptInterface(new WebAppInterface(this), "Android");
+        FrameLayout container = findViewById(R.id.webViewContainer);
+        container.addView(webView, new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        StartupTimings.mark("main_webview_attached");
 
-        // Set WebChromeClient for better JavaScript support
-        webView.setWebChromeClient(new WebChromeClient());
+        AppWebViewClient client = WebViewPrewarmer.clientOf(webView);
+        client.setPageListener(pageListener());
 
-        // This makes sure all links open INSIDE the app, not in external browser
-        webView.setWebViewClient(new WebViewClient() {
+        if (!prewarmed) {
+            loadWebApp();
+        } else if (client.isPageFinished()) {
+            StartupTimings.log();
+        }
+    }
+
+    /**
+     * Page events of whichever WebView is currently attached
+     */
+    private AppWebViewClient.PageListener pageListener() {
+        return new AppWebViewClient.PageListener() {
             @Override
-            public boolean shouldOverrideUrlLoading(WebView view, String url) {
-                // Load the URL in the same WebView
-                view.loadUrl(url);
-                return true;
+            public void onPageStarted(String url) {
+                // Nothing to do - timings are recorded by the client
             }
-            
+
             @Override
-            public void onPageFinished(WebView view, String url) {
-                super.onPageFinished(view, url);
-                // Inject download helper script after page loads
-                injectDownloadHelper();
+            public void onPageFinished(String url) {
+                if (rendererGoneAt != 0) {
+                    AppMetrics.rendererRecovered(System.nanoTime() - rendererGoneAt);
+                    rendererGoneAt = 0;
+                }
+                StartupTimings.log();
+                deliverSyncResults();
             }
-        });
+
+            @Override
+            public void onRenderProcessGone(boolean crashed) {
+                recoverWebView();
+            }
+        };
     }
 
     /**
-     * Inject JavaScript helper to intercept downloads and route them through Android interface
+     * The renderer crashed or was killed: replace the dead WebView and load the page again
+     * The page takes its state back from PageStateSnapshot and its data from the local
+     * caches, so recovery needs no network round-trip.
      */
-    private void injectDownloadHelper() {
-        String js = "javascript:(function() {" +
-            // Check if Android interface exists
-            "if (typeof Android === 'undefined') { console.log('Android interface not found'); return; }" +
-            
-            // Override the default download behavior for anchor tags with download attribute
-            "document.addEventListener('click', function(e) {" +
-            "  var anchor = e.target.closest('a[download]');" +
-            "  if (anchor && anchor.href && anchor.href.startsWith('blob:')) {" +
-            "    e.preventDefault();" +
-            "    e.stopPropagation();" +
-            "    var fileName = anchor.download || 'download';" +
-            "    fetch(anchor.href).then(r => r.blob()).then(blob => {" +
-            "      var reader = new FileReader();" +
-            "      reader.onloadend = function() {" +
-            "        var base64 = reader.result.split(',')[1];" +
-            "        var mimeType = blob.type || 'application/octet-stream';" +
-            "        Android.downloadFileSimple(base64, fileName, mimeType);" +
-            "      };" +
-            "      reader.readAsDataURL(blob);" +
-            "    }).catch(function(err) { console.log('Download error:', err); });" +
-            "    return false;" +
-            "  }" +
-            "}, true);" +
-            
-            // Helper function that web app can call directly
-            "window.androidDownload = function(blob, fileName, mimeType) {" +
-            "  var reader = new FileReader();" +
-            "  reader.onloadend = function() {" +
-            "    var base64 = reader.result.split(',')[1];" +
-            "    Android.downloadFileSimple(base64, fileName, mimeType || blob.type);" +
-            "  };" +
-            "  reader.readAsDataURL(blob);" +
-            "};" +
-            
-            "console.log('Android download helper injected!');" +
-            "})();";
-        
-        webView.evaluateJavascript(js, null);
+    private void recoverWebView() {
+        FrameLayout container = findViewById(R.id.webViewContainer);
+        container.removeView(webView);
+        webView.destroy();
+        if (isFinishing()) return;
+
+        rendererGoneAt = System.nanoTime();
+        // Hand-overs to the dead page never answer; the new page gets them again
+        syncResultsInFlight.clear();
+        PageStateSnapshot.armRestore();
+        webView = WebViewPrewarmer.createWebView(this);
+        container.addView(webView, new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        WebViewPrewarmer.clientOf(webView).setPageListener(pageListener());
+        webView.setNetworkAvailable(connectivityMonitor.isOnline());
+        loadWebApp();
+    }
+
+    /**
+     * Show the native marking screen for one date + section (asked for by the page)
+     * The page hears window.onNativeMarkingClosed({date, category, changed}) once the
+     * screen is closed and its changes are saved, and reloads the section from the device.
+     */
+    void openMarkingScreen(String date, String category, boolean readOnly) {
+        if (markingScreen != null || isFinishing()) return;
+        markingScreen = new MarkingScreen(this, findViewById(R.id.markingContainer), date, category, readOnly,
+            (closedDate, closedCategory, changed) -> {
+                markingScreen = null;
+                webView.evaluateJavascript("window.onNativeMarkingClosed && window.onNativeMarkingClosed({date: "
+                    + JSONObject.quote(closedDate) + ", category: " + JSONObject.quote(closedCategory)
+                    + ", changed: " + changed + "});", null);
+            });
+        markingScreen.show();
     }
 
     /**
-     * Load your web app URL in the WebView
+     * Load the bundled web app (assets/www, served locally so cold start needs no network)
+     * The first launch goes through the old origin's storage export (see LegacyStorageMigration)
      */
     private void loadWebApp() {
-        webView.loadUrl(WEB_APP_URL);
+        webView.loadUrl(LegacyStorageMigration.startUrl(this));
     }
 
     /**
-     * Check if internet connection is available
-     * Returns true if connected, false if not connected
+     * Report finished outbox uploads back to the web app
+     * The page handles them in window.onNativeSyncResult(result)
      */
-    private boolean isInternetAvailable() {
-        ConnectivityManager connectivityManager = 
-            (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        
-        if (connectivityManager != null) {
-            NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-            return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+    private void observeSyncUploads() {
+        final AttendanceDatabase database = AttendanceDatabase.getInstance(this);
+
+        WorkManager.getInstance(this)
+            .getWorkInfosForUniqueWorkLiveData(SyncUploadWorker.UNIQUE_WORK_NAME)
+            .observe(this, workInfos -> {
+                for (WorkInfo info : workInfos) {
+                    if (!info.getState().isFinished()) continue;
+
+                    String result = info.getOutputData().getString(SyncUploadWorker.KEY_RESULT);
+                    if (result == null) continue;
+
+                    // LiveData replays finished work on every launch - deliver each result once
+                    String workId = info.getId().toString();
+                    String delivered = database.getValue(KEY_DELIVERED_SYNC_RESULTS);
+                    if (delivered != null && delivered.contains(workId)) continue;
+                    pendingSyncResults.put(workId, result);
+                }
+                deliverSyncResults();
+            });
+    }
+
+    /**
+     * Hand queued upload results to the page once it has loaded
+     * On a cold start LiveData replays finished work before the page exists, so a result only
+     * counts as delivered when the page's handler actually ran (the snippet returns true);
+     * otherwise it stays queued for the next finished page load.
+     */
+    private void deliverSyncResults() {
+        if (pendingSyncResults.isEmpty() || !WebViewPrewarmer.clientOf(webView).isPageFinished()) return;
+        final AttendanceDatabase database = AttendanceDatabase.getInstance(this);
+
+        for (Map.Entry<String, String> entry : pendingSyncResults.entrySet()) {
+            final String workId = entry.getKey();
+            if (!syncResultsInFlight.add(workId)) continue;
+            webView.evaluateJavascript("(function () { if (typeof window.onNativeSyncResult !== 'function') return false; "
+                + "window.onNativeSyncResult(" + entry.getValue() + "); return true; })();", value -> {
+                    syncResultsInFlight.remove(workId);
+                    if (!"true".equals(value) || pendingSyncResults.remove(workId) == null) return;
+                    database.putValue(KEY_DELIVERED_SYNC_RESULTS,
+                        appendDeliveredId(database.getValue(KEY_DELIVERED_SYNC_RESULTS), workId));
+                });
         }
-        
-        return false;
     }
 
     /**
-     * Show "No Internet" message to the user
+     * Keep the last few delivered work ids (comma-separated)
      */
-    private void showNoInternetMessage() {
-        webView.setVisibility(android.view.View.GONE); // Hide WebView
-        noInternetText.setVisibility(android.view.View.VISIBLE); // Show error message
+    private static String appendDeliveredId(String delivered, String workId) {
+        List<String> ids = new ArrayList<>();
+        if (delivered != null && !delivered.isEmpty()) {
+            ids.addAll(Arrays.asList(delivered.split(",")));
+        }
+        ids.add(workId);
+        while (ids.size() > 20) {
+            ids.remove(0);
+        }
+        return TextUtils.join(",", ids);
     }
 
     /**
@@ -199,7 +382,13 @@ public class MainActivity extends AppCompatActivity {
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         // Check if the Back button was pressed
         if (keyCode == KeyEvent.KEYCODE_BACK) {
-            
+
+            // The native marking screen closes first
+            if (markingScreen != null) {
+                markingScreen.close();
+                return true;
+            }
+
             // If WebView can go back (has previous pages in history)
             if (webView.canGoBack()) {
                 webView.goBack(); // Go to previous page
@@ -285,38 +474,11 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Schedule daily attendance check at 11:30 PM
+     * Set the per-section reminder alarms
+     * The old single daily check is cancelled - a queued run of it would only duplicate reminders
      */
-    private void scheduleDailyAttendanceCheck() {
-        // Calculate initial delay until 11:30 PM today (or tomorrow if past 11:30 PM)
-        Calendar calendar = Calendar.getInstance();
-        Calendar targetTime = Calendar.getInstance();
-        
-        targetTime.set(Calendar.HOUR_OF_DAY, 23);
-        targetTime.set(Calendar.MINUTE, 30);
-        targetTime.set(Calendar.SECOND, 0);
-
-        // If current time is past 11:30 PM, schedule for tomorrow
-        if (calendar.after(targetTime)) {
-            targetTime.add(Calendar.DAY_OF_MONTH, 1);
-        }
-
-        long initialDelay = targetTime.getTimeInMillis() - calendar.getTimeInMillis();
-
-        // Create periodic work request - runs daily
-        PeriodicWorkRequest dailyWorkRequest = 
-            new PeriodicWorkRequest.Builder(
-                AttendanceCheckWorker.class,
-                1, TimeUnit.DAYS  // Repeat every 24 hours
-            )
-            .setInitialDelay(initialDelay, TimeUnit.MILLISECONDS)
-            .build();
-
-        // Schedule the work (replace any existing work with same name)
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-            "DailyAttendanceCheck",
-            ExistingPeriodicWorkPolicy.KEEP,  // Keep existing if already scheduled
-            dailyWorkRequest
-        );
+    private void scheduleReminders() {
+        WorkManager.getInstance(this).cancelUniqueWork(LEGACY_DAILY_CHECK);
+        ReminderScheduler.scheduleAll(this);
     }
 }
@@ -0,0 +1,231 @@
+package com.vssnagar.attendance;
+
+import android.graphics.drawable.GradientDrawable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.StatusBits;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * MarkingAdapter
+ * Student rows of the native marking screen
+ * Rows are roster ordinals, which double as stable ids. Statuses live in an array indexed by
+ * ordinal and shared with MarkingScreen; a tap rebinds only that row's status chip
+ * (PAYLOAD_STATUS) through an ordinal -> position table, so it costs the same with 50 or 5000 rows.
+ * Filtering replaces the row list through a DiffUtil result computed off the main thread.
+ */
+public class MarkingAdapter extends RecyclerView.Adapter<MarkingAdapter.Holder> {
+
+    // Partial rebind: only the status chip changed
+    static final Object PAYLOAD_STATUS = new Object();
+
+    // Same palette as the web app's avatars
+    private static final int[] AVATAR_COLORS = {
+        0xFF007AFF, 0xFF5856D6, 0xFFAF52DE, 0xFFFF2D55, 0xFFFF9500,
+        0xFFFFCC00, 0xFF34C759, 0xFF00C7BE, 0xFF30B0C7, 0xFF5AC8FA
+    };
+
+    public interface Listener {
+        void onStudentTapped(int ordinal);
+    }
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final TextView avatar;
+        final TextView name;
+        final TextView id;
+        final TextView status;
+        final GradientDrawable avatarBackground = new GradientDrawable();
+        final GradientDrawable statusBackground = new GradientDrawable();
+
+        Holder(View view) {
+            super(view);
+            avatar = view.findViewById(R.id.studentAvatar);
+            name = view.findViewById(R.id.studentName);
+            id = view.findViewById(R.id.studentId);
+            status = view.findViewById(R.id.studentStatus);
+            avatarBackground.setShape(GradientDrawable.OVAL);
+            avatar.setBackground(avatarBackground);
+            statusBackground.setCornerRadius(16 * view.getResources().getDisplayMetrics().density);
+            status.setBackground(statusBackground);
+        }
+    }
+
+    private final Roster.Student[] students;
+    private final int[] statuses;
+    private final Listener listener;
+
+    // Ordinals shown, in display order
+    private int[] shown = new int[0];
+    // Display position of each ordinal, -1 when filtered out
+    private final int[] positions;
+
+    /**
+     * @param students Roster students indexed by ordinal (null for removed ones)
+     * @param statuses StatusBits code per ordinal, updated by the caller
+     */
+    public MarkingAdapter(Roster.Student[] students, int[] statuses, Listener listener) {
+        this.students = students;
+        this.statuses = statuses;
+        this.listener = listener;
+        this.positions = new int[students.length];
+        Arrays.fill(positions, -1);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Diff between two lists of ordinals (any thread)
+     * Contents never differ - status changes are notified row by row
+     */
+    static DiffUtil.DiffResult diff(final int[] current, final int[] next) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return current.length;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return next.length;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return current[oldPosition] == next[newPosition];
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return true;
+            }
+        }, false);
+    }
+
+    /**
+     * Show a new list of ordinals (main thread)
+     * @param diff From diff(shown(), next), or null to redraw everything
+     */
+    void setShown(int[] next, DiffUtil.DiffResult diff) {
+        for (int ordinal : shown) {
+            positions[ordinal] = -1;
+        }
+        shown = next;
+        for (int i = 0; i < next.length; i++) {
+            positions[next[i]] = i;
+        }
+        if (diff != null) {
+            diff.dispatchUpdatesTo(this);
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
+    int[] shown() {
+        return shown;
+    }
+
+    /**
+     * One student's status changed; rebinds its chip if the row is shown
+     */
+    void statusChanged(int ordinal) {
+        int position = positions[ordinal];
+        if (position >= 0) {
+            notifyItemChanged(position, PAYLOAD_STATUS);
+        }
+    }
+
+    /**
+     * Every status may have changed (e.g. all present)
+     */
+    void allStatusesChanged() {
+        notifyItemRangeChanged(0, shown.length, PAYLOAD_STATUS);
+    }
+
+    @Override
+    public int getItemCount() {
+        return shown.length;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return shown[position];
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_marking_student, parent, false);
+        final Holder holder = new Holder(view);
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onStudentTapped(shown[position]);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        Roster.Student student = students[shown[position]];
+        holder.name.setText(student.name);
+        holder.id.setText(student.appId);
+        holder.avatar.setText(student.name.isEmpty() ? "" : student.name.substring(0, 1).toUpperCase(Locale.US));
+        holder.avatarBackground.setColor(avatarColor(student.name));
+        bindStatus(holder, statuses[shown[position]]);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_STATUS) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        bindStatus(holder, statuses[shown[position]]);
+    }
+
+    private static void bindStatus(Holder holder, int code) {
+        int text;
+        int color;
+        int background;
+        if (code == StatusBits.ABSENT) {
+            text = R.string.status_absent;
+            color = R.color.status_absent;
+            background = R.color.status_absent_bg;
+        } else if (code == StatusBits.LEAVE) {
+            text = R.string.status_leave;
+            color = R.color.status_leave;
+            background = R.color.status_leave_bg;
+        } else {
+            // Unmarked counts as present, as on the page
+            text = R.string.status_present;
+            color = R.color.status_present;
+            background = R.color.status_present_bg;
+        }
+        holder.status.setText(text);
+        holder.status.setTextColor(ContextCompat.getColor(holder.status.getContext(), color));
+        holder.statusBackground.setColor(ContextCompat.getColor(holder.status.getContext(), background));
+    }
+
+    /**
+     * Same pick as the page: first two characters of the name
+     */
+    private static int avatarColor(String name) {
+        if (name.isEmpty()) return AVATAR_COLORS[0];
+        return AVATAR_COLORS[(name.charAt(0) + name.charAt(Math.min(1, name.length() - 1))) % AVATAR_COLORS.length];
+    }
+}
@@ -0,0 +1,326 @@
+package com.vssnagar.attendance;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.inputmethod.InputMethodManager;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.StatusBits;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MarkingScreen
+ * Native attendance marking for one date + section, shown by MainActivity over the WebView
+ * Works on the same on-device data as the page: statuses are read from AttendanceBitsets and
+ * changes are saved (debounced, off the main thread) to AttendanceBitsets and AttendanceDatabase,
+ * just like the page's upsertAttendance. The page reloads the section when the screen closes.
+ * All methods must be called on the main thread.
+ */
+public class MarkingScreen {
+
+    private static final String TAG = "MarkingScreen";
+
+    // Quiet period after the last tap before the section is written
+    private static final long SAVE_DELAY_MS = 500;
+
+    // Loading, filtering and saving, in order
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface Listener {
+        /**
+         * The screen is gone and every change is saved
+         */
+        void onClosed(String date, String category, boolean changed);
+    }
+
+    private final Activity activity;
+    private final ViewGroup container;
+    private final String date;
+    private final String category;
+    private final int categoryIndex;
+    private final boolean readOnly;
+    private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable saveRunnable = this::save;
+
+    private View view;
+    private TextView counts;
+    private MarkingAdapter adapter;
+
+    // Set once loaded: students and StatusBits codes indexed by ordinal, ordinals in sheet order
+    private Roster.Student[] students;
+    private int[] statuses;
+    private int[] ordinals;
+
+    private int present;
+    private int absent;
+    private int leave;
+    private boolean dirty;
+    private boolean changed;
+    private boolean closed;
+    private int filterGeneration;
+
+    public MarkingScreen(Activity activity, ViewGroup container, String date, String category,
+                         boolean readOnly, Listener listener) {
+        this.activity = activity;
+        this.container = container;
+        this.date = date;
+        this.category = category;
+        this.categoryIndex = SyncStatusSnapshot.categoryIndex(category);
+        this.readOnly = readOnly;
+        this.listener = listener;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void show() {
+        final long started = System.nanoTime();
+        view = LayoutInflater.from(activity).inflate(R.layout.view_marking, container, false);
+        container.addView(view);
+        container.setVisibility(View.VISIBLE);
+
+        ((TextView) view.findViewById(R.id.markingTitle)).setText(category + " · " + date);
+        counts = view.findViewById(R.id.markingCounts);
+        view.findViewById(R.id.markingDone).setOnClickListener(v -> close());
+        View allPresent = view.findViewById(R.id.markingAllPresent);
+        allPresent.setVisibility(readOnly ? View.GONE : View.VISIBLE);
+        allPresent.setOnClickListener(v -> markAllPresent());
+        ((EditText) view.findViewById(R.id.markingSearch)).addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter(s.toString());
+            }
+        });
+
+        final Context appContext = activity.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            StudentRoster roster = StudentRoster.getInstance(appContext);
+            AttendanceBitsets bitsets = AttendanceBitsets.getInstance(appContext);
+            final Roster.Student[] loadedStudents;
+            final int[] loadedOrdinals;
+            synchronized (roster) {
+                loadedOrdinals = roster.currentOrdinals();
+                loadedStudents = new Roster.Student[roster.ordinalCount()];
+                for (int ordinal : loadedOrdinals) {
+                    loadedStudents[ordinal] = roster.get(ordinal);
+                }
+            }
+            final int[] loadedStatuses = new int[loadedStudents.length];
+            for (int ordinal : loadedOrdinals) {
+                int code = bitsets.getStatus(date, categoryIndex, ordinal);
+                loadedStatuses[ordinal] = code == StatusBits.UNMARKED ? StatusBits.PRESENT : code;
+            }
+
+            main.post(() -> {
+                if (closed) return;
+                bind(loadedStudents, loadedStatuses, loadedOrdinals);
+                AppMetrics.markingOpened(loadedOrdinals.length, System.nanoTime() - started);
+            });
+        });
+    }
+
+    private void bind(Roster.Student[] loadedStudents, int[] loadedStatuses, int[] loadedOrdinals) {
+        students = loadedStudents;
+        statuses = loadedStatuses;
+        ordinals = loadedOrdinals;
+        for (int ordinal : ordinals) {
+            count(statuses[ordinal], 1);
+        }
+        updateCounts();
+
+        adapter = new MarkingAdapter(students, statuses, this::onStudentTapped);
+        RecyclerView list = view.findViewById(R.id.markingList);
+        list.setLayoutManager(new LinearLayoutManager(activity));
+        // Rows have a fixed height and the list fills the screen
+        list.setHasFixedSize(true);
+        list.setAdapter(adapter);
+        adapter.setShown(ordinals, null);
+
+        // A search typed while loading
+        String query = ((EditText) view.findViewById(R.id.markingSearch)).getText().toString();
+        if (!query.isEmpty()) {
+            filter(query);
+        }
+    }
+
+    /**
+     * Present -> Absent -> Leave -> Present, as the page's cycleStatus
+     */
+    private void onStudentTapped(int ordinal) {
+        if (readOnly) {
+            Toast.makeText(activity, R.string.marking_read_only, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        int old = statuses[ordinal];
+        int next = old == StatusBits.PRESENT ? StatusBits.ABSENT
+            : old == StatusBits.ABSENT ? StatusBits.LEAVE : StatusBits.PRESENT;
+        statuses[ordinal] = next;
+        count(old, -1);
+        count(next, 1);
+        adapter.statusChanged(ordinal);
+        updateCounts();
+        scheduleSave();
+    }
+
+    private void markAllPresent() {
+        if (adapter == null) return;
+        for (int ordinal : ordinals) {
+            statuses[ordinal] = StatusBits.PRESENT;
+        }
+        present = ordinals.length;
+        absent = 0;
+        leave = 0;
+        adapter.allStatusesChanged();
+        updateCounts();
+        scheduleSave();
+    }
+
+    private void count(int code, int delta) {
+        if (code == StatusBits.ABSENT) absent += delta;
+        else if (code == StatusBits.LEAVE) leave += delta;
+        else present += delta;
+    }
+
+    private void updateCounts() {
+        counts.setText(activity.getString(R.string.marking_counts, present, absent, leave));
+    }
+
+    /**
+     * Match name or Application ID, like the page's search box
+     * The new rows are diffed in the background and applied only if nothing changed meanwhile
+     */
+    private void filter(String query) {
+        if (adapter == null) return;
+        final int generation = ++filterGeneration;
+        final String q = query.trim().toLowerCase(Locale.US);
+        final int[] base = adapter.shown();
+        final int[] all = ordinals;
+        final Roster.Student[] byOrdinal = students;
+
+        EXECUTOR.execute(() -> {
+            int[] matches;
+            if (q.isEmpty()) {
+                matches = all;
+            } else {
+                int[] found = new int[all.length];
+                int size = 0;
+                for (int ordinal : all) {
+                    Roster.Student student = byOrdinal[ordinal];
+                    if (student.name.toLowerCase(Locale.US).contains(q)
+                            || student.appId.toLowerCase(Locale.US).contains(q)) {
+                        found[size++] = ordinal;
+                    }
+                }
+                matches = Arrays.copyOf(found, size);
+            }
+            final int[] next = matches;
+            final DiffUtil.DiffResult diff = MarkingAdapter.diff(base, next);
+            main.post(() -> {
+                if (closed || generation != filterGeneration || adapter.shown() != base) return;
+                adapter.setShown(next, diff);
+            });
+        });
+    }
+
+    private void scheduleSave() {
+        dirty = true;
+        changed = true;
+        main.removeCallbacks(saveRunnable);
+        main.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+
+    /**
+     * Write pending changes now (e.g. the activity is stopping)
+     */
+    public void flush() {
+        main.removeCallbacks(saveRunnable);
+        save();
+    }
+
+    /**
+     * Queue a write of the whole section with the statuses as they are now
+     */
+    private void save() {
+        if (!dirty) return;
+        dirty = false;
+        final int[] sectionOrdinals = ordinals;
+        final int[] codes = new int[sectionOrdinals.length];
+        final List<AttendanceDatabase.Record> records = new ArrayList<>(sectionOrdinals.length);
+        for (int i = 0; i < sectionOrdinals.length; i++) {
+            Roster.Student student = students[sectionOrdinals[i]];
+            codes[i] = statuses[sectionOrdinals[i]];
+            AttendanceDatabase.Record record = new AttendanceDatabase.Record();
+            record.name = student.name;
+            record.appId = student.appId;
+            record.appNumber = student.appNumber;
+            record.hostelId = student.hostelId;
+            record.allocation = student.allocation;
+            record.status = StatusBits.statusName(codes[i]);
+            records.add(record);
+        }
+
+        final Context appContext = activity.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                AttendanceDatabase.getInstance(appContext).upsertRecords(date, category, records);
+                AttendanceBitsets.getInstance(appContext).setStatuses(date, categoryIndex, sectionOrdinals, codes);
+                AppMetrics.markingSaved(records.size(), System.nanoTime() - started);
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving " + category + " for " + date + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Save what is pending, remove the screen and report back once the write is done
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        flush();
+
+        InputMethodManager keyboard = (InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE);
+        if (keyboard != null) {
+            keyboard.hideSoftInputFromWindow(view.getWindowToken(), 0);
+        }
+        container.removeView(view);
+        container.setVisibility(View.GONE);
+
+        final boolean wasChanged = changed;
+        // Queued behind the write, so the page reads the saved section
+        EXECUTOR.execute(() -> main.post(() -> listener.onClosed(date, category, wasChanged)));
+    }
+}
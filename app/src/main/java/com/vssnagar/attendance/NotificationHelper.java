@@ -6,34 +6,53 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.text.TextUtils;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 
 /**
  * NotificationHelper
  * Manages all notification-related functionality
- * Creates notification channels and sends attendance reminders
+ * One reminder per pending section (re-posting a section replaces it silently),
+ * grouped under a summary that lists every pending section of the day
  */
 public class NotificationHelper {
 
     private static final String CHANNEL_ID = "attendance_reminders";
     private static final String CHANNEL_NAME = "Attendance Reminders";
     private static final String CHANNEL_DESCRIPTION = "Daily reminders for pending attendance";
-    private static final int NOTIFICATION_ID = 1001;
+    private static final String GROUP_KEY = "com.vssnagar.attendance.REMINDERS";
+    private static final String SECTION_TAG_PREFIX = "section:";
+    private static final int SECTION_NOTIFICATION_ID = 1001;
+    private static final int SUMMARY_NOTIFICATION_ID = 1000;
+
+    // Stored value: "date|Section,Section" of the reminders currently shown
+    private static final String KEY_ACTIVE_SECTIONS = "reminder_active_sections";
+
+    private static boolean channelCreated;
+    // Guards the stored list of active sections across helper instances
+    private static final Object LOCK = new Object();
 
     private Context context;
     private NotificationManagerCompat notificationManager;
 
     public NotificationHelper(Context context) {
-        this.context = context;
-        this.notificationManager = NotificationManagerCompat.from(context);
-        createNotificationChannel();
+        this.context = context.getApplicationContext();
+        this.notificationManager = NotificationManagerCompat.from(this.context);
+        ensureChannel(this.context);
     }
 
     /**
-     * Create notification channel (required for Android 8.0+)
+     * Create the notification channel (Android 8.0+) once per process
      */
-    private void createNotificationChannel() {
+    private static synchronized void ensureChannel(Context context) {
+        if (channelCreated) return;
+        channelCreated = true;
+
         // Only create channel on Android 8.0 (API 26) and above
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -53,55 +72,100 @@ public class NotificationHelper {
     }
 
     /**
-     * Send notification for a single pending section
+     * Show (or refresh) the reminder for one section
+     * A section already shown today is updated in place without buzzing again
      */
-    public void sendSingleSectionReminder(String sectionName) {
-        String title = "Attendance Reminder";
+    public void showSectionReminder(String sectionName) {
         String message = "You haven't filled attendance for " + sectionName;
-        sendNotification(title, message);
+        NotificationCompat.Builder builder = baseBuilder("Attendance Reminder", message, requestCodeOf(sectionName))
+            .setGroup(GROUP_KEY)
+            .setOnlyAlertOnce(true);
+
+        synchronized (LOCK) {
+            notify(SECTION_TAG_PREFIX + sectionName, SECTION_NOTIFICATION_ID, builder);
+            List<String> active = activeSections();
+            if (!active.contains(sectionName)) {
+                active.add(sectionName);
+            }
+            saveActiveSections(active);
+            updateSummary(active);
+        }
     }
 
     /**
-     * Send notification for multiple pending sections
+     * Remove a section's reminder (e.g. once it has been synced)
      */
-    public void sendMultipleSectionReminder(String[] sections) {
-        String title = "Attendance Reminder";
-        String message;
-
-        if (sections.length == 1) {
-            message = "You haven't filled attendance for " + sections[0];
-        } else {
-            // Create comma-separated list
-            StringBuilder sb = new StringBuilder("Pending attendance for: ");
-            for (int i = 0; i < sections.length; i++) {
-                sb.append(sections[i]);
-                if (i < sections.length - 1) {
-                    sb.append(", ");
-                }
+    public void cancelSectionReminder(String sectionName) {
+        synchronized (LOCK) {
+            notificationManager.cancel(SECTION_TAG_PREFIX + sectionName, SECTION_NOTIFICATION_ID);
+            List<String> active = activeSections();
+            if (active.remove(sectionName)) {
+                saveActiveSections(active);
             }
-            message = sb.toString();
+            updateSummary(active);
+        }
+    }
+
+    /**
+     * Group summary listing all pending sections (removed when none are left)
+     */
+    private void updateSummary(List<String> active) {
+        if (active.isEmpty()) {
+            notificationManager.cancel(SUMMARY_NOTIFICATION_ID);
+            return;
         }
 
-        sendNotification(title, message);
+        String message = "Pending attendance for: " + TextUtils.join(", ", active);
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+            .setSummaryText(active.size() + (active.size() == 1 ? " section" : " sections"));
+        for (String section : active) {
+            style.addLine(section);
+        }
+        NotificationCompat.Builder builder = baseBuilder("Attendance Reminder", message, 0)
+            .setStyle(style)
+            .setGroup(GROUP_KEY)
+            .setGroupSummary(true)
+            // The section notifications already alerted
+            .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+            .setOnlyAlertOnce(true);
+        notify(null, SUMMARY_NOTIFICATION_ID, builder);
     }
 
     /**
-     * Send the actual notification
+     * Sections with a reminder showing today (older days are forgotten)
      */
-    private void sendNotification(String title, String message) {
+    private List<String> activeSections() {
+        String value = AttendanceDatabase.getInstance(context).getValue(KEY_ACTIVE_SECTIONS);
+        String today = ReminderScheduler.formatDate(new Date());
+        List<String> sections = new ArrayList<>();
+        if (value != null && value.startsWith(today + "|") && value.length() > today.length() + 1) {
+            sections.addAll(Arrays.asList(value.substring(today.length() + 1).split(",")));
+        }
+        return sections;
+    }
+
+    private void saveActiveSections(List<String> sections) {
+        AttendanceDatabase.getInstance(context).putValue(KEY_ACTIVE_SECTIONS,
+            ReminderScheduler.formatDate(new Date()) + "|" + TextUtils.join(",", sections));
+    }
+
+    private static int requestCodeOf(String sectionName) {
+        return 1 + Math.max(0, SyncStatusSnapshot.categoryIndex(sectionName));
+    }
+
+    private NotificationCompat.Builder baseBuilder(String title, String message, int requestCode) {
         // Create intent to open MainActivity when notification is tapped
         Intent intent = new Intent(context, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        
+
         PendingIntent pendingIntent = PendingIntent.getActivity(
             context,
-            0,
+            requestCode,
             intent,
             PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
         );
 
-        // Build the notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
             .setSmallIcon(android.R.drawable.ic_dialog_info) // Default icon
             .setContentTitle(title)
             .setContentText(message)
@@ -110,10 +174,11 @@ public class NotificationHelper {
             .setAutoCancel(true) // Dismiss when tapped
             .setContentIntent(pendingIntent)
             .setVibrate(new long[]{0, 500, 200, 500}); // Vibration pattern
+    }
 
-        // Send the notification
+    private void notify(String tag, int id, NotificationCompat.Builder builder) {
         try {
-            notificationManager.notify(NOTIFICATION_ID, builder.build());
+            notificationManager.notify(tag, id, builder.build());
         } catch (SecurityException e) {
             // Permission not granted - handle silently
             e.printStackTrace();
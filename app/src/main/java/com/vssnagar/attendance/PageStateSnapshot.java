@@ -0,0 +1,110 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PageStateSnapshot
+ * The page's working state (date, section, marks in progress, search, scroll position),
+ * kept natively so it outlives the renderer and the activity
+ * The page pushes it as it changes; after a renderer crash, or when the system recreates the
+ * activity, it is handed back once - from memory, or from the file if the process died too.
+ * A normal launch starts from the page's own saved state instead.
+ */
+public final class PageStateSnapshot {
+
+    private static final String TAG = "PageStateSnapshot";
+    private static final String FILE_NAME = "page_state.json";
+
+    // Older snapshots describe a day that is over - the page's own restore handles those
+    private static final long MAX_AGE_MS = 12 * 60 * 60 * 1000L;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static volatile String state;
+    private static volatile long savedAt;
+    private static volatile boolean restorePending;
+    // Latest state not yet on disk; a burst of saves is written once
+    private static final AtomicReference<String> pendingWrite = new AtomicReference<>();
+
+    private PageStateSnapshot() {
+    }
+
+    /**
+     * Keep the page's state (JSON from the page, any thread)
+     */
+    public static void save(Context context, String json) {
+        if (json == null || json.isEmpty()) return;
+        state = json;
+        savedAt = System.currentTimeMillis();
+        final Context appContext = context.getApplicationContext();
+        if (pendingWrite.getAndSet(json) == null) {
+            EXECUTOR.execute(() -> write(appContext, pendingWrite.getAndSet(null)));
+        }
+    }
+
+    /**
+     * Hand the snapshot to the next page load (call before loading it)
+     */
+    public static void armRestore() {
+        restorePending = true;
+    }
+
+    /**
+     * The snapshot, once, if a restore was armed and it is recent enough
+     * @return JSON as saved by the page, or null
+     */
+    public static String take(Context context) {
+        if (!restorePending) return null;
+        restorePending = false;
+
+        String json = state;
+        long at = savedAt;
+        if (json == null) {
+            // New process - the activity was recreated after the app was killed
+            try {
+                JSONObject saved = new JSONObject(new String(file(context).readFully(), "UTF-8"));
+                json = saved.getString("state");
+                at = saved.getLong("savedAt");
+            } catch (FileNotFoundException e) {
+                return null;
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading page state: " + e.getMessage());
+                return null;
+            }
+        }
+        return System.currentTimeMillis() - at <= MAX_AGE_MS ? json : null;
+    }
+
+    private static AtomicFile file(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    private static void write(Context context, String json) {
+        if (json == null) return;
+        AtomicFile atomicFile = file(context);
+        FileOutputStream out = null;
+        try {
+            byte[] bytes = new JSONObject()
+                .put("savedAt", System.currentTimeMillis())
+                .put("state", json)
+                .toString().getBytes("UTF-8");
+            out = atomicFile.startWrite();
+            out.write(bytes);
+            atomicFile.finishWrite(out);
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing page state: " + e.getMessage());
+            if (out != null) {
+                atomicFile.failWrite(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PrefetchWorker
+ * Background task that loads the last two weeks of past-date reports into ScriptResponseCache
+ * Runs only while charging on an unmetered network. One fetch_reports request per date also
+ * fills the fetch_category_data answers the page asks for when a past date is opened, so browsing
+ * those dates is answered from the phone at once (and refreshed in the background when online).
+ */
+public class PrefetchWorker extends Worker {
+
+    private static final String TAG = "PrefetchWorker";
+
+    public static final String UNIQUE_WORK_NAME = "PastDatePrefetch";
+
+    // Past dates prefetched, counted back from yesterday
+    static final int PREFETCH_DAYS = 14;
+
+    // Requests in flight at once - Apps Script runs each one in its own slow execution
+    private static final int MAX_CONCURRENT = 3;
+
+    // An answer fetched more recently than this is not fetched again
+    private static final long REFETCH_AFTER_MS = 6 * 60 * 60 * 1000L;
+
+    public PrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedule the periodic prefetch (an already scheduled one is kept)
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+            .setRequiresCharging(true)
+            .setRequiredNetworkType(NetworkType.UNMETERED)
+            .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(PrefetchWorker.class, 12, TimeUnit.HOURS)
+            .setConstraints(constraints)
+            .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+            UNIQUE_WORK_NAME,
+            ExistingPeriodicWorkPolicy.KEEP,
+            request
+        );
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long started = System.nanoTime();
+        Result result = prefetch();
+        AppMetrics.workerRun("PrefetchWorker", started, result);
+        return result;
+    }
+
+    private Result prefetch() {
+        final ScriptResponseCache cache = ScriptResponseCache.getInstance(getApplicationContext());
+        final AppsScriptClient client = new AppsScriptClient(AppsScriptClient.endpoint(getApplicationContext()));
+
+        List<String> requests = new ArrayList<>();
+        try {
+            for (String date : pastDates()) {
+                // ScriptResponseCache splits the answer into the per-category entries
+                requests.add(new JSONObject().put("action", "fetch_reports").put("date", date).toString());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error building requests: " + e.getMessage(), e);
+            return Result.failure();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT);
+        List<Future<Boolean>> results = new ArrayList<>(requests.size());
+        for (final String request : requests) {
+            results.add(executor.submit(() -> {
+                // Stopped when charging or Wi-Fi went away - let the queued requests fall through
+                if (isStopped()) return false;
+                return cache.prefetch(client, request, REFETCH_AFTER_MS);
+            }));
+        }
+        executor.shutdown();
+
+        int fetched = 0;
+        int failed = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) fetched++;
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        Log.d(TAG, "Prefetched " + fetched + " of " + requests.size() + " answers (" + failed + " failed)");
+        AppMetrics.prefetch(fetched, failed);
+
+        // The next period tries again; retrying now would only hammer a failing server
+        return Result.success();
+    }
+
+    /**
+     * yyyy-MM-dd of yesterday and the days before it
+     */
+    private static List<String> pastDates() {
+        List<String> dates = new ArrayList<>(PREFETCH_DAYS);
+        Calendar day = Calendar.getInstance();
+        for (int i = 0; i < PREFETCH_DAYS; i++) {
+            day.add(Calendar.DAY_OF_MONTH, -1);
+            dates.add(ReminderScheduler.formatDate(day.getTime()));
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,30 @@
+package com.vssnagar.attendance;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * ReminderReceiver
+ * Receives section deadline alarms and hands the check to AttendanceCheckWorker
+ * Also restores the alarms after a reboot or app update (the system drops them)
+ */
+public class ReminderReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "ReminderReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (ReminderScheduler.ACTION_CHECK.equals(action)) {
+            String date = intent.getStringExtra(ReminderScheduler.EXTRA_DATE);
+            String category = intent.getStringExtra(ReminderScheduler.EXTRA_CATEGORY);
+            Log.d(TAG, "Deadline reached: " + category + " " + date);
+            AttendanceCheckWorker.enqueue(context, date, category);
+        } else if (Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            ReminderScheduler.scheduleAll(context);
+        }
+    }
+}
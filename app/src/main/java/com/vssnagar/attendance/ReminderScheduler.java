@@ -0,0 +1,131 @@
+package com.vssnagar.attendance;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+import com.vssnagar.attendance.core.SyncStatus;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * ReminderScheduler
+ * One alarm per section at that section's deadline, instead of a single late-night poll
+ * A section that is already complete for the day gets no alarm for that day, and a pending
+ * alarm is cancelled as soon as the section's completion arrives (bridge or upload),
+ * so the device only wakes for sections that may really be missing.
+ * Alarms fire in Doze (exact when the app may use exact alarms) and are restored after reboot.
+ */
+public final class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    static final String ACTION_CHECK = "com.vssnagar.attendance.action.CHECK_SECTION";
+    static final String EXTRA_DATE = "date";
+    static final String EXTRA_CATEGORY = "category";
+
+    // Deadline per section (minutes after midnight), indexed like SyncStatus.CATEGORIES
+    private static final int[] DEADLINE_MINUTES = {
+        10 * 60,      // Yoga - morning session
+        15 * 60,      // Mess Day - after lunch
+        22 * 60,      // Mess Night - after dinner
+        23 * 60 + 30  // Night Shift
+    };
+
+    // Stored value: date the pending alarm of a section is for
+    private static final String KEY_SCHEDULED_PREFIX = "reminder_scheduled_";
+
+    private ReminderScheduler() {
+    }
+
+    /**
+     * Make sure every section has its next alarm (app start, boot, app update)
+     */
+    public static void scheduleAll(Context context) {
+        for (int i = 0; i < SyncStatus.CATEGORIES.length; i++) {
+            schedule(context, i);
+        }
+    }
+
+    /**
+     * Set the next alarm of one section: today's deadline if it is still ahead and the section
+     * isn't complete yet, otherwise tomorrow's (replaces any pending alarm of the section)
+     */
+    public static void schedule(Context context, int categoryIndex) {
+        Calendar deadline = Calendar.getInstance();
+        deadline.set(Calendar.HOUR_OF_DAY, DEADLINE_MINUTES[categoryIndex] / 60);
+        deadline.set(Calendar.MINUTE, DEADLINE_MINUTES[categoryIndex] % 60);
+        deadline.set(Calendar.SECOND, 0);
+        deadline.set(Calendar.MILLISECOND, 0);
+
+        if (deadline.getTimeInMillis() <= System.currentTimeMillis()
+                || isComplete(context, formatDate(deadline.getTime()), categoryIndex)) {
+            deadline.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        String date = formatDate(deadline.getTime());
+        setAlarm(context, categoryIndex, date, deadline.getTimeInMillis());
+        AttendanceDatabase.getInstance(context).putValue(KEY_SCHEDULED_PREFIX + categoryIndex, date);
+        Log.d(TAG, SyncStatus.CATEGORIES[categoryIndex] + " check scheduled for " + deadline.getTime());
+    }
+
+    /**
+     * A section was synced: skip its pending check for that date and clear its reminder
+     */
+    public static void onSectionComplete(Context context, String date, String category) {
+        int categoryIndex = SyncStatus.categoryIndex(category);
+        if (categoryIndex < 0) return;
+
+        String scheduled = AttendanceDatabase.getInstance(context).getValue(KEY_SCHEDULED_PREFIX + categoryIndex);
+        if (date.equals(scheduled)) {
+            schedule(context, categoryIndex);
+        }
+        if (date.equals(formatDate(new Date()))) {
+            new NotificationHelper(context).cancelSectionReminder(SyncStatus.CATEGORIES[categoryIndex]);
+        }
+    }
+
+    /**
+     * Whether the app already knows the section is synced for the date
+     * (last report from the web app, or synced row counts from the on-device bitsets)
+     */
+    static boolean isComplete(Context context, String date, int categoryIndex) {
+        SyncStatusSnapshot.Entry entry = SyncStatusSnapshot.get(context, date);
+        if (entry != null && (entry.completeMask & (1 << categoryIndex)) != 0) {
+            return true;
+        }
+        int[] synced = AttendanceBitsets.getInstance(context).syncedCounts(date);
+        return synced != null && synced[categoryIndex] > 0
+            && SyncStatus.isSubmitted(synced[categoryIndex], AttendanceCheckWorker.getRosterSize(context));
+    }
+
+    static String formatDate(Date date) {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(date);
+    }
+
+    private static void setAlarm(Context context, int categoryIndex, String date, long triggerAt) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        Intent intent = new Intent(context, ReminderReceiver.class)
+            .setAction(ACTION_CHECK)
+            .putExtra(EXTRA_DATE, date)
+            .putExtra(EXTRA_CATEGORY, SyncStatus.CATEGORIES[categoryIndex]);
+        // One PendingIntent per section, so setting it again replaces the section's alarm
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, categoryIndex, intent,
+            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Exact alarm access revoked - still fire during Doze, just a little later
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
+        } else {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+import com.vssnagar.attendance.core.CsvWriter;
+import com.vssnagar.attendance.core.TableWriter;
+import com.vssnagar.attendance.core.TrackingEngine;
+import com.vssnagar.attendance.core.XlsxWriter;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.text.Collator;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ReportExporter
+ * Writes attendance reports (CSV or XLSX) from the on-device store straight to a file
+ * "records" streams every row of the range from the database cursor into the writer, so
+ * memory stays flat however long the period is; XLSX gets one sheet per section.
+ * "summary" is the section report (per student totals and score), counted while the cursor streams.
+ * Runs on its own background thread; the file appears under its final name only once complete.
+ */
+public class ReportExporter {
+
+    private static final String TAG = "ReportExporter";
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_XLSX = "xlsx";
+    public static final String KIND_RECORDS = "records";
+    public static final String KIND_SUMMARY = "summary";
+
+    private static final String MIME_CSV = "text/csv";
+    private static final String MIME_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * What to export, as sent by the page:
+     * {"startDate": "2026-01-01", "endDate": "2026-01-31", "categories": ["Yoga"], "format": "xlsx", "kind": "summary"}
+     */
+    public static class Request {
+        public String startDate;
+        public String endDate;
+        // Empty for all sections
+        public final List<String> categories = new ArrayList<>();
+        public String format = FORMAT_XLSX;
+        public String kind = KIND_SUMMARY;
+
+        public static Request fromJson(String json) throws Exception {
+            JSONObject object = new JSONObject(json);
+            Request request = new Request();
+            request.startDate = object.getString("startDate");
+            request.endDate = object.getString("endDate");
+            JSONArray categories = object.optJSONArray("categories");
+            for (int i = 0; categories != null && i < categories.length(); i++) {
+                request.categories.add(categories.getString(i));
+            }
+            request.format = FORMAT_CSV.equals(object.optString("format")) ? FORMAT_CSV : FORMAT_XLSX;
+            request.kind = KIND_RECORDS.equals(object.optString("kind")) ? KIND_RECORDS : KIND_SUMMARY;
+            return request;
+        }
+
+        public String mimeType() {
+            return FORMAT_CSV.equals(format) ? MIME_CSV : MIME_XLSX;
+        }
+
+        /**
+         * e.g. "Yoga_Report_2026-01-01_to_2026-01-31.xlsx" (same names the web export used)
+         */
+        public String fileName() {
+            String section = categories.size() == 1 ? categories.get(0) : "All";
+            String label = KIND_RECORDS.equals(kind) ? "_Register_" : "_Report_";
+            return section.replace(' ', '_') + label + startDate + "_to_" + endDate + "." + format;
+        }
+
+        String sectionLabel() {
+            return categories.isEmpty() ? "All" : TextUtils.join(", ", categories);
+        }
+    }
+
+    /**
+     * Callbacks are invoked on the export thread
+     */
+    public interface Listener {
+        void onComplete(File file, String mimeType, int rows);
+        void onError(String message);
+    }
+
+    private final Context context;
+
+    public ReportExporter(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Queue an export into the given file
+     */
+    public void export(final Request request, final File file, final Listener listener) {
+        EXECUTOR.execute(() -> {
+            long started = System.nanoTime();
+            File partial = new File(file.getPath() + ".part");
+            try {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
+                }
+
+                int rows;
+                OutputStream stream = new BufferedOutputStream(new FileOutputStream(partial), 64 * 1024);
+                TableWriter writer = FORMAT_CSV.equals(request.format)
+                    ? new CsvWriter(new BufferedWriter(new OutputStreamWriter(stream, "UTF-8")))
+                    : new XlsxWriter(stream);
+                try {
+                    rows = KIND_RECORDS.equals(request.kind)
+                        ? writeRecords(request, writer)
+                        : writeSummary(request, writer);
+                } finally {
+                    writer.close();
+                }
+
+                if (!partial.renameTo(file)) {
+                    throw new IOException("Could not rename " + partial.getName());
+                }
+                AppMetrics.export(rows, file.length(), System.nanoTime() - started, true);
+                Log.d(TAG, "Exported " + rows + " rows to " + file.getName() + " in "
+                    + (System.nanoTime() - started) / 1000000 + " ms");
+                listener.onComplete(file, request.mimeType(), rows);
+            } catch (Exception e) {
+                Log.e(TAG, "Export failed: " + e.getMessage(), e);
+                partial.delete();
+                AppMetrics.export(0, 0, System.nanoTime() - started, false);
+                listener.onError(String.valueOf(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Every attendance row of the range, straight from the cursor
+     * XLSX: one sheet per section; CSV: one table with a Category column
+     */
+    private int writeRecords(Request request, final TableWriter writer) throws Exception {
+        final boolean sheets = writer.hasSheets();
+        final String[] currentSheet = {null};
+        if (!sheets) {
+            writer.writeRow("Date", "Category", "Student Name", "App Number", "App ID", "Hostel ID",
+                "Allocation", "Status");
+        }
+
+        int rows = AttendanceDatabase.getInstance(context).forEachRecord(request.startDate, request.endDate,
+            request.categories, sheets ? "category, date, name" : "date, category, name", record -> {
+                if (!sheets) {
+                    writer.writeRow(record.date, record.category, record.name, record.appNumber, record.appId,
+                        record.hostelId, record.allocation, record.status);
+                    return;
+                }
+                if (!record.category.equals(currentSheet[0])) {
+                    currentSheet[0] = record.category;
+                    writer.startSheet(record.category);
+                    writer.writeRow("Date", "Student Name", "App Number", "App ID", "Hostel ID",
+                        "Allocation", "Status");
+                }
+                writer.writeRow(record.date, record.name, record.appNumber, record.appId,
+                    record.hostelId, record.allocation, record.status);
+            });
+
+        if (rows == 0 && sheets) {
+            writer.startSheet("No Data");
+            writer.writeRow("No attendance saved on this device for " + request.startDate
+                + " to " + request.endDate);
+        }
+        return rows;
+    }
+
+    /**
+     * Per student totals for the range, same columns as the web app's section report
+     * Counts present / absent / leave per (student ordinal, category) while the cursor streams,
+     * so memory depends on the roster size, not on the number of rows in the range.
+     * Students missing from the roster are counted by student key and listed where they have rows.
+     */
+    private int writeSummary(Request request, TableWriter writer) throws Exception {
+        final StudentRoster roster = StudentRoster.getInstance(context);
+        final int ordinals = roster.ordinalCount();
+        final Tally[] byOrdinal = new Tally[ordinals];
+        final Map<String, Tally> others = new LinkedHashMap<>();
+
+        AttendanceDatabase.getInstance(context).forEachRecord(request.startDate, request.endDate,
+            request.categories, "date", record -> {
+                int category = SyncStatusSnapshot.categoryIndex(record.category);
+                int status = TrackingEngine.statusIndex(record.status);
+                if (category < 0 || status < 0 || !TrackingEngine.countsOn(category, record.date)) return;
+
+                String key = AttendanceDatabase.studentKey(record.appId, record.appNumber, record.name);
+                int ordinal = roster.ordinalOf(key);
+                Tally tally;
+                if (ordinal >= 0 && ordinal < ordinals) {
+                    tally = byOrdinal[ordinal];
+                    if (tally == null) {
+                        tally = byOrdinal[ordinal] = new Tally(roster.get(ordinal).name);
+                    }
+                } else {
+                    tally = others.get(key);
+                    if (tally == null) {
+                        others.put(key, tally = new Tally(record.name));
+                    }
+                }
+                tally.counts[category * 3 + status]++;
+            });
+
+        // Everyone on the roster gets a line per section, even with nothing recorded
+        List<Tally> tallies = new ArrayList<>();
+        for (int ordinal : roster.currentOrdinals()) {
+            if (ordinal >= ordinals) continue;
+            if (byOrdinal[ordinal] == null) {
+                byOrdinal[ordinal] = new Tally(roster.get(ordinal).name);
+            }
+            byOrdinal[ordinal].listed = true;
+        }
+        for (Tally tally : byOrdinal) {
+            if (tally != null) tallies.add(tally);
+        }
+        tallies.addAll(others.values());
+        // Same order as TrackingEngine: by name, then category
+        final Collator collator = Collator.getInstance(Locale.ENGLISH);
+        Collections.sort(tallies, (a, b) -> collator.compare(a.name, b.name));
+
+        String section = request.sectionLabel();
+        writer.startSheet("All".equals(section) ? "All Sections" : section);
+        if (writer.hasSheets()) {
+            writer.writeRow("Section Report: " + section);
+            writer.writeRow("Period: " + request.startDate + " to " + request.endDate);
+            writer.writeRow("Generated: " + DateFormat.getDateInstance().format(new Date()));
+            writer.writeRow();
+        }
+        writer.writeRow("Student Name", "Category", "Present", "Absent", "Leave", "Total", "Score %");
+
+        int rows = 0;
+        for (Tally tally : tallies) {
+            if (tally.name.isEmpty()) continue;
+            for (int c = 0; c < TrackingEngine.CATEGORIES.length; c++) {
+                String category = TrackingEngine.CATEGORIES[c];
+                if (!request.categories.isEmpty() && !request.categories.contains(category)) continue;
+                int present = tally.counts[c * 3 + TrackingEngine.PRESENT];
+                int absent = tally.counts[c * 3 + TrackingEngine.ABSENT];
+                int leave = tally.counts[c * 3 + TrackingEngine.LEAVE];
+                int total = present + absent + leave;
+                if (total == 0 && !tally.listed) continue;
+                int score = total > 0 ? Math.round(present * 100f / total) : 0;
+                writer.writeRow(tally.name, category, present, absent, leave, total, score);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Present / absent / leave counts of one student, three per category
+     */
+    private static final class Tally {
+        final String name;
+        final int[] counts = new int[TrackingEngine.CATEGORIES.length * 3];
+        // On the current roster: listed even without records
+        boolean listed;
+
+        Tally(String name) {
+            this.name = name == null ? "" : name.trim();
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ScriptResponseCache
+ * Stale-while-revalidate cache for read-only Apps Script actions
+ * An in-memory LRU sits in front of a disk cache keyed by action + parameters.
+ * Cached answers are returned immediately; stale ones are refreshed in the background.
+ * Entries for a date/category are dropped when a sync for it succeeds.
+ * A fetch_reports answer also fills the fetch_category_data entries of its date,
+ * since it carries the same rows for every category.
+ */
+public class ScriptResponseCache {
+
+    private static final String TAG = "ScriptResponseCache";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int FORMAT_VERSION = 2;
+
+    // How long an answer counts as fresh, per action (no entry = not cacheable)
+    private static final Map<String, Long> TTL_MS = new HashMap<>();
+    static {
+        TTL_MS.put("get_students", 24 * 60 * 60 * 1000L);
+        TTL_MS.put("fetch_reports", 10 * 60 * 1000L);
+        TTL_MS.put("fetch_category_data", 10 * 60 * 1000L);
+        TTL_MS.put("get_sync_status", 2 * 60 * 1000L);
+    }
+
+    // Memory front: bounded by total response length in chars
+    private static final int MEMORY_CACHE_CHARS = 1024 * 1024;
+
+    private static ScriptResponseCache instance;
+
+    /**
+     * Response callbacks (background thread)
+     */
+    public interface Listener {
+        /**
+         * First answer - from cache if there was one, otherwise from the network
+         * @param storedAt When a cached answer was fetched (System.currentTimeMillis), 0 if not cached
+         */
+        void onResponse(String body, boolean fromCache, long storedAt);
+        /** A newer answer replaced the cached one that was already delivered */
+        void onRevalidated(String body);
+        void onError(String message);
+    }
+
+    private static final class Entry {
+        final long storedAt;
+        final String action;
+        final List<String> dates;
+        final String category;
+        final String body;
+        // Built from a fetch_reports answer rather than fetched as is
+        final boolean derived;
+
+        Entry(long storedAt, String action, List<String> dates, String category, String body) {
+            this(storedAt, action, dates, category, body, false);
+        }
+
+        Entry(long storedAt, String action, List<String> dates, String category, String body, boolean derived) {
+            this.storedAt = storedAt;
+            this.action = action;
+            this.dates = dates;
+            this.category = category;
+            this.body = body;
+            this.derived = derived;
+        }
+    }
+
+    private final File cacheDir;
+    private final LruCache<String, Entry> memory = new LruCache<String, Entry>(MEMORY_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String key, Entry entry) {
+            return entry.body.length();
+        }
+    };
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    // Bumped by every invalidation - an answer fetched across one is not stored
+    private long generation;
+
+    public static synchronized ScriptResponseCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScriptResponseCache(new File(context.getCacheDir(), "script-cache"));
+        }
+        return instance;
+    }
+
+    ScriptResponseCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+        cacheDir.mkdirs();
+    }
+
+    public static boolean isCacheable(String action) {
+        return TTL_MS.containsKey(action);
+    }
+
+    /**
+     * Answer a request: cached body first (if any), then revalidate when stale
+     * Non-cacheable actions go straight to the network
+     */
+    public void request(final AppsScriptClient client, final String requestJson, final Listener listener) {
+        executor.execute(() -> {
+            String action;
+            String key;
+            JSONObject request;
+            try {
+                request = new JSONObject(requestJson);
+                action = request.optString("action");
+                key = action + canonical(request);
+            } catch (Exception e) {
+                listener.onError("Invalid request: " + e.getMessage());
+                return;
+            }
+
+            Entry cached = isCacheable(action) ? get(key) : null;
+            boolean fresh = cached != null && System.currentTimeMillis() - cached.storedAt < TTL_MS.get(action);
+            if (cached != null) {
+                listener.onResponse(cached.body, true, cached.storedAt);
+                if (fresh) return;
+            }
+
+            try {
+                long startedAt = generation();
+                String body = client.post(requestJson);
+                if (isCacheable(action) && isSuccess(body)) {
+                    put(key, new Entry(System.currentTimeMillis(), action,
+                        datesOf(request), request.optString("category", ""), body), startedAt);
+                }
+                if (cached == null) {
+                    listener.onResponse(body, false, 0);
+                } else if (changed(cached, body)) {
+                    listener.onRevalidated(body);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, action + " failed: " + e.getMessage());
+                if (cached == null) {
+                    listener.onError(e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetch and store an answer ahead of time (calling thread; used by PrefetchWorker)
+     * @param maxAgeMs A cached answer younger than this is kept and nothing is fetched
+     * @return Whether the network was used
+     */
+    public boolean prefetch(AppsScriptClient client, String requestJson, long maxAgeMs) throws IOException {
+        String action;
+        String key;
+        JSONObject request;
+        try {
+            request = new JSONObject(requestJson);
+            action = request.optString("action");
+            key = action + canonical(request);
+        } catch (Exception e) {
+            throw new IOException("Invalid request: " + e.getMessage());
+        }
+        if (!isCacheable(action)) {
+            throw new IOException(action + " is not cacheable");
+        }
+
+        Entry cached = get(key);
+        if (cached != null && System.currentTimeMillis() - cached.storedAt < maxAgeMs) {
+            return false;
+        }
+        long startedAt = generation();
+        String body = client.post(requestJson);
+        if (!isSuccess(body)) {
+            throw new IOException(action + " failed: " + body);
+        }
+        put(key, new Entry(System.currentTimeMillis(), action, datesOf(request), request.optString("category", ""), body), startedAt);
+        return true;
+    }
+
+    /**
+     * Drop every cached answer that covers this date and category
+     * (answers covering all categories of the date are dropped too)
+     */
+    public void invalidate(String date, String category) {
+        synchronized (this) {
+            generation++;
+            for (Map.Entry<String, Entry> item : memory.snapshot().entrySet()) {
+                if (covers(item.getValue(), date, category)) {
+                    memory.remove(item.getKey());
+                }
+            }
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            Entry entry = readFile(file);
+            if (entry == null || covers(entry, date, category)) {
+                file.delete();
+            }
+        }
+        Log.d(TAG, "Invalidated cache for " + date + " / " + category);
+    }
+
+    /**
+     * Drop every cached answer of one action (e.g. get_students after add_student)
+     */
+    public void invalidateAction(String action) {
+        synchronized (this) {
+            generation++;
+            for (Map.Entry<String, Entry> item : memory.snapshot().entrySet()) {
+                if (item.getValue().action.equals(action)) {
+                    memory.remove(item.getKey());
+                }
+            }
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            Entry entry = readFile(file);
+            if (entry == null || entry.action.equals(action)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached answer (the endpoint changed, so none of them apply)
+     */
+    public void clear() {
+        synchronized (this) {
+            generation++;
+            memory.evictAll();
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+        Log.d(TAG, "Cleared response cache");
+    }
+
+    /**
+     * Release the in-memory front (disk entries stay)
+     */
+    public void trimMemory() {
+        memory.evictAll();
+    }
+
+    private static boolean covers(Entry entry, String date, String category) {
+        if (!entry.dates.contains(date)) {
+            // get_students has no date but rosters don't change on sync
+            return false;
+        }
+        return entry.category.isEmpty() || entry.category.equals(category);
+    }
+
+    private synchronized Entry get(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readFile(fileFor(key));
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Store an answer unless the cache was invalidated after its request started
+     * (it may predate the sync that caused the invalidation)
+     * @param startedAt generation() read before the request was sent
+     */
+    private synchronized void put(String key, Entry entry, long startedAt) {
+        if (generation != startedAt) {
+            Log.d(TAG, "Not caching " + entry.action + " fetched across an invalidation");
+            return;
+        }
+        memory.put(key, entry);
+        // Written under the lock so a concurrent invalidate() cannot miss the file
+        writeFile(fileFor(key), entry);
+
+        for (Map.Entry<String, Entry> item : categoryEntries(entry).entrySet()) {
+            memory.put(item.getKey(), item.getValue());
+            writeFile(fileFor(item.getKey()), item.getValue());
+        }
+    }
+
+    /**
+     * fetch_category_data answers contained in a fetch_reports answer, keyed like request() keys them
+     * (the server leaves out a category with no rows for the date; that becomes an empty answer)
+     */
+    private static Map<String, Entry> categoryEntries(Entry report) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!"fetch_reports".equals(report.action) || report.dates.size() != 1) {
+            return entries;
+        }
+        String date = report.dates.get(0);
+        try {
+            JSONObject data = new JSONObject(report.body).optJSONObject("data");
+            if (data == null) return entries;
+            for (String category : SyncStatusSnapshot.CATEGORIES) {
+                JSONObject request = new JSONObject()
+                    .put("action", "fetch_category_data")
+                    .put("date", date)
+                    .put("category", category);
+                JSONArray rows = data.optJSONArray(category);
+                String body = new JSONObject()
+                    .put("result", "success")
+                    .put("data", rows != null ? rows : new JSONArray())
+                    .toString();
+                entries.put("fetch_category_data" + canonical(request),
+                    new Entry(report.storedAt, "fetch_category_data", report.dates, category, body, true));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Could not split fetch_reports for " + date + ": " + e.getMessage());
+        }
+        return entries;
+    }
+
+    /**
+     * Whether a fresh answer differs from the cached one already shown
+     * A derived entry never matches the server's bytes (dates are formatted differently),
+     * so for those only a changed number of rows counts
+     */
+    private static boolean changed(Entry cached, String body) {
+        if (!cached.derived) {
+            return !cached.body.equals(body);
+        }
+        return rowCount(cached.body) != rowCount(body);
+    }
+
+    private static int rowCount(String body) {
+        try {
+            JSONArray rows = new JSONObject(body).optJSONArray("data");
+            return rows != null ? rows.length() : 0;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(cacheDir, sha1(key));
+    }
+
+    private static Entry readFile(File file) {
+        if (!file.exists()) return null;
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                if (in.readInt() != FORMAT_VERSION) return null;
+                long storedAt = in.readLong();
+                String action = in.readUTF();
+                int dateCount = in.readInt();
+                List<String> dates = new ArrayList<>(dateCount);
+                for (int i = 0; i < dateCount; i++) {
+                    dates.add(in.readUTF());
+                }
+                String category = in.readUTF();
+                boolean derived = in.readBoolean();
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                return new Entry(storedAt, action, dates, category, new String(body, UTF_8), derived);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Ignoring unreadable cache file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeFile(File file, Entry entry) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+            try {
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(entry.storedAt);
+                out.writeUTF(entry.action);
+                out.writeInt(entry.dates.size());
+                for (String date : entry.dates) {
+                    out.writeUTF(date);
+                }
+                out.writeUTF(entry.category);
+                out.writeBoolean(entry.derived);
+                byte[] body = entry.body.getBytes(UTF_8);
+                out.writeInt(body.length);
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing cache file: " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private static List<String> datesOf(JSONObject request) {
+        String date = request.optString("date", "");
+        if (!date.isEmpty()) {
+            return Collections.singletonList(date);
+        }
+        JSONArray dates = request.optJSONArray("dates");
+        if (dates == null) {
+            return Collections.emptyList();
+        }
+        List<String> list = new ArrayList<>(dates.length());
+        for (int i = 0; i < dates.length(); i++) {
+            list.add(dates.optString(i));
+        }
+        return list;
+    }
+
+    private static boolean isSuccess(String body) {
+        try {
+            return "success".equals(new JSONObject(body).optString("result"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parameters with sorted keys, so {"a":1,"b":2} and {"b":2,"a":1} share a cache entry
+     */
+    static String canonical(Object value) throws Exception {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            List<String> keys = new ArrayList<>();
+            Iterator<String> iterator = object.keys();
+            while (iterator.hasNext()) {
+                keys.add(iterator.next());
+            }
+            Collections.sort(keys);
+            StringBuilder out = new StringBuilder("{");
+            for (String key : keys) {
+                if (out.length() > 1) out.append(',');
+                out.append(JSONObject.quote(key)).append(':').append(canonical(object.get(key)));
+            }
+            return out.append('}').toString();
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            StringBuilder out = new StringBuilder("[");
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) out.append(',');
+                out.append(canonical(array.get(i)));
+            }
+            return out.append(']').toString();
+        }
+        if (value instanceof String) {
+            return JSONObject.quote((String) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            return String.valueOf(Arrays.hashCode(text.getBytes(UTF_8)));
+        }
+    }
+}
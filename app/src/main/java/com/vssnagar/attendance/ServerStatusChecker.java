@@ -0,0 +1,165 @@
+package com.vssnagar.attendance;
+
+import android.util.AtomicFile;
+import android.util.Log;
+import com.vssnagar.attendance.core.SyncStatus;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * ServerStatusChecker
+ * Asks the Apps Script get_sync_status action how many rows each section has for a date
+ * Runs without a WebView: native HTTP, org.json parse (the answer covers one date, so it is
+ * small), and a short-lived on-disk cache so retries and repeated worker runs don't spend
+ * Apps Script quota
+ */
+public class ServerStatusChecker {
+
+    private static final String TAG = "ServerStatusChecker";
+
+    // Responses younger than this are served from cache
+    public static final long CACHE_TTL_MS = 10 * 60 * 1000;
+
+    /**
+     * Row counts per category (indexed like SyncStatusSnapshot.CATEGORIES) for one date
+     */
+    public static final class Counts {
+        public final String date;
+        public final long fetchedAt;
+        public final int[] perCategory;
+
+        public Counts(String date, long fetchedAt, int[] perCategory) {
+            this.date = date;
+            this.fetchedAt = fetchedAt;
+            this.perCategory = perCategory;
+        }
+
+        /**
+         * Sections with fewer rows than 80% of the roster
+         */
+        public List<String> incompleteSections(int rosterSize) {
+            return SyncStatus.incompleteSections(perCategory, rosterSize);
+        }
+    }
+
+    private final AppsScriptClient client;
+    private final File cacheDir;
+
+    /**
+     * @param client Endpoint to query (the Apps Script deployment or a local stub)
+     * @param cacheDir Directory for the response cache, or null to disable caching
+     */
+    public ServerStatusChecker(AppsScriptClient client, File cacheDir) {
+        this.client = client;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Counts for a date, from cache if fresh, otherwise from the server
+     * @throws IOException if the server can't be reached or answers with an error
+     */
+    public Counts fetch(String date, int rosterSize) throws IOException {
+        Counts cached = readCache(date);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < CACHE_TTL_MS) {
+            Log.d(TAG, "Using cached status for " + date);
+            return cached;
+        }
+
+        String body = "{\"action\":\"get_sync_status\",\"dates\":[\"" + date + "\"],"
+            + "\"totalStudents\":" + rosterSize + "}";
+
+        Counts counts = parse(client.post(body), date);
+        writeCache(counts);
+        return counts;
+    }
+
+    /**
+     * Parse {"result": "success", "data": {"2026-01-22": {"Yoga": 45, ...}}, ...}
+     * Only the requested date is read; unknown categories and non-numeric counts are ignored
+     * @throws IOException if the answer is not JSON or reports an error
+     */
+    static Counts parse(String body, String date) throws IOException {
+        JSONObject response;
+        try {
+            response = new JSONObject(body);
+        } catch (JSONException e) {
+            throw new IOException("get_sync_status returned invalid JSON: " + e.getMessage());
+        }
+
+        String result = response.optString("result", null);
+        if (!"success".equals(result)) {
+            throw new IOException("get_sync_status failed: " + response.optString("error", result));
+        }
+
+        int[] perCategory = new int[SyncStatusSnapshot.CATEGORIES.length];
+        JSONObject data = response.optJSONObject("data");
+        JSONObject categories = data == null ? null : data.optJSONObject(date);
+        if (categories != null) {
+            Iterator<String> names = categories.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                int index = SyncStatusSnapshot.categoryIndex(name);
+                Object count = categories.opt(name);
+                if (index >= 0 && count instanceof Number) {
+                    perCategory[index] = ((Number) count).intValue();
+                }
+            }
+        }
+        return new Counts(date, System.currentTimeMillis(), perCategory);
+    }
+
+    private AtomicFile cacheFile(String date) {
+        return new AtomicFile(new File(cacheDir, "sync_status_" + date + ".bin"));
+    }
+
+    private Counts readCache(String date) {
+        if (cacheDir == null) return null;
+        try {
+            DataInputStream in = new DataInputStream(cacheFile(date).openRead());
+            try {
+                long fetchedAt = in.readLong();
+                int[] perCategory = new int[SyncStatusSnapshot.CATEGORIES.length];
+                for (int i = 0; i < perCategory.length; i++) {
+                    perCategory[i] = in.readInt();
+                }
+                return new Counts(date, fetchedAt, perCategory);
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.e(TAG, "Ignoring unreadable status cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(Counts counts) {
+        if (cacheDir == null) return;
+        AtomicFile file = cacheFile(counts.date);
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeLong(counts.fetchedAt);
+            for (int count : counts.perCategory) {
+                data.writeInt(count);
+            }
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing status cache: " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+}
@@ -3,31 +3,78 @@ package com.vssnagar.attendance;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import androidx.appcompat.app.AppCompatActivity;
 
 /**
  * Splash Screen Activity
  * This is the first screen that appears when you open the app.
- * It shows for 2 seconds, then opens MainActivity.
+ * While it shows, the WebView is created and the web app starts loading in the background.
+ * It opens MainActivity as soon as the page has loaded, or after a timeout at the latest.
  */
 public class SplashActivity extends AppCompatActivity {
 
+    // Upper bound for the splash, even if the page is still loading
+    private static final long SPLASH_TIMEOUT_MS = 3000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean mainOpened = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTimings.mark("splash_created");
         setContentView(R.layout.activity_splash);
 
-        // Wait for 2000 milliseconds (2 seconds), then open MainActivity
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                // Create an intent to open MainActivity
-                Intent intent = new Intent(SplashActivity.this, MainActivity.class);
-                startActivity(intent);
-                
-                // Close this splash screen so user can't come back to it
-                finish();
-            }
-        }, 2000); // 2000 milliseconds = 2 seconds
+        // Start the WebView after the splash has drawn its first frame
+        getWindow().getDecorView().post(() -> {
+            if (isFinishing()) return;
+            WebViewPrewarmer.start(this, new AppWebViewClient.PageListener() {
+                @Override
+                public void onPageStarted(String url) {
+                    // Keep showing the splash until the page has finished
+                }
+
+                @Override
+                public void onPageFinished(String url) {
+                    openMainActivity();
+                }
+
+                @Override
+                public void onRenderProcessGone(boolean crashed) {
+                    // MainActivity creates a fresh WebView instead
+                    WebViewPrewarmer.discard();
+                    openMainActivity();
+                }
+            });
+        });
+
+        // Don't wait forever on slow devices
+        handler.postDelayed(this::openMainActivity, SPLASH_TIMEOUT_MS);
+    }
+
+    private void openMainActivity() {
+        if (mainOpened) return;
+        mainOpened = true;
+        handler.removeCallbacksAndMessages(null);
+        StartupTimings.mark("splash_dismissed");
+
+        // Create an intent to open MainActivity
+        Intent intent = new Intent(SplashActivity.this, MainActivity.class);
+        // Pass launch settings through (the server endpoint, debug builds only - this activity is exported)
+        if (BuildConfig.DEBUG && getIntent().hasExtra(MainActivity.EXTRA_SERVER_ENDPOINT)) {
+            intent.putExtra(MainActivity.EXTRA_SERVER_ENDPOINT,
+                getIntent().getStringExtra(MainActivity.EXTRA_SERVER_ENDPOINT));
+        }
+        startActivity(intent);
+
+        // Close this splash screen so user can't come back to it
+        finish();
+    }
+
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroy();
     }
 }
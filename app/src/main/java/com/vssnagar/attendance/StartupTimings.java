@@ -0,0 +1,69 @@
+package com.vssnagar.attendance;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StartupTimings
+ * Records when each cold-start phase happened, in milliseconds since the process started
+ * Only the first occurrence of a phase is kept, so later page loads don't overwrite startup numbers
+ */
+public final class StartupTimings {
+
+    private static final String TAG = "StartupTimings";
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static long originMs;
+    private static boolean logged;
+
+    private StartupTimings() {
+    }
+
+    /**
+     * Record a phase (e.g. "splash_created", "webview_created", "page_finished")
+     */
+    public static synchronized void mark(String phase) {
+        long now = SystemClock.elapsedRealtime();
+        if (originMs == 0) {
+            originMs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime()
+                : now;
+        }
+        if (!phases.containsKey(phase)) {
+            phases.put(phase, now - originMs);
+        }
+    }
+
+    /**
+     * Milliseconds since process start for a phase, or -1 if it hasn't happened
+     */
+    public static synchronized long get(String phase) {
+        Long value = phases.get(phase);
+        return value != null ? value : -1;
+    }
+
+    /**
+     * All phases as JSON: {"splash_created": 180, "webview_created": 420, ...}
+     */
+    public static synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            if (json.length() > 1) json.append(',');
+            json.append('"').append(phase.getKey()).append("\":").append(phase.getValue());
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Log all phases once per process
+     */
+    public static synchronized void log() {
+        if (logged) return;
+        logged = true;
+        Log.d(TAG, "Startup phases (ms since process start): " + toJson());
+    }
+}
@@ -0,0 +1,200 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.StudentSearchIndex;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StudentRoster
+ * Native copy of the hostel roster in a compact binary file
+ * Every student key (appId / appNumber / name, see AttendanceDatabase.studentKey) gets a dense
+ * int ordinal that never changes, so per-student arrays can be indexed by it.
+ * Removed students keep their ordinal as a tombstone and get it back if they return.
+ * The diff logic lives in core Roster; this class adds persistence, JSON and locking.
+ * A StudentSearchIndex follows the roster: built when it loads, updated on every change.
+ */
+public final class StudentRoster {
+
+    private static final String TAG = "StudentRoster";
+    private static final String FILE_NAME = "roster.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    private static StudentRoster instance;
+
+    private final AtomicFile file;
+    private final Roster roster = new Roster();
+    private final StudentSearchIndex searchIndex = new StudentSearchIndex();
+
+    public static synchronized StudentRoster getInstance(Context context) {
+        if (instance == null) {
+            instance = new StudentRoster(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private StudentRoster(File path) {
+        file = new AtomicFile(path);
+        read();
+        searchIndex.update(roster);
+    }
+
+    /**
+     * Number of current (not removed) students
+     */
+    public synchronized int size() {
+        return roster.size();
+    }
+
+    /**
+     * Highest ordinal handed out so far + 1 (size for ordinal-indexed arrays)
+     */
+    public synchronized int ordinalCount() {
+        return roster.ordinalCount();
+    }
+
+    /**
+     * @return Ordinal of a student, or -1 if unknown
+     */
+    public synchronized int ordinalOf(String studentKey) {
+        return roster.ordinalOf(studentKey);
+    }
+
+    public synchronized Roster.Student get(int ordinal) {
+        return roster.get(ordinal);
+    }
+
+    /**
+     * Ordinals of current students in sheet order (copy)
+     */
+    public synchronized int[] currentOrdinals() {
+        return roster.currentOrdinals();
+    }
+
+    /**
+     * Replace the roster with a fresh list from the sheet, keeping existing ordinals
+     * Only a real change is written to disk
+     */
+    public synchronized Roster.Diff apply(List<Roster.Student> fresh) {
+        Roster.Diff diff = roster.apply(fresh);
+        if (!diff.isEmpty()) {
+            searchIndex.update(roster);
+            write();
+            Log.d(TAG, "Roster updated: +" + diff.added + " -" + diff.removed + " ~" + diff.modified);
+        }
+        return diff;
+    }
+
+    /**
+     * Append one student just added to the sheet (only that student is indexed)
+     * @return The student with its ordinal, or null if already in the roster
+     */
+    public synchronized Roster.Student add(Roster.Student student) {
+        Roster.Student added = roster.add(student);
+        if (added != null) {
+            searchIndex.update(roster);
+            write();
+            Log.d(TAG, "Student added: " + added.key);
+        }
+        return added;
+    }
+
+    /**
+     * Current students matching a search, best first (see StudentSearchIndex)
+     * @param limit Most results, 0 for all
+     */
+    public synchronized List<Roster.Student> search(String query, int limit) {
+        int[] ordinals = searchIndex.search(query, limit);
+        List<Roster.Student> result = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            result.add(roster.get(ordinal));
+        }
+        return result;
+    }
+
+    /**
+     * Parse the students array the web app sends ([{name, appNumber, appId, hostelId, allocation}, ...])
+     */
+    public static List<Roster.Student> parse(JSONArray array) {
+        List<Roster.Student> students = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject item = array.optJSONObject(i);
+            if (item == null) continue;
+            students.add(new Roster.Student(
+                item.optString("name", ""),
+                item.optString("appNumber", ""),
+                item.optString("appId", ""),
+                item.optString("hostelId", ""),
+                item.optString("allocation", "")));
+        }
+        return students;
+    }
+
+    /**
+     * Current students in sheet order, as the web app's students array (with ordinals)
+     */
+    public synchronized JSONArray toJson() throws Exception {
+        JSONArray array = new JSONArray();
+        for (int ordinal : roster.currentOrdinals()) {
+            array.put(toJson(roster.get(ordinal)));
+        }
+        return array;
+    }
+
+    public static JSONObject toJson(Roster.Student student) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("ordinal", student.ordinal);
+        json.put("name", student.name);
+        json.put("appNumber", student.appNumber);
+        json.put("appId", student.appId);
+        json.put("hostelId", student.hostelId);
+        json.put("allocation", student.allocation);
+        return json;
+    }
+
+    private void read() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file.openRead()));
+            try {
+                if (in.readInt() != FORMAT_VERSION) return;
+                roster.readFrom(in);
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            // No roster yet
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading roster: " + e.getMessage());
+        }
+    }
+
+    private void write() {
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(FORMAT_VERSION);
+            roster.writeTo(data);
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing roster: " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+}
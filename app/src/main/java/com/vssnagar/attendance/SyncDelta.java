@@ -0,0 +1,97 @@
+package com.vssnagar.attendance;
+
+import com.vssnagar.attendance.core.StudentKeys;
+import org.json.JSONArray;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SyncDelta
+ * Row-level diff of one outbox section against the statuses the server last acknowledged
+ * The outbox always holds the whole section; only rows whose status differs from the
+ * acknowledged one (or that were never acknowledged) go into the upload. Rows are matched
+ * the way handleMultiSheetSync matches them (Application ID → Application Number → Name)
+ * and, like the server, only a status change counts as a change.
+ * Acknowledgements belong to the server that gave them: after a switch to another
+ * endpoint the first upload of each section goes in full.
+ */
+final class SyncDelta {
+
+    /**
+     * Acknowledged statuses per server (AttendanceDatabase)
+     */
+    interface AckStore {
+        /** Student key -> status the server confirmed for a date + category */
+        Map<String, String> ackedStatuses(String endpoint, String date, String category);
+        void replaceAcked(String endpoint, String date, String category, Map<String, String> statuses);
+        void clearAcked(String date, String category);
+    }
+
+    final AttendanceDatabase.OutboxEntry entry;
+    // Rows to upload (9-column sheet rows)
+    final JSONArray changed = new JSONArray();
+    // Student key -> status of every row in the section, acknowledged once the upload succeeds
+    final Map<String, String> statuses = new LinkedHashMap<>();
+    // Rows left out because the server already has the same status
+    int unchanged;
+
+    private SyncDelta(AttendanceDatabase.OutboxEntry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * Diff a section for an upload to the given server
+     * @param synced Rows on the server per category for the entry's date (AttendanceBitsets), or null
+     */
+    static SyncDelta of(AckStore acks, int[] synced, AttendanceDatabase.OutboxEntry entry,
+                        String endpoint) throws Exception {
+        Map<String, String> acked = acks.ackedStatuses(endpoint, entry.date, entry.category);
+
+        // The server reports fewer rows than were acknowledged (purged, or replaced from another
+        // device) - the acknowledgements can't be trusted, send the section in full
+        int categoryIndex = SyncStatusSnapshot.categoryIndex(entry.category);
+        if (!acked.isEmpty() && categoryIndex >= 0 && synced != null && synced[categoryIndex] < acked.size()) {
+            acks.clearAcked(entry.date, entry.category);
+            acked = Collections.emptyMap();
+        }
+        return of(entry, acked);
+    }
+
+    /**
+     * Record what an upload to the given server confirmed
+     * @param acknowledged The response accounted for every changed row; otherwise the next
+     *                     upload of these sections goes in full (e.g. an older script without stats)
+     */
+    static void acknowledge(AckStore acks, String endpoint, List<SyncDelta> deltas, boolean acknowledged) {
+        for (SyncDelta delta : deltas) {
+            if (acknowledged) {
+                acks.replaceAcked(endpoint, delta.entry.date, delta.entry.category, delta.statuses);
+            } else {
+                acks.clearAcked(delta.entry.date, delta.entry.category);
+            }
+        }
+    }
+
+    /**
+     * Diff a section against the given acknowledged statuses (student key -> status)
+     */
+    static SyncDelta of(AttendanceDatabase.OutboxEntry entry, Map<String, String> acked) throws Exception {
+        SyncDelta delta = new SyncDelta(entry);
+        JSONArray rows = new JSONArray(entry.rowsJson);
+        for (int i = 0; i < rows.length(); i++) {
+            JSONArray row = rows.getJSONArray(i);
+            String key = StudentKeys.of(row.optString(2, "").trim(), row.optString(1, "").trim(),
+                row.optString(0, "").trim());
+            String status = row.optString(6, "").trim();
+            delta.statuses.put(key, status);
+            if (status.equals(acked.get(key))) {
+                delta.unchanged++;
+            } else {
+                delta.changed.put(row);
+            }
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,67 @@
+package com.vssnagar.attendance;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * SyncResponse
+ * The server's answer to a sync_batched_multi_sheet upload
+ * A body that is not a JSON object (e.g. an HTML error page in front of the script) is a
+ * rejection like an error the server reports, so both count against the uploader's attempts.
+ */
+final class SyncResponse {
+
+    final boolean success;
+    // Reason for a rejection, null on success
+    final String error;
+    // {updated, inserted, skipped} as reported by the server (empty if it sent none)
+    final JSONObject stats;
+
+    private SyncResponse(boolean success, String error, JSONObject stats) {
+        this.success = success;
+        this.error = error;
+        this.stats = stats;
+    }
+
+    static SyncResponse parse(String body) {
+        JSONObject response;
+        try {
+            response = new JSONObject(body);
+        } catch (JSONException e) {
+            String start = body == null ? "" : body.trim();
+            if (start.length() > 80) {
+                start = start.substring(0, 80) + "…";
+            }
+            return new SyncResponse(false, "Invalid response from server: " + start, new JSONObject());
+        }
+
+        if (!"success".equals(response.optString("result"))) {
+            return new SyncResponse(false, response.optString("error", "Unknown error"), new JSONObject());
+        }
+        JSONObject stats = response.optJSONObject("stats");
+        return new SyncResponse(true, null, stats != null ? stats : new JSONObject());
+    }
+
+    /**
+     * Nothing was sent; the server already holds every status
+     */
+    static SyncResponse nothingSent() {
+        JSONObject stats = new JSONObject();
+        try {
+            stats.put("updated", 0);
+            stats.put("inserted", 0);
+            stats.put("skipped", 0);
+        } catch (JSONException ignored) {
+            // JSONObject.put only throws for non-finite numbers
+        }
+        return new SyncResponse(true, null, stats);
+    }
+
+    /**
+     * Every sent row is accounted for in the stats, so the server now holds exactly those statuses
+     * (an older script without stats doesn't qualify)
+     */
+    boolean accountsFor(int sentRows) {
+        return stats.optInt("updated") + stats.optInt("inserted") + stats.optInt("skipped") == sentRows;
+    }
+}
@@ -0,0 +1,186 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import com.vssnagar.attendance.core.SyncStatus;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SyncStatusSnapshot
+ * Typed, persistent record of which sections are synced per date
+ * Written by the JavaBridge thread (receiveSyncData) and read by AttendanceCheckWorker,
+ * so it survives process death and needs no JSON parsing on the worker side
+ */
+public final class SyncStatusSnapshot {
+
+    private static final String TAG = "SyncStatusSnapshot";
+    private static final String FILE_NAME = "sync_status.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    // Keep a week of dates - the worker only needs today
+    private static final int MAX_DATES = 7;
+
+    // Bit index of each category in the masks below
+    public static final String[] CATEGORIES = SyncStatus.CATEGORIES;
+
+    /**
+     * Status of all sections for one date
+     */
+    public static final class Entry {
+        public final String date;
+        public final long receivedAt;
+        // Bit set = the web app reported this category
+        public final int reportedMask;
+        // Bit set = this category is synced
+        public final int completeMask;
+
+        public Entry(String date, long receivedAt, int reportedMask, int completeMask) {
+            this.date = date;
+            this.receivedAt = receivedAt;
+            this.reportedMask = reportedMask;
+            this.completeMask = completeMask;
+        }
+
+        /**
+         * Readable names of reported sections that are not synced yet
+         */
+        public List<String> incompleteSections() {
+            return SyncStatus.incompleteSections(reportedMask, completeMask);
+        }
+    }
+
+    // Immutable list swapped atomically; volatile makes it visible across threads
+    private static volatile List<Entry> cached;
+
+    private SyncStatusSnapshot() {
+    }
+
+    /**
+     * Map a web app key ("yoga", "messDay", "mess_night", "Night Shift") to its bit index
+     * @return Index into CATEGORIES, or -1 if unknown
+     */
+    public static int categoryIndex(String key) {
+        return SyncStatus.categoryIndex(key);
+    }
+
+    /**
+     * Status for one date, or null if the web app never reported it
+     */
+    public static Entry get(Context context, String date) {
+        for (Entry entry : entries(context)) {
+            if (entry.date.equals(date)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the status of one date and persist the snapshot atomically
+     */
+    public static synchronized void put(Context context, Entry entry) {
+        List<Entry> updated = new ArrayList<>();
+        updated.add(entry);
+        for (Entry existing : entries(context)) {
+            if (!existing.date.equals(entry.date) && updated.size() < MAX_DATES) {
+                updated.add(existing);
+            }
+        }
+        List<Entry> snapshot = Collections.unmodifiableList(updated);
+        write(context, snapshot);
+        cached = snapshot;
+    }
+
+    /**
+     * Mark one section of a date as synced (e.g. after a background upload)
+     */
+    public static synchronized void markComplete(Context context, String date, String category) {
+        int index = categoryIndex(category);
+        if (index < 0) return;
+
+        Entry existing = get(context, date);
+        int reported = existing == null ? 0 : existing.reportedMask;
+        int complete = existing == null ? 0 : existing.completeMask;
+        put(context, new Entry(date, System.currentTimeMillis(), reported | (1 << index), complete | (1 << index)));
+    }
+
+    private static List<Entry> entries(Context context) {
+        List<Entry> snapshot = cached;
+        if (snapshot == null) {
+            synchronized (SyncStatusSnapshot.class) {
+                snapshot = cached;
+                if (snapshot == null) {
+                    snapshot = read(context);
+                    cached = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private static AtomicFile file(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    private static List<Entry> read(Context context) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            FileInputStream in = file(context).openRead();
+            DataInputStream data = new DataInputStream(in);
+            try {
+                if (data.readInt() != FORMAT_VERSION) {
+                    return Collections.unmodifiableList(entries);
+                }
+                int count = data.readInt();
+                for (int i = 0; i < count; i++) {
+                    String date = data.readUTF();
+                    long receivedAt = data.readLong();
+                    int reported = data.readByte();
+                    int complete = data.readByte();
+                    entries.add(new Entry(date, receivedAt, reported, complete));
+                }
+            } finally {
+                data.close();
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing reported yet
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading sync status: " + e.getMessage());
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static void write(Context context, List<Entry> entries) {
+        AtomicFile atomicFile = file(context);
+        FileOutputStream out = null;
+        try {
+            out = atomicFile.startWrite();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(FORMAT_VERSION);
+            data.writeInt(entries.size());
+            for (Entry entry : entries) {
+                data.writeUTF(entry.date);
+                data.writeLong(entry.receivedAt);
+                data.writeByte(entry.reportedMask);
+                data.writeByte(entry.completeMask);
+            }
+            data.flush();
+            atomicFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing sync status: " + e.getMessage());
+            if (out != null) {
+                atomicFile.failWrite(out);
+            }
+        }
+    }
+}
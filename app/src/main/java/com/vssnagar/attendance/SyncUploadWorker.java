@@ -0,0 +1,324 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncUploadWorker
+ * Background task that uploads queued attendance submissions from the outbox
+ * Merges all pending rows per sheet into one sync_batched_multi_sheet request, leaving out
+ * rows whose status the server has already acknowledged (see SyncDelta)
+ */
+public class SyncUploadWorker extends Worker {
+
+    private static final String TAG = "SyncUploadWorker";
+
+    public static final String UNIQUE_WORK_NAME = "SyncUpload";
+
+    // Input: optional endpoint override (e.g. a local stand-in server)
+    public static final String KEY_ENDPOINT = "endpoint";
+
+    // Tag carrying the endpoint override, since WorkInfo does not expose the input data
+    private static final String ENDPOINT_TAG_PREFIX = "endpoint:";
+
+    // Output: JSON result reported back to the web app
+    public static final String KEY_RESULT = "result";
+
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static final int ACK_RETENTION_DAYS = 90;
+
+    // Serializes retryNow checks, so a burst of connectivity changes queues no parallel work
+    private static final ExecutorService RETRY_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public SyncUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queue an upload run
+     * Runs only with network; failed runs back off exponentially
+     */
+    public static void enqueue(Context context) {
+        enqueue(context, null);
+    }
+
+    /**
+     * Queue an upload run against a specific endpoint (null for the configured server)
+     */
+    public static void enqueue(Context context, String endpoint) {
+        // Append so entries queued during a running upload get their own run
+        WorkManager.getInstance(context).enqueueUniqueWork(
+            UNIQUE_WORK_NAME,
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildRequest(endpoint)
+        );
+    }
+
+    /**
+     * The network is back: an upload still waiting out its backoff runs now instead
+     * A running upload is left alone; with nothing queued, a normal run is queued if the outbox has entries.
+     * The replacement keeps the endpoint override of the work it replaces.
+     */
+    public static void retryNow(Context context) {
+        final Context appContext = context.getApplicationContext();
+        RETRY_EXECUTOR.execute(() -> {
+            try {
+                if (AttendanceDatabase.getInstance(appContext).pendingOutboxCount() == 0) return;
+
+                boolean backingOff = false;
+                boolean waiting = false;
+                String endpoint = null;
+                WorkManager workManager = WorkManager.getInstance(appContext);
+                for (WorkInfo info : workManager.getWorkInfosForUniqueWork(UNIQUE_WORK_NAME).get()) {
+                    if (info.getState() == WorkInfo.State.RUNNING) return;
+                    if (info.getState() == WorkInfo.State.ENQUEUED || info.getState() == WorkInfo.State.BLOCKED) {
+                        waiting = true;
+                        if (info.getRunAttemptCount() > 0) {
+                            backingOff = true;
+                            endpoint = endpointOf(info);
+                        }
+                    }
+                }
+
+                if (backingOff) {
+                    // Same rows are still in the outbox, so replacing loses nothing
+                    workManager.enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.REPLACE, buildRequest(endpoint));
+                    Log.d(TAG, "Network back - upload retried now");
+                } else if (!waiting) {
+                    enqueue(appContext);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Could not retry upload: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Endpoint override a queued run was built with, or null for the configured server
+     */
+    private static String endpointOf(WorkInfo info) {
+        for (String tag : info.getTags()) {
+            if (tag.startsWith(ENDPOINT_TAG_PREFIX)) {
+                return tag.substring(ENDPOINT_TAG_PREFIX.length());
+            }
+        }
+        return null;
+    }
+
+    private static OneTimeWorkRequest buildRequest(String endpoint) {
+        Data.Builder input = new Data.Builder();
+        if (endpoint != null) {
+            input.putString(KEY_ENDPOINT, endpoint);
+        }
+
+        Constraints constraints = new Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .build();
+
+        OneTimeWorkRequest.Builder request = new OneTimeWorkRequest.Builder(SyncUploadWorker.class)
+            .setConstraints(constraints)
+            .setInputData(input.build())
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS);
+        if (endpoint != null) {
+            request.addTag(ENDPOINT_TAG_PREFIX + endpoint);
+        }
+        return request.build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long started = System.nanoTime();
+        Result result = upload();
+        AppMetrics.workerRun("SyncUploadWorker", started, result);
+        return result;
+    }
+
+    private Result upload() {
+        AttendanceDatabase database = AttendanceDatabase.getInstance(getApplicationContext());
+        List<AttendanceDatabase.OutboxEntry> entries = database.pendingOutbox();
+
+        if (entries.isEmpty()) {
+            Log.d(TAG, "Outbox empty - nothing to upload");
+            return Result.success();
+        }
+
+        String endpoint = getInputData().getString(KEY_ENDPOINT);
+        if (endpoint == null || endpoint.isEmpty()) {
+            endpoint = AppsScriptClient.endpoint(getApplicationContext());
+        }
+
+        try {
+            AttendanceBitsets bitsets = AttendanceBitsets.getInstance(getApplicationContext());
+            List<SyncDelta> deltas = new ArrayList<>();
+            int changedRows = 0;
+            int unchangedRows = 0;
+            for (AttendanceDatabase.OutboxEntry entry : entries) {
+                SyncDelta delta = SyncDelta.of(database, bitsets.syncedCounts(entry.date), entry, endpoint);
+                deltas.add(delta);
+                changedRows += delta.changed.length();
+                unchangedRows += delta.unchanged;
+            }
+
+            SyncResponse response;
+            if (changedRows == 0) {
+                // Every status is already on the server - nothing to send
+                Log.d(TAG, "No changed rows in " + entries.size() + " section(s) - skipping upload");
+                response = SyncResponse.nothingSent();
+            } else {
+                String payload = buildPayload(deltas);
+                Log.d(TAG, "Uploading " + changedRows + " changed row(s) of " + entries.size()
+                    + " section(s) to " + endpoint + " (" + unchangedRows + " unchanged left out)");
+
+                response = SyncResponse.parse(new AppsScriptClient(endpoint).post(payload));
+
+                if (!response.success) {
+                    Log.e(TAG, "Server rejected upload: " + response.error);
+                    return retryOrFail(database, entries, response.error);
+                }
+            }
+            JSONObject stats = response.stats;
+
+            SyncDelta.acknowledge(database, endpoint, deltas, response.accountsFor(changedRows));
+            database.pruneAcked(ackCutoffDate());
+            AppMetrics.syncDelta(changedRows, unchangedRows);
+
+            database.removeOutbox(entries);
+            // Synced counts describe the configured server; the endpoint may have changed during the upload
+            boolean configuredServer = endpoint.equals(AppsScriptClient.endpoint(getApplicationContext()));
+            for (AttendanceDatabase.OutboxEntry entry : entries) {
+                SyncStatusSnapshot.markComplete(getApplicationContext(), entry.date, entry.category);
+                ReminderScheduler.onSectionComplete(getApplicationContext(), entry.date, entry.category);
+                // Cached reads of this section are out of date now
+                ScriptResponseCache.getInstance(getApplicationContext()).invalidate(entry.date, entry.category);
+                int categoryIndex = SyncStatusSnapshot.categoryIndex(entry.category);
+                if (categoryIndex >= 0 && configuredServer) {
+                    bitsets.markSynced(entry.date, categoryIndex, new JSONArray(entry.rowsJson).length());
+                }
+            }
+
+            // Rows left out count as unchanged, as if the server had skipped them
+            stats.put("skipped", stats.optInt("skipped") + unchangedRows);
+
+            JSONObject result = new JSONObject();
+            result.put("result", "success");
+            result.put("stats", stats);
+            result.put("synced", sectionsOf(entries));
+            Log.d(TAG, "Upload complete: " + result);
+
+            return Result.success(resultData(result));
+
+        } catch (IOException e) {
+            // Network dropped mid-request - keep entries queued and back off
+            Log.e(TAG, "Upload failed, will retry: " + e.getMessage());
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Error in SyncUploadWorker: " + e.getMessage(), e);
+            return retryOrFail(database, entries, "Upload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Back off and try again, or after MAX_ATTEMPTS give up: the entries are marked failed
+     * (no longer uploaded until resubmitted) and the page is told why
+     */
+    private Result retryOrFail(AttendanceDatabase database, List<AttendanceDatabase.OutboxEntry> entries, String error) {
+        if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        database.failOutbox(entries, error);
+        return Result.failure(resultData(errorResult(error, entries)));
+    }
+
+    /**
+     * Merge the changed rows into one payload: {"action": ..., "batches": {"Yoga": [rows], ...}}
+     */
+    static String buildPayload(List<SyncDelta> deltas) throws Exception {
+        Map<String, JSONArray> batches = new LinkedHashMap<>();
+        for (SyncDelta delta : deltas) {
+            if (delta.changed.length() == 0) continue;
+            JSONArray sheetRows = batches.get(delta.entry.category);
+            if (sheetRows == null) {
+                sheetRows = new JSONArray();
+                batches.put(delta.entry.category, sheetRows);
+            }
+            for (int i = 0; i < delta.changed.length(); i++) {
+                sheetRows.put(delta.changed.get(i));
+            }
+        }
+
+        JSONObject batchesJson = new JSONObject();
+        for (Map.Entry<String, JSONArray> batch : batches.entrySet()) {
+            batchesJson.put(batch.getKey(), batch.getValue());
+        }
+
+        JSONObject payload = new JSONObject();
+        payload.put("action", "sync_batched_multi_sheet");
+        payload.put("batches", batchesJson);
+        return payload.toString();
+    }
+
+    /**
+     * Acknowledgements older than ACK_RETENTION_DAYS are dropped (those dates are rarely resubmitted,
+     * and a resubmission then simply goes in full)
+     */
+    private static String ackCutoffDate() {
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_MONTH, -ACK_RETENTION_DAYS);
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(cutoff.getTime());
+    }
+
+    private static JSONArray sectionsOf(List<AttendanceDatabase.OutboxEntry> entries) throws Exception {
+        JSONArray sections = new JSONArray();
+        for (AttendanceDatabase.OutboxEntry entry : entries) {
+            JSONObject section = new JSONObject();
+            section.put("date", entry.date);
+            section.put("category", entry.category);
+            sections.put(section);
+        }
+        return sections;
+    }
+
+    private static JSONObject errorResult(String error, List<AttendanceDatabase.OutboxEntry> entries) {
+        JSONObject result = new JSONObject();
+        try {
+            result.put("result", "error");
+            result.put("error", error);
+            result.put("failed", sectionsOf(entries));
+        } catch (Exception ignored) {
+            // JSONObject.put only throws for non-finite numbers
+        }
+        return result;
+    }
+
+    private static Data resultData(JSONObject result) {
+        return new Data.Builder()
+            .putString(KEY_RESULT, result.toString())
+            .build();
+    }
+}
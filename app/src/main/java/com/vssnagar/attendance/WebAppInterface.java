@@ -2,55 +2,115 @@ package com.vssnagar.attendance;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.MutableContextWrapper;
 import android.net.Uri;
 import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Base64;
 import android.util.Log;
 import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
 import android.widget.Toast;
 import androidx.core.content.FileProvider;
+import com.vssnagar.attendance.core.FileNames;
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.TrackingEngine;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebAppInterface
  * Bridge between Android app and web app JavaScript
- * Handles file downloads and attendance status communication
+ * Handles file downloads, attendance status communication and the on-device store
  */
 public class WebAppInterface {
     
     private Context context;
+    private WebView webView;
     private static final String TAG = "WebAppInterface";
-    
-    // Store the latest sync status received from web app
-    private static String latestSyncStatus = "";
 
+    private final DownloadTransferManager transfers = new DownloadTransferManager(new TransferListener());
+    // Transfer id -> whether to open the file when it is written
+    private final Map<String, Boolean> openWhenFinished = new ConcurrentHashMap<>();
+    
     public WebAppInterface(Context context) {
+        this(context, null);
+    }
+
+    public WebAppInterface(Context context, WebView webView) {
         this.context = context;
+        this.webView = webView;
     }
 
     /**
      * Called by web app JavaScript to send sync status to Android
      * Expected format: JSON string like:
-     * {"yoga": true, "messDay": false, "messNight": true, "nightShift": false}
+     * {"date": "2026-01-22", "yoga": true, "messDay": false, "messNight": true, "nightShift": false,
+     *  "totalStudents": 45}
+     * "date" is optional and defaults to today. Parsed once here and stored as a typed
+     * SyncStatusSnapshot so AttendanceCheckWorker can read it after process death.
      */
     @JavascriptInterface
     public void receiveSyncData(String jsonData) {
-        latestSyncStatus = jsonData;
-        Log.d(TAG, "Received sync data from web app: " + jsonData);
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("receiveSyncData", jsonData);
+        try {
+            storeSyncData(jsonData);
+        } finally {
+            call.end();
+        }
     }
 
-    /**
-     * Get the latest sync status
-     * Called by AttendanceCheckWorker to determine incomplete sections
-     */
-    public static String getLatestSyncStatus() {
-        return latestSyncStatus;
+    private void storeSyncData(String jsonData) {
+        Log.d(TAG, "Received sync data from web app: " + jsonData);
+        try {
+            JSONObject json = new JSONObject(jsonData);
+            String date = json.optString("date", "");
+            if (date.isEmpty()) {
+                date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+            }
+
+            int reported = 0;
+            int complete = 0;
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                int index = SyncStatusSnapshot.categoryIndex(key);
+                if (index < 0) continue;
+                reported |= 1 << index;
+                if (json.optBoolean(key, false)) {
+                    complete |= 1 << index;
+                }
+            }
+
+            SyncStatusSnapshot.put(context,
+                new SyncStatusSnapshot.Entry(date, System.currentTimeMillis(), reported, complete));
+            // Completed sections need no reminder check
+            for (int i = 0; i < SyncStatusSnapshot.CATEGORIES.length; i++) {
+                if ((complete & (1 << i)) != 0) {
+                    ReminderScheduler.onSectionComplete(context, date, SyncStatusSnapshot.CATEGORIES[i]);
+                }
+            }
+
+            // Roster size lets the worker judge server row counts on its own
+            int totalStudents = json.optInt("totalStudents", 0);
+            if (totalStudents > 0) {
+                AttendanceDatabase.getInstance(context).putValue(
+                    AttendanceCheckWorker.KEY_ROSTER_SIZE, String.valueOf(totalStudents));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing sync data: " + e.getMessage());
+        }
     }
 
     /**
@@ -59,53 +119,774 @@ public class WebAppInterface {
      */
     @JavascriptInterface
     public void requestSyncStatus() {
-        Log.d(TAG, "Requesting sync status from web app");
-        // Web app should listen and respond with receiveSyncData()
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("requestSyncStatus");
+        try {
+            Log.d(TAG, "Requesting sync status from web app");
+            // Web app should listen and respond with receiveSyncData()
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Save all records of one date + category to the on-device store
+     * Expected format: JSON array like:
+     * [{"name": "...", "appId": "...", "appNumber": "...", "hostelId": "...", "allocation": "...", "status": "Present"}]
+     * @return Number of records written, or -1 on error
+     */
+    @JavascriptInterface
+    public int upsertAttendance(String date, String category, String recordsJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("upsertAttendance", date, category, recordsJson);
+        try {
+            JSONArray array = new JSONArray(recordsJson);
+            List<AttendanceDatabase.Record> records = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                AttendanceDatabase.Record record = new AttendanceDatabase.Record();
+                record.name = item.optString("name", "");
+                record.appId = item.optString("appId", "");
+                record.appNumber = item.optString("appNumber", "");
+                record.hostelId = item.optString("hostelId", "");
+                record.allocation = item.optString("allocation", "");
+                record.status = item.optString("status", "Present");
+                records.add(record);
+            }
+            int written = AttendanceDatabase.getInstance(context).upsertRecords(date, category, records);
+            updateBitsets(date, category, records);
+            return written;
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving attendance: " + e.getMessage(), e);
+            return -1;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Mirror saved statuses into the packed per-date bitsets (indexed by roster ordinal)
+     */
+    private void updateBitsets(String date, String category, List<AttendanceDatabase.Record> records) {
+        int categoryIndex = SyncStatusSnapshot.categoryIndex(category);
+        if (categoryIndex < 0) return;
+
+        AttendanceBitsets.getInstance(context).setRecords(date, categoryIndex, records,
+            StudentRoster.getInstance(context));
+    }
+
+    /**
+     * Sync tracker counts from the on-device bitsets, without a network round-trip
+     * Same shape as get_sync_status data: {"2026-01-22": {"Yoga": 45, ...}}
+     * Dates the app knows nothing about are left out
+     */
+    @JavascriptInterface
+    public String getTrackerCounts(String datesJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getTrackerCounts", datesJson);
+        try {
+            JSONArray dates = new JSONArray(datesJson);
+            AttendanceBitsets bitsets = AttendanceBitsets.getInstance(context);
+            JSONObject result = new JSONObject();
+            for (int i = 0; i < dates.length(); i++) {
+                String date = dates.getString(i);
+                int[] synced = bitsets.syncedCounts(date);
+                if (synced == null) continue;
+
+                JSONObject perCategory = new JSONObject();
+                for (int c = 0; c < synced.length; c++) {
+                    perCategory.put(SyncStatusSnapshot.CATEGORIES[c], synced[c]);
+                }
+                result.put(date, perCategory);
+            }
+            return call.reply(result.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading tracker counts: " + e.getMessage(), e);
+            return call.reply("{}");
+        }
+    }
+
+    /**
+     * Take over counts from a get_sync_status answer (the server also sees other devices)
+     * @return Number of date + category counts that changed
+     */
+    @JavascriptInterface
+    public int mergeServerSyncCounts(String dataJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("mergeServerSyncCounts", dataJson);
+        try {
+            return AttendanceBitsets.getInstance(context)
+                .mergeServerCounts(AttendanceBitsets.parseServerCounts(new JSONObject(dataJson)));
+        } catch (Exception e) {
+            Log.e(TAG, "Error merging server counts: " + e.getMessage(), e);
+            return 0;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * get_tracking_data computed on the device from the stored attendance and native roster
+     * Same response shape as the Apps Script action, each row with an added "percentage"
+     * @param startDate First date (yyyy-MM-dd), or empty for no limit
+     * @param endDate Last date, or empty for no limit
+     */
+    @JavascriptInterface
+    public String computeTracking(String startDate, String endDate) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("computeTracking", startDate, endDate);
+        try {
+            long started = System.currentTimeMillis();
+
+            List<TrackingEngine.Student> students = new ArrayList<>();
+            StudentRoster roster = StudentRoster.getInstance(context);
+            for (int ordinal : roster.currentOrdinals()) {
+                Roster.Student student = roster.get(ordinal);
+                students.add(new TrackingEngine.Student(student.name, student.appId, student.appNumber));
+            }
+
+            List<List<TrackingEngine.Row>> rowsByCategory = new ArrayList<>();
+            for (int c = 0; c < TrackingEngine.CATEGORIES.length; c++) {
+                rowsByCategory.add(new ArrayList<TrackingEngine.Row>());
+            }
+            List<AttendanceDatabase.Record> records = AttendanceDatabase.getInstance(context).queryRange(
+                startDate == null || startDate.isEmpty() ? "0000-00-00" : startDate,
+                endDate == null || endDate.isEmpty() ? "9999-99-99" : endDate, "");
+            for (AttendanceDatabase.Record record : records) {
+                int index = SyncStatusSnapshot.categoryIndex(record.category);
+                if (index < 0) continue;
+                rowsByCategory.get(index).add(new TrackingEngine.Row(
+                    record.date, record.name, record.appId, record.appNumber, record.status));
+            }
+
+            TrackingEngine.Output output = TrackingEngine.calculate(students, rowsByCategory, startDate, endDate);
+
+            JSONArray data = new JSONArray();
+            for (TrackingEngine.Result result : output.data) {
+                JSONObject item = new JSONObject();
+                item.put("name", result.name);
+                item.put("id", result.id);
+                item.put("appId", result.appId);
+                item.put("appNumber", result.appNumber);
+                item.put("category", result.category);
+                item.put("present", result.present);
+                item.put("absent", result.absent);
+                item.put("leave", result.leave);
+                item.put("total", result.total);
+                item.put("percentage", result.percentage());
+                item.put("presentDates", new JSONArray(result.presentDates));
+                item.put("absentDates", new JSONArray(result.absentDates));
+                item.put("leaveDates", new JSONArray(result.leaveDates));
+                data.put(item);
+            }
+
+            JSONObject response = new JSONObject();
+            response.put("result", "success");
+            response.put("data", data);
+            response.put("warnings", new JSONArray(output.warnings));
+            response.put("source", "device");
+            Log.d(TAG, "Tracking for " + records.size() + " rows computed in "
+                + (System.currentTimeMillis() - started) + " ms");
+            return call.reply(response.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error computing tracking: " + e.getMessage(), e);
+            return call.reply(null);
+        }
+    }
+
+    /**
+     * Query saved attendance between two dates (inclusive)
+     * Returns the same shape the web app keeps in memory:
+     * {"2026-01-22": {"Yoga": {"Student Name": "Present"}, "verified": {"Yoga": true}}}
+     * @param category Category to filter on, or empty string for all categories
+     */
+    @JavascriptInterface
+    public String queryAttendance(String startDate, String endDate, String category) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("queryAttendance", startDate, endDate, category);
+        try {
+            AttendanceDatabase database = AttendanceDatabase.getInstance(context);
+            JSONObject result = new JSONObject();
+
+            for (AttendanceDatabase.Record record : database.queryRange(startDate, endDate, category)) {
+                JSONObject day = result.optJSONObject(record.date);
+                if (day == null) {
+                    day = new JSONObject();
+                    result.put(record.date, day);
+                }
+                JSONObject section = day.optJSONObject(record.category);
+                if (section == null) {
+                    section = new JSONObject();
+                    day.put(record.category, section);
+                }
+                section.put(record.name, record.status);
+            }
+
+            // Attach verification state for single-day lookups (the common case)
+            if (startDate.equals(endDate)) {
+                String verified = database.loadVerified(startDate);
+                if (verified != null) {
+                    JSONObject day = result.optJSONObject(startDate);
+                    if (day == null) {
+                        day = new JSONObject();
+                        result.put(startDate, day);
+                    }
+                    day.put("verified", new JSONObject(verified));
+                }
+            }
+            return call.reply(result.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error querying attendance: " + e.getMessage(), e);
+            return call.reply("{}");
+        }
+    }
+
+    /**
+     * Save verified sections for a date
+     * Expected format: {"Yoga": true, "Mess Day": false, ...}
+     */
+    @JavascriptInterface
+    public void saveVerifiedState(String date, String verifiedJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("saveVerifiedState", date, verifiedJson);
+        try {
+            AttendanceDatabase.getInstance(context).saveVerified(date, verifiedJson);
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving verified state: " + e.getMessage(), e);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Key/value storage for small page values (draft, roster cache)
+     * Replaces the matching localStorage keys when running inside the app
+     */
+    @JavascriptInterface
+    public void setStoredValue(String key, String value) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("setStoredValue", key, value);
+        try {
+            AttendanceDatabase.getInstance(context).putValue(key, value);
+        } catch (Exception e) {
+            Log.e(TAG, "Error storing value " + key + ": " + e.getMessage(), e);
+        } finally {
+            call.end();
+        }
+    }
+
+    @JavascriptInterface
+    public String getStoredValue(String key) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getStoredValue", key);
+        try {
+            return call.reply(AttendanceDatabase.getInstance(context).getValue(key));
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading value " + key + ": " + e.getMessage(), e);
+            return call.reply(null);
+        }
+    }
+
+    @JavascriptInterface
+    public void removeStoredValue(String key) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("removeStoredValue", key);
+        try {
+            AttendanceDatabase.getInstance(context).removeValue(key);
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing value " + key + ": " + e.getMessage(), e);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Called once by the old origin's export page with its localStorage as {key: value} JSON
+     * The bundled app reads it back through getStoredValue("legacy_local_storage")
+     */
+    @JavascriptInterface
+    public void importLegacyStorage(String storageJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("importLegacyStorage", storageJson);
+        try {
+            LegacyStorageMigration.importStorage(context, storageJson);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Keep the page's working state natively (see PageStateSnapshot)
+     * Expected format: {"date", "category", "attendanceByCategory", "verifiedCategories", ...}
+     */
+    @JavascriptInterface
+    public void saveUiSnapshot(String stateJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("saveUiSnapshot", stateJson);
+        try {
+            PageStateSnapshot.save(context, stateJson);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * State to restore after a renderer crash or a recreated activity, or null on a normal load
+     */
+    @JavascriptInterface
+    public String takeUiSnapshot() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("takeUiSnapshot");
+        return call.reply(PageStateSnapshot.take(context));
+    }
+
+    /**
+     * Open the native marking screen for one date + section over the page
+     * The page saves the section first (calls run in order), since the screen reads the
+     * device copy. window.onNativeMarkingClosed({date, category, changed}) follows on close.
+     * @param readOnly Show statuses without allowing changes (e.g. a synced past date)
+     * @return false if the section is unknown or there is no activity to show it in
+     */
+    @JavascriptInterface
+    public boolean openNativeMarking(final String date, final String category, final boolean readOnly) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("openNativeMarking", date, category);
+        final MainActivity activity = hostActivity();
+        if (activity == null || date == null || SyncStatusSnapshot.categoryIndex(category) < 0) {
+            call.end();
+            return false;
+        }
+        webView.post(() -> activity.openMarkingScreen(date, category, readOnly));
+        call.end();
+        return true;
+    }
+
+    /**
+     * The activity showing the WebView, or null (no WebView, or not attached to MainActivity yet)
+     */
+    private MainActivity hostActivity() {
+        if (webView == null) return null;
+        // A pre-warmed WebView wraps MainActivity in a MutableContextWrapper
+        Context viewContext = webView.getContext();
+        if (viewContext instanceof MutableContextWrapper) {
+            viewContext = ((MutableContextWrapper) viewContext).getBaseContext();
+        }
+        return viewContext instanceof MainActivity ? (MainActivity) viewContext : null;
+    }
+
+    /**
+     * Queue a sync_batched_multi_sheet submission in the durable outbox and start the uploader
+     * Expected format: the "batches" object the web app builds, e.g.
+     * {"Yoga": [[name, appNumber, appId, hostelId, allocation, time, status, reason, date], ...]}
+     * The result is delivered later through window.onNativeSyncResult(result)
+     * @return Number of date + category sections queued, or -1 on error
+     */
+    @JavascriptInterface
+    public int enqueueSync(String batchesJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("enqueueSync", batchesJson);
+        try {
+            JSONObject batches = new JSONObject(batchesJson);
+            AttendanceDatabase database = AttendanceDatabase.getInstance(context);
+            int queued = 0;
+
+            Iterator<String> categories = batches.keys();
+            while (categories.hasNext()) {
+                String category = categories.next();
+                JSONArray rows = batches.getJSONArray(category);
+
+                // Split by date (column 9) so each outbox entry is one date + category
+                Map<String, JSONArray> rowsByDate = new LinkedHashMap<>();
+                for (int i = 0; i < rows.length(); i++) {
+                    JSONArray row = rows.getJSONArray(i);
+                    String date = row.optString(8, "");
+                    JSONArray dateRows = rowsByDate.get(date);
+                    if (dateRows == null) {
+                        dateRows = new JSONArray();
+                        rowsByDate.put(date, dateRows);
+                    }
+                    dateRows.put(row);
+                }
+
+                for (Map.Entry<String, JSONArray> entry : rowsByDate.entrySet()) {
+                    database.enqueueOutbox(entry.getKey(), category, entry.getValue().toString());
+                    queued++;
+                }
+            }
+
+            SyncUploadWorker.enqueue(context);
+            Log.d(TAG, "Queued " + queued + " section(s) for upload");
+            return queued;
+        } catch (Exception e) {
+            Log.e(TAG, "Error queueing sync: " + e.getMessage(), e);
+            return -1;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Number of date + category sections still waiting in the outbox
+     */
+    @JavascriptInterface
+    public int getPendingSyncCount() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getPendingSyncCount");
+        try {
+            return AttendanceDatabase.getInstance(context).pendingOutboxCount();
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Apply a fresh roster from get_students to the native roster
+     * Expected format: [{name, appNumber, appId, hostelId, allocation}, ...]
+     * @return {"added": n, "removed": n, "modified": n, "reordered": bool, "size": n}, or null on error
+     */
+    @JavascriptInterface
+    public String applyRoster(String studentsJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("applyRoster", studentsJson);
+        try {
+            StudentRoster roster = StudentRoster.getInstance(context);
+            Roster.Diff diff = roster.apply(StudentRoster.parse(new JSONArray(studentsJson)));
+
+            JSONObject result = new JSONObject();
+            result.put("added", diff.added);
+            result.put("removed", diff.removed);
+            result.put("modified", diff.modified);
+            result.put("reordered", diff.reordered);
+            result.put("size", roster.size());
+            return call.reply(result.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying roster: " + e.getMessage(), e);
+            return call.reply(null);
+        }
+    }
+
+    /**
+     * Current roster in sheet order, each student with its ordinal
+     */
+    @JavascriptInterface
+    public String getRoster() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getRoster");
+        try {
+            return call.reply(StudentRoster.getInstance(context).toJson().toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading roster: " + e.getMessage(), e);
+            return call.reply("[]");
+        }
+    }
+
+    /**
+     * @return Stable ordinal of a student, or -1 if not in the roster
+     */
+    @JavascriptInterface
+    public int getStudentOrdinal(String appId, String appNumber, String name) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getStudentOrdinal", appId, appNumber, name);
+        try {
+            return StudentRoster.getInstance(context).ordinalOf(AttendanceDatabase.studentKey(appId, appNumber, name));
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Add one student just saved with add_student, without resending the whole roster
+     * @param studentJson {name, appNumber, appId, hostelId, allocation}
+     * @return The student's ordinal, or -1 if already in the roster or on error
+     */
+    @JavascriptInterface
+    public int addRosterStudent(String studentJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("addRosterStudent", studentJson);
+        try {
+            JSONArray array = new JSONArray().put(new JSONObject(studentJson));
+            Roster.Student added = StudentRoster.getInstance(context).add(StudentRoster.parse(array).get(0));
+            return added == null ? -1 : added.ordinal;
+        } catch (Exception e) {
+            Log.e(TAG, "Error adding student: " + e.getMessage(), e);
+            return -1;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Search the roster by name, Application Number, Application ID or hostel ID
+     * Prefix and substring matches first, typo matches only when there are none
+     * @param limit Most results, 0 for all
+     * @return {"size": roster size, "names": [...]} best first, or null on error
+     */
+    @JavascriptInterface
+    public String searchStudents(String query, int limit) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("searchStudents", query);
+        try {
+            StudentRoster roster = StudentRoster.getInstance(context);
+            JSONArray names = new JSONArray();
+            int size;
+            synchronized (roster) {
+                size = roster.size();
+                for (Roster.Student student : roster.search(query, limit)) {
+                    names.put(student.name);
+                }
+            }
+            JSONObject result = new JSONObject();
+            result.put("size", size);
+            result.put("names", names);
+            return call.reply(result.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error searching students: " + e.getMessage(), e);
+            return call.reply(null);
+        }
+    }
+
+    /**
+     * @return Student with this ordinal as JSON, or null if unknown
+     */
+    @JavascriptInterface
+    public String getStudentByOrdinal(int ordinal) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getStudentByOrdinal");
+        Roster.Student student = StudentRoster.getInstance(context).get(ordinal);
+        try {
+            return call.reply(student == null ? null : StudentRoster.toJson(student).toString());
+        } catch (Exception e) {
+            return call.reply(null);
+        }
+    }
+
+    /**
+     * Apps Script request through the native response cache
+     * Read actions are answered from cache immediately and revalidated in the background;
+     * the answer arrives through window.onNativeCacheResponse(callbackId, ok, body, fromCache, storedAt)
+     * and a newer one later through window.onNativeCacheRevalidated(request, body)
+     */
+    @JavascriptInterface
+    public void cachedRequest(final String callbackId, final String requestJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("cachedRequest", callbackId, requestJson);
+        try {
+            ScriptResponseCache.getInstance(context).request(new AppsScriptClient(AppsScriptClient.endpoint(context)),
+                requestJson, new ScriptResponseCache.Listener() {
+                    @Override
+                    public void onResponse(String body, boolean fromCache, long storedAt) {
+                        evaluateJavascript("window.onNativeCacheResponse(" + JSONObject.quote(callbackId)
+                            + ", true, " + JSONObject.quote(body) + ", " + fromCache + ", " + storedAt + ");");
+                    }
+
+                    @Override
+                    public void onRevalidated(String body) {
+                        evaluateJavascript("window.onNativeCacheRevalidated(" + JSONObject.quote(requestJson)
+                            + ", " + JSONObject.quote(body) + ");");
+                    }
+
+                    @Override
+                    public void onError(String message) {
+                        evaluateJavascript("window.onNativeCacheResponse(" + JSONObject.quote(callbackId)
+                            + ", false, " + JSONObject.quote(String.valueOf(message)) + ", false, 0);");
+                    }
+                });
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Drop cached answers for a date + category (e.g. after a direct sync from the page)
+     */
+    @JavascriptInterface
+    public void invalidateCache(String date, String category) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("invalidateCache", date, category);
+        try {
+            ScriptResponseCache.getInstance(context).invalidate(date, category);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Drop all cached answers of one action (e.g. get_students after add_student)
+     */
+    @JavascriptInterface
+    public void invalidateCachedAction(String action) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("invalidateCachedAction", action);
+        try {
+            ScriptResponseCache.getInstance(context).invalidateAction(action);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Current metrics (bridge calls, page loads, workers, downloads) as JSON
+     * Not instrumented itself, so reading metrics doesn't change them
+     */
+    @JavascriptInterface
+    public String getMetrics() {
+        try {
+            return AppMetrics.toJson(context);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading metrics: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Export metrics to a JSON file and open the share sheet
+     */
+    @JavascriptInterface
+    public void shareMetrics() {
+        try {
+            AppMetrics.share(context);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sharing metrics: " + e.getMessage(), e);
+            showToast("Could not share metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Export a report from the on-device store straight to a file, then open it
+     * Nothing is built in JavaScript or passed through the bridge as Base64.
+     * Completion is reported through window.onNativeExportComplete(id, fileName, rows)
+     * or window.onNativeExportError(id, message).
+     * @param requestJson {"startDate", "endDate", "categories": [...], "format": "csv"|"xlsx",
+     *                    "kind": "summary"|"records"}
+     * @return Export id, or null if the request is invalid
+     */
+    @JavascriptInterface
+    public String exportReport(String requestJson) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("exportReport", requestJson);
+        try {
+            final ReportExporter.Request request = ReportExporter.Request.fromJson(requestJson);
+            final String exportId = UUID.randomUUID().toString();
+            File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
+            File file = new File(downloadsDir, uniqueFileName(request.fileName()));
+            Log.d(TAG, "Report export requested: " + file.getName());
+
+            new ReportExporter(context).export(request, file, new ReportExporter.Listener() {
+                @Override
+                public void onComplete(File file, String mimeType, int rows) {
+                    evaluateJavascript("window.onNativeExportComplete && window.onNativeExportComplete('"
+                        + exportId + "', " + JSONObject.quote(file.getName()) + ", " + rows + ");");
+                    showToast("✓ File saved:\n" + file.getName());
+                    openFile(file, mimeType);
+                }
+
+                @Override
+                public void onError(String message) {
+                    evaluateJavascript("window.onNativeExportError && window.onNativeExportError('"
+                        + exportId + "', " + JSONObject.quote(message) + ");");
+                    showToast("Error exporting report: " + message);
+                }
+            });
+            return call.reply(exportId);
+        } catch (Exception e) {
+            Log.e(TAG, "Bad export request: " + e.getMessage(), e);
+            return call.reply(null);
+        }
+    }
+
+    /**
+     * Take a compressed, incremental backup of the spreadsheet on this device
+     * Reports through window.onNativeBackupComplete(result) or window.onNativeBackupError(message)
+     * @param endpoint Server URL, or empty for the configured one
+     */
+    @JavascriptInterface
+    public void startBackup(String endpoint) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("startBackup", endpoint);
+        try {
+            new BackupManager(context).backup(
+                endpoint == null || endpoint.isEmpty() ? AppsScriptClient.endpoint(context) : endpoint,
+                new BackupListener("Backup"));
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Load the newest on-device backup into the local attendance store
+     * Reports through window.onNativeRestoreComplete(result) or window.onNativeRestoreError(message)
+     */
+    @JavascriptInterface
+    public void restoreBackup() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("restoreBackup");
+        try {
+            new BackupManager(context).restore(new BackupListener("Restore"));
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Newest on-device backup: {"manifest", "createdAt", "backupDate", "snapshots", "totalBytes"}, or null
+     */
+    @JavascriptInterface
+    public String getBackupInfo() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getBackupInfo");
+        return call.reply(new BackupManager(context).latestInfo());
+    }
+
+    /**
+     * URL the app posts its actions to: a self-hosted server, or the Apps Script deployment
+     */
+    @JavascriptInterface
+    public String getServerEndpoint() {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("getServerEndpoint");
+        return call.reply(AppsScriptClient.endpoint(context));
+    }
+
+    /**
+     * Ask to switch the page, workers and caches to another server
+     * The app asks the user in a native dialog, so no page can switch servers on its own;
+     * window.onNativeServerEndpoint(endpoint) follows with the endpoint in use, or null if declined.
+     * @param endpoint Server URL (http/https), or empty for the Apps Script deployment
+     * @return false if the URL was rejected or there is no activity to ask in
+     */
+    @JavascriptInterface
+    public boolean setServerEndpoint(final String endpoint) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("setServerEndpoint", endpoint);
+        final MainActivity activity = hostActivity();
+        if (activity == null || !AppsScriptClient.isValidEndpoint(endpoint)) {
+            call.end();
+            return false;
+        }
+        final String value = endpoint == null ? "" : endpoint;
+        webView.post(() -> activity.confirmServerEndpoint(value, inUse -> evaluateJavascript(
+            "window.onNativeServerEndpoint && window.onNativeServerEndpoint("
+                + (inUse == null ? "null" : JSONObject.quote(inUse)) + ");")));
+        call.end();
+        return true;
+    }
+
+    /**
+     * Backup / restore callbacks (backup thread) - hand the result to the page
+     */
+    private class BackupListener implements BackupManager.Listener {
+        private final String operation;
+
+        BackupListener(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void onComplete(String resultJson) {
+            evaluateJavascript("window.onNative" + operation + "Complete && window.onNative" + operation
+                + "Complete(" + resultJson + ");");
+        }
+
+        @Override
+        public void onError(String message) {
+            evaluateJavascript("window.onNative" + operation + "Error && window.onNative" + operation
+                + "Error(" + JSONObject.quote(message) + ");");
+            showToast(operation + " failed: " + message);
+        }
     }
 
     /**
      * Download file from Base64 data
      * Called by JavaScript when user wants to download a file
+     * Saves to the public Downloads folder; decoding and writing happen off the main thread
      * @param base64Data The file content as Base64 string
      * @param fileName The desired file name
      * @param mimeType The MIME type of the file
      */
     @JavascriptInterface
     public void downloadFile(String base64Data, String fileName, String mimeType) {
-        Log.d(TAG, "Download requested: " + fileName + " (" + mimeType + ")");
-        
-        new Handler(Looper.getMainLooper()).post(() -> {
-            try {
-                // Decode base64 data
-                byte[] fileData = Base64.decode(base64Data, Base64.DEFAULT);
-                
-                // Get Downloads directory
-                File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                if (!downloadsDir.exists()) {
-                    downloadsDir.mkdirs();
-                }
-                
-                // Create unique filename with timestamp
-                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-                String uniqueFileName = addTimestampToFileName(fileName, timestamp);
-                
-                File outputFile = new File(downloadsDir, uniqueFileName);
-                
-                // Write file
-                FileOutputStream fos = new FileOutputStream(outputFile);
-                fos.write(fileData);
-                fos.close();
-                
-                // Show success message
-                showToast("✓ File saved to Downloads:\n" + uniqueFileName);
-                
-                Log.d(TAG, "File saved successfully: " + outputFile.getAbsolutePath());
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error saving file: " + e.getMessage(), e);
-                showToast("Error saving file: " + e.getMessage());
-            }
-        });
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("downloadFile", base64Data, fileName, mimeType);
+        try {
+            Log.d(TAG, "Download requested: " + fileName + " (" + mimeType + ")");
+
+            // Get Downloads directory
+            File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+            String transferId = transfers.begin(new File(downloadsDir, uniqueFileName(fileName)), mimeType, -1);
+            openWhenFinished.put(transferId, Boolean.FALSE);
+            transfers.append(transferId, base64Data);
+            transfers.finish(transferId);
+        } finally {
+            call.end();
+        }
     }
 
     /**
@@ -114,52 +895,124 @@ public class WebAppInterface {
      */
     @JavascriptInterface
     public void downloadFileSimple(String base64Data, String fileName, String mimeType) {
-        Log.d(TAG, "Simple download requested: " + fileName);
-        
-        new Handler(Looper.getMainLooper()).post(() -> {
-            try {
-                // Decode base64 data
-                byte[] fileData = Base64.decode(base64Data, Base64.DEFAULT);
-                
-                // Use app's external files directory (no permissions needed)
-                File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
-                if (!downloadsDir.exists()) {
-                    downloadsDir.mkdirs();
-                }
-                
-                // Create unique filename
-                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-                String uniqueFileName = addTimestampToFileName(fileName, timestamp);
-                
-                File outputFile = new File(downloadsDir, uniqueFileName);
-                
-                // Write file
-                FileOutputStream fos = new FileOutputStream(outputFile);
-                fos.write(fileData);
-                fos.close();
-                
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("downloadFileSimple", base64Data, fileName, mimeType);
+        try {
+            Log.d(TAG, "Simple download requested: " + fileName);
+
+            String transferId = beginDownload(fileName, mimeType, -1);
+            transfers.append(transferId, base64Data);
+            transfers.finish(transferId);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Start a chunked download into the app's Downloads folder
+     * JavaScript then calls appendDownloadChunk() for each Base64 chunk (in order) and finishDownload()
+     * Progress is reported through window.onNativeDownloadProgress(id, bytesWritten, totalBytes)
+     * @param totalBytes Decoded file size if known, otherwise -1
+     * @return Transfer id
+     */
+    @JavascriptInterface
+    public String beginDownload(String fileName, String mimeType, long totalBytes) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("beginDownload", fileName, mimeType);
+        // Use app's external files directory (no permissions needed)
+        File downloadsDir = new File(context.getExternalFilesDir(null), "Downloads");
+        String transferId = transfers.begin(new File(downloadsDir, uniqueFileName(fileName)), mimeType, totalBytes);
+        openWhenFinished.put(transferId, Boolean.TRUE);
+        Log.d(TAG, "Chunked download started: " + fileName + " (" + transferId + ")");
+        return call.reply(transferId);
+    }
+
+    @JavascriptInterface
+    public void appendDownloadChunk(String transferId, String base64Chunk) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("appendDownloadChunk", transferId, base64Chunk);
+        try {
+            transfers.append(transferId, base64Chunk);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Raw chunk from the message bridge (not a JavaScript interface method: the
+     * synchronous bridge can't carry bytes)
+     */
+    public void appendDownloadBytes(String transferId, byte[] data) {
+        transfers.appendBytes(transferId, data);
+    }
+
+    @JavascriptInterface
+    public void finishDownload(String transferId) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("finishDownload", transferId);
+        try {
+            transfers.finish(transferId);
+        } finally {
+            call.end();
+        }
+    }
+
+    @JavascriptInterface
+    public void cancelDownload(String transferId) {
+        AppMetrics.BridgeCall call = AppMetrics.bridgeCall("cancelDownload", transferId);
+        try {
+            openWhenFinished.remove(transferId);
+            transfers.cancel(transferId);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Transfer callbacks (I/O thread) - report back to the page and the user
+     */
+    private class TransferListener implements DownloadTransferManager.Listener {
+        @Override
+        public void onProgress(String transferId, long bytesWritten, long totalBytes) {
+            evaluateJavascript("window.onNativeDownloadProgress && window.onNativeDownloadProgress('"
+                + transferId + "', " + bytesWritten + ", " + totalBytes + ");");
+        }
+
+        @Override
+        public void onComplete(String transferId, File file, String mimeType) {
+            Boolean open = openWhenFinished.remove(transferId);
+            evaluateJavascript("window.onNativeDownloadComplete && window.onNativeDownloadComplete('"
+                + transferId + "', " + JSONObject.quote(file.getName()) + ");");
+
+            if (Boolean.TRUE.equals(open)) {
                 // Show success message
-                showToast("✓ File saved:\n" + uniqueFileName);
-                
+                showToast("✓ File saved:\n" + file.getName());
                 // Try to open the file
-                openFile(outputFile, mimeType);
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error saving file: " + e.getMessage(), e);
-                showToast("Error: " + e.getMessage());
+                openFile(file, mimeType);
+            } else {
+                showToast("✓ File saved to Downloads:\n" + file.getName());
             }
-        });
+        }
+
+        @Override
+        public void onError(String transferId, String message) {
+            openWhenFinished.remove(transferId);
+            evaluateJavascript("window.onNativeDownloadError && window.onNativeDownloadError('"
+                + transferId + "', " + JSONObject.quote(String.valueOf(message)) + ");");
+            showToast("Error saving file: " + message);
+        }
     }
 
     /**
-     * Add timestamp to filename
+     * Create unique filename with timestamp
      */
-    private String addTimestampToFileName(String fileName, String timestamp) {
-        int dotIndex = fileName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            return fileName.substring(0, dotIndex) + "_" + timestamp + fileName.substring(dotIndex);
-        }
-        return fileName + "_" + timestamp;
+    private String uniqueFileName(String fileName) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        return FileNames.addTimestamp(fileName, timestamp);
+    }
+
+    /**
+     * Run a JavaScript snippet in the page (no-op when there is no WebView)
+     */
+    private void evaluateJavascript(final String js) {
+        if (webView == null) return;
+        webView.post(() -> webView.evaluateJavascript(js, null));
     }
 
     /**
@@ -0,0 +1,104 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.webkit.WebViewAssetLoader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+
+/**
+ * WebAssetServer
+ * Serves the web app bundled in the APK (assets/www) to the WebView through WebViewAssetLoader
+ * A newer bundle downloaded by WebBundleUpdater takes precedence once it has been activated
+ */
+public class WebAssetServer {
+
+    private static final String TAG = "WebAssetServer";
+
+    // Local origin - requests to this URL never leave the device
+    public static final String LOCAL_APP_URL =
+        "https://" + WebViewAssetLoader.DEFAULT_DOMAIN + "/www/index.html";
+
+    private static final String ASSET_ROOT = "www/";
+
+    private final WebViewAssetLoader assetLoader;
+
+    public WebAssetServer(Context context) {
+        // Swap in a bundle downloaded during the previous launch before serving anything
+        WebBundleUpdater.activatePendingBundle(context);
+
+        assetLoader = new WebViewAssetLoader.Builder()
+            .addPathHandler("/www/", new BundlePathHandler(context))
+            .build();
+    }
+
+    /**
+     * Whether a URL is one of the app's own pages (the bundled app, or the one-time legacy export page)
+     * Only those are loaded in the WebView, which carries the Android bridge.
+     */
+    public static boolean isAppUrl(Uri url) {
+        if (LegacyStorageMigration.EXPORT_URL.equals(url.toString())) return true;
+        return "https".equals(url.getScheme()) && WebViewAssetLoader.DEFAULT_DOMAIN.equals(url.getHost());
+    }
+
+    /**
+     * Called from WebViewClient.shouldInterceptRequest
+     * @return Local response, or null to let the WebView load the URL from the network
+     */
+    @Nullable
+    public WebResourceResponse intercept(Uri url) {
+        WebResourceResponse legacyExport = LegacyStorageMigration.intercept(url);
+        if (legacyExport != null) return legacyExport;
+        return assetLoader.shouldInterceptRequest(url);
+    }
+
+    /**
+     * Serves a path from the activated remote bundle if present, otherwise from APK assets
+     */
+    private static class BundlePathHandler implements WebViewAssetLoader.PathHandler {
+        private final Context context;
+        private final File bundleDir;
+
+        BundlePathHandler(Context context) {
+            this.context = context.getApplicationContext();
+            this.bundleDir = WebBundleUpdater.currentBundleDir(context);
+        }
+
+        @Nullable
+        @Override
+        public WebResourceResponse handle(@NonNull String path) {
+            if (path.isEmpty()) {
+                path = "index.html";
+            }
+            try {
+                InputStream in;
+                File downloaded = new File(bundleDir, path);
+                if (downloaded.isFile() && downloaded.getCanonicalPath().startsWith(bundleDir.getCanonicalPath())) {
+                    in = new FileInputStream(downloaded);
+                } else {
+                    in = context.getAssets().open(ASSET_ROOT + path);
+                }
+                return new WebResourceResponse(mimeTypeFor(path), null, in);
+            } catch (IOException e) {
+                Log.e(TAG, "Asset not found: " + path);
+                return new WebResourceResponse(null, null, null);
+            }
+        }
+    }
+
+    private static String mimeTypeFor(String path) {
+        if (path.endsWith(".js")) return "text/javascript";
+        if (path.endsWith(".css")) return "text/css";
+        if (path.endsWith(".html")) return "text/html";
+        if (path.endsWith(".json")) return "application/json";
+        String guessed = URLConnection.guessContentTypeFromName(path);
+        return guessed != null ? guessed : "application/octet-stream";
+    }
+}
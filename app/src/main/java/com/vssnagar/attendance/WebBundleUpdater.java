@@ -0,0 +1,330 @@
+package com.vssnagar.attendance;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Base64;
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WebBundleUpdater
+ * Optional background check for a newer web app on GitHub Pages
+ * A changed bundle is downloaded completely into a staging folder and only activated
+ * on the next launch, so the page never mixes files from two versions
+ * The bundle is trusted only if bundle-manifest.json is signed with the key pinned in the APK
+ * (BuildConfig.WEB_BUNDLE_PUBLIC_KEY, see the signWebBundle task) and every file matches the
+ * SHA-256 the manifest lists; a build without a key never downloads a bundle.
+ */
+public class WebBundleUpdater {
+
+    private static final String TAG = "WebBundleUpdater";
+
+    // Where the web app is published (same files the APK bundles under assets/www)
+    private static final String REMOTE_BASE_URL = "https://vaibhav1305-iitm.github.io/hostel-attendance-app/";
+
+    // Keep in sync with the bundleWebAssets task in app/build.gradle
+    static final String[] BUNDLE_FILES = {
+        "index.html",
+        "attendance.css",
+        "attendance-overrides.css",
+        "banner-animation.css",
+        "view-only-button.css",
+        "view-only-functions.js",
+        "past-date-dialog.js",
+        "manifest.json",
+        "hostel_app_icon.png"
+    };
+
+    // Published next to the files by the signWebBundle task in app/build.gradle
+    private static final String MANIFEST_FILE = "bundle-manifest.json";
+    private static final String SIGNATURE_FILE = "bundle-manifest.sig";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+    private static final long CHECK_INTERVAL_MS = 6 * 60 * 60 * 1000;
+    private static final String KEY_CHECKED_AT = "web_bundle_checked_at";
+    private static final String KEY_ETAG = "web_bundle_etag";
+    // createdAt of the last accepted manifest - an older signed bundle is never taken again
+    private static final String KEY_CREATED_AT = "web_bundle_created_at";
+
+    private static final String BUNDLE_ROOT = "web-bundle";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private WebBundleUpdater() {
+    }
+
+    static File currentBundleDir(Context context) {
+        return new File(context.getFilesDir(), BUNDLE_ROOT + "/current");
+    }
+
+    private static File pendingBundleDir(Context context) {
+        return new File(context.getFilesDir(), BUNDLE_ROOT + "/next");
+    }
+
+    private static File stagingDir(Context context) {
+        return new File(context.getFilesDir(), BUNDLE_ROOT + "/staging");
+    }
+
+    /**
+     * Promote a bundle downloaded during an earlier launch
+     * Also drops a downloaded bundle (pending or active) that is older than the installed APK
+     */
+    static synchronized void activatePendingBundle(Context context) {
+        File current = currentBundleDir(context);
+        File pending = pendingBundleDir(context);
+        long apkUpdateTime = apkUpdateTime(context);
+
+        if (pending.isDirectory() && pending.lastModified() < apkUpdateTime) {
+            // Downloaded before the APK was updated - its bundled assets are newer
+            deleteRecursively(pending);
+            Log.d(TAG, "Discarded pending web bundle older than the installed APK");
+        }
+
+        if (pending.isDirectory()) {
+            deleteRecursively(current);
+            if (pending.renameTo(current)) {
+                Log.d(TAG, "Activated downloaded web bundle");
+            }
+        } else if (current.isDirectory() && current.lastModified() < apkUpdateTime) {
+            // APK was updated after the download - its bundled assets are newer
+            deleteRecursively(current);
+            Log.d(TAG, "Discarded web bundle older than the installed APK");
+        }
+    }
+
+    /**
+     * Check GitHub Pages for a changed bundle manifest in the background (at most every 6 hours)
+     */
+    public static void checkForUpdate(final Context context) {
+        if (BuildConfig.WEB_BUNDLE_PUBLIC_KEY.isEmpty()) {
+            // Nothing to verify a download against - stay on the bundled assets
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            AttendanceDatabase database = AttendanceDatabase.getInstance(appContext);
+            String checkedAt = database.getValue(KEY_CHECKED_AT);
+            long now = System.currentTimeMillis();
+            if (checkedAt != null && now - Long.parseLong(checkedAt) < CHECK_INTERVAL_MS) {
+                return;
+            }
+
+            try {
+                downloadIfChanged(appContext, database);
+                database.putValue(KEY_CHECKED_AT, String.valueOf(now));
+            } catch (IOException e) {
+                Log.e(TAG, "Bundle update check failed: " + e.getMessage());
+            } finally {
+                deleteRecursively(stagingDir(appContext));
+            }
+        });
+    }
+
+    private static void downloadIfChanged(Context context, AttendanceDatabase database) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(REMOTE_BASE_URL + MANIFEST_FILE).openConnection();
+        connection.setConnectTimeout(15000);
+        connection.setReadTimeout(30000);
+        String etag = database.getValue(KEY_ETAG);
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+
+        try {
+            int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                Log.d(TAG, "Web bundle is up to date");
+                return;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " for " + MANIFEST_FILE);
+            }
+
+            byte[] manifestBytes = readFully(connection.getInputStream());
+            byte[] signature = Base64.decode(fetch(REMOTE_BASE_URL + SIGNATURE_FILE), Base64.DEFAULT);
+            verifySignature(manifestBytes, signature);
+
+            JSONObject manifest;
+            JSONObject hashes;
+            try {
+                manifest = new JSONObject(new String(manifestBytes, UTF_8));
+                hashes = manifest.getJSONObject("files");
+            } catch (Exception e) {
+                throw new IOException("Unreadable " + MANIFEST_FILE + ": " + e.getMessage());
+            }
+            long createdAt = manifest.optLong("createdAt");
+            String accepted = database.getValue(KEY_CREATED_AT);
+            if (accepted != null && createdAt <= Long.parseLong(accepted)) {
+                Log.d(TAG, "Signed bundle is not newer than the one already taken");
+                return;
+            }
+
+            File staging = stagingDir(context);
+            deleteRecursively(staging);
+            staging.mkdirs();
+
+            for (String name : BUNDLE_FILES) {
+                String expected = hashes.optString(name, null);
+                if (expected == null) {
+                    throw new IOException(MANIFEST_FILE + " does not list " + name);
+                }
+                File target = new File(staging, name);
+                String actual = download(REMOTE_BASE_URL + name, target);
+                if (!actual.equalsIgnoreCase(expected)) {
+                    throw new IOException(name + " does not match " + MANIFEST_FILE);
+                }
+            }
+
+            // Complete bundle - hand it over for the next launch
+            synchronized (WebBundleUpdater.class) {
+                File pending = pendingBundleDir(context);
+                deleteRecursively(pending);
+                if (!staging.renameTo(pending)) {
+                    throw new IOException("Could not stage web bundle");
+                }
+            }
+
+            database.putValue(KEY_CREATED_AT, String.valueOf(createdAt));
+            String newEtag = connection.getHeaderField("ETag");
+            if (newEtag != null) {
+                database.putValue(KEY_ETAG, newEtag);
+            }
+            Log.d(TAG, "Downloaded new web bundle - active on next launch");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * The manifest must be signed by the key pinned in the APK
+     */
+    private static void verifySignature(byte[] manifest, byte[] signature) throws IOException {
+        try {
+            byte[] keyBytes = Base64.decode(BuildConfig.WEB_BUNDLE_PUBLIC_KEY, Base64.DEFAULT);
+            PublicKey key = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(keyBytes));
+            Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
+            verifier.initVerify(key);
+            verifier.update(manifest);
+            if (!verifier.verify(signature)) {
+                throw new IOException(MANIFEST_FILE + " signature does not match the pinned key");
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IOException("Could not verify " + MANIFEST_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] fetch(String url) throws IOException {
+        HttpURLConnection connection = openGet(url);
+        try {
+            return readFully(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return SHA-256 of the downloaded file (lowercase hex)
+     */
+    private static String download(String url, File target) throws IOException {
+        HttpURLConnection connection = openGet(url);
+        try {
+            return copy(connection.getInputStream(), target);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection openGet(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(15000);
+        connection.setReadTimeout(30000);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            int code = connection.getResponseCode();
+            connection.disconnect();
+            throw new IOException("HTTP " + code + " for " + url);
+        }
+        return connection;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Copy to a file, hashing on the way
+     * @return SHA-256 of the bytes copied (lowercase hex)
+     */
+    private static String copy(InputStream in, File target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e.getMessage());
+        }
+        OutputStream out = new FileOutputStream(target);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static long apkUpdateTime(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
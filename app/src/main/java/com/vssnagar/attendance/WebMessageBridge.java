@@ -0,0 +1,233 @@
+package com.vssnagar.attendance;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WebMessageBridge
+ * Batched, asynchronous channel between the page and WebAppInterface over a WebMessagePort
+ * After each page load the page gets one end of a message channel. It sends all calls made
+ * during a frame as one message: {"calls": [{"id": 1, "method": "upsertAttendance", "args": [...]}, ...]}
+ * and gets one message back per batch: {"replies": [{"id": 1, "ok": true, "value": 45}, ...]}.
+ * Binary payloads travel as a header {"binary": {"id", "method", "args"}} followed by an ArrayBuffer,
+ * so download chunks skip the Base64 round trip.
+ * Calls run in order on one background thread, never on the main thread or the JavaBridge thread.
+ */
+public class WebMessageBridge {
+
+    private static final String TAG = "WebMessageBridge";
+
+    // First message of a channel; the page only adopts a port that comes with it
+    private static final String INIT_TYPE = "vss-bridge-init";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final WebAppInterface target;
+    // @JavascriptInterface methods by name (no overloads on WebAppInterface)
+    private final Map<String, Method> methods = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private WebMessagePortCompat port;
+    // Header waiting for its ArrayBuffer (main thread only)
+    private JSONObject pendingBinary;
+
+    public WebMessageBridge(WebAppInterface target) {
+        this.target = target;
+        for (Method method : WebAppInterface.class.getMethods()) {
+            if (method.isAnnotationPresent(JavascriptInterface.class)) {
+                methods.put(method.getName(), method);
+            }
+        }
+    }
+
+    /**
+     * True if this WebView can create message channels; otherwise the page keeps using
+     * the synchronous Android interface
+     */
+    public static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE);
+    }
+
+    /**
+     * Hand a fresh channel to the page that just finished loading (main thread)
+     * The previous page's port is closed
+     */
+    public void attach(WebView webView) {
+        if (!isSupported()) return;
+        close();
+
+        WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+        port = ports[0];
+        final WebMessagePortCompat ownPort = port;
+        port.setWebMessageCallback(mainHandler, new WebMessagePortCompat.WebMessageCallbackCompat() {
+            @Override
+            public void onMessage(WebMessagePortCompat source, WebMessageCompat message) {
+                if (source == ownPort && ownPort == port) {
+                    receive(message);
+                }
+            }
+        });
+
+        boolean binary = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+        String init = "{\"type\":\"" + INIT_TYPE + "\",\"binary\":" + binary + "}";
+        // Only the bundled app's origin may receive the port
+        Uri appOrigin = Uri.parse(WebAssetServer.LOCAL_APP_URL).buildUpon().path("").build();
+        WebViewCompat.postWebMessage(webView,
+            new WebMessageCompat(init, new WebMessagePortCompat[]{ports[1]}), appOrigin);
+        Log.d(TAG, "Message channel attached (binary: " + binary + ")");
+    }
+
+    public void close() {
+        if (port != null) {
+            port.close();
+            port = null;
+        }
+        pendingBinary = null;
+    }
+
+    private void receive(WebMessageCompat message) {
+        try {
+            if (message.getType() == WebMessageCompat.TYPE_ARRAY_BUFFER) {
+                JSONObject header = pendingBinary;
+                pendingBinary = null;
+                if (header == null) {
+                    Log.e(TAG, "ArrayBuffer without a header - dropped");
+                    return;
+                }
+                dispatchBinary(header, message.getArrayBuffer());
+                return;
+            }
+
+            String data = message.getData();
+            if (data == null) return;
+            JSONObject json = new JSONObject(data);
+            if (json.has("binary")) {
+                pendingBinary = json.getJSONObject("binary");
+            } else {
+                dispatch(json.optJSONArray("calls"), data.length());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Bad bridge message: " + e.getMessage(), e);
+        }
+    }
+
+    private void dispatch(final JSONArray calls, final int messageChars) {
+        if (calls == null || calls.length() == 0) return;
+        AppMetrics.portBatch(calls.length(), 2L * messageChars);
+        final WebMessagePortCompat replyPort = port;
+
+        EXECUTOR.execute(() -> {
+            JSONArray replies = new JSONArray();
+            for (int i = 0; i < calls.length(); i++) {
+                JSONObject call = calls.optJSONObject(i);
+                if (call == null) continue;
+                replies.put(invoke(call.optInt("id"), call.optString("method"), call.optJSONArray("args")));
+            }
+            reply(replyPort, replies);
+        });
+    }
+
+    private void dispatchBinary(final JSONObject header, final byte[] data) {
+        AppMetrics.portBatch(1, data.length);
+        final WebMessagePortCompat replyPort = port;
+
+        EXECUTOR.execute(() -> {
+            JSONArray replies = new JSONArray();
+            int id = header.optInt("id");
+            String method = header.optString("method");
+            JSONArray args = header.optJSONArray("args");
+            try {
+                if ("appendDownloadBytes".equals(method) && args != null) {
+                    target.appendDownloadBytes(args.getString(0), data);
+                    replies.put(result(id, true, JSONObject.NULL));
+                } else {
+                    replies.put(result(id, false, "Unknown binary method: " + method));
+                }
+            } catch (Exception e) {
+                replies.put(result(id, false, String.valueOf(e.getMessage())));
+            }
+            reply(replyPort, replies);
+        });
+    }
+
+    /**
+     * Run one call against WebAppInterface, converting JSON arguments to the parameter types
+     */
+    private JSONObject invoke(int id, String name, JSONArray args) {
+        Method method = methods.get(name);
+        if (method == null) {
+            return result(id, false, "Unknown method: " + name);
+        }
+        try {
+            Class<?>[] types = method.getParameterTypes();
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                Object arg = args != null ? args.opt(i) : null;
+                values[i] = convert(arg == JSONObject.NULL ? null : arg, types[i]);
+            }
+            Object value = method.invoke(target, values);
+            return result(id, true, value == null ? JSONObject.NULL : value);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Log.e(TAG, "Bridge call " + name + " failed: " + cause.getMessage(), cause);
+            return result(id, false, String.valueOf(cause.getMessage()));
+        } catch (Exception e) {
+            return result(id, false, name + ": " + e.getMessage());
+        }
+    }
+
+    private static Object convert(Object arg, Class<?> type) {
+        if (type == String.class) {
+            return arg == null ? null : arg.toString();
+        }
+        Number number = arg instanceof Number ? (Number) arg : null;
+        if (type == int.class) return number != null ? number.intValue() : 0;
+        if (type == long.class) return number != null ? number.longValue() : 0L;
+        if (type == double.class) return number != null ? number.doubleValue() : 0d;
+        if (type == boolean.class) return Boolean.TRUE.equals(arg);
+        throw new IllegalArgumentException("Unsupported parameter type " + type.getSimpleName());
+    }
+
+    private static JSONObject result(int id, boolean ok, Object value) {
+        JSONObject result = new JSONObject();
+        try {
+            result.put("id", id);
+            result.put("ok", ok);
+            result.put(ok ? "value" : "error", value);
+        } catch (Exception ignored) {
+            // JSONObject.put only throws for non-finite numbers
+        }
+        return result;
+    }
+
+    /**
+     * Post a batch of replies, unless the page that asked has been replaced meanwhile
+     */
+    private void reply(final WebMessagePortCompat replyPort, JSONArray replies) {
+        final String message = "{\"replies\":" + replies + "}";
+        mainHandler.post(() -> {
+            if (replyPort != null && replyPort == port) {
+                port.postMessage(new WebMessageCompat(message));
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.vssnagar.attendance;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.webkit.WebChromeClient;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+/**
+ * WebViewPrewarmer
+ * Creates and configures the app's WebView and, during the splash screen, starts
+ * Chromium and the page load early so MainActivity can adopt an already-loading WebView
+ * All methods must be called on the main thread
+ */
+public final class WebViewPrewarmer {
+
+    private static WebView prewarmed;
+
+    private WebViewPrewarmer() {
+    }
+
+    /**
+     * Create the WebView on the application context and start loading the web app
+     * @param listener Notified of page load events until the WebView is taken
+     */
+    public static void start(Context context, AppWebViewClient.PageListener listener) {
+        if (prewarmed != null) return;
+
+        StartupTimings.mark("webview_create_start");
+        // MutableContextWrapper lets the WebView move to MainActivity's context later
+        WebView webView = createWebView(new MutableContextWrapper(context.getApplicationContext()));
+        StartupTimings.mark("webview_created");
+
+        clientOf(webView).setPageListener(listener);
+        webView.loadUrl(LegacyStorageMigration.startUrl(context));
+        prewarmed = webView;
+    }
+
+    /**
+     * Hand the pre-warmed WebView to an activity
+     * @return The WebView (possibly still loading), or null if none was pre-warmed
+     */
+    public static WebView take(Activity activity) {
+        WebView webView = prewarmed;
+        prewarmed = null;
+        if (webView == null) return null;
+
+        if (webView.getContext() instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) webView.getContext()).setBaseContext(activity);
+        }
+        clientOf(webView).setPageListener(null);
+        return webView;
+    }
+
+    /**
+     * Destroy the pre-warmed WebView, e.g. when its renderer died before it was taken
+     */
+    public static void discard() {
+        WebView webView = prewarmed;
+        prewarmed = null;
+        if (webView != null) {
+            webView.destroy();
+        }
+    }
+
+    /**
+     * Create a WebView with the app's settings, JavaScript bridge and client
+     */
+    public static WebView createWebView(Context context) {
+        WebView webView = new WebView(context);
+        WebSettings webSettings = webView.getSettings();
+        
+        // Enable JavaScript (required for the web app to work)
+        webSettings.setJavaScriptEnabled(true);
+        
+        // Allow DOM storage (sometimes needed for web apps)
+        webSettings.setDomStorageEnabled(true);
+        
+        // Enable zoom controls (optional - you can remove if you don't want zoom)
+        webSettings.setBuiltInZoomControls(true);
+        webSettings.setDisplayZoomControls(false); // Hide the zoom buttons
+        
+        // Make the WebView fit the screen properly
+        webSettings.setLoadWithOverviewMode(true);
+        webSettings.setUseWideViewPort(true);
+        
+        // Allow mixed content (http in https)
+        webSettings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+
+        // Add JavaScript Interface for communication with web app
+        // This is how the web app can send download data to Android
+        WebAppInterface bridge = new WebAppInterface(context.getApplicationContext(), webView);
+        webView.addJavascriptInterface(bridge, "Android");
+
+        // Set WebChromeClient for better JavaScript support
+        webView.setWebChromeClient(new WebChromeClient());
+
+        // Serves bundled assets and keeps all links INSIDE the app
+        // The same interface is also reachable as batched async messages (see WebMessageBridge)
+        AppWebViewClient client = new AppWebViewClient(new WebAssetServer(context), new WebMessageBridge(bridge));
+        webView.setWebViewClient(client);
+        webView.setTag(client);
+        return webView;
+    }
+
+    /**
+     * The AppWebViewClient installed by createWebView()
+     */
+    public static AppWebViewClient clientOf(WebView webView) {
+        return (AppWebViewClient) webView.getTag();
+    }
+}
@@ -0,0 +1,84 @@
+package com.vssnagar.attendance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * ServerStatusCheckerTest
+ * get_sync_status against a local stand-in server (cache disabled)
+ */
+public class ServerStatusCheckerTest {
+
+    @Rule
+    public final StubScriptServer server = new StubScriptServer();
+
+    private ServerStatusChecker checker;
+
+    @Before
+    public void createChecker() {
+        checker = new ServerStatusChecker(new AppsScriptClient(server.endpoint()), null);
+    }
+
+    @Test
+    public void countsAreReadForTheRequestedDate() throws Exception {
+        server.respond("{\"result\":\"success\",\"data\":{"
+            + "\"2026-01-21\":{\"Yoga\":99},"
+            + "\"2026-01-22\":{\"Yoga\":45,\"Mess Day\":50,\"Night Shift\":\"n/a\",\"Library\":7}}}");
+
+        ServerStatusChecker.Counts counts = checker.fetch("2026-01-22", 50);
+
+        JSONObject request = new JSONObject(server.received());
+        assertEquals("get_sync_status", request.getString("action"));
+        assertEquals("2026-01-22", request.getJSONArray("dates").getString(0));
+        assertEquals(50, request.getInt("totalStudents"));
+
+        assertEquals("2026-01-22", counts.date);
+        assertArrayEquals(new int[]{45, 50, 0, 0}, counts.perCategory);
+        assertEquals(Arrays.asList("Mess Night", "Night Shift"), counts.incompleteSections(50));
+    }
+
+    @Test
+    public void missingDateCountsAsEmpty() throws Exception {
+        server.respond("{\"result\":\"success\",\"data\":{}}");
+
+        ServerStatusChecker.Counts counts = checker.fetch("2026-01-22", 50);
+
+        assertArrayEquals(new int[4], counts.perCategory);
+    }
+
+    @Test
+    public void serverErrorThrows() throws Exception {
+        server.respond("{\"result\":\"error\",\"error\":\"Quota exceeded\"}");
+        assertFetchFails("get_sync_status failed: Quota exceeded");
+    }
+
+    @Test
+    public void htmlPageThrows() throws Exception {
+        server.respond(200, "text/html", "<html><body>Service unavailable</body></html>");
+        assertFetchFails("get_sync_status returned invalid JSON");
+    }
+
+    @Test
+    public void httpErrorThrows() throws Exception {
+        server.respond(503, "text/plain", "Service unavailable");
+        assertFetchFails("HTTP 503");
+    }
+
+    private void assertFetchFails(String messageStart) {
+        try {
+            checker.fetch("2026-01-22", 50);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(messageStart));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.vssnagar.attendance;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.rules.ExternalResource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+
+/**
+ * StubScriptServer
+ * Local stand-in for the Apps Script endpoint, started and stopped around each test (@Rule)
+ * Answers every POST to /exec with the configured status and body and keeps the last request body
+ */
+class StubScriptServer extends ExternalResource {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private HttpServer server;
+    // What the server answers next, and what it last received
+    private volatile int status = 200;
+    private volatile String responseBody = "";
+    private volatile String contentType = "application/json";
+    private volatile String received;
+
+    @Override
+    protected void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/exec", exchange -> {
+            received = read(exchange.getRequestBody());
+            byte[] body = responseBody.getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        });
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+    }
+
+    /**
+     * URL to hand to AppsScriptClient
+     */
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/exec";
+    }
+
+    /**
+     * Answer the next requests with this JSON body (HTTP 200)
+     */
+    void respond(String body) {
+        respond(200, "application/json", body);
+    }
+
+    void respond(int status, String contentType, String body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.responseBody = body;
+    }
+
+    /**
+     * Body of the last request, or null if none arrived
+     */
+    String received() {
+        return received;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return new String(buffer.toByteArray(), UTF_8);
+    }
+}
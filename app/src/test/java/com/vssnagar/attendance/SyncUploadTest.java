@@ -0,0 +1,209 @@
+package com.vssnagar.attendance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SyncUploadTest
+ * Outbox diffing, the upload payload and response handling against a local stand-in server
+ */
+public class SyncUploadTest {
+
+    @Rule
+    public final StubScriptServer server = new StubScriptServer();
+    // A second server, as after a switch of the endpoint
+    @Rule
+    public final StubScriptServer otherServer = new StubScriptServer();
+
+    @Test
+    public void deltaLeavesOutAcknowledgedRows() throws Exception {
+        Map<String, String> acked = new HashMap<>();
+        acked.put("appId_APP1", "Present");
+        acked.put("appNum_202", "Present");
+
+        SyncDelta delta = SyncDelta.of(entry("2026-01-05", "Yoga",
+            row("Asha", "101", "APP1", "Present"),
+            row("Bhavin", "202", "", "Absent"),
+            row("Chirag", "", "N/A", "Leave")), acked);
+
+        assertEquals(1, delta.unchanged);
+        assertEquals(2, delta.changed.length());
+        assertEquals("Bhavin", delta.changed.getJSONArray(0).getString(0));
+        assertEquals("Chirag", delta.changed.getJSONArray(1).getString(0));
+        assertEquals("Leave", delta.statuses.get("name_Chirag"));
+        assertEquals(3, delta.statuses.size());
+    }
+
+    @Test
+    public void switchedEndpointGetsTheFullSection() throws Exception {
+        MemoryAckStore acks = new MemoryAckStore();
+        server.respond("{\"result\":\"success\",\"stats\":{\"updated\":0,\"inserted\":2,\"skipped\":0}}");
+        upload(acks, server.endpoint(), entry("2026-01-05", "Yoga",
+            row("Asha", "101", "APP1", "Present"),
+            row("Bhavin", "202", "", "Absent")));
+
+        AttendanceDatabase.OutboxEntry changed = entry("2026-01-05", "Yoga",
+            row("Asha", "101", "APP1", "Present"),
+            row("Bhavin", "202", "", "Present"));
+        // Same server: only Bhavin's change
+        assertEquals(1, SyncDelta.of(acks, null, changed, server.endpoint()).changed.length());
+
+        // The other server never confirmed anything - it gets the whole section
+        otherServer.respond("{\"result\":\"success\",\"stats\":{\"updated\":0,\"inserted\":2,\"skipped\":0}}");
+        upload(acks, otherServer.endpoint(), changed);
+        JSONArray sent = new JSONObject(otherServer.received()).getJSONObject("batches").getJSONArray("Yoga");
+        assertEquals(2, sent.length());
+        assertEquals("Asha", sent.getJSONArray(0).getString(0));
+
+        // And switching back sends it in full again, since the first server's acknowledgements were replaced
+        assertEquals(2, SyncDelta.of(acks, null, changed, server.endpoint()).changed.length());
+        assertEquals(0, SyncDelta.of(acks, null, changed, otherServer.endpoint()).changed.length());
+    }
+
+    @Test
+    public void payloadMergesChangedRowsPerSheet() throws Exception {
+        Map<String, String> none = Collections.emptyMap();
+        String payload = SyncUploadWorker.buildPayload(Arrays.asList(
+            SyncDelta.of(entry("2026-01-05", "Yoga", row("Asha", "101", "APP1", "Present")), none),
+            SyncDelta.of(entry("2026-01-06", "Yoga", row("Asha", "101", "APP1", "Absent")), none),
+            SyncDelta.of(entry("2026-01-05", "Mess", row("Asha", "101", "APP1", "Present")),
+                Collections.singletonMap("appId_APP1", "Present"))));
+
+        JSONObject json = new JSONObject(payload);
+        assertEquals("sync_batched_multi_sheet", json.getString("action"));
+        JSONObject batches = json.getJSONObject("batches");
+        assertEquals(2, batches.getJSONArray("Yoga").length());
+        // Nothing changed in Mess, so no empty batch is sent
+        assertFalse(batches.has("Mess"));
+    }
+
+    @Test
+    public void successWithFullStatsIsAcknowledged() throws Exception {
+        server.respond("{\"result\":\"success\",\"stats\":{\"updated\":1,\"inserted\":2,\"skipped\":0}}");
+        String payload = SyncUploadWorker.buildPayload(Collections.singletonList(
+            SyncDelta.of(entry("2026-01-05", "Yoga", row("Asha", "101", "APP1", "Present")),
+                Collections.<String, String>emptyMap())));
+
+        SyncResponse response = SyncResponse.parse(new AppsScriptClient(server.endpoint()).post(payload));
+
+        assertEquals(payload, server.received());
+        assertTrue(response.success);
+        assertTrue(response.accountsFor(3));
+        assertFalse(response.accountsFor(4));
+    }
+
+    @Test
+    public void successWithoutStatsIsNotAcknowledged() throws Exception {
+        server.respond("{\"result\":\"success\"}");
+
+        SyncResponse response = SyncResponse.parse(new AppsScriptClient(server.endpoint()).post("{}"));
+
+        assertTrue(response.success);
+        assertFalse(response.accountsFor(1));
+    }
+
+    @Test
+    public void nothingSentIsAcknowledged() {
+        assertTrue(SyncResponse.nothingSent().accountsFor(0));
+    }
+
+    @Test
+    public void serverErrorIsRejection() throws Exception {
+        server.respond("{\"result\":\"error\",\"error\":\"Sheet locked\"}");
+
+        SyncResponse response = SyncResponse.parse(new AppsScriptClient(server.endpoint()).post("{}"));
+
+        assertFalse(response.success);
+        assertEquals("Sheet locked", response.error);
+    }
+
+    @Test
+    public void htmlPageIsRejection() throws Exception {
+        server.respond(200, "text/html", "<!DOCTYPE html><html><body>Service unavailable</body></html>");
+
+        SyncResponse response = SyncResponse.parse(new AppsScriptClient(server.endpoint()).post("{}"));
+
+        assertFalse(response.success);
+        assertTrue(response.error, response.error.startsWith("Invalid response from server: <!DOCTYPE html>"));
+    }
+
+    @Test
+    public void httpErrorThrows() throws Exception {
+        server.respond(500, "text/plain", "Internal error");
+
+        try {
+            new AppsScriptClient(server.endpoint()).post("{}");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("HTTP 500"));
+        }
+    }
+
+    /**
+     * One section through the uploader's steps: diff, post, record what the server confirmed
+     */
+    private static void upload(SyncDelta.AckStore acks, String endpoint, AttendanceDatabase.OutboxEntry entry)
+            throws Exception {
+        List<SyncDelta> deltas = Collections.singletonList(SyncDelta.of(acks, null, entry, endpoint));
+        SyncResponse response = SyncResponse.parse(
+            new AppsScriptClient(endpoint).post(SyncUploadWorker.buildPayload(deltas)));
+        assertTrue(response.success);
+        SyncDelta.acknowledge(acks, endpoint, deltas, response.accountsFor(deltas.get(0).changed.length()));
+    }
+
+    /**
+     * AttendanceDatabase's acknowledgements in memory: each section holds the statuses of the
+     * server that last confirmed it
+     */
+    private static final class MemoryAckStore implements SyncDelta.AckStore {
+        private final Map<String, String> endpoints = new HashMap<>();
+        private final Map<String, Map<String, String>> statuses = new HashMap<>();
+
+        @Override
+        public Map<String, String> ackedStatuses(String endpoint, String date, String category) {
+            String section = date + "|" + category;
+            if (!endpoint.equals(endpoints.get(section))) {
+                return Collections.emptyMap();
+            }
+            return statuses.get(section);
+        }
+
+        @Override
+        public void replaceAcked(String endpoint, String date, String category, Map<String, String> acked) {
+            endpoints.put(date + "|" + category, endpoint);
+            statuses.put(date + "|" + category, new HashMap<>(acked));
+        }
+
+        @Override
+        public void clearAcked(String date, String category) {
+            endpoints.remove(date + "|" + category);
+            statuses.remove(date + "|" + category);
+        }
+    }
+
+    private static AttendanceDatabase.OutboxEntry entry(String date, String category, JSONArray... rows) {
+        AttendanceDatabase.OutboxEntry entry = new AttendanceDatabase.OutboxEntry();
+        entry.date = date;
+        entry.category = category;
+        entry.rowsJson = new JSONArray(Arrays.asList(rows)).toString();
+        return entry;
+    }
+
+    // 9-column sheet row; SyncDelta reads Name (0), Application Number (1), Application ID (2) and Status (6)
+    private static JSONArray row(String name, String appNumber, String appId, String status) {
+        return new JSONArray(Arrays.asList(name, appNumber, appId, "H1", "A", "2026-01-05", status, "", ""));
+    }
+}
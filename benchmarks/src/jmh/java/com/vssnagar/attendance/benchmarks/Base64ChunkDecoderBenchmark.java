@@ -0,0 +1,59 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.Base64ChunkDecoder;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base64ChunkDecoderBenchmark
+ * Download path: a report file decoded from the Base64 chunks JavaScript sends
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Base64ChunkDecoderBenchmark {
+
+    // A year-long Excel export for a large hostel is a few MB
+    @Param({"262144", "4194304"})
+    public int fileBytes;
+
+    @Param({"65536", "1048576"})
+    public int chunkChars;
+
+    private String[] chunks;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        byte[] data = new byte[fileBytes];
+        new Random(11).nextBytes(data);
+        // Benchmarks run on a desktop JVM, so the JDK encoder is fine here
+        String base64 = Base64.getEncoder().encodeToString(data);
+
+        int count = (base64.length() + chunkChars - 1) / chunkChars;
+        chunks = new String[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = base64.substring(i * chunkChars, Math.min(base64.length(), (i + 1) * chunkChars));
+        }
+        buffer = new byte[Base64ChunkDecoder.maxDecodedLength(chunkChars)];
+    }
+
+    @Benchmark
+    public long decodeFile() {
+        Base64ChunkDecoder decoder = new Base64ChunkDecoder();
+        long total = 0;
+        for (String chunk : chunks) {
+            total += decoder.decode(chunk, buffer);
+        }
+        return total + decoder.finish(buffer);
+    }
+}
@@ -0,0 +1,89 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.SyncStatus;
+import com.vssnagar.attendance.core.TrackingEngine;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Fixtures
+ * Deterministic hostel-sized test data (same seed, same data on every run)
+ */
+final class Fixtures {
+
+    private static final String[] FIRST_NAMES = {
+        "Aditya", "Rahul", "Priya", "Sneha", "Vikram", "Anjali", "Rohit", "Kavya", "Arjun", "Meera",
+        "Sanjay", "Pooja", "Karan", "Divya", "Nikhil", "Isha", "Amit", "Neha", "Varun", "Riya"
+    };
+    private static final String[] LAST_NAMES = {
+        "Pachpute", "Sharma", "Patil", "Iyer", "Kulkarni", "Deshmukh", "Reddy", "Nair", "Joshi", "Gupta",
+        "Shinde", "Verma", "Rao", "Pawar", "Mehta", "Kale", "Menon", "Jadhav", "Bose", "Chavan"
+    };
+    private static final String[] STATUSES = {"Present", "Present", "Present", "Present", "Absent", "Leave"};
+
+    private Fixtures() {
+    }
+
+    static List<Roster.Student> roster(int size) {
+        Random random = new Random(42);
+        List<Roster.Student> students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + i;
+            // Roughly one in ten students has no Application ID yet
+            String appId = random.nextInt(10) == 0 ? "N/A" : "APP" + (100000 + i);
+            students.add(new Roster.Student(name, String.valueOf(500000 + i), appId,
+                "H" + (i % 400), "Block " + (char) ('A' + i % 6)));
+        }
+        return students;
+    }
+
+    static List<TrackingEngine.Student> trackingRoster(List<Roster.Student> roster) {
+        List<TrackingEngine.Student> students = new ArrayList<>(roster.size());
+        for (Roster.Student student : roster) {
+            students.add(new TrackingEngine.Student(student.name, student.appId, student.appNumber));
+        }
+        return students;
+    }
+
+    /**
+     * One row per student per day for every category, over dates(days)
+     */
+    static List<List<TrackingEngine.Row>> rows(List<Roster.Student> roster, int days) {
+        Random random = new Random(7);
+        String[] dates = dates(days);
+        List<List<TrackingEngine.Row>> byCategory = new ArrayList<>();
+        for (int c = 0; c < SyncStatus.CATEGORIES.length; c++) {
+            List<TrackingEngine.Row> rows = new ArrayList<>(roster.size() * days);
+            for (String date : dates) {
+                for (Roster.Student student : roster) {
+                    rows.add(new TrackingEngine.Row(date, student.name, student.appId, student.appNumber,
+                        STATUSES[random.nextInt(STATUSES.length)]));
+                }
+            }
+            byCategory.add(rows);
+        }
+        return byCategory;
+    }
+
+    /**
+     * yyyy-MM-dd strings for the n days ending 2026-01-01, oldest first
+     * Fixed rather than relative to today, so every run benchmarks the same dates
+     */
+    static String[] dates(int days) {
+        String[] dates = new String[days];
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2026, Calendar.JANUARY, 1);
+        calendar.add(Calendar.DAY_OF_YEAR, -days);
+        for (int i = 0; i < days; i++) {
+            calendar.add(Calendar.DAY_OF_YEAR, 1);
+            dates[i] = String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,90 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.Roster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * RosterBenchmark
+ * Launch-time roster refresh: diffing an unchanged or slightly changed sheet, and the binary file round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RosterBenchmark {
+
+    @Param({"500", "2000", "5000"})
+    public int students;
+
+    private List<Roster.Student> base;
+    private List<Roster.Student> changed;
+    private Roster roster;
+    private byte[] serialized;
+    private boolean flip;
+
+    @Setup
+    public void setUp() throws IOException {
+        base = Fixtures.roster(students);
+
+        // About 1% of rows edited, added and removed each
+        changed = new ArrayList<>(base);
+        int step = 100;
+        for (int i = 0; i < changed.size(); i += step) {
+            Roster.Student s = changed.get(i);
+            changed.set(i, new Roster.Student(s.name, s.appNumber, s.appId, s.hostelId, "Block Z"));
+        }
+        for (int i = changed.size() - 1; i >= 0; i -= step) {
+            changed.remove(i);
+        }
+        for (int i = 0; i < students / step; i++) {
+            changed.add(new Roster.Student("New Student " + i, String.valueOf(900000 + i), "NEW" + i, "", ""));
+        }
+
+        roster = new Roster();
+        roster.apply(base);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        roster.writeTo(new DataOutputStream(bytes));
+        serialized = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Roster.Diff applyUnchanged() {
+        return roster.apply(base);
+    }
+
+    @Benchmark
+    public Roster.Diff applyOnePercentChanged() {
+        // Alternate so every call sees a real diff
+        flip = !flip;
+        return roster.apply(flip ? changed : base);
+    }
+
+    @Benchmark
+    public Roster load() throws IOException {
+        Roster loaded = new Roster();
+        loaded.readFrom(new DataInputStream(new ByteArrayInputStream(serialized)));
+        return loaded;
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(serialized.length);
+        roster.writeTo(new DataOutputStream(bytes));
+        return bytes.size();
+    }
+}
@@ -0,0 +1,94 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.StatusBits;
+import com.vssnagar.attendance.core.SyncStatus;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * StatusBitsBenchmark
+ * Packed 2-bit attendance: marking a whole section and aggregating a year of sections
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatusBitsBenchmark {
+
+    private static final int DAYS = 365;
+
+    @Param({"500", "2000", "5000"})
+    public int students;
+
+    // [day][category] -> packed statuses
+    private long[][][] year;
+    private int[] codes;
+    private long[] scratch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        codes = new int[students];
+        for (int i = 0; i < students; i++) {
+            codes[i] = 1 + random.nextInt(3);
+        }
+
+        year = new long[DAYS][SyncStatus.CATEGORIES.length][];
+        for (int d = 0; d < DAYS; d++) {
+            for (int c = 0; c < SyncStatus.CATEGORIES.length; c++) {
+                long[] words = new long[0];
+                for (int ordinal = 0; ordinal < students; ordinal++) {
+                    words = StatusBits.ensureCapacity(words, ordinal);
+                    StatusBits.set(words, ordinal, random.nextInt(8) == 0 ? StatusBits.UNMARKED : codes[ordinal]);
+                }
+                year[d][c] = words;
+            }
+        }
+        scratch = new long[(students + 31) / 32];
+    }
+
+    @Benchmark
+    public long[] markSection() {
+        for (int ordinal = 0; ordinal < students; ordinal++) {
+            StatusBits.set(scratch, ordinal, codes[ordinal]);
+        }
+        return scratch;
+    }
+
+    @Benchmark
+    public void markedCountsForYear(Blackhole blackhole) {
+        for (long[][] day : year) {
+            for (long[] section : day) {
+                blackhole.consume(StatusBits.countMarked(section));
+            }
+        }
+    }
+
+    @Benchmark
+    public void presentCountsForYear(Blackhole blackhole) {
+        for (long[][] day : year) {
+            for (long[] section : day) {
+                blackhole.consume(StatusBits.count(section, StatusBits.PRESENT));
+            }
+        }
+    }
+
+    @Benchmark
+    public void incompleteSectionsForYear(Blackhole blackhole) {
+        int[] counts = new int[SyncStatus.CATEGORIES.length];
+        for (long[][] day : year) {
+            for (int c = 0; c < day.length; c++) {
+                counts[c] = StatusBits.countMarked(day[c]);
+            }
+            blackhole.consume(SyncStatus.incompleteSections(counts, students));
+        }
+    }
+}
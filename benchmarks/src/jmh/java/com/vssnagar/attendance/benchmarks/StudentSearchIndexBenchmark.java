@@ -0,0 +1,53 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.Roster;
+import com.vssnagar.attendance.core.StudentSearchIndex;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * StudentSearchIndexBenchmark
+ * Search box queries as they are typed (target: well under 1 ms each), and the index build at roster load
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StudentSearchIndexBenchmark {
+
+    @Param({"500", "2000", "5000"})
+    public int students;
+
+    // One letter (widest result), a name prefix, a typo (fallback pass), two words, an Application ID
+    @Param({"a", "pach", "pachpte", "aditya sh", "app100123"})
+    public String query;
+
+    private Roster roster;
+    private StudentSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        roster = new Roster();
+        roster.apply(Fixtures.roster(students));
+        index = new StudentSearchIndex();
+        index.update(roster);
+    }
+
+    @Benchmark
+    public int[] search() {
+        return index.search(query, 0);
+    }
+
+    @Benchmark
+    public StudentSearchIndex build() {
+        StudentSearchIndex fresh = new StudentSearchIndex();
+        fresh.update(roster);
+        return fresh;
+    }
+}
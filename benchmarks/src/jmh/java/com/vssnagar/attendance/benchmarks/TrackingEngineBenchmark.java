@@ -0,0 +1,51 @@
+package com.vssnagar.attendance.benchmarks;
+
+import com.vssnagar.attendance.core.TrackingEngine;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * TrackingEngineBenchmark
+ * Full tracking run (all categories) over a roster and its attendance rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrackingEngineBenchmark {
+
+    @Param({"500", "2000", "5000"})
+    public int students;
+
+    @Param({"30", "365"})
+    public int days;
+
+    private List<TrackingEngine.Student> roster;
+    private List<List<TrackingEngine.Row>> rows;
+    private String startDate;
+
+    @Setup
+    public void setUp() {
+        roster = Fixtures.trackingRoster(Fixtures.roster(students));
+        rows = Fixtures.rows(Fixtures.roster(students), days);
+        String[] dates = Fixtures.dates(days);
+        startDate = dates[dates.length / 2];
+    }
+
+    @Benchmark
+    public TrackingEngine.Output allDates() {
+        return TrackingEngine.calculate(roster, rows, null, null);
+    }
+
+    @Benchmark
+    public TrackingEngine.Output lastHalf() {
+        return TrackingEngine.calculate(roster, rows, startDate, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.vssnagar.attendance.core;
+
+import java.util.Arrays;
+
+/**
+ * Base64ChunkDecoder
+ * Streaming Base64 decoder for input that arrives in arbitrary pieces
+ * Keeps the partial quad between chunks, skips whitespace, and writes into a
+ * caller-owned buffer so a transfer allocates nothing per chunk
+ * (java.util.Base64 is not available on the app's minimum API level)
+ */
+public final class Base64ChunkDecoder {
+
+    private static final int SKIP = -2;
+    private static final int INVALID = -1;
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) INVALID);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+        VALUES[' '] = SKIP;
+        VALUES['\t'] = SKIP;
+        VALUES['\r'] = SKIP;
+        VALUES['\n'] = SKIP;
+    }
+
+    private int bits;
+    private int pending;
+    private boolean padded;
+
+    /**
+     * Largest number of bytes decode() can produce for a chunk of this length
+     */
+    public static int maxDecodedLength(int chunkLength) {
+        return (chunkLength + 3) / 4 * 3 + 3;
+    }
+
+    /**
+     * Decode one chunk
+     * @param out Buffer of at least maxDecodedLength(chunk.length()) bytes
+     * @return Number of bytes written to out
+     * @throws IllegalArgumentException on a character outside the Base64 alphabet
+     */
+    public int decode(CharSequence chunk, byte[] out) {
+        int written = 0;
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == '=') {
+                padded = true;
+                continue;
+            }
+            int value = c < 128 ? VALUES[c] : INVALID;
+            if (value == SKIP) continue;
+            if (value == INVALID || padded) {
+                throw new IllegalArgumentException("Bad Base64 character at " + i);
+            }
+
+            bits = (bits << 6) | value;
+            if (++pending == 4) {
+                out[written++] = (byte) (bits >> 16);
+                out[written++] = (byte) (bits >> 8);
+                out[written++] = (byte) bits;
+                bits = 0;
+                pending = 0;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Flush a final quad that was cut short (with or without padding) and reset
+     * @return Number of bytes written to out (at most 2)
+     */
+    public int finish(byte[] out) {
+        int written;
+        switch (pending) {
+            case 0:
+                written = 0;
+                break;
+            case 2:
+                out[0] = (byte) (bits >> 4);
+                written = 1;
+                break;
+            case 3:
+                out[0] = (byte) (bits >> 10);
+                out[1] = (byte) (bits >> 2);
+                written = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Truncated Base64 input");
+        }
+        bits = 0;
+        pending = 0;
+        padded = false;
+        return written;
+    }
+}
@@ -0,0 +1,76 @@
+package com.vssnagar.attendance.core;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CsvWriter
+ * RFC 4180 CSV, streamed to a Writer
+ * Starts with a UTF-8 byte order mark so spreadsheet apps pick the right encoding
+ * Text cells that a spreadsheet would run as a formula (=, +, -, @) get a leading apostrophe
+ */
+public final class CsvWriter implements TableWriter {
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write('\uFEFF');
+    }
+
+    @Override
+    public boolean hasSheets() {
+        return false;
+    }
+
+    @Override
+    public void startSheet(String name) {
+        // One flat table
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) out.write(',');
+            if (cells[i] instanceof Number) {
+                writeField(cells[i].toString());
+            } else if (cells[i] != null) {
+                writeField(neutralize(cells[i].toString()));
+            }
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Names and statuses come from the sheet; don't let one like "=HYPERLINK(...)" run on open
+     */
+    static String neutralize(String value) {
+        if (value.isEmpty()) return value;
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' ? "'" + value : value;
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
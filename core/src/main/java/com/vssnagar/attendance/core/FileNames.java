@@ -0,0 +1,22 @@
+package com.vssnagar.attendance.core;
+
+/**
+ * FileNames
+ * Naming helpers for exported files
+ */
+public final class FileNames {
+
+    private FileNames() {
+    }
+
+    /**
+     * "report.xlsx" + "20260122_093000" -> "report_20260122_093000.xlsx"
+     */
+    public static String addTimestamp(String fileName, String timestamp) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            return fileName.substring(0, dotIndex) + "_" + timestamp + fileName.substring(dotIndex);
+        }
+        return fileName + "_" + timestamp;
+    }
+}
@@ -0,0 +1,208 @@
+package com.vssnagar.attendance.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MetricsRegistry
+ * Named counters and fixed-bucket histograms that are cheap enough to record on every call
+ * Recording never locks: counters are AtomicLongs and histogram buckets an AtomicLongArray,
+ * so a bridge call or worker pays a map lookup and a few atomic increments.
+ * Percentiles are estimated from the buckets (the upper bound of the bucket they fall in).
+ */
+public final class MetricsRegistry {
+
+    // Microseconds: 50 us .. 60 s, roughly x2 per bucket
+    public static final long[] LATENCY_MICROS = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000,
+        250000, 500000, 1000000, 2500000, 5000000, 10000000, 30000000, 60000000
+    };
+
+    // Bytes: 64 B .. 64 MB, x4 per bucket
+    public static final long[] SIZE_BYTES = {
+        64, 256, 1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864
+    };
+
+    // Bytes per second: 16 KB/s .. 256 MB/s, x4 per bucket
+    public static final long[] THROUGHPUT_BYTES_PER_SEC = {
+        16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864, 268435456
+    };
+
+    /**
+     * Monotonic count of events
+     */
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Distribution of values over fixed, ascending bucket bounds
+     * Bucket i counts values <= bounds[i]; one extra bucket takes everything larger
+     */
+    public static final class Histogram {
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds.clone();
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        public void record(long value) {
+            int index = Arrays.binarySearch(bounds, value);
+            buckets.incrementAndGet(index >= 0 ? index : -index - 1);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Another thread raised max first - retry against its value
+            }
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long sum() {
+            return sum.get();
+        }
+
+        /**
+         * Largest recorded value, or 0 if nothing was recorded
+         */
+        public long max() {
+            return count.get() == 0 ? 0 : max.get();
+        }
+
+        /**
+         * Estimated value at a percentile (0-100), or 0 if nothing was recorded
+         * Values in the overflow bucket are reported as the max
+         */
+        public long percentile(double percentile) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            if (rank < 1) rank = 1;
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bounds[i], max());
+                }
+            }
+            return max();
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("{\"count\":").append(count())
+                .append(",\"sum\":").append(sum())
+                .append(",\"max\":").append(max())
+                .append(",\"p50\":").append(percentile(50))
+                .append(",\"p95\":").append(percentile(95))
+                .append(",\"p99\":").append(percentile(99))
+                .append(",\"buckets\":[");
+            // [upper bound, count] pairs; the overflow bucket has no bound (null)
+            for (int i = 0; i <= bounds.length; i++) {
+                if (i > 0) json.append(',');
+                json.append('[').append(i < bounds.length ? String.valueOf(bounds[i]) : "null")
+                    .append(',').append(buckets.get(i)).append(']');
+            }
+            json.append("]}");
+        }
+    }
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Counter with this name, created on first use
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        return counter;
+    }
+
+    /**
+     * Histogram with this name, created with the given bounds on first use
+     * (later calls get the existing histogram whatever bounds they pass)
+     */
+    public Histogram histogram(String name, long[] bounds) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(bounds);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) histogram = created;
+        }
+        return histogram;
+    }
+
+    public void clear() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    /**
+     * All metrics as JSON, names sorted:
+     * {"counters": {"name": 3, ...}, "histograms": {"name": {"count", "sum", "max", "p50", "p95", "p99", "buckets"}}}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':').append(entry.getValue().get());
+        }
+        json.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':');
+            entry.getValue().appendJson(json);
+        }
+        return json.append("}}").toString();
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
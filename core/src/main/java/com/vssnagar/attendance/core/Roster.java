@@ -0,0 +1,239 @@
+package com.vssnagar.attendance.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Roster
+ * Students with dense, stable int ordinals
+ * Every student key (see StudentKeys) keeps its ordinal forever, so per-student arrays can be
+ * indexed by it. Removed students stay as tombstones and get their ordinal back if they return.
+ * Not thread-safe; the app wraps it in StudentRoster.
+ */
+public final class Roster {
+
+    /**
+     * One roster entry; immutable, replaced as a whole when its details change
+     */
+    public static final class Student {
+        public final int ordinal;
+        public final String key;
+        public final String name;
+        public final String appNumber;
+        public final String appId;
+        public final String hostelId;
+        public final String allocation;
+
+        public Student(String name, String appNumber, String appId, String hostelId, String allocation) {
+            this(-1, name, appNumber, appId, hostelId, allocation);
+        }
+
+        Student(int ordinal, String name, String appNumber, String appId, String hostelId, String allocation) {
+            this.ordinal = ordinal;
+            this.key = StudentKeys.of(appId, appNumber, name);
+            this.name = name;
+            this.appNumber = appNumber;
+            this.appId = appId;
+            this.hostelId = hostelId;
+            this.allocation = allocation;
+        }
+
+        boolean sameDetails(Student other) {
+            return name.equals(other.name) && appNumber.equals(other.appNumber) && appId.equals(other.appId)
+                && hostelId.equals(other.hostelId) && allocation.equals(other.allocation);
+        }
+
+        Student withOrdinal(int newOrdinal) {
+            return new Student(newOrdinal, name, appNumber, appId, hostelId, allocation);
+        }
+    }
+
+    /**
+     * What changed in an apply()
+     */
+    public static final class Diff {
+        public final int added;
+        public final int removed;
+        public final int modified;
+        public final boolean reordered;
+
+        Diff(int added, int removed, int modified, boolean reordered) {
+            this.added = added;
+            this.removed = removed;
+            this.modified = modified;
+            this.reordered = reordered;
+        }
+
+        public boolean isEmpty() {
+            return added == 0 && removed == 0 && modified == 0 && !reordered;
+        }
+    }
+
+    // Indexed by ordinal; includes tombstoned students
+    private final List<Student> byOrdinal = new ArrayList<>();
+    private final Map<String, Student> byKey = new HashMap<>();
+    // Ordinals of current students in sheet order
+    private int[] order = new int[0];
+
+    /**
+     * Number of current (not removed) students
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Highest ordinal handed out so far + 1 (size for ordinal-indexed arrays)
+     */
+    public int ordinalCount() {
+        return byOrdinal.size();
+    }
+
+    /**
+     * @return Ordinal of a student key, or -1 if unknown
+     */
+    public int ordinalOf(String studentKey) {
+        Student student = byKey.get(studentKey);
+        return student == null ? -1 : student.ordinal;
+    }
+
+    public Student get(int ordinal) {
+        return ordinal >= 0 && ordinal < byOrdinal.size() ? byOrdinal.get(ordinal) : null;
+    }
+
+    /**
+     * Ordinals of current students in sheet order (copy)
+     */
+    public int[] currentOrdinals() {
+        return order.clone();
+    }
+
+    /**
+     * Replace the roster with a fresh list from the sheet, keeping existing ordinals
+     */
+    public Diff apply(List<Student> fresh) {
+        int added = 0;
+        int modified = 0;
+        int[] newOrder = new int[fresh.size()];
+        boolean[] present = new boolean[byOrdinal.size() + fresh.size()];
+        boolean[] wasCurrent = new boolean[byOrdinal.size()];
+        for (int ordinal : order) {
+            wasCurrent[ordinal] = true;
+        }
+        int count = 0;
+
+        for (Student incoming : fresh) {
+            Student existing = byKey.get(incoming.key);
+            Student current;
+            if (existing == null) {
+                current = incoming.withOrdinal(byOrdinal.size());
+                byOrdinal.add(current);
+                byKey.put(current.key, current);
+                added++;
+            } else if (present[existing.ordinal]) {
+                // Duplicate key in the sheet - first row wins
+                continue;
+            } else {
+                current = existing;
+                if (!existing.sameDetails(incoming)) {
+                    current = incoming.withOrdinal(existing.ordinal);
+                    byOrdinal.set(existing.ordinal, current);
+                    byKey.put(current.key, current);
+                    modified++;
+                }
+                if (!wasCurrent[existing.ordinal]) {
+                    // Tombstoned student is back
+                    added++;
+                }
+            }
+            present[current.ordinal] = true;
+            newOrder[count++] = current.ordinal;
+        }
+        newOrder = Arrays.copyOf(newOrder, count);
+
+        int removed = 0;
+        for (int ordinal : order) {
+            if (!present[ordinal]) {
+                removed++;
+            }
+        }
+
+        Diff diff = new Diff(added, removed, modified, !Arrays.equals(order, newOrder));
+        order = newOrder;
+        return diff;
+    }
+
+    /**
+     * Append one student (e.g. just added to the sheet), keeping everyone else as they are
+     * @return The student as stored, with its ordinal; null if the key is already current
+     */
+    public Student add(Student incoming) {
+        Student existing = byKey.get(incoming.key);
+        if (existing != null) {
+            for (int ordinal : order) {
+                if (ordinal == existing.ordinal) return null;
+            }
+        }
+        Student current;
+        if (existing == null) {
+            current = incoming.withOrdinal(byOrdinal.size());
+            byOrdinal.add(current);
+        } else {
+            // Tombstoned student is back
+            current = existing.sameDetails(incoming) ? existing : incoming.withOrdinal(existing.ordinal);
+            byOrdinal.set(existing.ordinal, current);
+        }
+        byKey.put(current.key, current);
+        order = Arrays.copyOf(order, order.length + 1);
+        order[order.length - 1] = current.ordinal;
+        return current;
+    }
+
+    /**
+     * Load a roster written by writeTo(), replacing the current contents
+     */
+    public void readFrom(DataInput in) throws IOException {
+        byOrdinal.clear();
+        byKey.clear();
+        order = new int[0];
+        try {
+            int total = in.readInt();
+            for (int ordinal = 0; ordinal < total; ordinal++) {
+                Student student = new Student(ordinal, in.readUTF(), in.readUTF(), in.readUTF(),
+                    in.readUTF(), in.readUTF());
+                byOrdinal.add(student);
+                byKey.put(student.key, student);
+            }
+            int[] loaded = new int[in.readInt()];
+            for (int i = 0; i < loaded.length; i++) {
+                loaded[i] = in.readInt();
+            }
+            order = loaded;
+        } catch (IOException e) {
+            byOrdinal.clear();
+            byKey.clear();
+            throw e;
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(byOrdinal.size());
+        for (Student student : byOrdinal) {
+            out.writeUTF(student.name);
+            out.writeUTF(student.appNumber);
+            out.writeUTF(student.appId);
+            out.writeUTF(student.hostelId);
+            out.writeUTF(student.allocation);
+        }
+        out.writeInt(order.length);
+        for (int ordinal : order) {
+            out.writeInt(ordinal);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.vssnagar.attendance.core;
+
+import java.util.Arrays;
+
+/**
+ * StatusBits
+ * Packed 2-bit attendance statuses, 32 students per long, indexed by roster ordinal
+ */
+public final class StatusBits {
+
+    public static final int UNMARKED = 0;
+    public static final int PRESENT = 1;
+    public static final int ABSENT = 2;
+    public static final int LEAVE = 3;
+
+    // Low bit of every 2-bit field
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private StatusBits() {
+    }
+
+    /**
+     * Map a web app status to its 2-bit code
+     */
+    public static int statusCode(String status) {
+        if ("Present".equals(status)) return PRESENT;
+        if ("Absent".equals(status)) return ABSENT;
+        if ("Leave".equals(status)) return LEAVE;
+        return UNMARKED;
+    }
+
+    /**
+     * Web app status of a 2-bit code (unmarked counts as present, as on the page)
+     */
+    public static String statusName(int code) {
+        if (code == ABSENT) return "Absent";
+        if (code == LEAVE) return "Leave";
+        return "Present";
+    }
+
+    /**
+     * Words array large enough to hold this ordinal (grows by doubling)
+     */
+    public static long[] ensureCapacity(long[] words, int ordinal) {
+        int word = ordinal >>> 5;
+        if (word < words.length) return words;
+        return Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+    }
+
+    /**
+     * Status code of one ordinal, UNMARKED if beyond the array
+     */
+    public static int get(long[] words, int ordinal) {
+        int word = ordinal >>> 5;
+        if (ordinal < 0 || word >= words.length) return UNMARKED;
+        return (int) (words[word] >>> ((ordinal & 31) << 1)) & 3;
+    }
+
+    /**
+     * Set one status (the array must be large enough, see ensureCapacity)
+     * @return Previous status code
+     */
+    public static int set(long[] words, int ordinal, int code) {
+        int word = ordinal >>> 5;
+        int shift = (ordinal & 31) << 1;
+        int old = (int) (words[word] >>> shift) & 3;
+        words[word] = (words[word] & ~(3L << shift)) | ((long) (code & 3) << shift);
+        return old;
+    }
+
+    /**
+     * Number of students with any status
+     */
+    public static int countMarked(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount((word | (word >>> 1)) & LOW_BITS);
+        }
+        return count;
+    }
+
+    /**
+     * Number of students with one specific status code (1-3)
+     */
+    public static int count(long[] words, int code) {
+        boolean lowSet = (code & 1) != 0;
+        boolean highSet = (code & 2) != 0;
+        int count = 0;
+        for (long word : words) {
+            long low = word & LOW_BITS;
+            long high = (word >>> 1) & LOW_BITS;
+            count += Long.bitCount((lowSet ? low : ~low) & (highSet ? high : ~high) & LOW_BITS);
+        }
+        return count;
+    }
+}
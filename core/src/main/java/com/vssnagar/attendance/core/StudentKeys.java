@@ -0,0 +1,27 @@
+package com.vssnagar.attendance.core;
+
+/**
+ * StudentKeys
+ * Identity of a student across dates and devices
+ * Priority: Application ID (ignoring "N/A") -> Application Number -> name
+ */
+public final class StudentKeys {
+
+    private StudentKeys() {
+    }
+
+    /**
+     * @return "appId_...", "appNum_..." or "name_..."
+     */
+    public static String of(String appId, String appNumber, String name) {
+        String id = appId == null ? "" : appId.trim();
+        if (!id.isEmpty() && !"N/A".equals(id)) {
+            return "appId_" + id;
+        }
+        String number = appNumber == null ? "" : appNumber.trim();
+        if (!number.isEmpty()) {
+            return "appNum_" + number;
+        }
+        return "name_" + (name == null ? "" : name.trim());
+    }
+}
@@ -0,0 +1,523 @@
+package com.vssnagar.attendance.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StudentSearchIndex
+ * Search over a Roster's names, Application Numbers, Application IDs and hostel IDs
+ * Fields are normalized (lower case, accents dropped) and split into tokens; separated ids also
+ * get a joined token, so "ADM-2023/45" is found by "2023" and by "adm202". Tokens go into a
+ * prefix trie (as-you-type matches) and a trigram index (substring and typo-tolerant matches).
+ * A student must match every query token; results are ranked exact > prefix > substring, then by
+ * sheet order, and typos are allowed only when nothing matches as typed.
+ * update() re-indexes only students whose entry changed.
+ * Not thread-safe; the app wraps it in StudentRoster.
+ */
+public final class StudentSearchIndex {
+
+    private static final int SCORE_EXACT = 100;
+    private static final int SCORE_PREFIX = 80;
+    private static final int SCORE_SUBSTRING = 50;
+    // Minus 10 per edit
+    private static final int SCORE_TYPO = 40;
+
+    /**
+     * Ordinals, one entry per occurrence, in no particular order
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Trie node; ids holds every student with a token passing through it
+     */
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        final Postings ids = new Postings();
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) return children[i];
+            i = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(labels, i, newLabels, i + 1, labels.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            Node node = new Node();
+            newLabels[i] = c;
+            newChildren[i] = node;
+            labels = newLabels;
+            children = newChildren;
+            return node;
+        }
+    }
+
+    private final Node root = new Node();
+    // Packed trigram -> students with a token containing it (each student once)
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    // Indexed by ordinal: the entry indexed and its distinct tokens (null if not indexed)
+    private Roster.Student[] indexed = new Roster.Student[0];
+    private String[][] tokens = new String[0][];
+    // Sheet position of each ordinal, -1 for removed students, and ordinals in sheet order
+    private int[] positions = new int[0];
+    private int[] order = new int[0];
+
+    // Query scratch space, indexed by ordinal: stamp marks "seen in this query",
+    // shared counts trigrams in common with the query token (zeroed after each use)
+    private int[] stamps = new int[0];
+    private int stamp;
+    private int[] shared = new int[0];
+    private int[] found = new int[16];
+    private int foundCount;
+
+    /**
+     * Bring the index in line with the roster: index new and changed students, drop removed ones
+     * Unchanged students are skipped (Roster replaces an entry as a whole when it changes).
+     */
+    public void update(Roster roster) {
+        int count = roster.ordinalCount();
+        ensureCapacity(count);
+        order = roster.currentOrdinals();
+        boolean[] current = new boolean[count];
+        Arrays.fill(positions, -1);
+
+        for (int i = 0; i < order.length; i++) {
+            int ordinal = order[i];
+            current[ordinal] = true;
+            positions[ordinal] = i;
+            Roster.Student student = roster.get(ordinal);
+            if (indexed[ordinal] != student) {
+                remove(ordinal);
+                add(student);
+            }
+        }
+        for (int ordinal = 0; ordinal < indexed.length; ordinal++) {
+            if (indexed[ordinal] != null && (ordinal >= count || !current[ordinal])) {
+                remove(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Number of students indexed
+     */
+    public int size() {
+        int size = 0;
+        for (Roster.Student student : indexed) {
+            if (student != null) size++;
+        }
+        return size;
+    }
+
+    /**
+     * Ordinals of matching students, best first
+     * Typo matches are a fallback: they are looked for only when nothing matches as typed.
+     * @param limit Most results returned, 0 for all
+     */
+    public int[] search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) return new int[0];
+
+        // Candidates come from one token (all tokens are checked on each): the most selective
+        // one long enough for substring matches, or the most selective prefix if all are short
+        String selective = null;
+        int fewest = Integer.MAX_VALUE;
+        String longest = queryTokens.get(0);
+        for (String token : queryTokens) {
+            if (token.length() > longest.length()) longest = token;
+        }
+        boolean substrings = longest.length() >= 3;
+        for (String token : queryTokens) {
+            if (substrings && token.length() < 3) continue;
+            int estimate = estimate(token);
+            if (estimate < fewest) {
+                fewest = estimate;
+                selective = token;
+            }
+        }
+
+        beginCandidates();
+        collect(find(selective));
+        if (substrings) {
+            // Every trigram inside the token, for substring matches
+            long[] grams = trigramsOf(selective);
+            int[] matches = trigramMatches(grams, grams.length);
+            for (int ordinal : matches) {
+                collect(ordinal);
+            }
+        }
+        int[] result = rank(queryTokens, Arrays.copyOf(found, foundCount), false, limit);
+
+        int edits = maxEdits(longest.length());
+        if (result.length == 0 && edits > 0) {
+            beginCandidates();
+            int[] first = new int[longest.length() + 1];
+            for (int i = 0; i < first.length; i++) {
+                first[i] = i;
+            }
+            for (int i = 0; i < root.children.length; i++) {
+                collectWithin(root.children[i], root.labels[i], (char) 0, first, null, longest, edits);
+            }
+            result = rank(queryTokens, Arrays.copyOf(found, foundCount), true, limit);
+        }
+        return result;
+    }
+
+    /**
+     * Rough number of candidates a token would bring (trie prefix + rarest inner trigram)
+     */
+    private int estimate(String token) {
+        Node node = find(token);
+        int estimate = node == null ? 0 : node.ids.size;
+        if (token.length() >= 3) {
+            int rarest = Integer.MAX_VALUE;
+            for (long gram : trigramsOf(token)) {
+                Postings postings = trigrams.get(gram);
+                rarest = Math.min(rarest, postings == null ? 0 : postings.size);
+            }
+            estimate += rarest;
+        }
+        return estimate;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private void beginCandidates() {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        foundCount = 0;
+    }
+
+    private void collect(Node node) {
+        if (node == null) return;
+        for (int i = 0; i < node.ids.size; i++) {
+            collect(node.ids.ids[i]);
+        }
+    }
+
+    private void collect(int ordinal) {
+        if (stamps[ordinal] == stamp) return;
+        stamps[ordinal] = stamp;
+        if (foundCount == found.length) found = Arrays.copyOf(found, Math.max(16, foundCount * 2));
+        found[foundCount++] = ordinal;
+    }
+
+    /**
+     * Walk the trie with one edit-distance row per level (a swap of neighbours is one edit):
+     * a node within max edits of the whole query brings its subtree (the query is a typo'd
+     * prefix of those tokens); branches already more than max edits away are skipped
+     * @param c Label of node; previousChar The label above it (for swaps)
+     */
+    private void collectWithin(Node node, char c, char previousChar, int[] previous, int[] before,
+                               String query, int max) {
+        int q = query.length();
+        int[] row = new int[q + 1];
+        row[0] = previous[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i <= q; i++) {
+            char expected = query.charAt(i - 1);
+            int value = Math.min(Math.min(row[i - 1], previous[i]) + 1, previous[i - 1] + (expected == c ? 0 : 1));
+            if (before != null && i > 1 && expected == previousChar && query.charAt(i - 2) == c) {
+                value = Math.min(value, before[i - 2] + 1);
+            }
+            row[i] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+        if (row[q] <= max) {
+            collect(node);
+            return;
+        }
+        if (rowMin > max) return;
+        for (int i = 0; i < node.children.length; i++) {
+            collectWithin(node.children[i], node.labels[i], c, row, previous, query, max);
+        }
+    }
+
+    /**
+     * Students sharing at least the needed number of the given trigrams
+     */
+    private int[] trigramMatches(long[] grams, int needed) {
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (long gram : grams) {
+            Postings postings = trigrams.get(gram);
+            if (postings == null) return new int[0];
+            for (int i = 0; i < postings.size; i++) {
+                int ordinal = postings.ids[i];
+                if (shared[ordinal]++ == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = ordinal;
+                }
+            }
+        }
+        int[] result = new int[touchedCount];
+        int size = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int ordinal = touched[i];
+            if (shared[ordinal] >= needed) result[size++] = ordinal;
+            shared[ordinal] = 0;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Candidates matching every query token, best total score first, then sheet order
+     */
+    private int[] rank(List<String> queryTokens, int[] candidates, boolean typos, int limit) {
+        // (MAX - score) << 32 | sheet position, so one primitive sort ranks them
+        long[] ranked = new long[candidates.length];
+        int matched = 0;
+        for (int ordinal : candidates) {
+            if (positions[ordinal] < 0) continue;
+            int total = 0;
+            for (String queryToken : queryTokens) {
+                int score = score(queryToken, tokens[ordinal], typos);
+                if (score < 0) {
+                    total = -1;
+                    break;
+                }
+                total += score;
+            }
+            if (total < 0) continue;
+            ranked[matched++] = ((long) (Integer.MAX_VALUE - total) << 32) | positions[ordinal];
+        }
+        Arrays.sort(ranked, 0, matched);
+
+        int[] result = new int[limit > 0 ? Math.min(limit, matched) : matched];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[(int) ranked[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Best match of one query token against a student's tokens, -1 if none
+     */
+    private static int score(String queryToken, String[] studentTokens, boolean typos) {
+        int best = -1;
+        int edits = typos ? maxEdits(queryToken.length()) : 0;
+        for (String token : studentTokens) {
+            if (token.equals(queryToken)) return SCORE_EXACT;
+            if (token.startsWith(queryToken)) {
+                best = SCORE_PREFIX;
+            } else if (best < SCORE_SUBSTRING && token.contains(queryToken)) {
+                best = SCORE_SUBSTRING;
+            } else if (best < SCORE_TYPO && edits > 0) {
+                int distance = prefixDistance(queryToken, token, edits);
+                if (distance <= edits) {
+                    best = Math.max(best, SCORE_TYPO - 10 * distance);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Typos allowed for a query token of this length
+     */
+    private static int maxEdits(int length) {
+        if (length < 4) return 0;
+        return length < 8 ? 1 : 2;
+    }
+
+    /**
+     * Smallest edit distance (a swap of two neighbours counts as one edit) between the query and
+     * any start of the token, so a partly typed word matches; more than max if it is larger
+     */
+    static int prefixDistance(String query, String token, int max) {
+        int q = query.length();
+        int t = Math.min(token.length(), q + max);
+        if (t < q - max) return max + 1;
+        int[] before = new int[t + 1];
+        int[] previous = new int[t + 1];
+        int[] row = new int[t + 1];
+        for (int j = 0; j <= t; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= q; i++) {
+            row[0] = i;
+            int rowMin = i;
+            char c = query.charAt(i - 1);
+            for (int j = 1; j <= t; j++) {
+                char d = token.charAt(j - 1);
+                int value = Math.min(Math.min(row[j - 1], previous[j]) + 1, previous[j - 1] + (c == d ? 0 : 1));
+                if (i > 1 && j > 1 && c == token.charAt(j - 2) && query.charAt(i - 2) == d) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = before;
+            before = previous;
+            previous = row;
+            row = swap;
+        }
+        int best = max + 1;
+        for (int j = Math.max(0, q - max); j <= t; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private void add(Roster.Student student) {
+        int ordinal = student.ordinal;
+        String[] studentTokens = tokensOf(student);
+        indexed[ordinal] = student;
+        tokens[ordinal] = studentTokens;
+
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String token : studentTokens) {
+            Node node = root;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.childOrCreate(token.charAt(i));
+                node.ids.add(ordinal);
+            }
+            for (long gram : trigramsOf(" " + token + " ")) {
+                grams.add(gram);
+            }
+        }
+        for (Long gram : grams) {
+            Postings postings = trigrams.get(gram);
+            if (postings == null) {
+                postings = new Postings();
+                trigrams.put(gram, postings);
+            }
+            postings.add(ordinal);
+        }
+    }
+
+    private void remove(int ordinal) {
+        if (ordinal >= indexed.length || indexed[ordinal] == null) return;
+        Set<Long> grams = new LinkedHashSet<>();
+        for (String token : tokens[ordinal]) {
+            Node node = root;
+            for (int i = 0; i < token.length() && node != null; i++) {
+                node = node.child(token.charAt(i));
+                if (node != null) node.ids.remove(ordinal);
+            }
+            for (long gram : trigramsOf(" " + token + " ")) {
+                grams.add(gram);
+            }
+        }
+        for (Long gram : grams) {
+            Postings postings = trigrams.get(gram);
+            if (postings == null) continue;
+            postings.remove(ordinal);
+            if (postings.size == 0) trigrams.remove(gram);
+        }
+        indexed[ordinal] = null;
+        tokens[ordinal] = null;
+    }
+
+    private void ensureCapacity(int count) {
+        if (indexed.length >= count) return;
+        indexed = Arrays.copyOf(indexed, count);
+        tokens = Arrays.copyOf(tokens, count);
+        positions = Arrays.copyOf(positions, count);
+        stamps = Arrays.copyOf(stamps, count);
+        shared = Arrays.copyOf(shared, count);
+    }
+
+    /**
+     * Distinct searchable tokens of a student; "N/A" ids are left out
+     */
+    private static String[] tokensOf(Roster.Student student) {
+        Set<String> result = new LinkedHashSet<>(tokenize(student.name));
+        addIdTokens(result, student.appNumber);
+        addIdTokens(result, student.appId);
+        addIdTokens(result, student.hostelId);
+        return result.toArray(new String[0]);
+    }
+
+    private static void addIdTokens(Set<String> result, String id) {
+        if (id == null || "n/a".equalsIgnoreCase(id.trim())) return;
+        List<String> parts = tokenize(id);
+        result.addAll(parts);
+        if (parts.size() > 1) {
+            StringBuilder joined = new StringBuilder();
+            for (String part : parts) {
+                joined.append(part);
+            }
+            result.add(joined.toString());
+        }
+    }
+
+    /**
+     * Lower case, accents dropped, split on anything that is not a letter or digit
+     */
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null || text.isEmpty()) return result;
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                result.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            result.add(token.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Trigrams of a (padded) token, 3 chars packed into a long
+     */
+    private static long[] trigramsOf(String text) {
+        if (text.length() < 3) return new long[0];
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,73 @@
+package com.vssnagar.attendance.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SyncStatus
+ * Categories and the rules for deciding which sections of a date still need a sync
+ */
+public final class SyncStatus {
+
+    // Bit index / array index of each category
+    public static final String[] CATEGORIES = {"Yoga", "Mess Day", "Mess Night", "Night Shift"};
+
+    // Same threshold the server uses in check_attendance_status for "submitted"
+    public static final double SUBMITTED_RATIO = 0.8;
+
+    private SyncStatus() {
+    }
+
+    /**
+     * Map a web app key ("yoga", "messDay", "mess_night", "Night Shift") to its index
+     * @return Index into CATEGORIES, or -1 if unknown
+     */
+    public static int categoryIndex(String key) {
+        switch (key.toLowerCase().replace(" ", "").replace("_", "")) {
+            case "yoga":
+                return 0;
+            case "messday":
+                return 1;
+            case "messnight":
+                return 2;
+            case "nightshift":
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Reported sections that are not synced yet
+     * @param reportedMask Bit set = the web app reported this category
+     * @param completeMask Bit set = this category is synced
+     */
+    public static List<String> incompleteSections(int reportedMask, int completeMask) {
+        List<String> incomplete = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            int bit = 1 << i;
+            if ((reportedMask & bit) != 0 && (completeMask & bit) == 0) {
+                incomplete.add(CATEGORIES[i]);
+            }
+        }
+        return incomplete;
+    }
+
+    /**
+     * Sections with fewer server rows than 80% of the roster
+     * (any row counts as submitted when the roster size is unknown)
+     */
+    public static List<String> incompleteSections(int[] rowCounts, int rosterSize) {
+        List<String> incomplete = new ArrayList<>();
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (!isSubmitted(rowCounts[i], rosterSize)) {
+                incomplete.add(CATEGORIES[i]);
+            }
+        }
+        return incomplete;
+    }
+
+    public static boolean isSubmitted(int rowCount, int rosterSize) {
+        return rosterSize > 0 ? rowCount >= rosterSize * SUBMITTED_RATIO : rowCount > 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.vssnagar.attendance.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * TableWriter
+ * Row-at-a-time output for reports, so an export never holds the whole table in memory
+ */
+public interface TableWriter extends Closeable {
+
+    /**
+     * Whether the format has separate sheets (XLSX) or is one flat table (CSV)
+     */
+    boolean hasSheets();
+
+    /**
+     * Start a new sheet; in a flat format rows keep going into the same table
+     */
+    void startSheet(String name) throws IOException;
+
+    /**
+     * One row: Numbers are written as numbers, null as an empty cell, anything else as text
+     */
+    void writeRow(Object... cells) throws IOException;
+}
@@ -0,0 +1,547 @@
+package com.vssnagar.attendance.core;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TrackingEngine
+ * On-device port of calculateTrackingData (Code.gs): per-student present / absent / leave
+ * counts and dates for every category, over attendance stored on the phone
+ * Name keys are computed once per roster entry and once per distinct sheet name,
+ * student matching goes through hash indexes (appNum -> appId -> name key),
+ * and the four categories are counted in parallel on a fork-join pool.
+ */
+public final class TrackingEngine {
+
+    public static final String[] CATEGORIES = SyncStatus.CATEGORIES;
+
+    // Counters a status goes to (see statusIndex)
+    public static final int PRESENT = 0;
+    public static final int ABSENT = 1;
+    public static final int LEAVE = 2;
+
+    // Values Code.gs treats as "no id"
+    private static final Set<String> EMPTY_IDS =
+        new HashSet<>(Arrays.asList("n/a", "na", "-", "null", "undefined"));
+
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+
+    // Forms Code.gs only gets through its new Date(raw) fallback: ISO date-time (a Date cell written
+    // as JSON), Date.toString() (a Date cell written as text) and month names ("22 Jan 2026")
+    private static final Pattern ISO_DATE_TIME = Pattern.compile(
+        "(\\d{4})-(\\d{1,2})-(\\d{1,2})(?:[T ](\\d{1,2}):(\\d{2})(?::(\\d{2})(?:\\.\\d+)?)?\\s*(Z|[+-]\\d{2}:?\\d{2})?)?");
+    private static final Pattern MONTH_NAME_DATE = Pattern.compile(
+        "(?:[A-Za-z]+,?\\s+)?(?:([A-Za-z]{3,})\\.?\\s+(\\d{1,2})|(\\d{1,2})\\s+([A-Za-z]{3,})\\.?),?\\s+(\\d{4})"
+        + "(?:\\s+(\\d{1,2}):(\\d{2})(?::(\\d{2}))?(?:\\s*(GMT|UTC)([+-]\\d{2}:?\\d{2})?)?)?(?:\\s*\\(.*\\))?");
+    private static final String[] MONTHS = {"january", "february", "march", "april", "may", "june",
+        "july", "august", "september", "october", "november", "december"};
+
+    /**
+     * One student from the hostel roster
+     */
+    public static final class Student {
+        public final String name;
+        public final String appId;
+        public final String appNumber;
+
+        public Student(String name, String appId, String appNumber) {
+            this.name = name;
+            this.appId = appId == null ? "" : appId.trim();
+            this.appNumber = appNumber == null ? "" : appNumber.trim();
+        }
+    }
+
+    /**
+     * One attendance row of a category
+     */
+    public static final class Row {
+        public final String date;
+        public final String name;
+        public final String appId;
+        public final String appNumber;
+        public final String status;
+
+        public Row(String date, String name, String appId, String appNumber, String status) {
+            this.date = date;
+            this.name = name;
+            this.appId = appId == null ? "" : appId.trim();
+            this.appNumber = appNumber == null ? "" : appNumber.trim();
+            this.status = status;
+        }
+    }
+
+    /**
+     * Tracking for one student in one category (same fields as the get_tracking_data rows)
+     */
+    public static final class Result {
+        public String name;
+        public String id;
+        public String appId;
+        public String appNumber;
+        public final String category;
+        final int categoryIndex;
+        public int present;
+        public int absent;
+        public int leave;
+        public int total;
+        final Set<String> presentDateSet = new LinkedHashSet<>();
+        final Set<String> absentDateSet = new LinkedHashSet<>();
+        final Set<String> leaveDateSet = new LinkedHashSet<>();
+        // Newest first, filled in when the run completes
+        public List<String> presentDates;
+        public List<String> absentDates;
+        public List<String> leaveDates;
+
+        Result(String name, String appId, String appNumber, int categoryIndex) {
+            this.categoryIndex = categoryIndex;
+            this.category = CATEGORIES[categoryIndex];
+            setInfo(name, appId, appNumber);
+        }
+
+        void setInfo(String name, String appId, String appNumber) {
+            this.name = name;
+            this.appId = appId;
+            this.appNumber = appNumber;
+            this.id = !appNumber.isEmpty() ? appNumber : appId;
+        }
+
+        /**
+         * Attendance percentage as the admin rankings show it
+         * (Yoga ignores leave days, the other sections count them)
+         */
+        public int percentage() {
+            int base = categoryIndex == 0 ? present + absent : total;
+            return base > 0 ? Math.round(present * 100f / base) : 0;
+        }
+    }
+
+    /**
+     * Results sorted by name, plus warnings (kept for parity with Code.gs)
+     */
+    public static final class Output {
+        public final List<Result> data;
+        public final List<String> warnings;
+
+        Output(List<Result> data, List<String> warnings) {
+            this.data = data;
+            this.warnings = warnings;
+        }
+    }
+
+    /**
+     * Latest roster details of a name key
+     */
+    private static final class LatestInfo {
+        final String name;
+        final String appNum;
+        final String appId;
+
+        LatestInfo(String name, String appNum, String appId) {
+            this.name = name;
+            this.appNum = appNum;
+            this.appId = appId;
+        }
+    }
+
+    private final Map<String, String> nameToAppNum = new HashMap<>();
+    private final Map<String, String> nameToAppId = new HashMap<>();
+    private final Map<String, LatestInfo> latestInfo = new HashMap<>();
+    private final List<Student> roster;
+    private final String[] rosterKeys;
+
+    private TrackingEngine(List<Student> roster) {
+        this.roster = roster;
+        this.rosterKeys = new String[roster.size()];
+
+        // STEP 1: name key -> latest App Number / App ID (one name key per roster entry)
+        String[] nameKeys = new String[roster.size()];
+        for (int i = 0; i < roster.size(); i++) {
+            Student student = roster.get(i);
+            if (isBlank(student.name)) continue;
+            String nameKey = nameKey(student.name);
+            nameKeys[i] = nameKey;
+            if (isValidId(student.appNumber)) nameToAppNum.put(nameKey, student.appNumber);
+            if (isValidId(student.appId)) nameToAppId.put(nameKey, student.appId);
+            latestInfo.put(nameKey, new LatestInfo(student.name.trim(), student.appNumber, student.appId));
+        }
+        // Keys need the complete name indexes, so they are resolved in a second pass
+        for (int i = 0; i < roster.size(); i++) {
+            if (nameKeys[i] != null) {
+                Student student = roster.get(i);
+                rosterKeys[i] = studentKey(student.appNumber, student.appId, nameKeys[i]);
+            }
+        }
+    }
+
+    /**
+     * Count attendance per student and category
+     * @param rowsByCategory Rows of each category, indexed like CATEGORIES
+     * @param startDate First date (yyyy-MM-dd) to include, or null for no limit
+     * @param endDate Last date to include, or null for no limit
+     */
+    public static Output calculate(List<Student> roster, List<List<Row>> rowsByCategory,
+                                   String startDate, String endDate) {
+        final TrackingEngine engine = new TrackingEngine(roster);
+
+        List<CategoryTask> tasks = new ArrayList<>();
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            List<Row> rows = c < rowsByCategory.size() ? rowsByCategory.get(c) : Collections.<Row>emptyList();
+            tasks.add(new CategoryTask(engine, c, rows, emptyToNull(startDate), emptyToNull(endDate)));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (CategoryTask task : POOL.invoke(new AllCategoriesTask(tasks))) {
+            results.addAll(task.getRawResult());
+        }
+
+        // Same order as Code.gs: by name, then category
+        final Collator collator = Collator.getInstance(Locale.ENGLISH);
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                int byName = collator.compare(a.name, b.name);
+                return byName != 0 ? byName : a.categoryIndex - b.categoryIndex;
+            }
+        });
+        return new Output(results, new ArrayList<String>());
+    }
+
+    /**
+     * Forks one task per category and waits for all of them
+     */
+    private static final class AllCategoriesTask extends RecursiveTask<List<CategoryTask>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<CategoryTask> tasks;
+
+        AllCategoriesTask(List<CategoryTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<CategoryTask> compute() {
+            invokeAll(tasks);
+            return tasks;
+        }
+    }
+
+    /**
+     * Counts one category; touches only its own map, so categories never contend
+     */
+    private static final class CategoryTask extends RecursiveTask<List<Result>> {
+        private static final long serialVersionUID = 1L;
+
+        private final TrackingEngine engine;
+        private final int categoryIndex;
+        private final List<Row> rows;
+        private final String startDate;
+        private final String endDate;
+
+        CategoryTask(TrackingEngine engine, int categoryIndex, List<Row> rows, String startDate, String endDate) {
+            this.engine = engine;
+            this.categoryIndex = categoryIndex;
+            this.rows = rows;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            Map<String, Result> byKey = new LinkedHashMap<>();
+
+            // STEP 2: every roster student starts at zero
+            for (int i = 0; i < engine.roster.size(); i++) {
+                String key = engine.rosterKeys[i];
+                if (key == null) continue;
+                Student student = engine.roster.get(i);
+                byKey.put(key, new Result(student.name.trim(), student.appId, student.appNumber, categoryIndex));
+            }
+
+            // Sheet names repeat on every date - normalise each distinct one once
+            Map<String, String> nameKeys = new HashMap<>();
+
+            for (Row row : rows) {
+                if (isBlank(row.name) || isBlank(row.date)) continue;
+
+                String date = normalizeDate(row.date.trim());
+                if (date == null) continue;
+                if (startDate != null && date.compareTo(startDate) < 0) continue;
+                if (endDate != null && date.compareTo(endDate) > 0) continue;
+
+                if (!countsOn(categoryIndex, date)) continue;
+
+                String nameKey = nameKeys.get(row.name);
+                if (nameKey == null) {
+                    nameKey = nameKey(row.name);
+                    nameKeys.put(row.name, nameKey);
+                }
+                String key = engine.studentKey(row.appNumber, row.appId, nameKey);
+                LatestInfo latest = engine.latestInfo.get(nameKey);
+
+                Result result = byKey.get(key);
+                if (result == null) {
+                    // In attendance but not in the roster
+                    String appNum = latest != null ? latest.appNum : valueOr(engine.nameToAppNum.get(nameKey), row.appNumber);
+                    String appId = latest != null ? latest.appId : valueOr(engine.nameToAppId.get(nameKey), row.appId);
+                    result = new Result(latest != null ? latest.name : row.name.trim(), appId, appNum, categoryIndex);
+                    byKey.put(key, result);
+                } else if (latest != null) {
+                    // Name or App Number may have changed since
+                    result.setInfo(latest.name, latest.appId, latest.appNum);
+                }
+
+                switch (statusIndex(row.status)) {
+                    case PRESENT:
+                        result.present++;
+                        result.presentDateSet.add(date);
+                        break;
+                    case ABSENT:
+                        result.absent++;
+                        result.absentDateSet.add(date);
+                        break;
+                    case LEAVE:
+                        result.leave++;
+                        result.leaveDateSet.add(date);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            List<Result> results = new ArrayList<>(byKey.size());
+            for (Result result : byKey.values()) {
+                if (isBlank(result.name)) continue;
+                result.total = result.present + result.absent + result.leave;
+                result.presentDates = newestFirst(result.presentDateSet);
+                result.absentDates = newestFirst(result.absentDateSet);
+                result.leaveDates = newestFirst(result.leaveDateSet);
+                results.add(result);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Best identifier for a student: App Number -> App Number by name -> App ID -> App ID by name -> name
+     */
+    private String studentKey(String appNum, String appId, String nameKey) {
+        if (isValidId(appNum)) return "appNum_" + appNum;
+        String latestAppNum = nameToAppNum.get(nameKey);
+        if (latestAppNum != null) return "appNum_" + latestAppNum;
+        if (isValidId(appId)) return "appId_" + appId;
+        String latestAppId = nameToAppId.get(nameKey);
+        if (latestAppId != null) return "appId_" + latestAppId;
+        return "name_" + nameKey;
+    }
+
+    /**
+     * Same as extractFirstLastName(...).key: first two name parts in sorted order
+     * "Pachpute aditya" and "Aditya ramdas pachpute" both give "aditya_pachpute"
+     */
+    static String nameKey(String fullName) {
+        String[] parts = fullName.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (parts.length == 0 || parts[0].isEmpty()) return "";
+        if (parts.length == 1) return parts[0];
+
+        // Two smallest parts without sorting the whole array
+        String first = null;
+        String second = null;
+        for (String part : parts) {
+            if (first == null || part.compareTo(first) < 0) {
+                second = first;
+                first = part;
+            } else if (second == null || part.compareTo(second) < 0) {
+                second = part;
+            }
+        }
+        return first + "_" + second;
+    }
+
+    /**
+     * yyyy-MM-dd, M/D/yyyy (US) or D-M-yyyy (Indian) to yyyy-MM-dd, or null if unrecognised
+     * Anything else goes through the same fallback as Code.gs's new Date(raw), for the forms a
+     * sheet actually holds (see parseDateFallback); other free text V8 might accept is skipped.
+     */
+    public static String normalizeDate(String raw) {
+        if (raw.length() == 10 && raw.charAt(4) == '-' && raw.charAt(7) == '-') {
+            return raw;
+        }
+        String[] parts;
+        boolean us;
+        if (raw.indexOf('/') > 0) {
+            parts = raw.split("/");
+            us = true;
+        } else {
+            parts = raw.split("-");
+            us = false;
+        }
+        if (parts.length != 3 || parts[2].length() != 4 || parts[0].length() > 2 || parts[1].length() > 2) {
+            return parseDateFallback(raw);
+        }
+        String month = us ? parts[0] : parts[1];
+        String day = us ? parts[1] : parts[0];
+        if (!isDigits(month) || !isDigits(day) || !isDigits(parts[2])) return parseDateFallback(raw);
+        return parts[2] + "-" + pad(month) + "-" + pad(day);
+    }
+
+    /**
+     * ISO date-time ("2026-01-21T18:30:00.000Z", "2026-1-22"), Date.toString()
+     * ("Thu Jan 22 2026 00:00:00 GMT+0530 (India Standard Time)") and month names
+     * ("Jan 22 2026", "January 22, 2026", "22 Jan 2026")
+     * Like new Date(raw).getDate(), a time with a zone is read as that instant in the device's
+     * time zone, and a time without a zone as local time.
+     */
+    static String parseDateFallback(String raw) {
+        int year;
+        int month;
+        int day;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        String zone;
+
+        Matcher iso = ISO_DATE_TIME.matcher(raw);
+        Matcher named = MONTH_NAME_DATE.matcher(raw);
+        if (iso.matches()) {
+            year = Integer.parseInt(iso.group(1));
+            month = Integer.parseInt(iso.group(2));
+            day = Integer.parseInt(iso.group(3));
+            if (iso.group(4) != null) {
+                hour = Integer.parseInt(iso.group(4));
+                minute = Integer.parseInt(iso.group(5));
+                second = iso.group(6) != null ? Integer.parseInt(iso.group(6)) : 0;
+            }
+            zone = iso.group(7);
+        } else if (named.matches()) {
+            boolean monthFirst = named.group(1) != null;
+            month = monthNumber(monthFirst ? named.group(1) : named.group(4));
+            day = Integer.parseInt(monthFirst ? named.group(2) : named.group(3));
+            year = Integer.parseInt(named.group(5));
+            if (named.group(6) != null) {
+                hour = Integer.parseInt(named.group(6));
+                minute = Integer.parseInt(named.group(7));
+                second = named.group(8) != null ? Integer.parseInt(named.group(8)) : 0;
+            }
+            // "GMT" alone is UTC
+            zone = named.group(10) != null ? named.group(10) : named.group(9) != null ? "Z" : null;
+        } else {
+            return null;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31) return null;
+        if (zone == null) {
+            return year + "-" + pad(String.valueOf(month)) + "-" + pad(String.valueOf(day));
+        }
+
+        // The instant, then the calendar date it falls on here
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        utc.clear();
+        utc.set(year, month - 1, day, hour, minute, second);
+        long millis = utc.getTimeInMillis() - zoneOffsetMillis(zone);
+        Calendar local = Calendar.getInstance(Locale.ROOT);
+        local.setTimeInMillis(millis);
+        return String.format(Locale.ROOT, "%04d-%02d-%02d",
+            local.get(Calendar.YEAR), local.get(Calendar.MONTH) + 1, local.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * 1-12 for a month name or its abbreviation of at least 3 letters ("Jan", "Sept"), -1 otherwise
+     */
+    private static int monthNumber(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (MONTHS[i].startsWith(lower)) return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * "Z", "+05:30" or "+0530" to milliseconds east of UTC
+     */
+    private static long zoneOffsetMillis(String zone) {
+        if ("Z".equals(zone)) return 0;
+        String digits = zone.substring(1).replace(":", "");
+        int minutes = Integer.parseInt(digits.substring(0, 2)) * 60 + Integer.parseInt(digits.substring(2, 4));
+        return (zone.charAt(0) == '-' ? -minutes : minutes) * 60000L;
+    }
+
+    /**
+     * Counter for a status cell: PRESENT, ABSENT, LEAVE, or -1 if it is none of them
+     */
+    public static int statusIndex(String status) {
+        String value = String.valueOf(status).toLowerCase(Locale.ROOT);
+        if (value.contains("present")) return PRESENT;
+        if (value.contains("absent")) return ABSENT;
+        if (value.contains("leave")) return LEAVE;
+        return -1;
+    }
+
+    /**
+     * Whether a yyyy-MM-dd date counts for a category (Yoga skips Sundays)
+     */
+    public static boolean countsOn(int categoryIndex, String date) {
+        return categoryIndex != 0 || dayOfWeek(date) != 0;
+    }
+
+    /**
+     * Day of week for yyyy-MM-dd, 0 = Sunday (Sakamoto's method, no Calendar allocation)
+     */
+    static int dayOfWeek(String date) {
+        int y = Integer.parseInt(date.substring(0, 4));
+        int m = Integer.parseInt(date.substring(5, 7));
+        int d = Integer.parseInt(date.substring(8, 10));
+        int[] t = {0, 3, 2, 5, 0, 3, 5, 1, 4, 6, 2, 4};
+        if (m < 3) y -= 1;
+        return (y + y / 4 - y / 100 + y / 400 + t[m - 1] + d) % 7;
+    }
+
+    private static List<String> newestFirst(Set<String> dates) {
+        List<String> list = new ArrayList<>(dates);
+        Collections.sort(list, Collections.<String>reverseOrder());
+        return list;
+    }
+
+    private static boolean isValidId(String value) {
+        return value != null && !value.isEmpty() && !EMPTY_IDS.contains(value.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static String pad(String value) {
+        return value.length() == 1 ? "0" + value : value;
+    }
+
+    private static String valueOr(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
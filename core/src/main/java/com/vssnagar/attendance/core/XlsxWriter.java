@@ -0,0 +1,175 @@
+package com.vssnagar.attendance.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * XlsxWriter
+ * Minimal Office Open XML workbook written as a stream
+ * Each sheet is one zip entry written row by row with inline strings (no shared string
+ * table), so memory stays constant however many rows the report has. Sheets are written
+ * one after another; the workbook parts that list them are added on close().
+ */
+public final class XlsxWriter implements TableWriter {
+
+    private static final int MAX_SHEET_NAME = 31;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final Set<String> usedNames = new HashSet<>();
+    private boolean inSheet;
+    private int rowIndex;
+
+    public XlsxWriter(OutputStream stream) {
+        zip = new ZipOutputStream(stream);
+        out = new OutputStreamWriter(zip, Charset.forName("UTF-8"));
+    }
+
+    @Override
+    public boolean hasSheets() {
+        return true;
+    }
+
+    @Override
+    public void startSheet(String name) throws IOException {
+        endSheet();
+        sheetNames.add(uniqueSheetName(name));
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        inSheet = true;
+        rowIndex = 0;
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException {
+        if (!inSheet) startSheet("Sheet1");
+        rowIndex++;
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowIndex));
+        out.write("\">");
+        for (Object cell : cells) {
+            if (cell == null) {
+                out.write("<c/>");
+            } else if (cell instanceof Number) {
+                out.write("<c><v>");
+                out.write(cell.toString());
+                out.write("</v></c>");
+            } else {
+                out.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writeEscaped(cell.toString());
+                out.write("</t></is></c>");
+            }
+        }
+        out.write("</row>");
+    }
+
+    private void endSheet() throws IOException {
+        if (!inSheet) return;
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        inSheet = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheetNames.isEmpty()) startSheet("Sheet1");
+            endSheet();
+            writeWorkbookParts();
+            out.flush();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void writeWorkbookParts() throws IOException {
+        StringBuilder types = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        StringBuilder workbook = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+            + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        StringBuilder rels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ")
+                .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"").append(escape(sheetNames.get(i - 1)))
+                .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+            rels.append("<Relationship Id=\"rId").append(i).append("\" ")
+                .append("Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" ")
+                .append("Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        types.append("</Types>");
+        workbook.append("</sheets></workbook>");
+        rels.append("</Relationships>");
+
+        writeEntry("[Content_Types].xml", types.toString());
+        writeEntry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId1\" "
+            + "Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" "
+            + "Target=\"xl/workbook.xml\"/></Relationships>");
+        writeEntry("xl/workbook.xml", workbook.toString());
+        writeEntry("xl/_rels/workbook.xml.rels", rels.toString());
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    /**
+     * Sheet names: at most 31 chars, none of : \ / ? * [ ], unique (case-insensitive)
+     */
+    private String uniqueSheetName(String name) {
+        String base = (name == null ? "" : name).replaceAll("[:\\\\/?*\\[\\]]", " ").trim();
+        if (base.isEmpty()) base = "Sheet";
+        if (base.length() > MAX_SHEET_NAME) base = base.substring(0, MAX_SHEET_NAME);
+        String candidate = base;
+        for (int n = 2; usedNames.contains(candidate.toLowerCase(Locale.ROOT)); n++) {
+            String suffix = " (" + n + ")";
+            candidate = base.substring(0, Math.min(base.length(), MAX_SHEET_NAME - suffix.length())) + suffix;
+        }
+        usedNames.add(candidate.toLowerCase(Locale.ROOT));
+        return candidate;
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': out.write("&amp;"); break;
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                case '"': out.write("&quot;"); break;
+                default:
+                    // Control characters are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') out.write(c);
+            }
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,39 @@
+package com.vssnagar.attendance.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import java.io.StringWriter;
+
+/**
+ * CsvWriterTest
+ * Quoting and formula neutralisation of exported cells
+ */
+public class CsvWriterTest {
+
+    @Test
+    public void quotesFieldsWithSeparatorsAndQuotes() throws Exception {
+        assertEquals("\"Patil, Asha\",\"say \"\"hi\"\"\",,5", write("Patil, Asha", "say \"hi\"", null, 5));
+    }
+
+    @Test
+    public void formulaLikeTextGetsAnApostrophe() throws Exception {
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\",'+1,'-2,'@SUM(A1)",
+            write("=HYPERLINK(\"x\")", "+1", "-2", "@SUM(A1)"));
+    }
+
+    @Test
+    public void numbersAreWrittenAsIs() throws Exception {
+        assertEquals("-3,2026-01-22,Present", write(-3, "2026-01-22", "Present"));
+    }
+
+    private static String write(Object... cells) throws Exception {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRow(cells);
+        writer.close();
+        String text = out.toString();
+        // Drop the byte order mark and the line ending
+        return text.substring(1, text.length() - 2);
+    }
+}
@@ -0,0 +1,145 @@
+package com.vssnagar.attendance.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * RosterTest
+ * Ordinals stay stable through apply(): additions, tombstones, duplicates and reordering
+ */
+public class RosterTest {
+
+    private static final Roster.Student ASHA = student("Asha Patil", "500001", "APP1");
+    private static final Roster.Student BALA = student("Bala Rao", "500002", "APP2");
+    private static final Roster.Student CHITRA = student("Chitra Nair", "500003", "N/A");
+
+    @Test
+    public void firstApplyNumbersStudentsInSheetOrder() {
+        Roster roster = new Roster();
+
+        Roster.Diff diff = roster.apply(Arrays.asList(ASHA, BALA, CHITRA));
+
+        assertEquals(3, diff.added);
+        assertEquals(3, roster.size());
+        assertArrayEquals(new int[]{0, 1, 2}, roster.currentOrdinals());
+        assertEquals(0, roster.ordinalOf("appId_APP1"));
+        // "N/A" is no Application ID - keyed by Application Number instead
+        assertEquals(2, roster.ordinalOf("appNum_500003"));
+    }
+
+    @Test
+    public void sameSheetAgainIsNoChange() {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA));
+
+        assertTrue(roster.apply(Arrays.asList(ASHA, BALA)).isEmpty());
+    }
+
+    @Test
+    public void removedStudentIsTombstonedAndGetsItsOrdinalBack() {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA, CHITRA));
+
+        Roster.Diff removal = roster.apply(Arrays.asList(ASHA, CHITRA));
+        assertEquals(1, removal.removed);
+        assertEquals(2, roster.size());
+        assertArrayEquals(new int[]{0, 2}, roster.currentOrdinals());
+        // Still known, so arrays indexed by ordinal keep their slot
+        assertEquals(3, roster.ordinalCount());
+        assertEquals("Bala Rao", roster.get(1).name);
+
+        Roster.Diff back = roster.apply(Arrays.asList(ASHA, BALA, CHITRA));
+        assertEquals(1, back.added);
+        assertArrayEquals(new int[]{0, 1, 2}, roster.currentOrdinals());
+        assertEquals(3, roster.ordinalCount());
+    }
+
+    @Test
+    public void duplicateKeyKeepsTheFirstRow() {
+        Roster roster = new Roster();
+        Roster.Student renamed = student("Asha P", "500001", "APP1");
+
+        Roster.Diff diff = roster.apply(Arrays.asList(ASHA, BALA, renamed));
+
+        assertEquals(2, diff.added);
+        assertEquals(2, roster.size());
+        assertEquals("Asha Patil", roster.get(roster.ordinalOf("appId_APP1")).name);
+    }
+
+    @Test
+    public void reorderKeepsOrdinals() {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA, CHITRA));
+
+        Roster.Diff diff = roster.apply(Arrays.asList(CHITRA, ASHA, BALA));
+
+        assertTrue(diff.reordered);
+        assertEquals(0, diff.added);
+        assertEquals(0, diff.removed);
+        assertEquals(0, diff.modified);
+        assertArrayEquals(new int[]{2, 0, 1}, roster.currentOrdinals());
+    }
+
+    @Test
+    public void changedDetailsKeepTheOrdinal() {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA));
+        Roster.Student moved = new Roster.Student("Asha Patil", "500001", "APP1", "H9", "Block C");
+
+        Roster.Diff diff = roster.apply(Arrays.asList(moved, BALA));
+
+        assertEquals(1, diff.modified);
+        assertFalse(diff.reordered);
+        assertEquals("H9", roster.get(0).hostelId);
+        assertEquals(0, roster.get(0).ordinal);
+    }
+
+    @Test
+    public void addAppendsOnceAndRevivesTombstones() {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA));
+        roster.apply(Collections.singletonList(ASHA));
+
+        Roster.Student revived = roster.add(BALA);
+        assertEquals(1, revived.ordinal);
+        assertNull(roster.add(BALA));
+
+        Roster.Student added = roster.add(CHITRA);
+        assertEquals(2, added.ordinal);
+        assertArrayEquals(new int[]{0, 1, 2}, roster.currentOrdinals());
+    }
+
+    @Test
+    public void writeToAndReadFromKeepTombstones() throws Exception {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(ASHA, BALA, CHITRA));
+        roster.apply(Arrays.asList(CHITRA, ASHA));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        roster.writeTo(new DataOutputStream(bytes));
+        Roster loaded = new Roster();
+        loaded.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertArrayEquals(new int[]{2, 0}, loaded.currentOrdinals());
+        assertEquals(3, loaded.ordinalCount());
+        assertEquals(1, loaded.ordinalOf("appId_APP2"));
+        Roster.Student chitra = loaded.get(2);
+        assertSame(chitra, loaded.get(loaded.ordinalOf(chitra.key)));
+    }
+
+    private static Roster.Student student(String name, String appNumber, String appId) {
+        return new Roster.Student(name, appNumber, appId, "H1", "Block A");
+    }
+}
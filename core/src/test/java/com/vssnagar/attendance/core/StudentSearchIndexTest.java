@@ -0,0 +1,149 @@
+package com.vssnagar.attendance.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import java.util.Arrays;
+
+/**
+ * StudentSearchIndexTest
+ * Ranking, typo fallback, normalization and id tokens, and update() against a changing roster
+ */
+public class StudentSearchIndexTest {
+
+    private static final int[] NONE = new int[0];
+
+    @Test
+    public void ranksExactThenPrefixThenSubstringAndLeavesOutTypos() {
+        // Sheet order is the reverse of the expected ranking
+        Roster roster = roster(
+            student("Ravu Menon", "500001", "APP1", "H1"),
+            student("Shravi Das", "500002", "APP2", "H2"),
+            student("Ravindra Singh", "500003", "APP3", "H3"),
+            student("Ravi Kumar", "500004", "APP4", "H4"));
+        StudentSearchIndex index = index(roster);
+
+        // "Ravu" is one edit away but something matches as typed, so it is not a result
+        assertArrayEquals(new int[]{3, 2, 1}, index.search("ravi", 0));
+        assertArrayEquals(new int[]{3, 2}, index.search("ravi", 2));
+    }
+
+    @Test
+    public void equalScoresKeepSheetOrder() {
+        StudentSearchIndex index = index(roster(
+            student("Asha Patil", "500001", "APP1", "H1"),
+            student("Asha Rao", "500002", "APP2", "H2")));
+
+        assertArrayEquals(new int[]{0, 1}, index.search("asha", 0));
+        assertArrayEquals(new int[]{1}, index.search("asha rao", 0));
+    }
+
+    @Test
+    public void typosAreAFallbackIncludingSwappedLetters() {
+        StudentSearchIndex index = index(roster(
+            student("Asha Patil", "500001", "APP1", "H1"),
+            student("Ravi Kumar", "500002", "APP2", "H2")));
+
+        assertArrayEquals(new int[]{1}, index.search("kumra", 0));
+        assertArrayEquals(new int[]{0}, index.search("ahsa", 0));
+        assertArrayEquals(new int[]{0}, index.search("patol", 0));
+        // Partly typed word with a typo
+        assertArrayEquals(new int[]{1}, index.search("kumr", 0));
+        // Too short for typos
+        assertArrayEquals(NONE, index.search("rvi", 0));
+        assertArrayEquals(NONE, index.search("xyzzy", 0));
+    }
+
+    @Test
+    public void accentsAndCaseAreFolded() {
+        StudentSearchIndex index = index(roster(
+            student("José Álvarez", "500001", "APP1", "H1"),
+            student("Asha Patil", "500002", "APP2", "H2")));
+
+        assertArrayEquals(new int[]{0}, index.search("jose", 0));
+        assertArrayEquals(new int[]{0}, index.search("ALVAREZ", 0));
+        assertArrayEquals(new int[]{0}, index.search("Álva", 0));
+    }
+
+    @Test
+    public void notApplicableIdsAreNotIndexed() {
+        StudentSearchIndex index = index(roster(
+            student("Bala Rao", "500001", "N/A", " n/a ")));
+
+        assertArrayEquals(NONE, index.search("n/a", 0));
+        assertArrayEquals(NONE, index.search("na", 0));
+        assertArrayEquals(new int[]{0}, index.search("500001", 0));
+    }
+
+    @Test
+    public void separatedIdsAreFoundByPartsAndJoined() {
+        StudentSearchIndex index = index(roster(
+            student("Chitra Nair", "500001", "APP1", "ADM-2023/45"),
+            student("Asha Patil", "500002", "APP2", "H2")));
+
+        assertArrayEquals(new int[]{0}, index.search("2023", 0));
+        assertArrayEquals(new int[]{0}, index.search("45", 0));
+        assertArrayEquals(new int[]{0}, index.search("adm202", 0));
+        assertArrayEquals(new int[]{0}, index.search("ADM-2023/45", 0));
+        assertArrayEquals(new int[]{0}, index.search("adm202345", 0));
+    }
+
+    @Test
+    public void updateDropsRemovedStudents() {
+        Roster.Student asha = student("Asha Patil", "500001", "APP1", "H1");
+        Roster.Student bala = student("Bala Rao", "500002", "APP2", "H2");
+        Roster roster = roster(asha, bala);
+        StudentSearchIndex index = index(roster);
+
+        roster.apply(Arrays.asList(bala));
+        index.update(roster);
+
+        assertEquals(1, index.size());
+        assertArrayEquals(NONE, index.search("asha", 0));
+        assertArrayEquals(NONE, index.search("h1", 0));
+        // No typo fallback onto the removed student either
+        assertArrayEquals(NONE, index.search("ahsa", 0));
+        assertArrayEquals(new int[]{1}, index.search("bala", 0));
+
+        roster.apply(Arrays.asList(asha, bala));
+        index.update(roster);
+        assertArrayEquals(new int[]{0}, index.search("asha", 0));
+    }
+
+    @Test
+    public void updateReindexesChangedStudents() {
+        Roster roster = roster(
+            student("Asha Patil", "500001", "APP1", "H1"),
+            student("Bala Rao", "500002", "APP2", "H2"));
+        StudentSearchIndex index = index(roster);
+
+        roster.apply(Arrays.asList(
+            student("Asha Kulkarni", "500001", "APP1", "H7"),
+            student("Bala Rao", "500002", "APP2", "H2")));
+        index.update(roster);
+
+        assertEquals(2, index.size());
+        assertArrayEquals(NONE, index.search("patil", 0));
+        assertArrayEquals(NONE, index.search("h1", 0));
+        assertArrayEquals(new int[]{0}, index.search("kulkarni", 0));
+        assertArrayEquals(new int[]{0}, index.search("h7", 0));
+        assertArrayEquals(new int[]{0}, index.search("asha", 0));
+    }
+
+    private static StudentSearchIndex index(Roster roster) {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.update(roster);
+        return index;
+    }
+
+    private static Roster roster(Roster.Student... students) {
+        Roster roster = new Roster();
+        roster.apply(Arrays.asList(students));
+        return roster;
+    }
+
+    private static Roster.Student student(String name, String appNumber, String appId, String hostelId) {
+        return new Roster.Student(name, appNumber, appId, hostelId, "Block A");
+    }
+}
@@ -0,0 +1,176 @@
+package com.vssnagar.attendance.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * TrackingEngineTest
+ * Counts, dates and student matching as calculateTrackingData (Code.gs) reports them
+ */
+public class TrackingEngineTest {
+
+    private static final int YOGA = 0;
+    private static final int MESS_DAY = 1;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void useIndianTime() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+    }
+
+    @After
+    public void restoreTimeZone() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void countsStatusesWithDatesNewestFirst() {
+        List<List<TrackingEngine.Row>> rows = rows(MESS_DAY,
+            row("2026-01-20", "Asha Patil", "APP1", "500001", "Present"),
+            row("2026-01-22", "Asha Patil", "APP1", "500001", "Present"),
+            row("2026-01-21", "Asha Patil", "APP1", "500001", "Absent"),
+            row("2026-01-23", "Asha Patil", "APP1", "500001", "On Leave"));
+
+        TrackingEngine.Result asha = find(calculate(rows, null, null), "Asha Patil", MESS_DAY);
+
+        assertEquals(2, asha.present);
+        assertEquals(1, asha.absent);
+        assertEquals(1, asha.leave);
+        assertEquals(4, asha.total);
+        assertEquals(Arrays.asList("2026-01-22", "2026-01-20"), asha.presentDates);
+        assertEquals(Collections.singletonList("2026-01-21"), asha.absentDates);
+        assertEquals(50, asha.percentage());
+    }
+
+    @Test
+    public void everyRosterStudentHasARowPerCategory() {
+        TrackingEngine.Output output = calculate(rows(MESS_DAY), null, null);
+
+        assertEquals(2 * TrackingEngine.CATEGORIES.length, output.data.size());
+        // By name, then category
+        assertEquals("Asha Patil", output.data.get(0).name);
+        assertEquals("Yoga", output.data.get(0).category);
+        assertEquals("Mess Day", output.data.get(1).category);
+        assertEquals("Bala Rao", output.data.get(4).name);
+        assertEquals(0, output.data.get(1).total);
+    }
+
+    @Test
+    public void yogaSkipsSundays() {
+        // 2026-01-04 is a Sunday
+        List<List<TrackingEngine.Row>> rows = rows(YOGA,
+            row("2026-01-04", "Asha Patil", "APP1", "500001", "Absent"),
+            row("2026-01-05", "Asha Patil", "APP1", "500001", "Present"));
+
+        TrackingEngine.Result asha = find(calculate(rows, null, null), "Asha Patil", YOGA);
+
+        assertEquals(1, asha.total);
+        assertEquals(0, asha.absent);
+    }
+
+    @Test
+    public void dateRangeIsInclusive() {
+        List<List<TrackingEngine.Row>> rows = rows(MESS_DAY,
+            row("2026-01-09", "Asha Patil", "APP1", "500001", "Present"),
+            row("2026-01-10", "Asha Patil", "APP1", "500001", "Present"),
+            row("2026-01-15", "Asha Patil", "APP1", "500001", "Absent"),
+            row("2026-01-16", "Asha Patil", "APP1", "500001", "Absent"));
+
+        TrackingEngine.Result asha = find(calculate(rows, "2026-01-10", "2026-01-15"), "Asha Patil", MESS_DAY);
+
+        assertEquals(1, asha.present);
+        assertEquals(1, asha.absent);
+    }
+
+    @Test
+    public void rowWithoutIdsMatchesTheRosterByNameKey() {
+        // Name parts in another order and no ids - still the roster's Asha (via her App Number)
+        List<List<TrackingEngine.Row>> rows = rows(MESS_DAY,
+            row("2026-01-20", "patil asha", "", "", "Present"));
+
+        TrackingEngine.Output output = calculate(rows, null, null);
+
+        assertEquals(2 * TrackingEngine.CATEGORIES.length, output.data.size());
+        TrackingEngine.Result asha = find(output, "Asha Patil", MESS_DAY);
+        assertEquals(1, asha.present);
+        assertEquals("500001", asha.id);
+    }
+
+    @Test
+    public void studentMissingFromTheRosterGetsOwnRow() {
+        List<List<TrackingEngine.Row>> rows = rows(MESS_DAY,
+            row("2026-01-20", "Chitra Nair", "N/A", "500003", "Absent"));
+
+        TrackingEngine.Output output = calculate(rows, null, null);
+
+        TrackingEngine.Result chitra = find(output, "Chitra Nair", MESS_DAY);
+        assertEquals(1, chitra.absent);
+        assertEquals("500003", chitra.appNumber);
+    }
+
+    @Test
+    public void otherDateFormatsAreNormalised() {
+        List<List<TrackingEngine.Row>> rows = rows(MESS_DAY,
+            row("1/20/2026", "Asha Patil", "APP1", "500001", "Present"),
+            row("21-01-2026", "Asha Patil", "APP1", "500001", "Present"),
+            row("2026-01-21T18:30:00.000Z", "Asha Patil", "APP1", "500001", "Absent"),
+            row("Fri Jan 23 2026 00:00:00 GMT+0530 (India Standard Time)", "Asha Patil", "APP1", "500001", "Leave"),
+            row("not a date", "Asha Patil", "APP1", "500001", "Present"));
+
+        TrackingEngine.Result asha = find(calculate(rows, null, null), "Asha Patil", MESS_DAY);
+
+        assertEquals(Arrays.asList("2026-01-21", "2026-01-20"), asha.presentDates);
+        assertEquals(Collections.singletonList("2026-01-22"), asha.absentDates);
+        assertEquals(Collections.singletonList("2026-01-23"), asha.leaveDates);
+    }
+
+    @Test
+    public void normalizeDateFallbackForms() {
+        assertEquals("2026-01-05", TrackingEngine.normalizeDate("2026-1-5"));
+        assertEquals("2026-01-22", TrackingEngine.normalizeDate("2026-01-22T10:00:00"));
+        assertEquals("2026-01-22", TrackingEngine.normalizeDate("January 22, 2026"));
+        assertEquals("2026-01-22", TrackingEngine.normalizeDate("22 Jan 2026"));
+        assertEquals("2026-01-24", TrackingEngine.normalizeDate("Sat, 24 Jan 2026 00:00:00 GMT"));
+        assertNull(TrackingEngine.normalizeDate("Foo 22 2026"));
+        assertNull(TrackingEngine.normalizeDate("2026-13-01T00:00:00Z"));
+    }
+
+    private static TrackingEngine.Output calculate(List<List<TrackingEngine.Row>> rows, String start, String end) {
+        List<TrackingEngine.Student> roster = Arrays.asList(
+            new TrackingEngine.Student("Asha Patil", "APP1", "500001"),
+            new TrackingEngine.Student("Bala Rao", "APP2", "500002"));
+        return TrackingEngine.calculate(roster, rows, start, end);
+    }
+
+    private static List<List<TrackingEngine.Row>> rows(int categoryIndex, TrackingEngine.Row... rows) {
+        List<List<TrackingEngine.Row>> byCategory = new ArrayList<>();
+        for (int c = 0; c < TrackingEngine.CATEGORIES.length; c++) {
+            byCategory.add(c == categoryIndex ? Arrays.asList(rows) : Collections.<TrackingEngine.Row>emptyList());
+        }
+        return byCategory;
+    }
+
+    private static TrackingEngine.Row row(String date, String name, String appId, String appNumber, String status) {
+        return new TrackingEngine.Row(date, name, appId, appNumber, status);
+    }
+
+    private static TrackingEngine.Result find(TrackingEngine.Output output, String name, int categoryIndex) {
+        for (TrackingEngine.Result result : output.data) {
+            if (result.name.equals(name) && result.category.equals(TrackingEngine.CATEGORIES[categoryIndex])) {
+                return result;
+            }
+        }
+        throw new AssertionError("No result for " + name + " in " + TrackingEngine.CATEGORIES[categoryIndex]);
+    }
+}
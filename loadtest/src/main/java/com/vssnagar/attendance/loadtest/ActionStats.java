@@ -0,0 +1,59 @@
+package com.vssnagar.attendance.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * ActionStats
+ * Latencies and outcomes of one action, kept exactly (not bucketed) so runs compare closely
+ * Each device records into its own instance without locking; instances are merged at the end.
+ */
+final class ActionStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    int errors;
+    long bytes;
+
+    void record(long latencyNanos, boolean success, long responseBytes) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) errors++;
+        bytes += responseBytes;
+    }
+
+    void merge(ActionStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        bytes += other.bytes;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile (0-100) in milliseconds, or 0 if nothing was recorded
+     * Sorts the samples, so call after the run
+     */
+    double percentileMillis(double percentile) {
+        if (count == 0) return 0;
+        Arrays.sort(latencies, 0, count);
+        int rank = (int) Math.ceil(count * percentile / 100.0);
+        return latencies[Math.max(0, Math.min(count, rank) - 1)] / 1e6;
+    }
+
+    double meanMillis() {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += latencies[i];
+        }
+        return sum / 1e6 / count;
+    }
+}
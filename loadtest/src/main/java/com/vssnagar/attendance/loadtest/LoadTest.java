@@ -0,0 +1,316 @@
+package com.vssnagar.attendance.loadtest;
+
+import com.vssnagar.attendance.core.TrackingEngine;
+import com.vssnagar.attendance.server.AttendanceServer;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * LoadTest
+ * Simulates many devices syncing at once against the action endpoint and reports how it held up
+ * Default scenario is the 21:00 rush: every warden submits Mess Night for their floor, with
+ * some catching up on the previous days. Without --endpoint a local AttendanceServer is started
+ * on a temporary database. Results (throughput, latency percentiles, error rates and, when the
+ * server exposes /metrics, its lock waits) are written as JSON for run-over-run comparison.
+ *
+ * Options (defaults in brackets):
+ *   --endpoint URL      server to test [local AttendanceServer]
+ *   --devices N         concurrent devices [40]
+ *   --students N        roster size, split into one floor per device [450]
+ *   --categories LIST   comma-separated sections, or "all" [Mess Night]
+ *   --days N            overlapping dates devices write to [3]
+ *   --duration SECONDS  measured time [60]
+ *   --warmup SECONDS    unmeasured time before it [10]
+ *   --think MILLIS      mean pause between a device's rounds [500]
+ *   --threads N         local server request threads [16]
+ *   --label TEXT        stored in the result to tell runs apart
+ *   --out FILE          result file [build/results/loadtest-yyyyMMdd-HHmmss.json]
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("endpoint", "");
+        options.put("devices", "40");
+        options.put("students", "450");
+        options.put("categories", "Mess Night");
+        options.put("days", "3");
+        options.put("duration", "60");
+        options.put("warmup", "10");
+        options.put("think", "500");
+        options.put("threads", "16");
+        options.put("label", "");
+        options.put("out", "build/results/loadtest-"
+            + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".json");
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            if (!options.containsKey(name) || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unknown or incomplete option " + args[i]);
+            }
+            options.put(name, args[i + 1]);
+        }
+
+        int devices = Integer.parseInt(options.get("devices"));
+        int students = Integer.parseInt(options.get("students"));
+        int days = Integer.parseInt(options.get("days"));
+        int durationSeconds = Integer.parseInt(options.get("duration"));
+        int warmupSeconds = Integer.parseInt(options.get("warmup"));
+        List<String> categories = "all".equals(options.get("categories"))
+            ? Arrays.asList(TrackingEngine.CATEGORIES)
+            : Arrays.asList(options.get("categories").split("\\s*,\\s*"));
+
+        File database = null;
+        AttendanceServer server = null;
+        String endpoint = options.get("endpoint");
+        if (endpoint.isEmpty()) {
+            database = File.createTempFile("attendance-loadtest", "");
+            database.delete();
+            database.mkdirs();
+            server = AttendanceServer.start(0, new File(database, "attendance").getPath(),
+                Integer.parseInt(options.get("threads")));
+            endpoint = "http://127.0.0.1:" + server.port() + "/";
+        }
+        // Enough pooled keep-alive connections for every device
+        System.setProperty("http.maxConnections", String.valueOf(Math.max(5, devices)));
+
+        try {
+            List<String> dates = recentDates(Math.max(1, days));
+            List<String> statusDates = recentDates(7);
+            List<List<String[]>> floors = floors(students, devices);
+
+            long start = System.nanoTime();
+            long measureFrom = start + warmupSeconds * 1000000000L;
+            long stopAt = measureFrom + durationSeconds * 1000000000L;
+
+            System.out.println("Load test: " + devices + " devices, " + students + " students, "
+                + categories + " over " + dates.size() + " dates -> " + endpoint);
+            List<SimulatedDevice> simulated = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < devices; i++) {
+                SimulatedDevice device = new SimulatedDevice(i, new URL(endpoint), floors.get(i), students,
+                    categories, dates, statusDates, measureFrom, stopAt, Integer.parseInt(options.get("think")));
+                simulated.add(device);
+                Thread thread = new Thread(device, "device-" + i);
+                threads.add(thread);
+                thread.start();
+            }
+
+            if (server != null) {
+                // Server metrics should cover the measured window only
+                sleepUntil(measureFrom);
+                server.metrics().clear();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            JSONObject result = report(options, endpoint, server != null, simulated, durationSeconds);
+            File out = new File(options.get("out"));
+            if (out.getParentFile() != null) {
+                out.getParentFile().mkdirs();
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+                writer.write(result.toString(2));
+            }
+            printSummary(result);
+            System.out.println("Results written to " + out.getPath());
+        } finally {
+            if (server != null) {
+                server.close();
+                deleteRecursively(database);
+            }
+        }
+    }
+
+    private static JSONObject report(Map<String, String> options, String endpoint, boolean embedded,
+                                     List<SimulatedDevice> devices, int durationSeconds) {
+        Map<String, ActionStats> merged = new LinkedHashMap<>();
+        for (SimulatedDevice device : devices) {
+            for (Map.Entry<String, ActionStats> entry : device.stats.entrySet()) {
+                ActionStats stats = merged.get(entry.getKey());
+                if (stats == null) {
+                    stats = new ActionStats();
+                    merged.put(entry.getKey(), stats);
+                }
+                stats.merge(entry.getValue());
+            }
+        }
+
+        JSONObject actions = new JSONObject();
+        int requests = 0;
+        int errors = 0;
+        for (Map.Entry<String, ActionStats> entry : merged.entrySet()) {
+            ActionStats stats = entry.getValue();
+            requests += stats.count();
+            errors += stats.errors;
+            actions.put(entry.getKey(), new JSONObject()
+                .put("requests", stats.count())
+                .put("errors", stats.errors)
+                .put("errorRate", rate(stats.errors, stats.count()))
+                .put("throughputPerSec", round((double) stats.count() / durationSeconds))
+                .put("responseBytes", stats.bytes)
+                .put("latencyMs", new JSONObject()
+                    .put("mean", round(stats.meanMillis()))
+                    .put("p50", round(stats.percentileMillis(50)))
+                    .put("p95", round(stats.percentileMillis(95)))
+                    .put("p99", round(stats.percentileMillis(99)))
+                    .put("max", round(stats.percentileMillis(100)))));
+        }
+
+        JSONObject config = new JSONObject();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (!"out".equals(option.getKey()) && !"endpoint".equals(option.getKey())) {
+                config.put(option.getKey(), option.getValue());
+            }
+        }
+
+        return new JSONObject()
+            .put("startedAt", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US).format(new Date()))
+            .put("endpoint", endpoint)
+            .put("embeddedServer", embedded)
+            .put("config", config)
+            .put("durationSeconds", durationSeconds)
+            .put("totals", new JSONObject()
+                .put("requests", requests)
+                .put("errors", errors)
+                .put("errorRate", rate(errors, requests))
+                .put("throughputPerSec", round((double) requests / durationSeconds)))
+            .put("actions", actions)
+            .put("server", serverMetrics(endpoint));
+    }
+
+    /**
+     * Lock waits and per action latency as the server saw them (microseconds, bucket estimates),
+     * or JSONObject.NULL when the endpoint has no /metrics (e.g. Apps Script)
+     */
+    private static Object serverMetrics(String endpoint) {
+        try (InputStream in = new URL(new URL(endpoint), "/metrics").openStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+            JSONObject histograms = new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8))
+                .getJSONObject("histograms");
+            JSONObject server = new JSONObject();
+            for (String name : histograms.keySet()) {
+                JSONObject histogram = histograms.getJSONObject(name);
+                long count = histogram.getLong("count");
+                server.put(name, new JSONObject()
+                    .put("count", count)
+                    .put("meanMicros", count == 0 ? 0 : histogram.getLong("sum") / count)
+                    .put("p50Micros", histogram.getLong("p50"))
+                    .put("p95Micros", histogram.getLong("p95"))
+                    .put("p99Micros", histogram.getLong("p99"))
+                    .put("maxMicros", histogram.getLong("max")));
+            }
+            return server;
+        } catch (Exception e) {
+            return JSONObject.NULL;
+        }
+    }
+
+    private static void printSummary(JSONObject result) {
+        JSONObject totals = result.getJSONObject("totals");
+        System.out.printf(Locale.US, "%n%-28s %8s %7s %9s %9s %9s %9s%n",
+            "action", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        JSONObject actions = result.getJSONObject("actions");
+        for (String name : actions.keySet()) {
+            JSONObject action = actions.getJSONObject(name);
+            JSONObject latency = action.getJSONObject("latencyMs");
+            System.out.printf(Locale.US, "%-28s %8.1f %6.2f%% %9.1f %9.1f %9.1f %9.1f%n", name,
+                action.getDouble("throughputPerSec"), action.getDouble("errorRate") * 100,
+                latency.getDouble("p50"), latency.getDouble("p95"), latency.getDouble("p99"), latency.getDouble("max"));
+        }
+        System.out.printf(Locale.US, "%-28s %8.1f %6.2f%%%n", "total",
+            totals.getDouble("throughputPerSec"), totals.getDouble("errorRate") * 100);
+
+        JSONObject server = result.optJSONObject("server");
+        JSONObject lockWait = server == null ? null : server.optJSONObject("lock.wait");
+        if (lockWait != null) {
+            System.out.printf(Locale.US, "lock wait: p50 %d us, p95 %d us, p99 %d us, max %d us%n",
+                lockWait.getLong("p50Micros"), lockWait.getLong("p95Micros"),
+                lockWait.getLong("p99Micros"), lockWait.getLong("maxMicros"));
+        }
+    }
+
+    /**
+     * Synthetic roster split into one floor per device: {name, appNumber, appId, hostelId, allocation}
+     */
+    private static List<List<String[]>> floors(int students, int devices) {
+        List<List<String[]>> floors = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            floors.add(new ArrayList<String[]>());
+        }
+        for (int s = 0; s < students; s++) {
+            int floor = s % devices;
+            floors.get(floor).add(new String[] {
+                String.format(Locale.US, "Student %04d", s),
+                String.format(Locale.US, "APP-%06d", 100000 + s),
+                String.format(Locale.US, "a0%05d", s),
+                String.format(Locale.US, "H-%03d", floor),
+                "Floor " + (floor + 1) + " / Room " + (s / devices + 1)
+            });
+        }
+        return floors;
+    }
+
+    /**
+     * Today and the days before it, most recent first
+     */
+    private static List<String> recentDates(int count) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        Calendar calendar = Calendar.getInstance();
+        List<String> dates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            dates.add(format.format(calendar.getTime()));
+            calendar.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        return dates;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+        }
+    }
+
+    private static double rate(int part, int total) {
+        return total == 0 ? 0 : round((double) part / total);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
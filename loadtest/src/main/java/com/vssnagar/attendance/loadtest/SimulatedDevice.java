@@ -0,0 +1,190 @@
+package com.vssnagar.attendance.loadtest;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * SimulatedDevice
+ * One warden's phone: marks its floor, syncs it, then polls like the app does
+ * Each round picks a section (category + one of the overlapping dates), uploads the floor's rows
+ * with about a tenth of the statuses changed since its last upload of that section, asks
+ * get_sync_status for the last week and check_attendance_status for the section, then waits a
+ * randomised think time. Devices sharing a category write the same sections, which is where
+ * the server's locking shows.
+ */
+final class SimulatedDevice implements Runnable {
+
+    static final String SYNC = "sync_batched_multi_sheet";
+    static final String SYNC_STATUS = "get_sync_status";
+    static final String CHECK_STATUS = "check_attendance_status";
+
+    private static final String[] STATUSES = {"Present", "Present", "Present", "Present", "Absent", "Leave"};
+
+    private final URL endpoint;
+    private final List<String[]> floor;
+    private final int rosterSize;
+    private final List<String> categories;
+    private final List<String> dates;
+    private final JSONArray statusDates;
+    private final long measureFrom;
+    private final long stopAt;
+    private final int thinkMillis;
+    private final Random random;
+
+    final Map<String, ActionStats> stats = new LinkedHashMap<>();
+    // Last uploaded statuses per section
+    private final Map<String, String[]> uploaded = new HashMap<>();
+
+    /**
+     * @param floor Students this device marks: {name, appNumber, appId, hostelId, allocation}
+     * @param dates Dates sections are picked from (yyyy-MM-dd, most recent first)
+     * @param statusDates Dates asked for in get_sync_status
+     * @param measureFrom System.nanoTime() after which requests are recorded (end of warm-up)
+     */
+    SimulatedDevice(int id, URL endpoint, List<String[]> floor, int rosterSize, List<String> categories,
+                    List<String> dates, List<String> statusDates, long measureFrom, long stopAt, int thinkMillis) {
+        this.endpoint = endpoint;
+        this.floor = floor;
+        this.rosterSize = rosterSize;
+        this.categories = categories;
+        this.dates = dates;
+        this.statusDates = new JSONArray(statusDates);
+        this.measureFrom = measureFrom;
+        this.stopAt = stopAt;
+        this.thinkMillis = thinkMillis;
+        this.random = new Random(id);
+        stats.put(SYNC, new ActionStats());
+        stats.put(SYNC_STATUS, new ActionStats());
+        stats.put(CHECK_STATUS, new ActionStats());
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < stopAt) {
+            String category = categories.get(random.nextInt(categories.size()));
+            // Mostly today, sometimes catching up on an earlier date
+            String date = dates.get(random.nextInt(4) == 0 ? random.nextInt(dates.size()) : 0);
+
+            call(SYNC, new JSONObject()
+                .put("action", SYNC)
+                .put("batches", new JSONObject().put(category, rows(category, date))));
+            call(SYNC_STATUS, new JSONObject()
+                .put("action", SYNC_STATUS)
+                .put("dates", statusDates)
+                .put("totalStudents", rosterSize));
+            call(CHECK_STATUS, new JSONObject()
+                .put("action", CHECK_STATUS)
+                .put("date", date)
+                .put("category", category)
+                .put("totalStudents", rosterSize));
+
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(random.nextInt(thinkMillis * 2 + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The floor's rows for a section; after the first upload about 10% of statuses change
+     */
+    private JSONArray rows(String category, String date) {
+        String key = date + "|" + category;
+        String[] statuses = uploaded.get(key);
+        if (statuses == null) {
+            statuses = new String[floor.size()];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = STATUSES[random.nextInt(STATUSES.length)];
+            }
+            uploaded.put(key, statuses);
+        } else {
+            for (int i = 0; i < statuses.length; i++) {
+                if (random.nextInt(10) == 0) {
+                    statuses[i] = STATUSES[random.nextInt(STATUSES.length)];
+                }
+            }
+        }
+
+        JSONArray rows = new JSONArray();
+        String time = String.format(Locale.US, "%02d:%02d", 20 + random.nextInt(2), random.nextInt(60));
+        for (int i = 0; i < floor.size(); i++) {
+            String[] student = floor.get(i);
+            rows.put(new JSONArray()
+                .put(student[0]).put(student[1]).put(student[2]).put(student[3]).put(student[4])
+                .put(time).put(statuses[i]).put("Leave".equals(statuses[i]) ? "Home visit" : "").put(date));
+        }
+        return rows;
+    }
+
+    private void call(String action, JSONObject body) {
+        if (System.nanoTime() >= stopAt) return;
+        long started = System.nanoTime();
+        boolean success = false;
+        long bytes = 0;
+        try {
+            String response = post(body.toString());
+            bytes = response.length();
+            success = response.contains("\"result\":\"success\"");
+        } catch (IOException e) {
+            // Counted as an error below
+        }
+        if (started >= measureFrom) {
+            stats.get(action).record(System.nanoTime() - started, success, bytes);
+        }
+    }
+
+    /**
+     * Streams are closed but the connection is not disconnected, so it goes back to the
+     * keep-alive pool like a phone's would
+     */
+    private String post(String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setConnectTimeout(15000);
+            connection.setReadTimeout(60000);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            // Same request the app and the page send
+            connection.setRequestProperty("Content-Type", "text/plain;charset=utf-8");
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int code = connection.getResponseCode();
+            if (code < 200 || code >= 300) {
+                throw new IOException("HTTP " + code);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+                return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+}
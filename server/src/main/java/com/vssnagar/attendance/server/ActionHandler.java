@@ -0,0 +1,534 @@
+package com.vssnagar.attendance.server;
+
+import com.vssnagar.attendance.core.MetricsRegistry;
+import com.vssnagar.attendance.core.TrackingEngine;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * ActionHandler
+ * The Code.gs doPost protocol over AttendanceStore
+ * Takes the same {"action": ...} bodies and answers with the same JSON shapes, so the app and
+ * the page can use this server in place of the Apps Script URL without other changes.
+ * Section writes lock only their (date, category); see SectionLocks.
+ */
+final class ActionHandler {
+
+    // Metrics are kept per action; anything else is counted as "unknown"
+    private static final Set<String> ACTIONS = new HashSet<>(Arrays.asList(
+        "sync_batched_multi_sheet", "fetch_reports", "fetch_category_data", "get_sync_status",
+        "get_tracking_data", "refresh_tracking", "get_students", "check_attendance_status",
+        "get_full_backup", "archive_old_data", "import_backup"));
+
+    private final AttendanceStore store;
+    private final SectionLocks locks;
+    private final MetricsRegistry metrics;
+
+    ActionHandler(AttendanceStore store, MetricsRegistry metrics) {
+        this.store = store;
+        this.metrics = metrics;
+        this.locks = new SectionLocks(metrics);
+    }
+
+    /**
+     * A streamed response failed after part of it was written
+     * An error document appended to it would not be valid JSON, so the exchange has to be
+     * dropped without finishing the body (see AttendanceServer.serve)
+     */
+    static final class AbortedResponse extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        AbortedResponse(Exception cause) {
+            super("Streamed response aborted: " + cause, cause);
+        }
+    }
+
+    /**
+     * Run one request body and write the JSON response
+     * @throws AbortedResponse If a streamed response failed part way
+     */
+    void handle(String body, Writer out) throws IOException {
+        long started = System.nanoTime();
+        String action = "unknown";
+        JSONObject response;
+        try {
+            JSONObject json = new JSONObject(body);
+            if (ACTIONS.contains(json.optString("action"))) {
+                action = json.optString("action");
+            }
+            if ("get_full_backup".equals(action)) {
+                // Can be large - streamed instead of built in memory
+                try {
+                    writeFullBackup(out);
+                } catch (Exception e) {
+                    record(action, started, false);
+                    throw new AbortedResponse(e);
+                }
+                record(action, started, true);
+                return;
+            }
+            response = dispatch(json.optString("action"), json);
+        } catch (AbortedResponse e) {
+            throw e;
+        } catch (Exception e) {
+            response = error(e.toString());
+        }
+        out.write(response.toString());
+        record(action, started, "success".equals(response.optString("result")));
+    }
+
+    private JSONObject dispatch(String action, JSONObject json) throws Exception {
+        switch (action) {
+            case "sync_batched_multi_sheet":
+                return sync(json.optJSONObject("batches"));
+            case "fetch_reports":
+                return fetchReports(json.optString("date", ""));
+            case "fetch_category_data":
+                return fetchCategoryData(json.optString("date", ""), json.optString("category", ""));
+            case "get_sync_status":
+                return syncStatus(json.optJSONArray("dates"), json.optInt("totalStudents", 0));
+            case "get_tracking_data":
+                return tracking(emptyToNull(json.optString("startDate", "")), emptyToNull(json.optString("endDate", "")));
+            case "refresh_tracking":
+                return tracking(null, null);
+            case "get_students":
+                return students();
+            case "check_attendance_status":
+                return checkAttendanceStatus(json.optString("date", ""), json.optString("category", ""),
+                    json.optInt("totalStudents", 0));
+            case "archive_old_data":
+                return archive(json.optInt("months", 0));
+            case "import_backup":
+                return importBackup(json.optJSONObject("sheets"), json.optString("mode", "merge"));
+            default:
+                return error("Unknown action");
+        }
+    }
+
+    /**
+     * sync_batched_multi_sheet: {"batches": {"Yoga": [[9 cells], ...], ...}}
+     */
+    private JSONObject sync(JSONObject batches) throws Exception {
+        final Map<String, List<AttendanceStore.Row>> sections = new LinkedHashMap<>();
+        final Map<String, String[]> sectionNames = new LinkedHashMap<>();
+        if (batches != null) {
+            for (String category : batches.keySet()) {
+                JSONArray rows = batches.optJSONArray(category);
+                for (int i = 0; rows != null && i < rows.length(); i++) {
+                    JSONArray cells = rows.optJSONArray(i);
+                    if (cells == null) continue;
+                    AttendanceStore.Row row = AttendanceStore.Row.of(strings(cells));
+                    String key = SectionLocks.key(row.date, category);
+                    List<AttendanceStore.Row> section = sections.get(key);
+                    if (section == null) {
+                        section = new ArrayList<>();
+                        sections.put(key, section);
+                        sectionNames.put(key, new String[] {category, row.date});
+                    }
+                    section.add(row);
+                }
+            }
+        }
+
+        final int[] totals = new int[3];
+        locks.withSections(sections.keySet(), () -> {
+            for (Map.Entry<String, List<AttendanceStore.Row>> entry : sections.entrySet()) {
+                String[] name = sectionNames.get(entry.getKey());
+                AttendanceStore.SyncStats stats = store.upsertSection(name[0], name[1], entry.getValue());
+                totals[0] += stats.updated;
+                totals[1] += stats.inserted;
+                totals[2] += stats.skipped;
+            }
+            return null;
+        });
+
+        JSONObject stats = new JSONObject();
+        stats.put("updated", totals[0]);
+        stats.put("inserted", totals[1]);
+        stats.put("skipped", totals[2]);
+        return success().put("stats", stats);
+    }
+
+    /**
+     * fetch_reports: every section of one date, header row first
+     */
+    private JSONObject fetchReports(String date) throws Exception {
+        if (date.isEmpty()) return error("No date provided");
+        JSONObject data = new JSONObject();
+        for (String category : TrackingEngine.CATEGORIES) {
+            List<AttendanceStore.Row> rows = store.section(category, date);
+            if (!rows.isEmpty()) {
+                data.put(category, sheet(rows));
+            }
+        }
+        return success().put("data", data);
+    }
+
+    private JSONObject fetchCategoryData(String date, String category) throws Exception {
+        if (date.isEmpty()) return error("No date provided");
+        if (category.isEmpty()) return error("No category provided");
+        List<AttendanceStore.Row> rows = store.section(category, date);
+        return success().put("data", rows.isEmpty() ? new JSONArray() : sheet(rows));
+    }
+
+    /**
+     * get_sync_status: rows per date and category, zero-filled
+     */
+    private JSONObject syncStatus(JSONArray dates, int totalStudents) throws Exception {
+        if (dates == null || dates.length() == 0) return error("No dates provided");
+        Set<String> wanted = new LinkedHashSet<>();
+        for (int i = 0; i < dates.length(); i++) {
+            wanted.add(dates.optString(i));
+        }
+
+        Map<String, Map<String, Integer>> counts = store.counts(wanted);
+        JSONObject data = new JSONObject();
+        for (String date : wanted) {
+            Map<String, Integer> byCategory = counts.get(date);
+            JSONObject day = new JSONObject();
+            for (String category : TrackingEngine.CATEGORIES) {
+                Integer count = byCategory == null ? null : byCategory.get(category);
+                day.put(category, count == null ? 0 : count);
+            }
+            data.put(date, day);
+        }
+        return success().put("data", data).put("totalStudents", totalStudents);
+    }
+
+    private JSONObject tracking(String startDate, String endDate) throws Exception {
+        List<TrackingEngine.Student> roster = new ArrayList<>();
+        for (AttendanceStore.Student student : store.students()) {
+            roster.add(new TrackingEngine.Student(student.name, student.appId, student.appNumber));
+        }
+        TrackingEngine.Output output = TrackingEngine.calculate(roster,
+            store.trackingRows(startDate, endDate), startDate, endDate);
+
+        JSONArray data = new JSONArray();
+        for (TrackingEngine.Result result : output.data) {
+            JSONObject item = new JSONObject();
+            item.put("name", result.name);
+            item.put("id", result.id);
+            item.put("appId", result.appId);
+            item.put("appNumber", result.appNumber);
+            item.put("category", result.category);
+            item.put("present", result.present);
+            item.put("absent", result.absent);
+            item.put("leave", result.leave);
+            item.put("total", result.total);
+            item.put("percentage", result.percentage());
+            item.put("presentDates", new JSONArray(result.presentDates));
+            item.put("absentDates", new JSONArray(result.absentDates));
+            item.put("leaveDates", new JSONArray(result.leaveDates));
+            data.put(item);
+        }
+        return success().put("data", data).put("warnings", new JSONArray(output.warnings));
+    }
+
+    /**
+     * get_students: the roster imported from the Students sheet (see import_backup)
+     */
+    private JSONObject students() throws Exception {
+        JSONArray students = new JSONArray();
+        for (AttendanceStore.Student student : store.students()) {
+            if (student.name.isEmpty()) continue;
+            JSONObject item = new JSONObject();
+            item.put("name", student.name);
+            item.put("appNumber", student.appNumber);
+            item.put("appId", student.appId);
+            item.put("hostelId", student.hostelId);
+            item.put("allocation", student.allocation);
+            students.put(item);
+        }
+        return success().put("students", students).put("source", "server").put("count", students.length());
+    }
+
+    /**
+     * check_attendance_status: submitted once 80% of the expected rows exist
+     */
+    private JSONObject checkAttendanceStatus(String date, String category, int totalStudents) throws Exception {
+        if (date.isEmpty()) return error("No date provided");
+        if (category.isEmpty()) return error("No category provided");
+
+        List<AttendanceStore.Row> rows = store.section(category, date);
+        int expected = totalStudents > 0 ? totalStudents : 45;
+        String status = "not_started";
+        if (!rows.isEmpty()) {
+            status = rows.size() >= expected * 0.8 ? "submitted" : "in_progress";
+        }
+
+        Object attendance = JSONObject.NULL;
+        if (!rows.isEmpty()) {
+            JSONObject byName = new JSONObject();
+            for (AttendanceStore.Row row : rows) {
+                if (!row.name.isEmpty()) {
+                    byName.put(row.name, row.status.isEmpty() ? "Present" : row.status);
+                }
+            }
+            attendance = byName;
+        }
+
+        return success()
+            .put("status", status)
+            .put("recordCount", rows.size())
+            .put("totalStudents", rows.isEmpty() ? totalStudents : expected)
+            // No lastUpdatedAt: the store keeps no write time per section, and the time of
+            // this request (what Code.gs sends) would look like one
+            .put("attendanceData", attendance);
+    }
+
+    /**
+     * archive_old_data: move rows older than the given number of months
+     */
+    private JSONObject archive(final int months) throws Exception {
+        if (months < 1) return error("Please specify months (minimum 1)");
+
+        Calendar cutoff = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cutoff.add(Calendar.MONTH, -months);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final String cutoffDate = format.format(cutoff.getTime());
+
+        Map<String, Integer> archived = locks.exclusive(() -> store.archiveBefore(cutoffDate));
+        int total = 0;
+        JSONObject sheets = new JSONObject();
+        for (Map.Entry<String, Integer> entry : archived.entrySet()) {
+            sheets.put(entry.getKey(), entry.getValue());
+            total += entry.getValue();
+        }
+        JSONObject details = new JSONObject().put("archived", total).put("sheets", sheets);
+        return success()
+            .put("message", "Archived " + total + " rows older than " + months + " months")
+            .put("details", details);
+    }
+
+    /**
+     * import_backup: {"sheets": {"Yoga": [[header], [row], ...], "Archive_Yoga": ..., "Students": ...},
+     * "mode": "merge" | "replace"}. Section and Archive_ sheets map to their tables, Students to the
+     * roster; other sheets are reported as skipped.
+     */
+    private JSONObject importBackup(final JSONObject sheets, final String mode) throws Exception {
+        if (sheets == null || sheets.length() == 0) return error("No sheets data provided");
+        final boolean replace = "replace".equals(mode);
+        final JSONObject results = new JSONObject();
+
+        int imported = locks.exclusive(() -> {
+            int total = 0;
+            for (String sheetName : sheets.keySet()) {
+                JSONArray data = sheets.optJSONArray(sheetName);
+                if (data == null || data.length() == 0) continue;
+
+                int rows;
+                if ("Students".equals(sheetName)) {
+                    List<AttendanceStore.Student> students = parseStudents(data);
+                    store.importStudents(students, replace);
+                    rows = students.size();
+                } else {
+                    boolean archive = sheetName.startsWith("Archive_");
+                    String category = archive ? sheetName.substring("Archive_".length()) : sheetName;
+                    if (!isCategory(category)) {
+                        results.put(sheetName, new JSONObject().put("rows", 0).put("mode", "skipped"));
+                        continue;
+                    }
+                    List<AttendanceStore.Row> parsed = parseRows(data);
+                    store.importRows(archive, category, parsed, replace);
+                    rows = parsed.size();
+                }
+                results.put(sheetName, new JSONObject().put("rows", rows).put("mode", replace ? "replaced" : "merged"));
+                total += rows;
+            }
+            return total;
+        });
+
+        JSONObject details = new JSONObject().put("imported", imported).put("sheets", results);
+        return success()
+            .put("message", "Imported " + imported + " rows across " + results.length() + " sheets")
+            .put("details", details);
+    }
+
+    /**
+     * get_full_backup in the Code.gs shape, one sheet per category, archive and the roster
+     */
+    private void writeFullBackup(final Writer out) throws Exception {
+        out.write("{\"result\":\"success\",\"backup\":{\"spreadsheetName\":\"VSS Nagar Attendance (server)\","
+            + "\"spreadsheetId\":\"\",\"backupDate\":" + JSONObject.quote(isoTimestamp(new Date())) + ",\"sheets\":{");
+        final boolean[] first = {true};
+        for (final boolean archive : new boolean[] {false, true}) {
+            final String[] current = {null};
+            store.forEachRow(archive, (category, row) -> {
+                if (!category.equals(current[0])) {
+                    if (current[0] != null) out.write("]}");
+                    current[0] = category;
+                    if (!first[0]) out.write(',');
+                    first[0] = false;
+                    out.write(JSONObject.quote(archive ? "Archive_" + category : category));
+                    out.write(":{\"columns\":" + AttendanceStore.HEADERS.length + ",\"data\":[");
+                    out.write(new JSONArray(AttendanceStore.HEADERS).toString());
+                }
+                out.write(',');
+                out.write(new JSONArray(row.cells()).toString());
+            });
+            if (current[0] != null) out.write("]}");
+        }
+
+        List<AttendanceStore.Student> students = store.students();
+        if (!students.isEmpty()) {
+            JSONArray data = new JSONArray();
+            data.put(new JSONArray(AttendanceStore.STUDENT_HEADERS));
+            for (AttendanceStore.Student student : students) {
+                data.put(new JSONArray(new String[] {student.name, student.appNumber, student.appId,
+                    student.hostelId, student.allocation, student.addedDate}));
+            }
+            if (!first[0]) out.write(',');
+            out.write("\"Students\":" + new JSONObject().put("rows", data.length())
+                .put("columns", AttendanceStore.STUDENT_HEADERS.length).put("data", data));
+        }
+        out.write("}}}");
+    }
+
+    /**
+     * Data rows of an imported section sheet, columns matched by header title
+     */
+    private static List<AttendanceStore.Row> parseRows(JSONArray data) {
+        List<String> headers = strings(data.optJSONArray(0));
+        int[] columns = new int[AttendanceStore.HEADERS.length];
+        for (int c = 0; c < columns.length; c++) {
+            int index = headers.indexOf(AttendanceStore.HEADERS[c]);
+            // Sheets without the expected titles are taken positionally
+            columns[c] = index >= 0 ? index : c;
+        }
+
+        List<AttendanceStore.Row> rows = new ArrayList<>();
+        for (int i = 1; i < data.length(); i++) {
+            List<String> cells = strings(data.optJSONArray(i));
+            List<String> ordered = new ArrayList<>();
+            for (int column : columns) {
+                ordered.add(column < cells.size() ? cells.get(column) : "");
+            }
+            AttendanceStore.Row row = AttendanceStore.Row.of(ordered);
+            if (!row.name.isEmpty() && !row.date.isEmpty()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Students sheet rows, columns found by keyword like fetchExternalStudents
+     */
+    private static List<AttendanceStore.Student> parseStudents(JSONArray data) {
+        List<String> headers = strings(data.optJSONArray(0));
+        int name = findColumn(headers, "full name", "name");
+        int appNumber = findColumn(headers, "application: application number", "application number", "app number");
+        int appId = findColumn(headers, "application: id", "application id", "app id");
+        int hostelId = findColumn(headers, "hostel id");
+        int allocation = findColumn(headers, "hostel allocation", "allocation");
+        int added = findColumn(headers, "added date");
+
+        List<AttendanceStore.Student> students = new ArrayList<>();
+        for (int i = 1; i < data.length(); i++) {
+            List<String> cells = strings(data.optJSONArray(i));
+            AttendanceStore.Student student = new AttendanceStore.Student();
+            student.name = column(cells, name);
+            if (student.name.isEmpty()) continue;
+            student.appNumber = column(cells, appNumber);
+            student.appId = column(cells, appId);
+            student.hostelId = column(cells, hostelId);
+            student.allocation = column(cells, allocation);
+            student.addedDate = column(cells, added);
+            students.add(student);
+        }
+        return students;
+    }
+
+    private static int findColumn(List<String> headers, String... keywords) {
+        for (int i = 0; i < headers.size(); i++) {
+            String header = headers.get(i).toLowerCase(Locale.ENGLISH);
+            for (String keyword : keywords) {
+                if (header.contains(keyword)) return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String column(List<String> cells, int index) {
+        return index >= 0 && index < cells.size() ? cells.get(index) : "";
+    }
+
+    /**
+     * Cells as trimmed strings; numbers without a trailing ".0", backup dates as their value
+     */
+    private static List<String> strings(JSONArray cells) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; cells != null && i < cells.length(); i++) {
+            Object cell = cells.opt(i);
+            String value;
+            if (cell == null || cell == JSONObject.NULL) {
+                value = "";
+            } else if (cell instanceof JSONObject) {
+                // {"_type": "date", "value": "2026-01-22T00:00:00.000Z"} from getFullBackupData
+                value = ((JSONObject) cell).optString("value", "");
+            } else if (cell instanceof Number && ((Number) cell).doubleValue() == Math.rint(((Number) cell).doubleValue())) {
+                value = String.valueOf(((Number) cell).longValue());
+            } else {
+                value = String.valueOf(cell);
+            }
+            values.add(value.trim());
+        }
+        return values;
+    }
+
+    private static JSONArray sheet(List<AttendanceStore.Row> rows) {
+        JSONArray data = new JSONArray();
+        data.put(new JSONArray(AttendanceStore.HEADERS));
+        for (AttendanceStore.Row row : rows) {
+            data.put(new JSONArray(row.cells()));
+        }
+        return data;
+    }
+
+    private static boolean isCategory(String name) {
+        for (String category : TrackingEngine.CATEGORIES) {
+            if (category.equals(name)) return true;
+        }
+        return false;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String isoTimestamp(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static JSONObject success() {
+        return new JSONObject().put("result", "success");
+    }
+
+    private static JSONObject error(String message) {
+        return new JSONObject().put("result", "error").put("error", message);
+    }
+
+    private void record(String action, long started, boolean success) {
+        metrics.histogram("action." + action, MetricsRegistry.LATENCY_MICROS)
+            .record((System.nanoTime() - started) / 1000);
+        metrics.counter(success ? "action." + action + ".ok" : "action." + action + ".error").increment();
+    }
+}
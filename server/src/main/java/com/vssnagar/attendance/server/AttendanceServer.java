@@ -0,0 +1,146 @@
+package com.vssnagar.attendance.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vssnagar.attendance.core.MetricsRegistry;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttendanceServer
+ * Self-hosted replacement for the Apps Script web app
+ * POST any path with a Code.gs action body ({"action": "sync_batched_multi_sheet", ...}) and get
+ * the same JSON back. GET /metrics returns the MetricsRegistry JSON (per action latency, lock
+ * waits); any other GET is a health check. Responses allow any origin, like the script did.
+ * Usage: java -jar server.jar [--port 8080] [--db ./data/attendance] [--threads 16]
+ * Embeddable: start(...) returns a running server, close() stops it.
+ */
+public final class AttendanceServer implements AutoCloseable {
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final AttendanceStore store;
+    private final ActionHandler handler;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private AttendanceServer(int port, String databasePath, int threads) throws Exception {
+        store = new AttendanceStore(databasePath, threads);
+        handler = new ActionHandler(store, metrics);
+        executor = Executors.newFixedThreadPool(threads);
+        http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.createContext("/", this::serve);
+        http.setExecutor(executor);
+    }
+
+    /**
+     * Open (or create) the database and start listening
+     * @param port 0 for any free port (see port())
+     * @param threads Request threads; also the number of database connections
+     */
+    public static AttendanceServer start(int port, String databasePath, int threads) throws Exception {
+        AttendanceServer server = new AttendanceServer(port, databasePath, threads);
+        server.http.start();
+        return server;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        boolean aborted = false;
+        try {
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            String method = exchange.getRequestMethod();
+            if ("OPTIONS".equals(method)) {
+                exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+                exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            if ("POST".equals(method)) {
+                String body = readBody(exchange.getRequestBody());
+                // Chunked: the backup action streams its response
+                exchange.sendResponseHeaders(200, 0);
+                Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                    StandardCharsets.UTF_8), 64 * 1024);
+                try {
+                    handler.handle(body, out);
+                } catch (ActionHandler.AbortedResponse e) {
+                    // Closing would end the chunked body cleanly; throwing instead makes HttpServer
+                    // drop the connection, so the client sees a failed transfer, not a short backup
+                    aborted = true;
+                    throw e;
+                }
+                out.close();
+                return;
+            }
+
+            byte[] response = ("/metrics".equals(exchange.getRequestURI().getPath())
+                ? metrics.toJson()
+                : "{\"result\":\"success\",\"server\":\"attendance\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } finally {
+            if (!aborted) exchange.close();
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        http.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 8080;
+        String databasePath = "./data/attendance";
+        int threads = 16;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if ("--db".equals(args[i])) {
+                databasePath = args[i + 1];
+            } else if ("--threads".equals(args[i])) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        final AttendanceServer server = start(port, databasePath, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Attendance server listening on port " + server.port() + ", database " + databasePath);
+    }
+}
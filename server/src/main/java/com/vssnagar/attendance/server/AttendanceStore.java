@@ -0,0 +1,515 @@
+package com.vssnagar.attendance.server;
+
+import com.vssnagar.attendance.core.TrackingEngine;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * AttendanceStore
+ * Embedded H2 database holding what the Apps Script kept in sheets
+ * One "attendance" table for the four section sheets (category column), "attendance_archive"
+ * for the Archive_ sheets and "students" for the Students sheet. Dates are stored as
+ * yyyy-MM-dd strings, so range filters are plain string comparisons on the index.
+ * Connections come from a small fixed pool; callers serialize writers per section (SectionLocks),
+ * H2 itself only locks the rows being written.
+ */
+final class AttendanceStore implements Closeable {
+
+    // Column order of every section sheet and of the rows the app sends
+    static final String[] HEADERS = {
+        "Full Name", "Application: Application Number", "Application: ID", "Hostel Id",
+        "Hostel Allocation", "Time", "Status", "Reason", "Date"
+    };
+
+    static final String[] STUDENT_HEADERS = {
+        "Full Name", "Application: Application Number", "Application: ID", "Hostel Id",
+        "Hostel Allocation", "Added Date"
+    };
+
+    private static final String ROW_COLUMNS =
+        "name, app_number, app_id, hostel_id, allocation, record_time, status, reason, record_date";
+
+    /**
+     * One sheet row
+     */
+    static final class Row {
+        String name = "";
+        String appNumber = "";
+        String appId = "";
+        String hostelId = "";
+        String allocation = "";
+        String time = "";
+        String status = "";
+        String reason = "";
+        String date = "";
+
+        /**
+         * From a sheet row in HEADERS order
+         */
+        static Row of(List<String> cells) {
+            Row row = new Row();
+            row.name = cell(cells, 0);
+            row.appNumber = cell(cells, 1);
+            row.appId = cell(cells, 2);
+            row.hostelId = cell(cells, 3);
+            row.allocation = cell(cells, 4);
+            row.time = cell(cells, 5);
+            row.status = cell(cells, 6);
+            row.reason = cell(cells, 7);
+            row.date = normalizeDate(cell(cells, 8));
+            return row;
+        }
+
+        /**
+         * Back to a sheet row in HEADERS order
+         */
+        String[] cells() {
+            return new String[] {name, appNumber, appId, hostelId, allocation, time, status, reason, date};
+        }
+
+        private static String cell(List<String> cells, int index) {
+            return index < cells.size() && cells.get(index) != null ? cells.get(index).trim() : "";
+        }
+    }
+
+    static final class Student {
+        String name = "";
+        String appNumber = "";
+        String appId = "";
+        String hostelId = "";
+        String allocation = "";
+        String addedDate = "";
+    }
+
+    /**
+     * Outcome of one section upsert, same meaning as handleMultiSheetSync's stats
+     */
+    static final class SyncStats {
+        int updated;
+        int inserted;
+        int skipped;
+    }
+
+    interface RowVisitor {
+        void visit(String category, Row row) throws Exception;
+    }
+
+    private final BlockingQueue<Connection> pool;
+
+    AttendanceStore(String path, int connections) throws SQLException {
+        String url = "jdbc:h2:file:" + path;
+        pool = new ArrayBlockingQueue<>(connections);
+        for (int i = 0; i < connections; i++) {
+            pool.add(DriverManager.getConnection(url, "sa", ""));
+        }
+        createTables();
+    }
+
+    private void createTables() throws SQLException {
+        Connection connection = borrow();
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] {"attendance", "attendance_archive"}) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "category VARCHAR(64) NOT NULL, "
+                    + "record_date VARCHAR(10) NOT NULL, "
+                    + "name VARCHAR(255) NOT NULL, "
+                    + "app_number VARCHAR(64) NOT NULL, "
+                    + "app_id VARCHAR(64) NOT NULL, "
+                    + "hostel_id VARCHAR(64) NOT NULL, "
+                    + "allocation VARCHAR(255) NOT NULL, "
+                    + "record_time VARCHAR(64) NOT NULL, "
+                    + "status VARCHAR(32) NOT NULL, "
+                    + "reason VARCHAR(1024) NOT NULL)");
+            }
+            // Every per-section lookup (sync matching, reports, status checks) is (category, date)
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_attendance_section_app_id "
+                + "ON attendance (category, record_date, app_id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_attendance_date ON attendance (record_date)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_archive_section "
+                + "ON attendance_archive (category, record_date)");
+            statement.execute("CREATE TABLE IF NOT EXISTS students ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, "
+                + "app_number VARCHAR(64) NOT NULL, "
+                + "app_id VARCHAR(64) NOT NULL, "
+                + "hostel_id VARCHAR(64) NOT NULL, "
+                + "allocation VARCHAR(255) NOT NULL, "
+                + "added_date VARCHAR(32) NOT NULL)");
+        } finally {
+            release(connection);
+        }
+    }
+
+    /**
+     * Upsert one section (category + date), matching rows like handleMultiSheetSync:
+     * Application ID → Application Number → Name; a row is rewritten only if its status changed
+     */
+    SyncStats upsertSection(String category, String date, List<Row> rows) throws SQLException {
+        SyncStats stats = new SyncStats();
+        Connection connection = borrow();
+        try {
+            connection.setAutoCommit(false);
+
+            // Existing rows of the section under every identifier they have
+            Map<String, long[]> ids = new HashMap<>();
+            Map<Long, String> statuses = new HashMap<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT id, name, app_number, app_id, status FROM attendance WHERE category = ? AND record_date = ?")) {
+                select.setString(1, category);
+                select.setString(2, date);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        long[] id = {result.getLong(1)};
+                        statuses.put(id[0], result.getString(5));
+                        if (!result.getString(4).isEmpty()) ids.put("appId_" + result.getString(4), id);
+                        if (!result.getString(3).isEmpty()) ids.put("appNum_" + result.getString(3), id);
+                        if (!result.getString(2).isEmpty()) ids.put("name_" + result.getString(2), id);
+                    }
+                }
+            }
+
+            try (PreparedStatement update = connection.prepareStatement("UPDATE attendance SET name = ?, "
+                    + "app_number = ?, app_id = ?, hostel_id = ?, allocation = ?, record_time = ?, status = ?, "
+                    + "reason = ?, record_date = ? WHERE id = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO attendance (category, " + ROW_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (Row row : rows) {
+                    long[] existing = null;
+                    if (!row.appId.isEmpty()) existing = ids.get("appId_" + row.appId);
+                    if (existing == null && !row.appNumber.isEmpty()) existing = ids.get("appNum_" + row.appNumber);
+                    if (existing == null && !row.name.isEmpty()) existing = ids.get("name_" + row.name);
+
+                    if (existing == null) {
+                        insert.setString(1, category);
+                        bindRow(insert, 2, row);
+                        insert.addBatch();
+                        stats.inserted++;
+                    } else if (!row.status.equals(statuses.get(existing[0]))) {
+                        bindRow(update, 1, row);
+                        update.setLong(10, existing[0]);
+                        update.addBatch();
+                        statuses.put(existing[0], row.status);
+                        stats.updated++;
+                    } else {
+                        stats.skipped++;
+                    }
+                }
+                update.executeBatch();
+                insert.executeBatch();
+            }
+            connection.commit();
+            return stats;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            release(connection);
+        }
+    }
+
+    /**
+     * Rows of one section in insertion order (the order they sat in the sheet)
+     */
+    List<Row> section(String category, String date) throws SQLException {
+        final List<Row> rows = new ArrayList<>();
+        Connection connection = borrow();
+        try (PreparedStatement select = connection.prepareStatement("SELECT " + ROW_COLUMNS
+                + " FROM attendance WHERE category = ? AND record_date = ? ORDER BY id")) {
+            select.setString(1, category);
+            select.setString(2, date);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    rows.add(readRow(result));
+                }
+            }
+        } finally {
+            release(connection);
+        }
+        return rows;
+    }
+
+    /**
+     * Row count per date and category: {"2026-01-22": {"Yoga": 42, ...}}
+     */
+    Map<String, Map<String, Integer>> counts(Collection<String> dates) throws SQLException {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        if (dates.isEmpty()) return counts;
+
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < dates.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        Connection connection = borrow();
+        try (PreparedStatement select = connection.prepareStatement("SELECT record_date, category, COUNT(*) "
+                + "FROM attendance WHERE record_date IN (" + placeholders + ") GROUP BY record_date, category")) {
+            int index = 1;
+            for (String date : dates) {
+                select.setString(index++, date);
+            }
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    Map<String, Integer> byCategory = counts.get(result.getString(1));
+                    if (byCategory == null) {
+                        byCategory = new LinkedHashMap<>();
+                        counts.put(result.getString(1), byCategory);
+                    }
+                    byCategory.put(result.getString(2), result.getInt(3));
+                }
+            }
+        } finally {
+            release(connection);
+        }
+        return counts;
+    }
+
+    /**
+     * Attendance rows for tracking, indexed like TrackingEngine.CATEGORIES
+     * @param startDate First date to include, or null for no limit
+     * @param endDate Last date to include, or null for no limit
+     */
+    List<List<TrackingEngine.Row>> trackingRows(String startDate, String endDate) throws SQLException {
+        List<List<TrackingEngine.Row>> rowsByCategory = new ArrayList<>();
+        Connection connection = borrow();
+        try (PreparedStatement select = connection.prepareStatement("SELECT record_date, name, app_id, "
+                + "app_number, status FROM attendance WHERE category = ? AND record_date BETWEEN ? AND ?")) {
+            for (String category : TrackingEngine.CATEGORIES) {
+                List<TrackingEngine.Row> rows = new ArrayList<>();
+                select.setString(1, category);
+                select.setString(2, startDate == null ? "0000-00-00" : startDate);
+                select.setString(3, endDate == null ? "9999-99-99" : endDate);
+                try (ResultSet result = select.executeQuery()) {
+                    while (result.next()) {
+                        rows.add(new TrackingEngine.Row(result.getString(1), result.getString(2),
+                            result.getString(3), result.getString(4), result.getString(5)));
+                    }
+                }
+                rowsByCategory.add(rows);
+            }
+        } finally {
+            release(connection);
+        }
+        return rowsByCategory;
+    }
+
+    List<Student> students() throws SQLException {
+        List<Student> students = new ArrayList<>();
+        Connection connection = borrow();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT name, app_number, app_id, hostel_id, allocation, "
+                 + "added_date FROM students ORDER BY id")) {
+            while (result.next()) {
+                Student student = new Student();
+                student.name = result.getString(1);
+                student.appNumber = result.getString(2);
+                student.appId = result.getString(3);
+                student.hostelId = result.getString(4);
+                student.allocation = result.getString(5);
+                student.addedDate = result.getString(6);
+                students.add(student);
+            }
+        } finally {
+            release(connection);
+        }
+        return students;
+    }
+
+    /**
+     * Move every row dated before the cutoff into attendance_archive
+     * @return Rows archived per category (categories with nothing to move are left out)
+     */
+    Map<String, Integer> archiveBefore(String cutoff) throws SQLException {
+        Map<String, Integer> archived = new LinkedHashMap<>();
+        Connection connection = borrow();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement copy = connection.prepareStatement("INSERT INTO attendance_archive (category, "
+                    + ROW_COLUMNS + ") SELECT category, " + ROW_COLUMNS
+                    + " FROM attendance WHERE category = ? AND record_date < ? ORDER BY id");
+                 PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM attendance WHERE category = ? AND record_date < ?")) {
+                for (String category : TrackingEngine.CATEGORIES) {
+                    copy.setString(1, category);
+                    copy.setString(2, cutoff);
+                    int moved = copy.executeUpdate();
+                    if (moved == 0) continue;
+                    delete.setString(1, category);
+                    delete.setString(2, cutoff);
+                    delete.executeUpdate();
+                    archived.put(category, moved);
+                }
+            }
+            connection.commit();
+            return archived;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            release(connection);
+        }
+    }
+
+    /**
+     * Bulk-load rows of one category into attendance or attendance_archive
+     * @param replace Delete the category's existing rows first
+     */
+    void importRows(boolean archive, String category, List<Row> rows, boolean replace) throws SQLException {
+        String table = archive ? "attendance_archive" : "attendance";
+        Connection connection = borrow();
+        try {
+            connection.setAutoCommit(false);
+            if (replace) {
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + table + " WHERE category = ?")) {
+                    delete.setString(1, category);
+                    delete.executeUpdate();
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                    + " (category, " + ROW_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                int pending = 0;
+                for (Row row : rows) {
+                    insert.setString(1, category);
+                    bindRow(insert, 2, row);
+                    insert.addBatch();
+                    if (++pending == 1000) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            release(connection);
+        }
+    }
+
+    void importStudents(List<Student> students, boolean replace) throws SQLException {
+        Connection connection = borrow();
+        try {
+            connection.setAutoCommit(false);
+            if (replace) {
+                try (Statement delete = connection.createStatement()) {
+                    delete.executeUpdate("DELETE FROM students");
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO students (name, app_number, "
+                    + "app_id, hostel_id, allocation, added_date) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (Student student : students) {
+                    insert.setString(1, student.name);
+                    insert.setString(2, student.appNumber);
+                    insert.setString(3, student.appId);
+                    insert.setString(4, student.hostelId);
+                    insert.setString(5, student.allocation);
+                    insert.setString(6, student.addedDate);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            release(connection);
+        }
+    }
+
+    /**
+     * Stream every row of attendance or attendance_archive, grouped by category
+     */
+    void forEachRow(boolean archive, RowVisitor visitor) throws Exception {
+        Connection connection = borrow();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT category, " + ROW_COLUMNS + " FROM "
+                 + (archive ? "attendance_archive" : "attendance") + " ORDER BY category, id")) {
+            while (result.next()) {
+                visitor.visit(result.getString(1), readRow(result, 2));
+            }
+        } finally {
+            release(connection);
+        }
+    }
+
+    /**
+     * Dates from the app or a backup as yyyy-MM-dd (ISO timestamps keep their date part)
+     */
+    static String normalizeDate(String raw) {
+        String value = raw == null ? "" : raw.trim();
+        if (value.length() > 10 && value.charAt(4) == '-' && value.charAt(10) == 'T') {
+            return value.substring(0, 10);
+        }
+        String date = value.isEmpty() ? null : TrackingEngine.normalizeDate(value);
+        return date != null ? date : value;
+    }
+
+    private static void bindRow(PreparedStatement statement, int first, Row row) throws SQLException {
+        String[] cells = row.cells();
+        for (int i = 0; i < cells.length; i++) {
+            statement.setString(first + i, cells[i]);
+        }
+    }
+
+    private static Row readRow(ResultSet result) throws SQLException {
+        return readRow(result, 1);
+    }
+
+    private static Row readRow(ResultSet result, int first) throws SQLException {
+        Row row = new Row();
+        row.name = result.getString(first);
+        row.appNumber = result.getString(first + 1);
+        row.appId = result.getString(first + 2);
+        row.hostelId = result.getString(first + 3);
+        row.allocation = result.getString(first + 4);
+        row.time = result.getString(first + 5);
+        row.status = result.getString(first + 6);
+        row.reason = result.getString(first + 7);
+        row.date = result.getString(first + 8);
+        return row;
+    }
+
+    private Connection borrow() throws SQLException {
+        try {
+            return pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", e);
+        }
+    }
+
+    private void release(Connection connection) {
+        pool.add(connection);
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = pool.poll()) != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
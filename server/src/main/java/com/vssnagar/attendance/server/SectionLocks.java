@@ -0,0 +1,86 @@
+package com.vssnagar.attendance.server;
+
+import com.vssnagar.attendance.core.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SectionLocks
+ * One lock per (date, category) section in place of the Apps Script's single script lock
+ * Devices syncing different sections never wait for each other; a request touching several
+ * sections takes their locks in sorted order, so two such requests can't deadlock.
+ * Bulk operations that rewrite whole categories (archive, import) take the exclusive side of
+ * a read-write lock that every section writer holds shared.
+ * Time spent waiting is recorded in the "lock.wait" histogram.
+ */
+final class SectionLocks {
+
+    interface Work<T> {
+        T run() throws Exception;
+    }
+
+    private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock bulk = new ReentrantReadWriteLock();
+    private final MetricsRegistry metrics;
+
+    SectionLocks(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    static String key(String date, String category) {
+        return date + "|" + category;
+    }
+
+    /**
+     * Run work holding the locks of the given sections (keys from key())
+     */
+    <T> T withSections(Collection<String> keys, Work<T> work) throws Exception {
+        long started = System.nanoTime();
+        List<ReentrantLock> held = new ArrayList<>();
+        bulk.readLock().lock();
+        try {
+            for (String key : new TreeSet<>(keys)) {
+                ReentrantLock lock = locks.get(key);
+                if (lock == null) {
+                    ReentrantLock created = new ReentrantLock();
+                    lock = locks.putIfAbsent(key, created);
+                    if (lock == null) lock = created;
+                }
+                lock.lock();
+                held.add(lock);
+            }
+            recordWait(started);
+            return work.run();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+            bulk.readLock().unlock();
+        }
+    }
+
+    private void recordWait(long started) {
+        // Looked up each time - the registry may be cleared between runs
+        metrics.histogram("lock.wait", MetricsRegistry.LATENCY_MICROS).record((System.nanoTime() - started) / 1000);
+    }
+
+    /**
+     * Run work with no section writer active
+     */
+    <T> T exclusive(Work<T> work) throws Exception {
+        long started = System.nanoTime();
+        bulk.writeLock().lock();
+        try {
+            recordWait(started);
+            return work.run();
+        } finally {
+            bulk.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.vssnagar.attendance.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+/**
+ * AttendanceServerTest
+ * The Code.gs actions over HTTP against a server on a temporary database
+ * Sync matching and stats, import_backup column mapping, and a backup stream that fails part way
+ */
+public class AttendanceServerTest {
+
+    private static final String DATE = "2026-01-22";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String databasePath;
+    private AttendanceServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        databasePath = new File(folder.getRoot(), "attendance").getPath();
+        server = AttendanceServer.start(0, databasePath, 4);
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void syncMatchesByAppIdThenAppNumberThenName() throws Exception {
+        JSONObject first = sync(
+            row("Asha Patil", "500001", "APP1", "Present"),
+            row("Bala Rao", "500002", "", "Present"),
+            row("Chitra Nair", "", "", "Present"));
+        assertStats(first, 0, 3, 0);
+
+        JSONObject second = sync(
+            // Application ID of Asha with the number of Bala: the ID wins
+            row("Asha P", "500002", "APP1", "Absent"),
+            // Application Number only, status unchanged
+            row("Bala R", "500002", "", "Present"),
+            // Name only
+            row("Chitra Nair", "", "", "On Leave"),
+            row("Dev Kumar", "500004", "APP4", "Present"));
+        assertStats(second, 2, 1, 1);
+
+        JSONArray data = post(new JSONObject().put("action", "fetch_category_data")
+            .put("date", DATE).put("category", "Yoga")).getJSONArray("data");
+        // Header row, the three rows in their original order, then the new one
+        assertEquals(5, data.length());
+        assertRow(data.getJSONArray(1), "Asha P", "500002", "APP1", "Absent");
+        // Skipped rows are not rewritten
+        assertRow(data.getJSONArray(2), "Bala Rao", "500002", "", "Present");
+        assertRow(data.getJSONArray(3), "Chitra Nair", "", "", "On Leave");
+        assertRow(data.getJSONArray(4), "Dev Kumar", "500004", "APP4", "Present");
+    }
+
+    @Test
+    public void importBackupMapsColumnsByHeader() throws Exception {
+        JSONArray yoga = new JSONArray()
+            // Section columns in another order than HEADERS
+            .put(new JSONArray(new Object[] {"Date", "Status", "Full Name", "Application: ID",
+                "Application: Application Number", "Hostel Id", "Hostel Allocation", "Time", "Reason"}))
+            .put(new JSONArray(new Object[] {new JSONObject().put("_type", "date").put("value", DATE + "T00:00:00.000Z"),
+                "Present", "Asha Patil", "APP1", 500001, "H1", "Block A", "06:00", ""}))
+            // No name: not imported
+            .put(new JSONArray(new Object[] {DATE, "Present", "", "APP2", 500002, "H2", "Block A", "06:00", ""}));
+        JSONArray students = new JSONArray()
+            .put(new JSONArray(new Object[] {"S.No", "Hostel Allocation", "Full Name", "Application: ID",
+                "Application: Application Number", "Hostel Id"}))
+            .put(new JSONArray(new Object[] {1, "Block A", "Asha Patil", "APP1", 500001, "H1"}));
+        JSONObject sheets = new JSONObject()
+            .put("Yoga", yoga)
+            .put("Students", students)
+            .put("Notes", new JSONArray().put(new JSONArray().put("anything")));
+
+        JSONObject response = post(new JSONObject().put("action", "import_backup").put("sheets", sheets));
+        assertEquals("success", response.getString("result"));
+        JSONObject details = response.getJSONObject("details");
+        assertEquals(2, details.getInt("imported"));
+        assertEquals(1, details.getJSONObject("sheets").getJSONObject("Yoga").getInt("rows"));
+        assertEquals("skipped", details.getJSONObject("sheets").getJSONObject("Notes").getString("mode"));
+
+        JSONArray data = post(new JSONObject().put("action", "fetch_category_data")
+            .put("date", DATE).put("category", "Yoga")).getJSONArray("data");
+        assertEquals(2, data.length());
+        assertEquals(new JSONArray(new Object[] {"Asha Patil", "500001", "APP1", "H1", "Block A", "06:00",
+            "Present", "", DATE}).toString(), data.getJSONArray(1).toString());
+
+        JSONObject student = post(new JSONObject().put("action", "get_students"))
+            .getJSONArray("students").getJSONObject(0);
+        assertEquals("Asha Patil", student.getString("name"));
+        assertEquals("500001", student.getString("appNumber"));
+        assertEquals("APP1", student.getString("appId"));
+        assertEquals("H1", student.getString("hostelId"));
+        assertEquals("Block A", student.getString("allocation"));
+    }
+
+    @Test
+    public void failedBackupStreamDropsTheConnection() throws Exception {
+        // More rows than the response buffer holds, so part of the backup is sent before the failure
+        JSONArray yoga = new JSONArray().put(new JSONArray(AttendanceStore.HEADERS));
+        for (int i = 0; i < 2000; i++) {
+            yoga.put(new JSONArray(new Object[] {"Student " + i, String.valueOf(500000 + i), "APP" + i,
+                "H" + i, "Block A", "06:00", "Present", "", DATE}));
+        }
+        post(new JSONObject().put("action", "import_backup").put("sheets", new JSONObject().put("Yoga", yoga)));
+
+        JSONObject backup = new JSONObject(postRaw(new JSONObject().put("action", "get_full_backup")));
+        assertEquals(2001, backup.getJSONObject("backup").getJSONObject("sheets")
+            .getJSONObject("Yoga").getJSONArray("data").length());
+
+        // An archived row the stream cannot write (no category) fails it after the Yoga sheet
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + databasePath, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE attendance_archive ALTER COLUMN category SET NULL");
+            statement.execute("INSERT INTO attendance_archive (category, record_date, name, app_number, app_id, "
+                + "hostel_id, allocation, record_time, status, reason) "
+                + "VALUES (NULL, '2025-01-01', 'Old', '', '', '', '', '', 'Present', '')");
+        }
+
+        try {
+            postRaw(new JSONObject().put("action", "get_full_backup"));
+            fail("A backup that failed part way must not arrive as a complete response");
+        } catch (IOException expected) {
+            // Connection dropped before the end of the chunked body
+        }
+        assertEquals(1, server.metrics().counter("action.get_full_backup.error").get());
+        assertEquals(1, server.metrics().counter("action.get_full_backup.ok").get());
+
+        // The server keeps answering
+        assertTrue(post(new JSONObject().put("action", "get_students")).has("students"));
+    }
+
+    private JSONObject sync(JSONArray... rows) throws IOException {
+        JSONArray yoga = new JSONArray();
+        for (JSONArray row : rows) {
+            yoga.put(row);
+        }
+        JSONObject response = post(new JSONObject().put("action", "sync_batched_multi_sheet")
+            .put("batches", new JSONObject().put("Yoga", yoga)));
+        assertEquals("success", response.getString("result"));
+        return response.getJSONObject("stats");
+    }
+
+    private static JSONArray row(String name, String appNumber, String appId, String status) {
+        return new JSONArray(new Object[] {name, appNumber, appId, "H1", "Block A", "06:00", status, "", DATE});
+    }
+
+    private static void assertStats(JSONObject stats, int updated, int inserted, int skipped) {
+        assertEquals("updated", updated, stats.getInt("updated"));
+        assertEquals("inserted", inserted, stats.getInt("inserted"));
+        assertEquals("skipped", skipped, stats.getInt("skipped"));
+    }
+
+    private static void assertRow(JSONArray row, String name, String appNumber, String appId, String status) {
+        assertEquals(name, row.getString(0));
+        assertEquals(appNumber, row.getString(1));
+        assertEquals(appId, row.getString(2));
+        assertEquals(status, row.getString(6));
+    }
+
+    private JSONObject post(JSONObject body) throws IOException {
+        return new JSONObject(postRaw(body));
+    }
+
+    private String postRaw(JSONObject body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+            new URL("http://127.0.0.1:" + server.port() + "/").openConnection();
+        try {
+            connection.setReadTimeout(30000);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "text/plain;charset=utf-8");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+                return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}